@@ -0,0 +1,97 @@
+package fr.rewrite.cli;
+
+import fr.rewrite.cli.config.ConfigLoader;
+import fr.rewrite.cli.config.ConfigWatcher;
+import fr.rewrite.cli.daemon.DaemonClient;
+import fr.rewrite.cli.daemon.DaemonServer;
+import fr.rewrite.cli.serialization.Mappers;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+@Command(
+  name = "daemon",
+  mixinStandardHelpOptions = true,
+  description = "Runs a resident process executing the commands forwarded when REWRITE_DAEMON=true, skipping JVM warm-up."
+)
+public class DaemonCommand implements Callable<Integer> {
+
+  @Option(
+    names = { "--socket" },
+    description = "Unix domain socket to listen on (default: $REWRITE_DAEMON_SOCKET or ~/.rewrite/daemon.sock)."
+  )
+  private Path socket;
+
+  @Option(
+    names = { "--idle-timeout" },
+    defaultValue = "PT3H",
+    description = "Stops the daemon after this idle time, as an ISO-8601 duration (default: ${DEFAULT-VALUE})."
+  )
+  private Duration idleTimeout;
+
+  @Option(
+    names = { "--flush-interval" },
+    defaultValue = "PT5M",
+    description = "Sends the submissions queued in the outbox of the current context at this interval, as an ISO-8601 duration; "
+    + "PT0S disables it (default: ${DEFAULT-VALUE})."
+  )
+  private Duration flushInterval;
+
+  @Option(names = { "--stop" }, defaultValue = "false", description = "Stops the running daemon.")
+  private boolean stop;
+
+  @Override
+  public Integer call() throws Exception {
+    Path effectiveSocket = socket != null ? socket : DaemonClient.socket();
+
+    if (stop) {
+      if (!DaemonClient.stop(effectiveSocket)) {
+        System.err.println("Aucun démon à l'écoute sur " + effectiveSocket);
+        return 1;
+      }
+      System.out.println("Démon arrêté.");
+      return 0;
+    }
+
+    // Le premier appel transmis n'a pas à construire les sérialiseurs Jackson
+    Mappers.warmUp();
+    Path configFilePath = ConfigLoader.defaultConfigPath();
+    ScheduledExecutorService outboxFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "rewrite-daemon-outbox-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try (
+      ConfigWatcher watcher = ConfigWatcher.start(configFilePath, (previous, current, diff) ->
+        RewriteCliClient.configReloaded(configFilePath, current, diff)
+      )
+    ) {
+      if (flushInterval.isPositive()) {
+        // Sa sortie, non routée vers un client, va sur celle du démon
+        outboxFlusher.scheduleWithFixedDelay(
+          DaemonCommand::flushOutbox,
+          flushInterval.toMillis(),
+          flushInterval.toMillis(),
+          TimeUnit.MILLISECONDS
+        );
+      }
+      new DaemonServer(effectiveSocket, idleTimeout, (args, out, err) ->
+        new CommandLine(new RewriteCliClient()).setOut(out).setErr(err).execute(args)
+      ).run();
+    } finally {
+      outboxFlusher.shutdownNow();
+    }
+    return 0;
+  }
+
+  // Les soumissions mises en attente par les commandes du démon repartent sans attendre un 'rewrite flush'
+  private static void flushOutbox() {
+    new CommandLine(new RewriteCliClient()).execute("flush", "--if-pending");
+  }
+}
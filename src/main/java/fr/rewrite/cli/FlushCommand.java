@@ -0,0 +1,97 @@
+package fr.rewrite.cli;
+
+import fr.rewrite.cli.client.ConnectionFailures;
+import fr.rewrite.cli.client.IdempotencyKey;
+import fr.rewrite.cli.client.OrchestratorClient;
+import fr.rewrite.cli.client.ResponseBody;
+import fr.rewrite.cli.client.SubmissionExecutor;
+import fr.rewrite.cli.outbox.Outbox;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParentCommand;
+
+@Command(
+  name = "flush",
+  mixinStandardHelpOptions = true,
+  description = "Sends the submissions queued in the outbox while the orchestrator of the context was unreachable."
+)
+public class FlushCommand implements Callable<Integer> {
+
+  @ParentCommand
+  private RewriteCliClient parent;
+
+  @Option(
+    names = { "--concurrency" },
+    defaultValue = "64",
+    description = "Maximum number of queued submissions in flight (default: ${DEFAULT-VALUE})."
+  )
+  private int concurrency;
+
+  @Option(
+    names = { "--if-pending" },
+    defaultValue = "false",
+    description = "Does nothing, silently, when no submission is queued (used by the daemon)."
+  )
+  private boolean ifPending;
+
+  @Override
+  public Integer call() throws Exception {
+    Optional<RewriteCliClient.ResolvedContext> resolvedContext = parent.resolveContext();
+    if (resolvedContext.isEmpty()) {
+      return 1;
+    }
+
+    OrchestratorClient client = parent.connect(resolvedContext.get());
+    Path directory = Outbox.directory(Outbox.defaultRoot(), client.serverUri().toString());
+    if (ifPending && Outbox.isEmpty(directory)) {
+      return 0;
+    }
+    System.out.println("Envoi des soumissions en attente dans " + directory + " au serveur : " + client.serverUri() + "...");
+
+    Outbox.DrainResult result;
+    try (Outbox outbox = Outbox.open(directory); SubmissionExecutor executor = SubmissionExecutor.virtualThreads(concurrency)) {
+      result = outbox.drain(executor, entry -> send(client, entry));
+    }
+
+    System.out.println(
+      result.delivered()
+      + " soumission(s) envoyée(s), "
+      + result.rejected()
+      + " rejetée(s) par le serveur, "
+      + result.failed()
+      + " en échec."
+    );
+    if (!result.complete()) {
+      System.err.println("Serveur injoignable : les soumissions restantes sont conservées pour le prochain 'rewrite flush'.");
+    }
+    return result.complete() && result.rejected() == 0 && result.failed() == 0 ? 0 : 1;
+  }
+
+  // Chaque soumission repart avec la clé de son run d'origine : le serveur reconnaît celles qu'il aurait déjà reçues
+  private static Outbox.Delivery send(OrchestratorClient client, Outbox.Entry entry) throws InterruptedException {
+    String key = entry.runId() == null ? null : IdempotencyKey.of(entry.runId(), entry.request());
+    try {
+      HttpResponse<ResponseBody> response = client.submit(entry.request(), key);
+      if (response.statusCode() >= 200 && response.statusCode() < 300) {
+        return Outbox.Delivery.DELIVERED;
+      }
+      if (client.retryPolicy().isRetryable(response.statusCode())) {
+        return Outbox.Delivery.UNREACHABLE;
+      }
+      System.err.println("  [ERREUR] " + entry.request().getRepoUrl() + " (" + response.statusCode() + ") " + response.body());
+      return Outbox.Delivery.REJECTED;
+    } catch (IOException e) {
+      if (ConnectionFailures.isUnreachable(e)) {
+        return Outbox.Delivery.UNREACHABLE;
+      }
+      // Échec TLS, réponse illisible... : la requête échouerait de nouveau et bloquerait les suivantes
+      System.err.println("  [ERREUR] " + entry.request().getRepoUrl() + " : " + e);
+      return Outbox.Delivery.FAILED;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package fr.rewrite.cli;
+
+import fr.rewrite.cli.client.OrchestratorClient;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+
+@Command(name = "logs", mixinStandardHelpOptions = true, description = "Prints the logs of an orchestrator job.")
+public class LogsCommand implements Callable<Integer> {
+
+  @ParentCommand
+  private RewriteCliClient parent;
+
+  @Parameters(index = "0", description = "Identifier of the job.")
+  private String jobId;
+
+  @Option(names = { "-f", "--follow" }, defaultValue = "false", description = "Keeps streaming the logs until the job completes.")
+  private boolean follow;
+
+  @Override
+  public Integer call() throws Exception {
+    Optional<RewriteCliClient.ResolvedContext> resolvedContext = parent.resolveContext();
+    if (resolvedContext.isEmpty()) {
+      return 1;
+    }
+
+    return printLogs(parent.connect(resolvedContext.get()), jobId, follow);
+  }
+
+  /**
+   * Prints the logs of a job on stdout as they arrive.
+   * @param client The orchestrator client.
+   * @param jobId The job identifier.
+   * @param follow Whether to keep streaming until the job completes.
+   * @return 0 if the logs were printed, 1 otherwise.
+   */
+  static int printLogs(OrchestratorClient client, String jobId, boolean follow) {
+    try {
+      int statusCode = client.streamLogs(jobId, follow, System.out::println);
+      if (statusCode < 200 || statusCode >= 300) {
+        System.err.println("Erreur lors de la récupération des logs du job " + jobId + " (statut " + statusCode + ").");
+        return 1;
+      }
+      return 0;
+    } catch (Exception e) {
+      System.err.println("Échec de la récupération des logs du job " + jobId + " : " + e.getMessage());
+      return 1;
+    }
+  }
+}
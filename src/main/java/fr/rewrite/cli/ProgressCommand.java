@@ -0,0 +1,42 @@
+package fr.rewrite.cli;
+
+import fr.rewrite.cli.batch.RunJournal;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+
+@Command(
+  name = "progress",
+  mixinStandardHelpOptions = true,
+  description = "Prints the progress of a --repo-list run from its journal, even while the run is going on."
+)
+public class ProgressCommand implements Callable<Integer> {
+
+  @Parameters(index = "0", description = "Identifier of the run.")
+  private String runId;
+
+  @Override
+  public Integer call() {
+    Path journalFile;
+    try {
+      journalFile = RunJournal.file(RunJournal.defaultRoot(), runId);
+    } catch (IllegalArgumentException e) {
+      System.err.println("Error: " + e.getMessage());
+      return 1;
+    }
+
+    try {
+      System.out.println("Run " + runId + " : " + RunJournal.progress(journalFile));
+      return 0;
+    } catch (NoSuchFileException e) {
+      System.err.println("Error: no journal found for run " + runId + " (" + journalFile + ").");
+      return 1;
+    } catch (IOException e) {
+      System.err.println("Error: could not read the journal of run " + runId + ": " + e.getMessage());
+      return 1;
+    }
+  }
+}
@@ -1,29 +1,45 @@
 package fr.rewrite.cli;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.batch.BatchSubmitter;
+import fr.rewrite.cli.batch.BatchSummary;
+import fr.rewrite.cli.batch.BulkBatcher;
+import fr.rewrite.cli.batch.Deduplicator;
+import fr.rewrite.cli.batch.RepoListReader;
+import fr.rewrite.cli.batch.RunJournal;
+import fr.rewrite.cli.batch.SubmissionCache;
+import fr.rewrite.cli.client.Backoff;
+import fr.rewrite.cli.client.ClusterThrottle;
+import fr.rewrite.cli.client.ConnectionFailures;
+import fr.rewrite.cli.client.GitRefs;
+import fr.rewrite.cli.client.HttpClientCache;
+import fr.rewrite.cli.client.JobPoller;
+import fr.rewrite.cli.client.JobStatus;
+import fr.rewrite.cli.client.OrchestratorClient;
+import fr.rewrite.cli.client.ResponseBody;
+import fr.rewrite.cli.client.RetryPolicy;
+import fr.rewrite.cli.client.SubmissionExecutor;
 import fr.rewrite.cli.config.*;
-import java.io.ByteArrayInputStream;
-import java.io.FileInputStream;
-import java.io.InputStream;
-import java.net.URI;
+import fr.rewrite.cli.daemon.DaemonClient;
+import fr.rewrite.cli.outbox.Outbox;
+import java.io.IOException;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.security.KeyStore;
-import java.security.cert.CertificateFactory;
-import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
 import java.util.concurrent.Callable;
-import javax.net.ssl.KeyManagerFactory;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.TrustManagerFactory;
-import javax.net.ssl.X509TrustManager;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 import lombok.Getter;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
@@ -33,11 +49,29 @@ import picocli.CommandLine.Option;
   name = "rewrite",
   mixinStandardHelpOptions = true,
   version = "Rewrite CLI 1.0",
-  description = "Client CLI for OpenRewrite orchestrator."
+  description = "Client CLI for OpenRewrite orchestrator.",
+  subcommands = { LogsCommand.class, DaemonCommand.class, FlushCommand.class, ProgressCommand.class }
 )
 public class RewriteCliClient implements Callable<Integer> {
 
-  @Option(names = { "-c", "--config" }, description = "Path to the configuration file (default: ~/.rewrite/config.yaml)")
+  // Partagés entre les commandes exécutées par un même processus (voir le mode démon)
+  private static final ConfigCache CONFIGS = new ConfigCache();
+  private static final HttpClientCache HTTP_CLIENTS = new HttpClientCache();
+  // Par URL de serveur : plusieurs contextes visant le même orchestrateur partagent son débit et sa limite de concurrence
+  private static final Map<String, ClusterThrottle> THROTTLES = new ConcurrentHashMap<>();
+  // Les hôtes Git sont joints avec les certificats par défaut, pas avec ceux de l'orchestrateur
+  private static final GitRefs GIT_REFS = new GitRefs(
+    HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).followRedirects(HttpClient.Redirect.NEVER).build(),
+    Duration.ofSeconds(10)
+  );
+  private static final Duration POLL_INITIAL_DELAY = Duration.ofSeconds(2);
+  private static final Duration POLL_MAX_DELAY = Duration.ofMinutes(1);
+  private static final double POLL_MULTIPLIER = 2;
+
+  @Option(
+    names = { "-c", "--config" },
+    description = "Path to the configuration file (default: the files of $REWRITECONFIG, or ~/.rewrite/config.yaml)"
+  )
   private Path configFilePath;
 
   @Option(names = { "-C", "--context" }, description = "The name of the kubeconfig context to use.")
@@ -46,12 +80,92 @@ public class RewriteCliClient implements Callable<Integer> {
   @Option(names = { "-s", "--server" }, description = "Overrides the server URL from the config file.")
   private String serverUrlOverride;
 
-  @Option(names = { "--repo-url" }, required = true, description = "URL of the Git repository to process.")
-  private String repoUrl;
+  @CommandLine.Spec
+  private CommandLine.Model.CommandSpec spec;
 
-  @Option(names = { "--recipe" }, required = true, description = "Name of the OpenRewrite recipe to apply.")
+  // Les options de soumission sont validées dans call() : marquées required, elles seraient aussi exigées par la sous-commande logs
+  @CommandLine.ArgGroup(exclusive = true)
+  private RepoSource repoSource;
+
+  static class RepoSource {
+
+    @Option(names = { "--repo-url" }, required = true, description = "URL of the Git repository to process.")
+    private String repoUrl;
+
+    @Option(
+      names = { "--repo-list" },
+      required = true,
+      description = "File listing the Git repositories to process, one URL per line ('-' reads from stdin)."
+    )
+    private Path repoList;
+  }
+
+  @Option(
+    names = { "--concurrency" },
+    defaultValue = "64",
+    description = "Maximum number of submissions (bulk requests if the cluster sets bulkMaxJobs) in flight with --repo-list, "
+    + "each on its own virtual thread (default: ${DEFAULT-VALUE})."
+  )
+  private int concurrency;
+
+  @Option(names = { "--wait" }, defaultValue = "false", description = "Waits for the rewrite job(s) to complete before exiting.")
+  private boolean waitForCompletion;
+
+  @Option(
+    names = { "--wait-timeout" },
+    defaultValue = "PT2H",
+    description = "Maximum time to wait for a job with --wait, as an ISO-8601 duration (default: ${DEFAULT-VALUE})."
+  )
+  private Duration waitTimeout;
+
+  @Option(names = { "--follow" }, defaultValue = "false", description = "Streams the job logs once the rewrite is submitted.")
+  private boolean follow;
+
+  @Option(
+    names = { "--tls-stats" },
+    defaultValue = "false",
+    description = "Prints full versus resumed TLS handshakes at the end of a --repo-list run."
+  )
+  private boolean tlsStats;
+
+  @Option(
+    names = { "--list-all" },
+    defaultValue = "false",
+    description = "Lists every repository of a --repo-list run in its summary, not only the first 20 failures."
+  )
+  private boolean listAll;
+
+  @Option(
+    names = { "--run-id" },
+    description = "Identifier of the run, from which the idempotency key of each submission is derived: "
+    + "reuse it to submit a run again without starting its rewrites twice (default: a random UUID)."
+  )
+  private String runId;
+
+  @Option(
+    names = { "--resume" },
+    paramLabel = "<runId>",
+    description = "Resumes a --repo-list run from its journal: the repositories it already accepted are skipped, "
+    + "the others are submitted again under the same idempotency keys."
+  )
+  private String resume;
+
+  @Option(names = { "--recipe" }, description = "Name of the OpenRewrite recipe to apply.")
   private String recipeName;
 
+  @Option(
+    names = { "--recipe-version" },
+    description = "Version of the recipe: a repository unchanged since its last submission is submitted again for a new version."
+  )
+  private String recipeVersion;
+
+  @Option(
+    names = { "--force" },
+    defaultValue = "false",
+    description = "Submits the repositories whose base branch did not change since the recipe was last submitted to them."
+  )
+  private boolean force;
+
   // --- CORRECTION ICI : RETIRER required = true ---
   @Option(names = { "--git-pat" }, description = "Git Personal Access Token for repository operations (overrides config).")
   private String gitPatForGit;
@@ -60,7 +174,7 @@ public class RewriteCliClient implements Callable<Integer> {
   @Option(names = { "--api-pat" }, description = "Platform API Token for PR/MR creation (overrides config).")
   private String gitPatForApi;
 
-  @Option(names = { "--platform" }, required = true, description = "Git platform (e.g., github, gitlab).")
+  @Option(names = { "--platform" }, description = "Git platform (e.g., github, gitlab).")
   private String platform;
 
   @Option(names = { "--base-branch" }, description = "Base branch for the changes (default: main).")
@@ -84,49 +198,32 @@ public class RewriteCliClient implements Callable<Integer> {
   @Getter
   private List<String> sourceExcludePatterns = Arrays.asList("target/", ".git/", ".mvn/");
 
+  record ResolvedContext(NamedCluster namedCluster, NamedUser namedUser) {}
+
   public static void main(String[] args) {
+    OptionalInt forwardedExitCode = DaemonClient.tryForward(args);
+    if (forwardedExitCode.isPresent()) {
+      System.exit(forwardedExitCode.getAsInt());
+    }
+
     int exitCode = new CommandLine(new RewriteCliClient()).execute(args);
     System.exit(exitCode);
   }
 
   @Override
   public Integer call() throws Exception {
-    Config config;
-    if (configFilePath != null) {
-      config = ConfigLoader.loadConfig(configFilePath);
-    } else {
-      config = ConfigLoader.loadConfig();
+    validateSubmissionOptions();
+    if (follow && repoSource.repoList != null) {
+      System.err.println("Error: --follow cannot be used with --repo-list, use 'rewrite logs --follow <jobId>' per job.");
+      return 1;
     }
 
-    String effectiveContextName = Optional.ofNullable(contextName).orElse(config.getCurrentContext());
-
-    if (effectiveContextName == null) {
-      System.err.println("Error: No current context set and no context specified via --context.");
+    Optional<ResolvedContext> resolvedContext = resolveContext();
+    if (resolvedContext.isEmpty()) {
       return 1;
     }
-
-    NamedContext namedContext = config
-      .getContexts()
-      .stream()
-      .filter(c -> c.getName().equals(effectiveContextName))
-      .findFirst()
-      .orElseThrow(() -> new IllegalArgumentException("Context '" + effectiveContextName + "' not found in config."));
-
-    NamedCluster namedCluster = config
-      .getClusters()
-      .stream()
-      .filter(cl -> cl.getName().equals(namedContext.getContext().getCluster()))
-      .findFirst()
-      .orElseThrow(() -> new IllegalArgumentException("Cluster '" + namedContext.getContext().getCluster() + "' not found in config."));
-
-    NamedUser namedUser = config
-      .getUsers()
-      .stream()
-      .filter(u -> u.getName().equals(namedContext.getContext().getUser()))
-      .findFirst()
-      .orElseThrow(() -> new IllegalArgumentException("User '" + namedContext.getContext().getUser() + "' not found in config."));
-
-    String finalServerUrl = Optional.ofNullable(serverUrlOverride).orElse(namedCluster.getCluster().getServer());
+    NamedCluster namedCluster = resolvedContext.get().namedCluster();
+    NamedUser namedUser = resolvedContext.get().namedUser();
 
     // --- CORRECTION ICI : LOGIQUE DE FALLBACK POUR LES PATs ---
     String effectiveGitPatForGit = Optional.ofNullable(this.gitPatForGit).orElse(namedUser.getUser().getGitPatForGit()); // Priorité à l'option CLI // Sinon, utiliser la config
@@ -147,47 +244,84 @@ public class RewriteCliClient implements Callable<Integer> {
 
     System.out.println(namedCluster);
     System.out.println(namedUser);
-    HttpClient httpClient = createHttpClient(namedCluster.getCluster(), namedUser.getUser());
-
-    RewriteConfig requestConfig = new RewriteConfig(
-      repoUrl,
-      recipeName,
-      namedUser.getUser().getUsername(),
-      effectiveGitPatForGit, // Utiliser la valeur résolue
-      effectiveGitPatForApi, // Utiliser la valeur résolue
-      platform,
-      baseBranch,
-      mavenExecutablePath,
-      pushAndPr,
-      sourceExcludePatterns,
-      commitMessage,
-      prMrTitle,
-      prMrDescription
-    );
+    if (resume != null) {
+      runId = resume;
+    } else if (runId == null) {
+      runId = UUID.randomUUID().toString();
+    }
+    System.out.println("Identifiant du run : " + runId);
+    OrchestratorClient client = connect(resolvedContext.get());
 
-    ObjectMapper objectMapper = new ObjectMapper();
-    try {
-      String jsonConfig = objectMapper.writeValueAsString(requestConfig);
+    if (repoSource.repoList != null) {
+      return submitBatch(client, namedCluster.getCluster(), namedUser.getUser(), effectiveGitPatForGit, effectiveGitPatForApi);
+    }
 
-      HttpRequest request = HttpRequest.newBuilder()
-        .uri(URI.create(finalServerUrl))
-        .header("Content-Type", "application/json")
-        .POST(HttpRequest.BodyPublishers.ofString(jsonConfig))
-        .build();
+    RewriteConfig requestConfig = buildRequestConfig(repoSource.repoUrl, namedUser.getUser(), effectiveGitPatForGit, effectiveGitPatForApi);
+    SubmissionCache cache = loadSubmissionCache();
+    Deduplicator deduplicator = deduplicator(client, cache);
+    Deduplicator.Lookup lookup = deduplicator == null ? null : deduplicator.lookup(requestConfig);
+    if (lookup != null && lookup.unchanged()) {
+      System.out.println(
+        "Dépôt inchangé depuis la dernière soumission de la recette (statut "
+        + lookup.previous().statusCode()
+        + ") : rien à soumettre, --force pour le soumettre quand même."
+      );
+      return 0;
+    }
 
-      System.out.println("Envoi de la requête au serveur : " + finalServerUrl + "...");
-      HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    try {
+      System.out.println("Envoi de la requête au serveur : " + client.serverUri() + "...");
+      HttpResponse<ResponseBody> response = client.submit(requestConfig);
 
       System.out.println("Statut de la réponse du serveur : " + response.statusCode());
       System.out.println("Corps de la réponse du serveur : " + response.body());
 
       if (response.statusCode() >= 200 && response.statusCode() < 300) {
         System.out.println("Processus de réécriture initié avec succès sur le serveur.");
-        return 0;
+        if (deduplicator != null) {
+          deduplicator.accepted(requestConfig.getRepoUrl(), lookup, response.statusCode(), client.jobId(response.body()).orElse(null));
+          saveSubmissionCache(cache);
+        }
+        if (follow) {
+          Optional<String> jobId = client.jobId(response.body());
+          if (jobId.isEmpty()) {
+            System.err.println("Error: --follow requires the server response to carry a job id ('jobId' or 'id' field).");
+            return 1;
+          }
+          if (LogsCommand.printLogs(client, jobId.get(), true) != 0) {
+            return 1;
+          }
+        }
+        if (!waitForCompletion) {
+          return 0;
+        }
+        int exitCode = waitForJob(client, response.body());
+        if (deduplicator != null) {
+          deduplicator.jobFinished(requestConfig.getRepoUrl(), exitCode == 0);
+          saveSubmissionCache(cache);
+        }
+        return exitCode;
       } else {
         System.err.println("Erreur lors de l'initiation du processus de réécriture sur le serveur.");
         return 1;
       }
+    } catch (IOException e) {
+      if (!ConnectionFailures.isUnreachable(e)) {
+        // Échec TLS, réponse illisible... : attendre le serveur n'y changerait rien
+        System.err.println("Échec de la communication avec le serveur de réécriture : " + e);
+        return 1;
+      }
+      // Serveur injoignable : les tentatives sont épuisées, la requête attend son retour dans l'outbox
+      System.err.println(
+        "Serveur de réécriture injoignable après "
+        + client.retryPolicy().maxAttempts()
+        + " tentative(s) : "
+        + e
+      );
+      try (OutboxQueue outbox = new OutboxQueue(client)) {
+        outbox.queue(requestConfig);
+      }
+      return 1;
     } catch (Exception e) {
       System.err.println("Échec de la communication avec le serveur de réécriture : " + e.getMessage());
       e.printStackTrace();
@@ -195,76 +329,344 @@ public class RewriteCliClient implements Callable<Integer> {
     }
   }
 
-  private HttpClient createHttpClient(NamedCluster.Cluster clusterConfig, NamedUser.User userConfig) throws Exception {
-    SSLContext sslContext = SSLContext.getInstance("TLS");
+  private void validateSubmissionOptions() {
+    List<String> missing = new ArrayList<>();
+    if (repoSource == null) {
+      missing.add("(--repo-url=<repoUrl> | --repo-list=<repoList>)");
+    }
+    if (recipeName == null) {
+      missing.add("'--recipe=<recipeName>'");
+    }
+    if (platform == null) {
+      missing.add("'--platform=<platform>'");
+    }
+
+    if (!missing.isEmpty()) {
+      throw new CommandLine.ParameterException(spec.commandLine(), "Missing required options: " + String.join(", ", missing));
+    }
 
-    KeyManagerFactory keyManagerFactory = null;
-    if (userConfig.getClientKeystorePath() != null && !userConfig.getClientKeystorePath().isEmpty()) {
-      KeyStore clientKeyStore = KeyStore.getInstance("PKCS12");
-      try (InputStream is = new FileInputStream(userConfig.getClientKeystorePath())) {
-        clientKeyStore.load(is, userConfig.getClientKeystorePassword().toCharArray());
+    if (resume != null && repoSource.repoList == null) {
+      throw new CommandLine.ParameterException(spec.commandLine(), "--resume only applies to a --repo-list run");
+    }
+    if (resume != null && runId != null && !runId.equals(resume)) {
+      throw new CommandLine.ParameterException(spec.commandLine(), "--resume and --run-id name different runs");
+    }
+    // L'identifiant du run nomme son journal
+    String journaledRunId = resume != null ? resume : runId;
+    if (repoSource.repoList != null && journaledRunId != null) {
+      try {
+        RunJournal.file(RunJournal.defaultRoot(), journaledRunId);
+      } catch (IllegalArgumentException e) {
+        throw new CommandLine.ParameterException(spec.commandLine(), e.getMessage());
       }
-      keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
-      keyManagerFactory.init(clientKeyStore, userConfig.getClientKeystorePassword().toCharArray());
+    }
+  }
+
+  /**
+   * Applies a configuration file reloaded by a {@link ConfigWatcher} to the caches shared by the commands of the process.
+   * @param configFilePath The reloaded file.
+   * @param current The reloaded configuration.
+   * @param diff The changes since the previous version.
+   */
+  static void configReloaded(Path configFilePath, Config current, ConfigDiff diff) {
+    try {
+      CONFIGS.update(configFilePath, current);
+    } catch (IOException e) {
+      // Le fichier a de nouveau changé ou disparu : le cache le relira au prochain appel
+    }
+    int rebuilt = HTTP_CLIENTS.reload(diff, current);
+    // Les réglages de débit ont pu changer : la limite adaptative de ces serveurs repart de zéro
+    diff
+      .clusters()
+      .forEach(name ->
+        current
+          .index()
+          .cluster(name)
+          .filter(cluster -> cluster.getCluster() != null)
+          .ifPresent(cluster -> THROTTLES.remove(cluster.getCluster().getServer()))
+      );
+    System.err.println(
+      "Configuration rechargée : " + diff.clusters().size() + " cluster(s) et " + diff.users().size() + " utilisateur(s) modifiés, "
+      + rebuilt + " client(s) HTTP reconstruit(s)."
+    );
+  }
+
+  /**
+   * Resolves the cluster and user of the selected context (--context, or the current context of the config file).
+   * The config file is --config, else the files of $REWRITECONFIG merged, else ~/.rewrite/config.yaml
+   * @return The resolved context, empty if no context is selected.
+   * @throws IOException If the config file cannot be read.
+   */
+  Optional<ResolvedContext> resolveContext() throws IOException {
+    Optional<ConfigSearchPath> searchPath = configFilePath == null ? ConfigSearchPath.fromEnvironment() : Optional.empty();
+    Config config = searchPath.isPresent()
+      ? searchPath.get().load()
+      : CONFIGS.loadContext(configFilePath != null ? configFilePath : ConfigLoader.defaultConfigPath(), contextName);
+
+    String effectiveContextName = Optional.ofNullable(contextName).orElse(config.getCurrentContext());
+
+    if (effectiveContextName == null) {
+      System.err.println("Error: No current context set and no context specified via --context.");
+      return Optional.empty();
     }
 
-    TrustManager[] trustManagers = null;
+    ConfigIndex index = config.index();
+    NamedContext namedContext = index
+      .context(effectiveContextName)
+      .orElseThrow(() -> new IllegalArgumentException("Context '" + effectiveContextName + "' not found in config."));
 
-    if (clusterConfig.isInsecureSkipTlsVerify()) {
-      System.err.println("WARNING: insecureSkipTlsVerify is true. TLS certificate verification will be skipped.");
-      trustManagers = new TrustManager[] {
-        new X509TrustManager() {
-          @Override
-          public X509Certificate[] getAcceptedIssuers() {
-            return new X509Certificate[0];
+    NamedCluster namedCluster = index
+      .cluster(namedContext.getContext().getCluster())
+      .orElseThrow(() -> new IllegalArgumentException("Cluster '" + namedContext.getContext().getCluster() + "' not found in config."));
+
+    NamedUser namedUser = index
+      .user(namedContext.getContext().getUser())
+      .orElseThrow(() -> new IllegalArgumentException("User '" + namedContext.getContext().getUser() + "' not found in config."));
+
+    return Optional.of(new ResolvedContext(namedCluster, namedUser));
+  }
+
+  /**
+   * Builds the orchestrator client of a resolved context, honoring --server and --run-id.
+   * @param resolvedContext The context to connect to.
+   * @return The client.
+   * @throws Exception If the TLS material of the context cannot be loaded.
+   */
+  OrchestratorClient connect(ResolvedContext resolvedContext) throws Exception {
+    String finalServerUrl = Optional.ofNullable(serverUrlOverride).orElse(resolvedContext.namedCluster().getCluster().getServer());
+    NamedCluster.Cluster cluster = resolvedContext.namedCluster().getCluster();
+    HttpClientCache.Connection connection = HTTP_CLIENTS.get(resolvedContext.namedCluster(), resolvedContext.namedUser());
+    ClusterThrottle throttle = THROTTLES.computeIfAbsent(finalServerUrl, server ->
+      ClusterThrottle.of(new ClusterThrottle.Settings(cluster.getRateLimit(), cluster.getRateLimitBurst(), cluster.isAdaptiveConcurrency()))
+    );
+    RetryPolicy retryPolicy = RetryPolicy.of(
+      new RetryPolicy.Settings(
+        cluster.getRetryMaxAttempts(),
+        Duration.ofMillis(cluster.getRetryInitialDelayMillis()),
+        Duration.ofMillis(cluster.getRetryMaxDelayMillis()),
+        cluster.getRetryOn() != null ? cluster.getRetryOn() : RetryPolicy.DEFAULT_RETRY_ON
+      )
+    );
+    return new OrchestratorClient(
+      connection.httpClient(),
+      connection.handshakeStats(),
+      finalServerUrl,
+      new OrchestratorClient.Settings(cluster.getRequestCompressionThreshold(), throttle, retryPolicy, runId, cluster.getHedgePercentile())
+    );
+  }
+
+  private Integer waitForJob(OrchestratorClient client, ResponseBody responseBody) throws Exception {
+    Optional<String> jobId = client.jobId(responseBody);
+    if (jobId.isEmpty()) {
+      System.err.println("Error: --wait requires the server response to carry a job id ('jobId' or 'id' field).");
+      return 1;
+    }
+
+    System.out.println("En attente de la fin du job " + jobId.get() + "...");
+    try (JobPoller poller = newJobPoller(client)) {
+      JobStatus status = poller.await(jobId.get()).get();
+      System.out.println("Statut final du job " + status.jobId() + " : " + status.status());
+      return status.succeeded() ? 0 : 1;
+    }
+  }
+
+  private JobPoller newJobPoller(OrchestratorClient client) {
+    return new JobPoller(client, new Backoff(POLL_INITIAL_DELAY, POLL_MAX_DELAY, POLL_MULTIPLIER), waitTimeout);
+  }
+
+  private Integer submitBatch(
+    OrchestratorClient client,
+    NamedCluster.Cluster cluster,
+    NamedUser.User user,
+    String effectiveGitPatForGit,
+    String effectiveGitPatForApi
+  ) throws Exception {
+    BulkBatcher.Settings bulk = cluster.getBulkMaxJobs() == null
+      ? null
+      : new BulkBatcher.Settings(cluster.getBulkMaxJobs(), Duration.ofMillis(cluster.getBulkLingerMillis()));
+    System.out.println(
+      "Envoi des requêtes au serveur : "
+      + (bulk == null ? client.serverUri() : client.bulkUri() + " par lots de " + bulk.maxJobs() + " dépôt(s)")
+      + " ("
+      + concurrency
+      + " requête(s) simultanée(s) au maximum)..."
+    );
+
+    try {
+      RunJournal.prune(RunJournal.defaultRoot());
+    } catch (IOException e) {
+      System.err.println("Warning: could not clean up the journals of the completed runs: " + e.getMessage());
+    }
+    Path journalFile = RunJournal.file(RunJournal.defaultRoot(), runId);
+    RunJournal journal;
+    try {
+      journal = resume != null ? RunJournal.resume(journalFile) : RunJournal.create(journalFile);
+    } catch (NoSuchFileException e) {
+      System.err.println("Error: no journal found for run " + runId + " (" + journalFile + ").");
+      return 1;
+    } catch (IOException e) {
+      System.err.println("Error: could not open the journal of run " + runId + ": " + e.getMessage());
+      return 1;
+    }
+
+    SubmissionCache cache = loadSubmissionCache();
+    Deduplicator deduplicator = deduplicator(client, cache);
+
+    // Avec --list-all, la ligne de chaque dépôt attend la fin du run dans un fichier temporaire, pas en mémoire
+    try (journal; BatchSummary summary = listAll ? BatchSummary.listingEveryRepository() : new BatchSummary()) {
+      try (
+        Stream<String> repoUrls = RepoListReader.open(repoSource.repoList);
+        OutboxQueue outbox = new OutboxQueue(client);
+        SubmissionExecutor executor = SubmissionExecutor.virtualThreads(concurrency);
+        JobPoller poller = waitForCompletion ? newJobPoller(client) : null
+      ) {
+        if (waitForCompletion) {
+          System.out.println("Les jobs seront attendus au fil de leur acceptation...");
+        }
+        BatchSubmitter submitter = new BatchSubmitter(client, executor, bulk, journal, deduplicator);
+        // Les résultats ne sont pas gardés : chacun est compté, et mis en attente dans l'outbox si le serveur était injoignable
+        submitter.submitAll(
+          repoUrls,
+          url -> buildRequestConfig(url, user, effectiveGitPatForGit, effectiveGitPatForApi),
+          poller,
+          result -> {
+            summary.accept(result);
+            if (result.unreachable()) {
+              outbox.queue(buildRequestConfig(result.repoUrl(), user, effectiveGitPatForGit, effectiveGitPatForApi));
+            }
           }
+        );
+        if (submitter.resumed() > 0) {
+          System.out.println(submitter.resumed() + " dépôt(s) déjà accepté(s) lors d'une exécution précédente du run, ignoré(s).");
+        }
+        if (submitter.unchanged() > 0) {
+          System.out.println(
+            submitter.unchanged()
+            + " dépôt(s) inchangé(s) depuis la dernière soumission de la recette, ignoré(s) (--force pour les soumettre)."
+          );
+        }
+      }
 
-          @Override
-          public void checkClientTrusted(X509Certificate[] certs, String authType) {}
-
-          @Override
-          public void checkServerTrusted(X509Certificate[] certs, String authType) {}
-        },
-      };
-    } else if (userConfig.getClientTruststorePath() != null && !userConfig.getClientTruststorePath().isEmpty()) {
-      KeyStore trustStore = KeyStore.getInstance("JKS");
-      try (InputStream is = new FileInputStream(userConfig.getClientTruststorePath())) {
-        String tsPassword = Optional.ofNullable(userConfig.getClientTruststorePassword()).orElse("");
-        trustStore.load(is, tsPassword.toCharArray());
+      if (cache != null) {
+        saveSubmissionCache(cache);
       }
-      TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
-      trustManagerFactory.init(trustStore);
-      trustManagers = trustManagerFactory.getTrustManagers();
-    } else if (clusterConfig.getCertificateAuthorityFile() != null && !clusterConfig.getCertificateAuthorityFile().isEmpty()) {
-      KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
-      trustStore.load(null, null);
-      try (InputStream caIs = new FileInputStream(clusterConfig.getCertificateAuthorityFile())) {
-        CertificateFactory certFactory = CertificateFactory.getInstance("X.509");
-        X509Certificate caCert = (X509Certificate) certFactory.generateCertificate(caIs);
-        trustStore.setCertificateEntry("ca_cert", caCert);
+
+      summary.print(System.out);
+      if (client.throttle().throttledResponses() > 0) {
+        System.out.println(client.throttle());
       }
-      TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
-      trustManagerFactory.init(trustStore);
-      trustManagers = trustManagerFactory.getTrustManagers();
-    } else if (clusterConfig.getCertificateAuthorityData() != null && !clusterConfig.getCertificateAuthorityData().isEmpty()) {
-      KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
-      trustStore.load(null, null);
-      CertificateFactory certFactory = CertificateFactory.getInstance("X.509");
-      X509Certificate caCert = (X509Certificate) certFactory.generateCertificate(
-        new ByteArrayInputStream(Base64.getDecoder().decode(clusterConfig.getCertificateAuthorityData()))
-      );
-      trustStore.setCertificateEntry("ca_cert", caCert);
-      TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
-      trustManagerFactory.init(trustStore);
-      trustManagers = trustManagerFactory.getTrustManagers();
-    } else {
-      System.out.println(
-        "Aucun certificat CA ou truststore spécifié dans la configuration. Le truststore système par défaut sera utilisé pour la vérification du serveur."
-      );
+      if (client.retryPolicy().retries() > 0) {
+        System.out.println("Nouvelles tentatives après une erreur transitoire : " + client.retryPolicy().retries());
+      }
+      System.out.println("Latence des soumissions vers " + client.serverUri() + " : " + client.throttle().latencies());
+      if (client.hedgedRequests() > 0) {
+        System.out.println(
+          "Soumissions doublées car trop lentes : "
+          + client.hedgedRequests()
+          + ", dont "
+          + client.hedgeWins()
+          + " plus rapides en second envoi"
+        );
+      }
+      if (tlsStats) {
+        System.out.println(client.handshakeStats());
+      }
+      return summary.allSucceeded() ? 0 : 1;
+    }
+  }
+
+  // Sans cache lisible, les dépôts sont tous soumis : la déduplication n'est qu'une économie
+  private static SubmissionCache loadSubmissionCache() {
+    try {
+      return SubmissionCache.load(SubmissionCache.defaultFile());
+    } catch (IOException e) {
+      System.err.println("Warning: could not read the submission cache " + SubmissionCache.defaultFile() + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  private Deduplicator deduplicator(OrchestratorClient client, SubmissionCache cache) {
+    return cache == null ? null : new Deduplicator(cache, GIT_REFS, client, recipeVersion, force);
+  }
+
+  private static void saveSubmissionCache(SubmissionCache cache) {
+    try {
+      cache.save();
+    } catch (IOException e) {
+      System.err.println("Warning: could not save the submission cache " + SubmissionCache.defaultFile() + ": " + e.getMessage());
+    }
+  }
+
+  private RewriteConfig buildRequestConfig(String url, NamedUser.User user, String effectiveGitPatForGit, String effectiveGitPatForApi) {
+    return new RewriteConfig(
+      url,
+      recipeName,
+      user.getUsername(),
+      effectiveGitPatForGit, // Utiliser la valeur résolue
+      effectiveGitPatForApi, // Utiliser la valeur résolue
+      platform,
+      baseBranch,
+      mavenExecutablePath,
+      pushAndPr,
+      sourceExcludePatterns,
+      commitMessage,
+      prMrTitle,
+      prMrDescription
+    );
+  }
+
+  // Met en attente, au fil de l'eau, les soumissions qui n'ont pas joint le serveur, avec le run id qui les rendra
+  // idempotentes au flush ; l'outbox n'est ouverte qu'à la première d'entre elles
+  private final class OutboxQueue implements AutoCloseable {
+
+    private final Path directory;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong queued = new AtomicLong();
+    private Outbox outbox;
+    private boolean failed;
+
+    OutboxQueue(OrchestratorClient client) {
+      this.directory = Outbox.directory(Outbox.defaultRoot(), client.serverUri().toString());
     }
 
-    sslContext.init(keyManagerFactory != null ? keyManagerFactory.getKeyManagers() : null, trustManagers, null);
+    void queue(RewriteConfig request) {
+      Outbox opened;
+      lock.lock();
+      try {
+        if (outbox == null && !failed) {
+          outbox = Outbox.open(directory);
+        }
+        opened = outbox;
+      } catch (IOException e) {
+        failed = true;
+        System.err.println("Error: could not queue the submissions in the outbox " + directory + ": " + e.getMessage());
+        return;
+      } finally {
+        lock.unlock();
+      }
+      if (opened == null) {
+        return;
+      }
 
-    return HttpClient.newBuilder().sslContext(sslContext).build();
+      // Les ajouts concurrents partagent leur fsync : ils se font hors du verrou
+      try {
+        opened.append(new Outbox.Entry(runId, request));
+        queued.incrementAndGet();
+      } catch (IOException e) {
+        System.err.println("Error: could not queue " + request.getRepoUrl() + " in the outbox " + directory + ": " + e.getMessage());
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (outbox != null) {
+        outbox.close();
+      }
+      if (queued.get() > 0) {
+        System.err.println(
+          queued.get() + " soumission(s) mise(s) en attente dans " + directory + " : lancez 'rewrite flush' une fois le serveur rétabli."
+        );
+      }
+    }
   }
 }
@@ -0,0 +1,13 @@
+package fr.rewrite.cli.application.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/**
+ * Request of a bulk submission: the fields of the {@link RewriteConfig}, plus the idempotency key of the request alone.
+ * The key is the one the request would carry if sent on its own, so the orchestrator recognizes it whatever the bulk
+ * request it arrives in.
+ * @param idempotencyKey The key of the request, null if the run has no id.
+ * @param request The request.
+ */
+public record BulkRequestItem(@JsonInclude(JsonInclude.Include.NON_NULL) String idempotencyKey, @JsonUnwrapped RewriteConfig request) {}
@@ -0,0 +1,299 @@
+package fr.rewrite.cli.batch;
+
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.client.JobPoller;
+import fr.rewrite.cli.client.JobStatus;
+import fr.rewrite.cli.client.OrchestratorClient;
+import fr.rewrite.cli.client.ResponseBody;
+import fr.rewrite.cli.client.SubmissionExecutor;
+import fr.rewrite.cli.shared.output.domain.OutputRoute;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Submits the same recipe to many repositories concurrently, over a single {@link OrchestratorClient}.
+ * Submissions run on a {@link SubmissionExecutor}, so thousands of them can be in flight without a platform thread each.
+ * With {@link BulkBatcher.Settings}, repositories are grouped into bulk requests, the executor then capping the number
+ * of bulk requests in flight. With a {@link RunJournal}, the state of each repository is recorded as it goes, and the
+ * repositories the journal already holds as accepted are skipped. With a {@link Deduplicator}, so are the repositories
+ * unchanged since the recipe was last submitted to them; their heads are resolved ahead on the executor, within the same
+ * cap as the submissions.
+ */
+public class BatchSubmitter {
+
+  // Dépôt à soumettre, avec sa position dans la liste qui l'identifie dans le journal
+  private record Candidate(long index, String repoUrl, RewriteConfig request, Deduplicator.Lookup lookup) {}
+
+  private final OrchestratorClient client;
+  private final SubmissionExecutor executor;
+  private final BulkBatcher.Settings bulk;
+  private final RunJournal journal;
+  private final Deduplicator deduplicator;
+  private long resumed;
+  private long unchanged;
+
+  public BatchSubmitter(OrchestratorClient client, SubmissionExecutor executor) {
+    this(client, executor, null);
+  }
+
+  public BatchSubmitter(OrchestratorClient client, SubmissionExecutor executor, BulkBatcher.Settings bulk) {
+    this(client, executor, bulk, null, null);
+  }
+
+  /**
+   * @param client The client to submit with.
+   * @param executor The executor to run the submissions on.
+   * @param bulk How to group repositories into bulk requests, null to send one request per repository.
+   * @param journal The journal of the run, null for none.
+   * @param deduplicator Skips the repositories unchanged since their last submission, null to submit every repository.
+   */
+  public BatchSubmitter(
+    OrchestratorClient client,
+    SubmissionExecutor executor,
+    BulkBatcher.Settings bulk,
+    RunJournal journal,
+    Deduplicator deduplicator
+  ) {
+    this.client = client;
+    this.executor = executor;
+    this.bulk = bulk;
+    this.journal = journal;
+    this.deduplicator = deduplicator;
+  }
+
+  /**
+   * Number of repositories skipped by the last {@link #submitAll(Stream, Function, JobPoller, Consumer)} as the journal
+   * held them as accepted.
+   * @return The number of repositories skipped.
+   */
+  public long resumed() {
+    return resumed;
+  }
+
+  /**
+   * Number of repositories skipped by the last {@link #submitAll(Stream, Function, JobPoller, Consumer)} as they did
+   * not change since the recipe was last submitted to them.
+   * @return The number of repositories skipped.
+   */
+  public long unchanged() {
+    return unchanged;
+  }
+
+  /**
+   * Submits one request per repository, or one per group of repositories in bulk mode, with at most
+   * {@link SubmissionExecutor#maxInFlight()} requests in flight. The result of each repository is handed to the sink as
+   * soon as it is known, and not kept: the memory of a run does not grow with the number of repositories.
+   * @param repoUrls The repositories to process, consumed lazily.
+   * @param requestFactory Builds the request of a repository.
+   * @param poller Polls the job of each accepted submission, whose result then only reaches the sink with the final
+   *     status of its job; null not to wait for the jobs.
+   * @param sink Receives the result of each repository submitted, from any thread and in any order.
+   * @throws IOException If the journal cannot be written.
+   * @throws InterruptedException If the calling thread is interrupted while waiting for the submissions.
+   */
+  public void submitAll(
+    Stream<String> repoUrls,
+    Function<String, RewriteConfig> requestFactory,
+    JobPoller poller,
+    Consumer<SubmissionResult> sink
+  ) throws IOException, InterruptedException {
+    resumed = 0;
+    unchanged = 0;
+    InFlight inFlight = new InFlight();
+    // Les têtes de branche sont résolues en avance et en parallèle, les dépôts restant soumis dans l'ordre de la liste
+    int lookAhead = deduplicator == null ? 1 : executor.maxInFlight();
+    Deque<Future<Candidate>> candidates = new ArrayDeque<>(lookAhead);
+    try {
+      Iterator<String> iterator = repoUrls.iterator();
+      long index = 0;
+      try (BulkBatcher batcher = bulk == null ? null : new BulkBatcher(client, executor, bulk)) {
+        while (true) {
+          while (candidates.size() < lookAhead && iterator.hasNext()) {
+            String repoUrl = iterator.next();
+            long position = index++;
+            // Un dépôt déjà accepté lors d'une exécution précédente du run n'est pas soumis à nouveau
+            if (journal != null && journal.accepted(position, repoUrl)) {
+              resumed++;
+            } else {
+              candidates.add(lookup(position, repoUrl, requestFactory.apply(repoUrl)));
+            }
+          }
+          Future<Candidate> next = candidates.poll();
+          if (next == null) {
+            break;
+          }
+
+          Candidate candidate = next.get();
+          if (candidate.lookup().unchanged()) {
+            unchanged++;
+            continue;
+          }
+          if (journal != null) {
+            journal.submitted(candidate.index(), candidate.repoUrl());
+          }
+          inFlight.add();
+          if (batcher != null) {
+            batcher.add(candidate.repoUrl(), candidate.request()).thenAccept(result -> finish(candidate, result, poller, sink, inFlight));
+          } else {
+            executor.submit(() -> {
+              finish(candidate, submit(client, candidate.repoUrl(), candidate.request()), poller, sink, inFlight);
+              return null;
+            });
+          }
+        }
+      }
+    } catch (ExecutionException e) {
+      // Deduplicator ne lève que des interruptions
+      if (e.getCause() instanceof InterruptedException interrupted) {
+        throw interrupted;
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      // Run interrompu ou en échec : les résolutions encore en cours sont abandonnées
+      candidates.forEach(candidate -> candidate.cancel(true));
+    }
+
+    Throwable failure = inFlight.await();
+    if (failure instanceof UncheckedIOException journalFailure) {
+      throw journalFailure.getCause();
+    }
+    if (failure != null) {
+      // submit(), BulkBatcher et JobPoller ne lèvent jamais d'exception, seul le sink peut en être à l'origine
+      throw new IllegalStateException(failure);
+    }
+  }
+
+  private Future<Candidate> lookup(long index, String repoUrl, RewriteConfig request) throws InterruptedException {
+    if (deduplicator == null) {
+      return CompletableFuture.completedFuture(new Candidate(index, repoUrl, request, Deduplicator.Lookup.NONE));
+    }
+    return executor.submit(() -> new Candidate(index, repoUrl, request, deduplicator.lookup(request)));
+  }
+
+  // Chaque dépôt compté dans inFlight en sort exactement une fois, que son résultat soit livré ou non
+  private void finish(Candidate candidate, SubmissionResult result, JobPoller poller, Consumer<SubmissionResult> sink, InFlight inFlight) {
+    CompletableFuture<SubmissionResult> completed;
+    try {
+      String jobId = answered(candidate, result);
+      completed = poller == null || !result.succeeded() ? CompletableFuture.completedFuture(result) : awaitJob(result, jobId, poller);
+    } catch (RuntimeException e) {
+      inFlight.done(e);
+      return;
+    }
+
+    // Le statut final du job arrive sur un thread du client HTTP : le sink écrit tout de même sur la sortie de la commande
+    completed.whenComplete(
+      OutputRoute.propagate((done, error) -> {
+        if (error != null) {
+          inFlight.done(error);
+          return;
+        }
+        try {
+          sink.accept(done);
+          inFlight.done(null);
+        } catch (RuntimeException e) {
+          inFlight.done(e);
+        }
+      })
+    );
+  }
+
+  private String answered(Candidate candidate, SubmissionResult result) {
+    String jobId = result.succeeded() ? client.jobId(result.body()).orElse(null) : null;
+    if (deduplicator != null && result.succeeded()) {
+      deduplicator.accepted(candidate.repoUrl(), candidate.lookup(), result.statusCode(), jobId);
+    }
+    if (journal != null) {
+      try {
+        journal.answered(candidate.index(), result.statusCode(), jobId);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return jobId;
+  }
+
+  // Toutes les attentes partagent le même JobPoller : un seul thread planifie les requêtes de statut
+  private CompletableFuture<SubmissionResult> awaitJob(SubmissionResult result, String jobId, JobPoller poller) {
+    if (jobId == null) {
+      return CompletableFuture.completedFuture(result.withJob(new JobStatus(null, "UNKNOWN (no job id in response)")));
+    }
+    return poller
+      .await(jobId)
+      .thenApply(result::withJob)
+      .whenComplete((completed, error) -> {
+        if (deduplicator != null && completed != null) {
+          deduplicator.jobFinished(completed.repoUrl(), completed.job().succeeded());
+        }
+      })
+      .exceptionally(error -> result.withJob(new JobStatus(jobId, "UNKNOWN (" + error.getMessage() + ")")));
+  }
+
+  static SubmissionResult submit(OrchestratorClient client, String repoUrl, RewriteConfig requestConfig) {
+    try {
+      HttpResponse<ResponseBody> response = client.submit(requestConfig);
+      return new SubmissionResult(repoUrl, response.statusCode(), response.body());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return SubmissionResult.failure(repoUrl, e);
+    } catch (Exception e) {
+      return SubmissionResult.failure(repoUrl, e);
+    }
+  }
+
+  // Nombre de dépôts dont le résultat n'est pas encore livré : seul un compteur reste en mémoire, pas les résultats
+  private static final class InFlight {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drained = lock.newCondition();
+    private long count;
+    private Throwable failure;
+
+    void add() {
+      lock.lock();
+      try {
+        count++;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void done(Throwable error) {
+      lock.lock();
+      try {
+        if (failure == null) {
+          failure = error;
+        }
+        if (--count == 0) {
+          drained.signalAll();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    Throwable await() throws InterruptedException {
+      lock.lock();
+      try {
+        while (count > 0) {
+          drained.await();
+        }
+        return failure;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
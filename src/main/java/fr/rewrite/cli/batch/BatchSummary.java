@@ -0,0 +1,146 @@
+package fr.rewrite.cli.batch;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Totals of a batch run, fed with the result of each repository as it completes. The results are not kept, only the
+ * first {@link #MAX_FAILURES} failures, to be printed: the state of every repository is in the {@link RunJournal}.
+ * A summary {@link #listingEveryRepository() listing every repository} writes the line of each one to a temporary file
+ * instead, read back when the summary is printed.
+ */
+public final class BatchSummary implements Consumer<SubmissionResult>, AutoCloseable {
+
+  static final int MAX_FAILURES = 20;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final List<SubmissionResult> failures = new ArrayList<>();
+  private final Path linesFile;
+  private final BufferedWriter lines;
+  private long submitted;
+  private long succeeded;
+
+  public BatchSummary() {
+    this.linesFile = null;
+    this.lines = null;
+  }
+
+  private BatchSummary(Path linesFile) throws IOException {
+    this.linesFile = linesFile;
+    this.lines = Files.newBufferedWriter(linesFile, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Creates a summary printing one line per repository, in the order they completed.
+   * @return The summary, to be closed to delete its temporary file.
+   * @throws IOException If the temporary file cannot be created.
+   */
+  public static BatchSummary listingEveryRepository() throws IOException {
+    return listingEveryRepository(Path.of(System.getProperty("java.io.tmpdir")));
+  }
+
+  static BatchSummary listingEveryRepository(Path directory) throws IOException {
+    // Créé en rw------- : les lignes reprennent les réponses du serveur
+    Path linesFile = Files.createTempFile(directory, "rewrite-summary-", ".txt");
+    try {
+      return new BatchSummary(linesFile);
+    } catch (IOException e) {
+      Files.deleteIfExists(linesFile);
+      throw e;
+    }
+  }
+
+  @Override
+  public void accept(SubmissionResult result) {
+    lock.lock();
+    try {
+      submitted++;
+      if (result.succeeded()) {
+        succeeded++;
+      }
+      if (lines != null) {
+        lines.write(line(result));
+        lines.newLine();
+      } else if (!result.succeeded() && failures.size() < MAX_FAILURES) {
+        failures.add(result);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public boolean allSucceeded() {
+    lock.lock();
+    try {
+      return succeeded == submitted;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Prints every repository, or the first failures, followed by the totals.
+   * @param out The output stream.
+   * @throws IOException If the lines of the repositories cannot be read back.
+   */
+  public void print(PrintStream out) throws IOException {
+    lock.lock();
+    try {
+      out.println("Résumé de la soumission :");
+      long failed = submitted - succeeded;
+      if (lines != null) {
+        lines.flush();
+        try (Stream<String> listed = Files.lines(linesFile, StandardCharsets.UTF_8)) {
+          listed.forEach(out::println);
+        }
+      } else {
+        failures.forEach(result -> out.println(line(result)));
+        if (failed > failures.size()) {
+          out.println("  ... et " + (failed - failures.size()) + " autre(s) échec(s)");
+        }
+      }
+      out.println(submitted + " dépôt(s) soumis, " + succeeded + " succès, " + failed + " échec(s).");
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Deletes the temporary file of a summary listing every repository.
+   * @throws IOException If the file cannot be deleted.
+   */
+  @Override
+  public void close() throws IOException {
+    if (lines == null) {
+      return;
+    }
+    try {
+      lines.close();
+    } finally {
+      Files.deleteIfExists(linesFile);
+    }
+  }
+
+  private static String line(SubmissionResult result) {
+    return (
+      (result.succeeded() ? "  [OK]     " : "  [ERREUR] ")
+      + result.repoUrl()
+      + " ("
+      + result.statusCode()
+      + ") "
+      + (result.job() == null ? result.body() : "job " + result.job().jobId() + " : " + result.job().status())
+    );
+  }
+}
@@ -0,0 +1,164 @@
+package fr.rewrite.cli.batch;
+
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.client.BulkItem;
+import fr.rewrite.cli.client.OrchestratorClient;
+import fr.rewrite.cli.client.ResponseBody;
+import fr.rewrite.cli.client.SubmissionExecutor;
+import fr.rewrite.cli.shared.output.domain.OutputRoute;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups submissions into bulk requests of at most {@link Settings#maxJobs()} repositories, each sent as soon as it is
+ * full or {@link Settings#linger()} after its first repository was added, whichever comes first. One bulk request
+ * pays the HTTP exchange, the TLS record overhead and the server-side authentication once for all its repositories.
+ *
+ * <p>
+ * Bulk requests are sent on the {@link SubmissionExecutor}, which caps how many of them are in flight; once that cap
+ * is reached, {@link #add(String, RewriteConfig)} blocks, so a lazy repository list is not read ahead of the server.
+ * If the orchestrator has no bulk endpoint (404 or 405), the repositories are submitted one by one from then on.
+ * </p>
+ */
+public final class BulkBatcher implements AutoCloseable {
+
+  /**
+   * @param maxJobs The maximum number of repositories of a bulk request.
+   * @param linger The maximum time a repository waits for others to fill its bulk request.
+   */
+  public record Settings(int maxJobs, Duration linger) {
+    public Settings {
+      if (maxJobs < 1) {
+        throw new IllegalArgumentException("Bulk max jobs must be at least 1 but was " + maxJobs);
+      }
+    }
+  }
+
+  private record Pending(String repoUrl, RewriteConfig request, CompletableFuture<SubmissionResult> result) {}
+
+  private static final Pending END = new Pending(null, null, null);
+
+  private final OrchestratorClient client;
+  private final SubmissionExecutor executor;
+  private final Settings settings;
+  private final BlockingQueue<Pending> queue;
+  private final Thread dispatcher;
+  private volatile boolean bulkUnsupported;
+
+  public BulkBatcher(OrchestratorClient client, SubmissionExecutor executor, Settings settings) {
+    this.client = client;
+    this.executor = executor;
+    this.settings = settings;
+    this.queue = new ArrayBlockingQueue<>(settings.maxJobs());
+    // Les requêtes groupées sont confiées à l'exécuteur depuis le dispatcher, qui porte donc la sortie de l'appelant
+    this.dispatcher = Thread.ofVirtual().name("rewrite-bulk-batcher").start(OutputRoute.propagate(this::dispatch));
+  }
+
+  /**
+   * Adds a repository to the bulk request being filled.
+   * @param repoUrl The repository.
+   * @param request The request of the repository.
+   * @return The result of the repository, completed once its bulk request is answered; never completed exceptionally.
+   * @throws InterruptedException If the calling thread is interrupted while waiting for room in the next bulk request.
+   */
+  public CompletableFuture<SubmissionResult> add(String repoUrl, RewriteConfig request) throws InterruptedException {
+    Pending pending = new Pending(repoUrl, request, new CompletableFuture<>());
+    queue.put(pending);
+    return pending.result();
+  }
+
+  /**
+   * Sends the last bulk request without waiting for the linger time, then waits for every bulk request to be handed
+   * to the executor.
+   * @throws InterruptedException If the calling thread is interrupted while waiting.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    // Si le dispatcher s'est arrêté sur une interruption, la file peut rester pleine
+    while (dispatcher.isAlive() && !queue.offer(END, 10, TimeUnit.MILLISECONDS)) {
+      Thread.onSpinWait();
+    }
+    dispatcher.join();
+  }
+
+  private void dispatch() {
+    List<Pending> batch = new ArrayList<>(settings.maxJobs());
+    try {
+      boolean end = false;
+      while (!end) {
+        Pending first = queue.take();
+        if (first == END) {
+          return;
+        }
+
+        batch.add(first);
+        long deadline = System.nanoTime() + settings.linger().toNanos();
+        while (batch.size() < settings.maxJobs()) {
+          Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          if (next == END) {
+            end = true;
+            break;
+          }
+          batch.add(next);
+        }
+
+        List<Pending> full = List.copyOf(batch);
+        executor.submit(() -> send(full));
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      // Personne ne doit attendre indéfiniment un résultat : les dépôts en attente sont marqués en échec
+      batch.addAll(queue);
+      batch
+        .stream()
+        .filter(pending -> pending != END)
+        .forEach(pending -> pending.result().complete(SubmissionResult.failure(pending.repoUrl(), e)));
+    }
+  }
+
+  private Void send(List<Pending> batch) {
+    if (!bulkUnsupported) {
+      try {
+        HttpResponse<ResponseBody> response = client.submitBulk(batch.stream().map(Pending::request).toList());
+        if (response.statusCode() != 404 && response.statusCode() != 405) {
+          complete(batch, response);
+          return null;
+        }
+        bulkUnsupported = true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        batch.forEach(pending -> pending.result().complete(SubmissionResult.failure(pending.repoUrl(), e)));
+        return null;
+      } catch (Exception e) {
+        batch.forEach(pending -> pending.result().complete(SubmissionResult.failure(pending.repoUrl(), e)));
+        return null;
+      }
+    }
+
+    batch.forEach(pending -> pending.result().complete(BatchSubmitter.submit(client, pending.repoUrl(), pending.request())));
+    return null;
+  }
+
+  // Les résultats sont rendus à chaque dépôt dans l'ordre de la requête groupée
+  private void complete(List<Pending> batch, HttpResponse<ResponseBody> response) {
+    if (response.statusCode() < 200 || response.statusCode() >= 300) {
+      batch.forEach(pending -> pending.result().complete(new SubmissionResult(pending.repoUrl(), response.statusCode(), response.body())));
+      return;
+    }
+
+    List<BulkItem> items = client.readBulkItems(response.body(), batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      Pending pending = batch.get(i);
+      pending.result().complete(new SubmissionResult(pending.repoUrl(), items.get(i).statusCode(), items.get(i).body()));
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package fr.rewrite.cli.batch;
+
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.client.GitRefs;
+import fr.rewrite.cli.client.JobStatus;
+import fr.rewrite.cli.client.OrchestratorClient;
+import fr.rewrite.cli.client.ResponseBody;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tells whether a repository changed since the recipe was last submitted to it, from the head of its base branch and
+ * the {@link SubmissionCache}. A repository whose head cannot be resolved is always submitted.
+ *
+ * <p>
+ * A submission is only skipped if the job of the previous one succeeded, or is still running: when its outcome is not
+ * known yet, the status of the job is asked to the orchestrator first, and a failed or unknown job is submitted again.
+ * </p>
+ */
+public final class Deduplicator {
+
+  private static final Duration STATUS_TIMEOUT = Duration.ofSeconds(10);
+
+  /**
+   * @param key The key of the submission in the cache, null if the head of the repository could not be resolved.
+   * @param previous The outcome of the last submission of the same key, null if there is none or if it is ignored.
+   */
+  public record Lookup(SubmissionCache.Key key, SubmissionCache.Outcome previous) {
+    static final Lookup NONE = new Lookup(null, null);
+
+    public boolean unchanged() {
+      return previous != null;
+    }
+  }
+
+  private final SubmissionCache cache;
+  private final GitRefs refs;
+  private final OrchestratorClient client;
+  private final String recipeVersion;
+  private final boolean force;
+  // Clé de chaque dépôt accepté, pour retenir l'issue de son job
+  private final Map<String, SubmissionCache.Key> accepted = new ConcurrentHashMap<>();
+
+  /**
+   * @param cache The cache of the outcomes.
+   * @param refs Resolves the head of the repositories.
+   * @param client The client of the orchestrator, to ask the status of the previous jobs.
+   * @param recipeVersion The version of the recipe, null if unknown.
+   * @param force Whether to submit the unchanged repositories too, the cache being still updated.
+   */
+  public Deduplicator(SubmissionCache cache, GitRefs refs, OrchestratorClient client, String recipeVersion, boolean force) {
+    this.cache = cache;
+    this.refs = refs;
+    this.client = client;
+    this.recipeVersion = recipeVersion;
+    this.force = force;
+  }
+
+  /**
+   * Resolves the head of the base branch of a repository, and looks its submission up in the cache.
+   * @param request The request of the repository.
+   * @return The lookup, to pass to {@link #accepted(String, Lookup, int, String)} once the request is submitted.
+   * @throws InterruptedException If the calling thread is interrupted while resolving the head or the previous job.
+   */
+  public Lookup lookup(RewriteConfig request) throws InterruptedException {
+    Optional<String> head = refs.head(request.getRepoUrl(), request.getBaseBranch(), request.getGitUsername(), request.getGitPatForGit());
+    if (head.isEmpty()) {
+      return Lookup.NONE;
+    }
+
+    String server = client.serverUri().toString();
+    SubmissionCache.Key key = SubmissionCache.key(server, request.getRepoUrl(), head.get(), request.getRecipeName(), recipeVersion);
+    Optional<SubmissionCache.Outcome> previous = force ? Optional.empty() : cache.get(key);
+    if (previous.isEmpty() || previous.get().jobSucceeded()) {
+      return new Lookup(key, previous.orElse(null));
+    }
+
+    // Le run précédent n'a pas attendu la fin du job : seul son statut dit si le dépôt est à jour
+    Optional<JobStatus> job = status(previous.get().jobId());
+    if (job.isPresent() && job.get().succeeded()) {
+      SubmissionCache.Outcome succeeded = previous.get().withJobSucceeded();
+      cache.put(key, succeeded);
+      return new Lookup(key, succeeded);
+    }
+    if (job.isPresent() && !job.get().isTerminal()) {
+      // Job encore en cours : le soumettre de nouveau ferait le travail deux fois
+      return new Lookup(key, previous.get());
+    }
+    cache.remove(key);
+    return new Lookup(key, null);
+  }
+
+  /**
+   * Records that the orchestrator accepted a submission. A submission whose answer carries no job id is not cached,
+   * as the outcome of its job cannot be known.
+   * @param repoUrl The repository.
+   * @param lookup The lookup of the repository.
+   * @param statusCode The status of the answer.
+   * @param jobId The job started by the orchestrator, null if the answer carries none.
+   */
+  public void accepted(String repoUrl, Lookup lookup, int statusCode, String jobId) {
+    if (lookup.key() != null && jobId != null && jobId.getBytes(StandardCharsets.UTF_8).length <= SubmissionCache.MAX_JOB_ID_LENGTH) {
+      cache.put(lookup.key(), new SubmissionCache.Outcome(statusCode, System.currentTimeMillis(), jobId, false));
+      accepted.put(repoUrl, lookup.key());
+    }
+  }
+
+  /**
+   * Records the final status of the job of an accepted submission: a failed job is removed from the cache, so the
+   * repository is submitted again next time.
+   * @param repoUrl The repository.
+   * @param succeeded Whether the job succeeded.
+   */
+  public void jobFinished(String repoUrl, boolean succeeded) {
+    SubmissionCache.Key key = accepted.remove(repoUrl);
+    if (key == null) {
+      return;
+    }
+    if (succeeded) {
+      cache.get(key).ifPresent(outcome -> cache.put(key, outcome.withJobSucceeded()));
+    } else {
+      cache.remove(key);
+    }
+  }
+
+  private Optional<JobStatus> status(String jobId) throws InterruptedException {
+    try {
+      HttpResponse<ResponseBody> response = client.fetchStatus(jobId, null).get(STATUS_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+      return response.statusCode() == 200 ? Optional.of(client.readStatus(jobId, response.body())) : Optional.empty();
+    } catch (ExecutionException | TimeoutException e) {
+      // Statut inconnu : mieux vaut soumettre de nouveau que sauter un dépôt dont le job a peut-être échoué
+      return Optional.empty();
+    }
+  }
+}
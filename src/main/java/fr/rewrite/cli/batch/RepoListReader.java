@@ -0,0 +1,56 @@
+package fr.rewrite.cli.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Reads repository URLs, one per line, from a file or from stdin.
+ * Blank lines and lines starting with '#' are ignored.
+ */
+public final class RepoListReader {
+
+  private static final String STDIN = "-";
+
+  private RepoListReader() {}
+
+  /**
+   * Opens a lazy stream over the repository URLs of the given list.
+   * The stream must be closed by the caller to release the underlying reader.
+   * @param repoList The file to read, or "-" to read from stdin.
+   * @return A stream of trimmed repository URLs.
+   * @throws IOException If the file cannot be opened.
+   */
+  public static Stream<String> open(Path repoList) throws IOException {
+    if (STDIN.equals(repoList.toString())) {
+      return read(System.in);
+    }
+
+    return filter(Files.lines(repoList, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Opens a lazy stream over the repository URLs read from the given input.
+   * @param input The input to read, it is closed with the stream.
+   * @return A stream of trimmed repository URLs.
+   */
+  public static Stream<String> read(InputStream input) {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    return filter(reader.lines()).onClose(() -> {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // Rien à faire, le flux est déjà consommé
+      }
+    });
+  }
+
+  private static Stream<String> filter(Stream<String> lines) {
+    return lines.map(String::trim).filter(line -> !line.isEmpty() && !line.startsWith("#"));
+  }
+}
@@ -0,0 +1,567 @@
+package fr.rewrite.cli.batch;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * State of each repository of a {@code --repo-list} run, kept in a memory-mapped file so that a run that died can be
+ * resumed without submitting again the repositories already accepted.
+ *
+ * <p>
+ * The journal is a header followed by one fixed-size record per repository, in the order of the list. A record holds
+ * the state of the repository, a hash of its URL, its HTTP status, its submission and last update times, and the offset
+ * of its job id in a companion file. Records are written in place through the mapping, and never read back onto the
+ * heap as a whole: a journal of a million repositories is 64 MiB of page cache.
+ * </p>
+ *
+ * <p>
+ * The state of a record and the number of records are published last, with release semantics, so
+ * {@link #progress(Path)} can read the journal of a running batch from another process without any lock. Only one
+ * process at a time writes a journal.
+ * </p>
+ *
+ * <p>
+ * The lock of a journal is a POSIX record lock, held by the process: closing any other channel on the same file, even
+ * one that only read it, would release it. The journals this process writes are therefore never opened again by
+ * another channel while they are open, which matters in the daemon, where several commands share the process.
+ * </p>
+ */
+public final class RunJournal implements AutoCloseable {
+
+  /**
+   * State of a repository in the journal.
+   */
+  public enum State {
+    /** Not submitted yet. */
+    PENDING,
+    /** Submitted, no answer received yet. */
+    SUBMITTED,
+    /** Accepted by the orchestrator. */
+    ACCEPTED,
+    /** Refused by the orchestrator, or never answered. */
+    FAILED,
+  }
+
+  /**
+   * Number of repositories per state, read from a journal.
+   * @param total The number of repositories recorded.
+   * @param submitted The number of repositories submitted and not answered yet.
+   * @param accepted The number of repositories accepted.
+   * @param failed The number of repositories failed.
+   */
+  public record Progress(long total, long submitted, long accepted, long failed) {
+    public long pending() {
+      return total - submitted - accepted - failed;
+    }
+
+    @Override
+    public String toString() {
+      return (
+        total
+        + " dépôt(s) : "
+        + accepted
+        + " accepté(s), "
+        + failed
+        + " en échec, "
+        + submitted
+        + " en cours, "
+        + pending()
+        + " en attente"
+      );
+    }
+  }
+
+  static final int HEADER_SIZE = 64;
+  static final int RECORD_SIZE = 64;
+  static final int DEFAULT_CHUNK_RECORDS = 64 * 1024;
+  static final Duration COMPLETED_RETENTION = Duration.ofDays(7);
+
+  private static final int MAGIC = 0x5257524a; // "RWRJ"
+  private static final int FORMAT_VERSION = 1;
+  private static final Pattern RUN_ID = Pattern.compile("[A-Za-z0-9._-]{1,128}");
+  private static final String JOURNAL_SUFFIX = ".journal";
+  private static final String JOBS_SUFFIX = ".jobs";
+
+  // En-tête : magic, version, taille d'un enregistrement, nombre d'enregistrements
+  private static final int HEADER_MAGIC = 0;
+  private static final int HEADER_VERSION = 4;
+  private static final int HEADER_RECORD_SIZE = 8;
+  private static final int HEADER_COUNT = 16;
+
+  // Enregistrement : l'état est écrit en dernier, il publie les autres champs
+  private static final int RECORD_STATE = 0;
+  private static final int RECORD_STATUS_CODE = 4;
+  private static final int RECORD_URL_HASH = 8;
+  private static final int RECORD_SUBMITTED_AT = 16;
+  private static final int RECORD_UPDATED_AT = 24;
+  private static final int RECORD_JOB_ID_OFFSET = 32;
+  private static final int RECORD_JOB_ID_LENGTH = 40;
+
+  private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+  private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+  private static final State[] STATES = State.values();
+
+  // Journaux ouverts en écriture par ce processus, par chemin absolu
+  private static final ReentrantLock OPENING = new ReentrantLock();
+  private static final Map<Path, RunJournal> OPENED = new HashMap<>();
+
+  private final Path key;
+  private final FileChannel channel;
+  private final FileLock fileLock;
+  private final FileChannel jobs;
+  private final int chunkRecords;
+  private final MappedByteBuffer header;
+  private final ReentrantLock lock = new ReentrantLock();
+  private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+  private long jobsSize;
+
+  private RunJournal(Path key, FileChannel channel, FileLock fileLock, FileChannel jobs, int chunkRecords) throws IOException {
+    this.key = key;
+    this.channel = channel;
+    this.fileLock = fileLock;
+    this.jobs = jobs;
+    this.chunkRecords = chunkRecords;
+    this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+    this.jobsSize = jobs.size();
+  }
+
+  /**
+   * Default directory of the journals: ~/.rewrite/runs
+   * @return The directory.
+   */
+  public static Path defaultRoot() {
+    return Paths.get(System.getProperty("user.home"), ".rewrite", "runs");
+  }
+
+  /**
+   * File of the journal of a run.
+   * @param root The directory of the journals.
+   * @param runId The id of the run.
+   * @return The journal file.
+   * @throws IllegalArgumentException If the run id cannot be used as a file name.
+   */
+  public static Path file(Path root, String runId) {
+    if (!RUN_ID.matcher(runId).matches()) {
+      throw new IllegalArgumentException("Invalid run id '" + runId + "': expected letters, digits, '.', '_' or '-'");
+    }
+    return root.resolve(runId + JOURNAL_SUFFIX);
+  }
+
+  /**
+   * Creates the journal of a new run, replacing any previous journal of the same id.
+   * @param file The journal file.
+   * @return The journal, to be closed.
+   * @throws IOException If the journal cannot be created, or if another process is writing it.
+   */
+  public static RunJournal create(Path file) throws IOException {
+    return open(file, true, DEFAULT_CHUNK_RECORDS);
+  }
+
+  /**
+   * Opens the journal of a run to resume it.
+   * @param file The journal file.
+   * @return The journal, to be closed.
+   * @throws IOException If the journal does not exist or is invalid, or if another process is writing it.
+   */
+  public static RunJournal resume(Path file) throws IOException {
+    return open(file, false, DEFAULT_CHUNK_RECORDS);
+  }
+
+  static RunJournal open(Path file, boolean create, int chunkRecords) throws IOException {
+    if (create) {
+      Files.createDirectories(file.getParent());
+    } else if (!Files.exists(file)) {
+      throw new NoSuchFileException(file.toString(), null, "No journal for this run");
+    }
+
+    Path key = key(file);
+    Path jobsFile = jobsFile(file);
+    OPENING.lock();
+    try {
+      // Ouvrir puis fermer un second canal libérerait le verrou de la commande qui écrit déjà ce journal
+      if (OPENED.containsKey(key)) {
+        throw new IOException("Journal " + file + " is being written by another run");
+      }
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      try {
+        FileLock fileLock = tryLock(channel);
+        if (fileLock == null) {
+          throw new IOException("Journal " + file + " is being written by another run");
+        }
+        if (create) {
+          channel.truncate(0);
+          Files.deleteIfExists(jobsFile);
+        }
+        FileChannel jobs = FileChannel.open(jobsFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        RunJournal journal = new RunJournal(key, channel, fileLock, jobs, chunkRecords);
+        if (create) {
+          journal.header.putInt(HEADER_MAGIC, MAGIC).putInt(HEADER_VERSION, FORMAT_VERSION).putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+          LONG.setRelease(journal.header, HEADER_COUNT, 0L);
+        } else if (!valid(journal.header)) {
+          journal.close();
+          throw new IOException("Journal " + file + " is invalid or was written by another version of the CLI");
+        } else if (journal.size() > 0) {
+          journal.grow(journal.size() - 1);
+        }
+        OPENED.put(key, journal);
+        return journal;
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+    } finally {
+      OPENING.unlock();
+    }
+  }
+
+  /**
+   * Deletes the journals of the completed runs, none of whose repositories is in flight or failed, last written more
+   * than {@link #COMPLETED_RETENTION} ago. The journals of the runs still going on, or that can still be resumed, are
+   * kept, as are those that cannot be read.
+   * @param root The directory of the journals.
+   * @return The number of journals deleted.
+   * @throws IOException If the directory cannot be listed.
+   */
+  public static int prune(Path root) throws IOException {
+    return prune(root, COMPLETED_RETENTION);
+  }
+
+  static int prune(Path root, Duration retention) throws IOException {
+    if (!Files.isDirectory(root)) {
+      return 0;
+    }
+
+    long writtenBefore = System.currentTimeMillis() - retention.toMillis();
+    int deleted = 0;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(root, "*" + JOURNAL_SUFFIX)) {
+      for (Path file : files) {
+        OPENING.lock();
+        try {
+          if (!OPENED.containsKey(key(file)) && pruneIfCompleted(file, writtenBefore)) {
+            deleted++;
+          }
+        } catch (IOException e) {
+          // Journal illisible ou disparu entre-temps : il est laissé tel quel
+        } finally {
+          OPENING.unlock();
+        }
+      }
+    }
+    return deleted;
+  }
+
+  // Un seul canal par journal : le verrou et la lecture de l'avancement passent par lui
+  private static boolean pruneIfCompleted(Path file, long writtenBefore) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      FileLock fileLock = tryLock(channel);
+      if (fileLock == null || Files.getLastModifiedTime(file).toMillis() > writtenBefore) {
+        return false;
+      }
+      Progress progress = progress(channel, file);
+      if (progress.submitted() != 0 || progress.failed() != 0) {
+        return false;
+      }
+      Files.deleteIfExists(jobsFile(file));
+      Files.delete(file);
+      return true;
+    }
+  }
+
+  /**
+   * Number of repositories recorded.
+   * @return The number of records.
+   */
+  public long size() {
+    return (long) LONG.getAcquire(header, HEADER_COUNT);
+  }
+
+  /**
+   * Tells whether a repository was already accepted in a previous attempt of the run.
+   * @param index The position of the repository in the list.
+   * @param repoUrl The repository, which must still be at that position.
+   * @return Whether the repository can be skipped.
+   */
+  public boolean accepted(long index, String repoUrl) {
+    if (index >= size()) {
+      return false;
+    }
+    ByteBuffer chunk = chunk(index);
+    int offset = offset(index);
+    return state(chunk, offset) == State.ACCEPTED && chunk.getLong(offset + RECORD_URL_HASH) == hash(repoUrl);
+  }
+
+  /**
+   * Records that a repository is being submitted.
+   * @param index The position of the repository in the list.
+   * @param repoUrl The repository.
+   * @throws IOException If the journal cannot grow.
+   */
+  public void submitted(long index, String repoUrl) throws IOException {
+    ByteBuffer chunk = grow(index);
+    int offset = offset(index);
+    chunk.putLong(offset + RECORD_URL_HASH, hash(repoUrl));
+    chunk.putLong(offset + RECORD_SUBMITTED_AT, System.currentTimeMillis());
+    chunk.putLong(offset + RECORD_UPDATED_AT, System.currentTimeMillis());
+    chunk.putInt(offset + RECORD_STATUS_CODE, 0);
+    chunk.putLong(offset + RECORD_JOB_ID_OFFSET, 0);
+    chunk.putInt(offset + RECORD_JOB_ID_LENGTH, 0);
+    INT.setRelease(chunk, offset + RECORD_STATE, State.SUBMITTED.ordinal());
+
+    lock.lock();
+    try {
+      if (index >= size()) {
+        LONG.setRelease(header, HEADER_COUNT, index + 1);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Records the answer of the orchestrator to a submitted repository.
+   * @param index The position of the repository in the list.
+   * @param statusCode The HTTP status, -1 if no answer was received.
+   * @param jobId The id of the job started for the repository, null if unknown.
+   * @throws IOException If the job id cannot be written.
+   */
+  public void answered(long index, int statusCode, String jobId) throws IOException {
+    ByteBuffer chunk = chunk(index);
+    int offset = offset(index);
+    if (jobId != null) {
+      byte[] bytes = jobId.getBytes(StandardCharsets.UTF_8);
+      chunk.putLong(offset + RECORD_JOB_ID_OFFSET, appendJobId(bytes));
+      chunk.putInt(offset + RECORD_JOB_ID_LENGTH, bytes.length);
+    }
+    chunk.putInt(offset + RECORD_STATUS_CODE, statusCode);
+    chunk.putLong(offset + RECORD_UPDATED_AT, System.currentTimeMillis());
+    State state = statusCode >= 200 && statusCode < 300 ? State.ACCEPTED : State.FAILED;
+    INT.setRelease(chunk, offset + RECORD_STATE, state.ordinal());
+  }
+
+  /**
+   * Reads the job id recorded for a repository.
+   * @param index The position of the repository in the list.
+   * @return The job id, empty if none was recorded.
+   * @throws IOException If the job id cannot be read.
+   */
+  public Optional<String> jobId(long index) throws IOException {
+    if (index >= size()) {
+      return Optional.empty();
+    }
+    ByteBuffer chunk = chunk(index);
+    int offset = offset(index);
+    int length = chunk.getInt(offset + RECORD_JOB_ID_LENGTH);
+    if (length == 0) {
+      return Optional.empty();
+    }
+    ByteBuffer bytes = ByteBuffer.allocate(length);
+    long position = chunk.getLong(offset + RECORD_JOB_ID_OFFSET);
+    while (bytes.hasRemaining()) {
+      if (jobs.read(bytes, position + bytes.position()) < 0) {
+        return Optional.empty();
+      }
+    }
+    return Optional.of(new String(bytes.array(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Counts the repositories of the journal per state.
+   * @return The progress of the run.
+   */
+  public Progress progress() {
+    return count(size(), chunkRecords, this::chunk);
+  }
+
+  /**
+   * Reads the progress of a run from its journal, possibly while another process is writing it. No lock is taken; a
+   * journal this process is writing is read through its own mapping.
+   * @param file The journal file.
+   * @return The progress of the run.
+   * @throws IOException If the journal does not exist or is invalid.
+   */
+  public static Progress progress(Path file) throws IOException {
+    OPENING.lock();
+    try {
+      RunJournal opened = OPENED.get(key(file));
+      if (opened != null) {
+        return opened.progress();
+      }
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        return progress(channel, file);
+      }
+    } finally {
+      OPENING.unlock();
+    }
+  }
+
+  private static Progress progress(FileChannel channel, Path file) throws IOException {
+    if (channel.size() < HEADER_SIZE) {
+      throw new IOException("Journal " + file + " is invalid");
+    }
+    MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+    if (!valid(header)) {
+      throw new IOException("Journal " + file + " is invalid or was written by another version of the CLI");
+    }
+
+    long count = (long) LONG.getAcquire(header, HEADER_COUNT);
+    long size = channel.size();
+    MappedByteBuffer[] mapped = new MappedByteBuffer[(int) ((count + DEFAULT_CHUNK_RECORDS - 1) / DEFAULT_CHUNK_RECORDS)];
+    for (int i = 0; i < mapped.length; i++) {
+      long position = HEADER_SIZE + (long) i * DEFAULT_CHUNK_RECORDS * RECORD_SIZE;
+      long length = Math.min((long) DEFAULT_CHUNK_RECORDS * RECORD_SIZE, size - position);
+      mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+    return count(count, DEFAULT_CHUNK_RECORDS, index -> mapped[(int) (index / DEFAULT_CHUNK_RECORDS)]);
+  }
+
+  private interface Chunks {
+    ByteBuffer chunk(long index);
+  }
+
+  private static Progress count(long total, int chunkRecords, Chunks chunks) {
+    long[] counts = new long[STATES.length];
+    for (long index = 0; index < total; index++) {
+      counts[state(chunks.chunk(index), (int) (index % chunkRecords) * RECORD_SIZE).ordinal()]++;
+    }
+    return new Progress(total, counts[State.SUBMITTED.ordinal()], counts[State.ACCEPTED.ordinal()], counts[State.FAILED.ordinal()]);
+  }
+
+  /**
+   * Syncs the journal to disk and releases it.
+   * @throws IOException If the journal cannot be synced.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      for (MappedByteBuffer chunk : chunks) {
+        chunk.force();
+      }
+      header.force();
+      jobs.force(false);
+    } finally {
+      try {
+        jobs.close();
+      } finally {
+        OPENING.lock();
+        try {
+          fileLock.release();
+          channel.close();
+          OPENED.remove(key, this);
+        } finally {
+          OPENING.unlock();
+        }
+      }
+    }
+  }
+
+  private ByteBuffer chunk(long index) {
+    return chunks[(int) (index / chunkRecords)];
+  }
+
+  private int offset(long index) {
+    return (int) (index % chunkRecords) * RECORD_SIZE;
+  }
+
+  // Chaque bloc est projeté une fois pour toutes : la projection agrandit le fichier, les enregistrements restent à zéro (PENDING)
+  private ByteBuffer grow(long index) throws IOException {
+    int chunk = (int) (index / chunkRecords);
+    MappedByteBuffer[] current = chunks;
+    if (chunk < current.length) {
+      return current[chunk];
+    }
+
+    lock.lock();
+    try {
+      current = chunks;
+      if (chunk >= current.length) {
+        MappedByteBuffer[] grown = Arrays.copyOf(current, chunk + 1);
+        for (int i = current.length; i < grown.length; i++) {
+          long position = HEADER_SIZE + (long) i * chunkRecords * RECORD_SIZE;
+          grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) chunkRecords * RECORD_SIZE);
+        }
+        chunks = grown;
+        current = grown;
+      }
+      return current[chunk];
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private long appendJobId(byte[] bytes) throws IOException {
+    lock.lock();
+    try {
+      long position = jobsSize;
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      while (buffer.hasRemaining()) {
+        jobs.write(buffer, position + buffer.position());
+      }
+      jobsSize += bytes.length;
+      return position;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static State state(ByteBuffer chunk, int offset) {
+    int ordinal = (int) INT.getAcquire(chunk, offset + RECORD_STATE);
+    return ordinal >= 0 && ordinal < STATES.length ? STATES[ordinal] : State.PENDING;
+  }
+
+  private static boolean valid(ByteBuffer header) {
+    return (
+      header.getInt(HEADER_MAGIC) == MAGIC
+      && header.getInt(HEADER_VERSION) == FORMAT_VERSION
+      && header.getInt(HEADER_RECORD_SIZE) == RECORD_SIZE
+    );
+  }
+
+  private static long hash(String repoUrl) {
+    try {
+      return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(repoUrl.getBytes(StandardCharsets.UTF_8))).getLong();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Path key(Path file) {
+    return file.toAbsolutePath().normalize();
+  }
+
+  private static Path jobsFile(Path file) {
+    String name = file.getFileName().toString();
+    String run = name.endsWith(JOURNAL_SUFFIX) ? name.substring(0, name.length() - JOURNAL_SUFFIX.length()) : name;
+    return file.resolveSibling(run + JOBS_SUFFIX);
+  }
+
+  private static FileLock tryLock(FileChannel channel) throws IOException {
+    try {
+      return channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      return null;
+    }
+  }
+}
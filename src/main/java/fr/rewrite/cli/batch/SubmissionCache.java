@@ -0,0 +1,290 @@
+package fr.rewrite.cli.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Outcome of the last accepted submission of a recipe to each repository, by head commit of the base branch, with its
+ * job, so that a campaign run again does not submit the repositories that did not change since.
+ *
+ * <p>
+ * The cache keeps at most {@link #DEFAULT_MAX_ENTRIES} entries, the least recently used being evicted first. It is
+ * persisted as records of a 128-bit hash of the key followed by the outcome and the job id, from the least to the most
+ * recently used. Saving merges the entries another process saved in the meantime.
+ * </p>
+ */
+public final class SubmissionCache {
+
+  /**
+   * Hash of what a submission depends on, see {@link #key(String, String, String, String, String)}.
+   * @param high The first 64 bits of the hash.
+   * @param low The next 64 bits of the hash.
+   */
+  public record Key(long high, long low) {}
+
+  /**
+   * @param statusCode The HTTP status the orchestrator answered the submission with.
+   * @param recordedAt When the submission was answered, in milliseconds since the epoch.
+   * @param jobId The job the orchestrator started for the submission.
+   * @param jobSucceeded Whether the job is known to have succeeded, false while its final status is unknown.
+   */
+  public record Outcome(int statusCode, long recordedAt, String jobId, boolean jobSucceeded) {
+    public Outcome {
+      Objects.requireNonNull(jobId, "jobId");
+    }
+
+    public Outcome withJobSucceeded() {
+      return new Outcome(statusCode, recordedAt, jobId, true);
+    }
+  }
+
+  static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+  private static final int MAGIC = 0x52574443; // "RWDC"
+  private static final int FORMAT_VERSION = 2;
+  private static final int HEADER_SIZE = 12;
+  // Hachage de la clé, date, statut, job réussi ou non, longueur de l'identifiant du job
+  private static final int ENTRY_FIXED_SIZE = 16 + 8 + 4 + 1 + 2;
+  static final int MAX_JOB_ID_LENGTH = 1024;
+
+  // Les verrous de fichier sont tenus par le processus : les caches d'un même processus s'attendent ici
+  private static final ReentrantLock SAVING = new ReentrantLock();
+
+  private final Path file;
+  private final int maxEntries;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final LinkedHashMap<Key, Outcome> entries;
+  // Entrées retirées depuis le chargement : la fusion à l'enregistrement ne doit pas les faire revenir
+  private final Set<Key> removed = new HashSet<>();
+
+  private SubmissionCache(Path file, int maxEntries) {
+    this.file = file;
+    this.maxEntries = maxEntries;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Outcome> eldest) {
+        return size() > SubmissionCache.this.maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Default file of the cache: ~/.rewrite/cache/submissions
+   * @return The cache file.
+   */
+  public static Path defaultFile() {
+    return Paths.get(System.getProperty("user.home"), ".rewrite", "cache", "submissions");
+  }
+
+  /**
+   * Loads the cache.
+   * @param file The cache file.
+   * @return The cache, empty if the file is missing or invalid.
+   * @throws IOException If the file cannot be read.
+   */
+  public static SubmissionCache load(Path file) throws IOException {
+    return load(file, DEFAULT_MAX_ENTRIES);
+  }
+
+  static SubmissionCache load(Path file, int maxEntries) throws IOException {
+    SubmissionCache cache = new SubmissionCache(file, maxEntries);
+    cache.entries.putAll(read(file));
+    return cache;
+  }
+
+  /**
+   * Hashes what the outcome of a submission depends on.
+   * @param server The URL of the orchestrator.
+   * @param repoUrl The repository.
+   * @param head The commit the base branch points to.
+   * @param recipeName The recipe.
+   * @param recipeVersion The version of the recipe, null if unknown.
+   * @return The key.
+   */
+  public static Key key(String server, String repoUrl, String head, String recipeName, String recipeVersion) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (String field : new String[] { server, repoUrl, head, recipeName, recipeVersion }) {
+        byte[] bytes = field == null ? new byte[0] : field.getBytes(StandardCharsets.UTF_8);
+        digest.update((field == null ? "-1:" : bytes.length + ":").getBytes(StandardCharsets.US_ASCII));
+        digest.update(bytes);
+      }
+      ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+      return new Key(hash.getLong(), hash.getLong());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public Optional<Outcome> get(Key key) {
+    lock.lock();
+    try {
+      return Optional.ofNullable(entries.get(key));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Records the outcome of a submission.
+   * @param key The key of the submission.
+   * @param outcome The outcome, whose job id is at most {@value #MAX_JOB_ID_LENGTH} bytes long in UTF-8.
+   */
+  public void put(Key key, Outcome outcome) {
+    if (outcome.jobId().getBytes(StandardCharsets.UTF_8).length > MAX_JOB_ID_LENGTH) {
+      throw new IllegalArgumentException("Job id longer than " + MAX_JOB_ID_LENGTH + " bytes: " + outcome.jobId());
+    }
+    lock.lock();
+    try {
+      entries.put(key, outcome);
+      removed.remove(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void remove(Key key) {
+    lock.lock();
+    try {
+      entries.remove(key);
+      removed.add(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int size() {
+    lock.lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Saves the cache, with the entries saved by other processes since it was loaded, durably: after a crash, the file
+   * holds this version or the previous one. Concurrent saves are serialized by a lock on a sidecar {@code .lock} file,
+   * so that none of them loses the entries of another.
+   * @throws IOException If the file cannot be written.
+   */
+  public void save() throws IOException {
+    Files.createDirectories(file.getParent());
+    lock.lock();
+    SAVING.lock();
+    try (
+      FileChannel lockChannel = FileChannel.open(
+        file.resolveSibling(file.getFileName() + ".lock"),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE
+      );
+      FileLock fileLock = lockChannel.lock()
+    ) {
+      // Les entrées des autres processus sont les plus anciennes : les nôtres viennent d'être utilisées
+      LinkedHashMap<Key, Outcome> merged = new LinkedHashMap<>();
+      read(file).forEach((key, outcome) -> {
+        if (!entries.containsKey(key) && !removed.contains(key)) {
+          merged.put(key, outcome);
+        }
+      });
+      merged.putAll(entries);
+      int skipped = Math.max(0, merged.size() - maxEntries);
+      merged.keySet().removeAll(merged.keySet().stream().limit(skipped).toList());
+
+      int size = HEADER_SIZE + 8;
+      for (Outcome outcome : merged.values()) {
+        size += ENTRY_FIXED_SIZE + outcome.jobId().getBytes(StandardCharsets.UTF_8).length;
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(size);
+      buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(merged.size());
+      for (Map.Entry<Key, Outcome> entry : merged.entrySet()) {
+        Outcome outcome = entry.getValue();
+        byte[] jobId = outcome.jobId().getBytes(StandardCharsets.UTF_8);
+        buffer.putLong(entry.getKey().high()).putLong(entry.getKey().low());
+        buffer.putLong(outcome.recordedAt()).putInt(outcome.statusCode()).put((byte) (outcome.jobSucceeded() ? 1 : 0));
+        buffer.putShort((short) jobId.length).put(jobId);
+      }
+      CRC32 crc = new CRC32();
+      crc.update(buffer.array(), 0, buffer.position());
+      buffer.putLong(crc.getValue()).flip();
+
+      Path temporary = Files.createTempFile(file.getParent(), file.getFileName() + ".", ".tmp");
+      try {
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+          channel.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    } finally {
+      SAVING.unlock();
+      lock.unlock();
+    }
+  }
+
+  private static LinkedHashMap<Key, Outcome> read(Path file) throws IOException {
+    LinkedHashMap<Key, Outcome> read = new LinkedHashMap<>();
+    byte[] bytes;
+    try {
+      bytes = Files.readAllBytes(file);
+    } catch (NoSuchFileException e) {
+      return read;
+    }
+    if (bytes.length < HEADER_SIZE + 8) {
+      return read;
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, bytes.length - 8);
+    if (
+      buffer.getInt() != MAGIC
+      || buffer.getInt() != FORMAT_VERSION
+      || buffer.getLong(bytes.length - 8) != crc.getValue()
+    ) {
+      return read;
+    }
+    int count = buffer.getInt();
+    buffer.limit(bytes.length - 8);
+    for (int i = 0; i < count; i++) {
+      if (buffer.remaining() < ENTRY_FIXED_SIZE) {
+        return new LinkedHashMap<>();
+      }
+      Key key = new Key(buffer.getLong(), buffer.getLong());
+      long recordedAt = buffer.getLong();
+      int statusCode = buffer.getInt();
+      boolean jobSucceeded = buffer.get() != 0;
+      int jobIdLength = Short.toUnsignedInt(buffer.getShort());
+      if (jobIdLength > buffer.remaining()) {
+        return new LinkedHashMap<>();
+      }
+      String jobId = new String(bytes, buffer.position(), jobIdLength, StandardCharsets.UTF_8);
+      buffer.position(buffer.position() + jobIdLength);
+      read.put(key, new Outcome(statusCode, recordedAt, jobId, jobSucceeded));
+    }
+    return buffer.hasRemaining() ? new LinkedHashMap<>() : read;
+  }
+}
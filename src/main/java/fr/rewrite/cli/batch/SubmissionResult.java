@@ -0,0 +1,31 @@
+package fr.rewrite.cli.batch;
+
+import fr.rewrite.cli.client.ConnectionFailures;
+import fr.rewrite.cli.client.JobStatus;
+import fr.rewrite.cli.client.ResponseBody;
+
+/**
+ * Outcome of the submission of one repository.
+ * @param repoUrl The submitted repository.
+ * @param statusCode The HTTP status returned by the orchestrator, -1 if no answer was received.
+ * @param body The response body, or the error message when the request failed.
+ * @param job The final status of the job when the run waited for it, null otherwise.
+ * @param unreachable Whether the orchestrator could not be reached at all, so the request can be queued for later.
+ */
+public record SubmissionResult(String repoUrl, int statusCode, ResponseBody body, JobStatus job, boolean unreachable) {
+  public SubmissionResult(String repoUrl, int statusCode, ResponseBody body) {
+    this(repoUrl, statusCode, body, null, false);
+  }
+
+  public static SubmissionResult failure(String repoUrl, Throwable error) {
+    return new SubmissionResult(repoUrl, -1, ResponseBody.of(String.valueOf(error.getMessage())), null, ConnectionFailures.isUnreachable(error));
+  }
+
+  public SubmissionResult withJob(JobStatus job) {
+    return new SubmissionResult(repoUrl, statusCode, body, job, unreachable);
+  }
+
+  public boolean succeeded() {
+    return statusCode >= 200 && statusCode < 300 && (job == null || job.succeeded());
+  }
+}
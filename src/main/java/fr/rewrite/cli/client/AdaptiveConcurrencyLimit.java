@@ -0,0 +1,129 @@
+package fr.rewrite.cli.client;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit adjusted from the outcome of each request (AIMD): it grows by one after a fast success while the
+ * limit is in use, and is cut when the server pushes back (429, 503, I/O error) or when the smoothed latency rises
+ * well above the lowest one recently observed, the sign that requests start queueing on the server. Smoothing keeps
+ * a single straggler from cutting the limit.
+ *
+ * <p>
+ * A cut only applies to requests started after the previous cut: the requests that were in flight together when the
+ * server saturated would otherwise divide the limit once each.
+ * </p>
+ *
+ * <p>
+ * A {@link ReentrantLock} rather than {@code synchronized}: waiting callers are virtual threads, which a monitor would
+ * pin to their carrier.
+ * </p>
+ */
+final class AdaptiveConcurrencyLimit {
+
+  static final int INITIAL_LIMIT = 16;
+  static final int MAX_LIMIT = 1000;
+  // Au-delà de deux fois la latence minimale, les requêtes attendent leur tour sur le serveur
+  private static final double LATENCY_TOLERANCE = 2.0;
+  private static final double SMOOTHING = 0.1;
+  private static final double BACKOFF_RATIO = 0.5;
+  private static final double LATENCY_BACKOFF_RATIO = 0.9;
+  // La latence minimale est réévaluée régulièrement, pour suivre un serveur devenu durablement plus lent
+  private static final int MIN_LATENCY_WINDOW = 500;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private double limit = INITIAL_LIMIT;
+  private int inFlight;
+  private long minLatency = Long.MAX_VALUE;
+  private long windowMinLatency = Long.MAX_VALUE;
+  private double smoothedLatency;
+  private int windowSamples;
+  private long lastCut = System.nanoTime();
+
+  /**
+   * Waits for a slot under the limit.
+   * @return The start time of the request, to give back to {@link #release(long, Outcome)}.
+   * @throws InterruptedException If the calling thread is interrupted while waiting.
+   */
+  long acquire() throws InterruptedException {
+    lock.lock();
+    try {
+      while (inFlight >= (int) limit) {
+        released.await();
+      }
+      inFlight++;
+      return System.nanoTime();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Frees the slot of a request and adjusts the limit from its outcome.
+   * @param start The value returned by {@link #acquire()}.
+   * @param outcome The outcome of the request.
+   */
+  void release(long start, Outcome outcome) {
+    long now = System.nanoTime();
+    lock.lock();
+    try {
+      inFlight--;
+      switch (outcome) {
+        case SUCCESS -> onSuccess(start, now - start);
+        case DROPPED -> cut(start, now, BACKOFF_RATIO);
+        case IGNORED -> {}
+      }
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int limit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void onSuccess(long start, long latency) {
+    windowMinLatency = Math.min(windowMinLatency, latency);
+    minLatency = Math.min(minLatency, latency);
+    if (++windowSamples == MIN_LATENCY_WINDOW) {
+      minLatency = windowMinLatency;
+      windowMinLatency = Long.MAX_VALUE;
+      windowSamples = 0;
+    }
+
+    smoothedLatency = smoothedLatency == 0 ? latency : smoothedLatency + (latency - smoothedLatency) * SMOOTHING;
+    if (smoothedLatency > LATENCY_TOLERANCE * minLatency) {
+      cut(start, start + latency, LATENCY_BACKOFF_RATIO);
+    } else if ((inFlight + 1) * 2 >= limit) {
+      // La limite n'augmente que si elle est utilisée : sinon elle croîtrait sans rien mesurer
+      limit = Math.min(MAX_LIMIT, limit + 1);
+    }
+  }
+
+  private void cut(long start, long now, double ratio) {
+    if (start - lastCut < 0) {
+      return;
+    }
+    limit = Math.max(1, limit * ratio);
+    lastCut = now;
+  }
+
+  /**
+   * Outcome of a request, as seen by the limit.
+   */
+  enum Outcome {
+    /** Answered without push back: its latency is measured. */
+    SUCCESS,
+    /** Refused by the server (429, 503) or failed on I/O: the limit is cut. */
+    DROPPED,
+    /** Neither, for instance interrupted: the slot is only freed. */
+    IGNORED,
+  }
+}
@@ -0,0 +1,52 @@
+package fr.rewrite.cli.client;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with "equal jitter": the delay of an attempt is drawn between half and all of
+ * {@code initial * multiplier^attempt}, capped at {@code max}. Jitter spreads the polls of jobs
+ * submitted together so they do not reach the orchestrator in waves.
+ */
+public final class Backoff {
+
+  private final Duration initial;
+  private final Duration max;
+  private final double multiplier;
+
+  public Backoff(Duration initial, Duration max, double multiplier) {
+    if (initial.isNegative() || initial.isZero()) {
+      throw new IllegalArgumentException("Initial delay must be positive but was " + initial);
+    }
+    if (max.compareTo(initial) < 0) {
+      throw new IllegalArgumentException("Max delay " + max + " must not be lower than initial delay " + initial);
+    }
+    if (multiplier < 1) {
+      throw new IllegalArgumentException("Multiplier must be at least 1 but was " + multiplier);
+    }
+    this.initial = initial;
+    this.max = max;
+    this.multiplier = multiplier;
+  }
+
+  /**
+   * Computes the ceiling of the delay for the given attempt, without jitter.
+   * @param attempt The number of previous attempts, starting at 0.
+   * @return The capped exponential delay.
+   */
+  public Duration ceiling(int attempt) {
+    double millis = initial.toMillis() * Math.pow(multiplier, Math.max(0, attempt));
+    return millis >= max.toMillis() ? max : Duration.ofMillis((long) millis);
+  }
+
+  /**
+   * Computes the jittered delay to wait before the given attempt.
+   * @param attempt The number of previous attempts, starting at 0.
+   * @return A delay between half and all of {@link #ceiling(int)}.
+   */
+  public Duration delay(int attempt) {
+    long ceiling = ceiling(attempt).toMillis();
+    long half = ceiling / 2;
+    return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(ceiling - half + 1));
+  }
+}
@@ -0,0 +1,8 @@
+package fr.rewrite.cli.client;
+
+/**
+ * Result of one request of a bulk submission.
+ * @param statusCode The HTTP status of the item, as for a single submission, -1 if the bulk response has no result for it.
+ * @param body The item, or the reason why it has no result.
+ */
+public record BulkItem(int statusCode, ResponseBody body) {}
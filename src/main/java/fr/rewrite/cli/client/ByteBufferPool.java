@@ -0,0 +1,63 @@
+package fr.rewrite.cli.client;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of fixed-size heap {@link ByteBuffer}s, shared by the threads of a process. At most {@code maxRetained}
+ * buffers are kept once released, the others are left to the garbage collector.
+ */
+public final class ByteBufferPool {
+
+  private final int bufferSize;
+  private final int maxRetained;
+  private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger retained = new AtomicInteger();
+
+  public ByteBufferPool(int bufferSize, int maxRetained) {
+    this.bufferSize = bufferSize;
+    this.maxRetained = maxRetained;
+  }
+
+  public int bufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Takes a buffer from the pool, or allocates one if the pool is empty.
+   * @return A cleared buffer of {@link #bufferSize()} bytes.
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = buffers.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocate(bufferSize);
+    }
+    retained.decrementAndGet();
+    return buffer.clear();
+  }
+
+  /**
+   * Gives a buffer back to the pool; it must not be used afterwards.
+   * @param buffer A buffer obtained from {@link #acquire()}.
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer.capacity() != bufferSize) {
+      return;
+    }
+    if (retained.incrementAndGet() > maxRetained) {
+      retained.decrementAndGet();
+      return;
+    }
+    buffers.offer(buffer);
+  }
+
+  /**
+   * Number of buffers waiting in the pool.
+   * @return The count.
+   */
+  public int retained() {
+    return retained.get();
+  }
+}
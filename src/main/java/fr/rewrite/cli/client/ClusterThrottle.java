@@ -0,0 +1,179 @@
+package fr.rewrite.cli.client;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces the requests sent to one orchestrator server, shared by every client of that server in the process.
+ *
+ * <ul>
+ * <li>an optional token bucket caps the request rate;</li>
+ * <li>an {@link AdaptiveConcurrencyLimit} finds the number of requests in flight the server sustains;</li>
+ * <li>a 429 or 503 answer with a Retry-After header pauses every request to the server for that delay.</li>
+ * </ul>
+ *
+ * <p>
+ * The throttle sends each request once: sending a throttled request again is the job of the {@link RetryPolicy}, whose
+ * next attempt waits for the pause like any other request. It also keeps the {@link LatencyHistogram} of the server,
+ * from which slow requests are hedged.
+ * </p>
+ */
+public final class ClusterThrottle {
+
+  /**
+   * @param rateLimit The maximum number of requests per second, null for no rate limit.
+   * @param rateLimitBurst The number of requests that can be sent at once after an idle period, null for one second
+   *     of {@code rateLimit}.
+   * @param adaptiveConcurrency Whether to adapt the number of requests in flight to the server.
+   */
+  public record Settings(Double rateLimit, Integer rateLimitBurst, boolean adaptiveConcurrency) {}
+
+  /**
+   * Sends one HTTP exchange.
+   * @param <T> The type of the response body.
+   */
+  @FunctionalInterface
+  public interface Exchange<T> {
+    HttpResponse<T> send() throws IOException, InterruptedException;
+  }
+
+  private final TokenBucket bucket;
+  private final AdaptiveConcurrencyLimit limit;
+  private final AtomicLong pausedUntil = new AtomicLong(System.nanoTime());
+  private final AtomicLong throttledResponses = new AtomicLong();
+  private final LatencyHistogram latencies = new LatencyHistogram();
+
+  private ClusterThrottle(TokenBucket bucket, AdaptiveConcurrencyLimit limit) {
+    this.bucket = bucket;
+    this.limit = limit;
+  }
+
+  /**
+   * Creates the throttle of a server.
+   * @param settings The settings of the cluster.
+   * @return The throttle, to be shared by every client of the server.
+   */
+  public static ClusterThrottle of(Settings settings) {
+    TokenBucket bucket = settings.rateLimit() == null
+      ? null
+      : new TokenBucket(
+        settings.rateLimit(),
+        settings.rateLimitBurst() != null ? settings.rateLimitBurst() : (int) Math.max(1, Math.ceil(settings.rateLimit())),
+        System.nanoTime()
+      );
+    return new ClusterThrottle(bucket, settings.adaptiveConcurrency() ? new AdaptiveConcurrencyLimit() : null);
+  }
+
+  /**
+   * A throttle that sends every request as soon as it is asked to, pauses included.
+   * @return The throttle.
+   */
+  public static ClusterThrottle unthrottled() {
+    return new ClusterThrottle(null, null);
+  }
+
+  /**
+   * Sends an exchange when the rate limit, the concurrency limit and any pause requested by the server allow it.
+   * @param exchange The exchange.
+   * @return The response; a 429 or 503 one pauses the next requests to the server for its Retry-After delay.
+   * @throws IOException If the exchange fails.
+   * @throws InterruptedException If the calling thread is interrupted while waiting for its turn or the response.
+   */
+  public <T> HttpResponse<T> send(Exchange<T> exchange) throws IOException, InterruptedException {
+    return send(exchange, () -> {});
+  }
+
+  /**
+   * Sends an exchange when the rate limit, the concurrency limit and any pause requested by the server allow it.
+   * @param exchange The exchange.
+   * @param onTurn Called once the exchange is allowed to go, right before it is sent.
+   * @return The response; a 429 or 503 one pauses the next requests to the server for its Retry-After delay.
+   * @throws IOException If the exchange fails.
+   * @throws InterruptedException If the calling thread is interrupted while waiting for its turn or the response.
+   */
+  public <T> HttpResponse<T> send(Exchange<T> exchange, Runnable onTurn) throws IOException, InterruptedException {
+    awaitTurn();
+    long start = limit == null ? 0 : limit.acquire();
+    onTurn.run();
+    AdaptiveConcurrencyLimit.Outcome outcome = AdaptiveConcurrencyLimit.Outcome.IGNORED;
+    HttpResponse<T> response;
+    long sent = System.nanoTime();
+    try {
+      response = exchange.send();
+      boolean throttled = RetryAfter.isThrottled(response.statusCode());
+      outcome = throttled ? AdaptiveConcurrencyLimit.Outcome.DROPPED : AdaptiveConcurrencyLimit.Outcome.SUCCESS;
+      // Une réponse refusée d'emblée ne dit rien du temps de traitement du serveur
+      if (!throttled) {
+        latencies.record(System.nanoTime() - sent);
+      }
+    } catch (IOException e) {
+      outcome = AdaptiveConcurrencyLimit.Outcome.DROPPED;
+      throw e;
+    } finally {
+      if (limit != null) {
+        limit.release(start, outcome);
+      }
+    }
+
+    if (RetryAfter.isThrottled(response.statusCode())) {
+      throttledResponses.incrementAndGet();
+      RetryAfter.of(response).ifPresent(this::pause);
+    }
+    return response;
+  }
+
+  private void pause(Duration delay) {
+    long until = System.nanoTime() + delay.toNanos();
+    pausedUntil.accumulateAndGet(until, (current, candidate) -> candidate - current > 0 ? candidate : current);
+  }
+
+  // Une pause demandée par le serveur pendant l'attente du jeton la prolonge : elle est revérifiée après chaque sommeil
+  private void awaitTurn() throws InterruptedException {
+    long wait = bucket == null ? 0 : bucket.reserve(System.nanoTime());
+    while (true) {
+      long now = System.nanoTime();
+      long sleep = Math.max(wait, pausedUntil.get() - now);
+      if (sleep <= 0) {
+        return;
+      }
+      TimeUnit.NANOSECONDS.sleep(sleep);
+      wait -= System.nanoTime() - now;
+    }
+  }
+
+  /**
+   * Current concurrency limit.
+   * @return The limit, -1 if concurrency is not adaptive.
+   */
+  public int concurrencyLimit() {
+    return limit == null ? -1 : limit.limit();
+  }
+
+  /**
+   * Latencies of the requests sent to the server, from the time they left the throttle.
+   * @return The histogram, 429 and 503 answers and failed requests excluded.
+   */
+  public LatencyHistogram latencies() {
+    return latencies;
+  }
+
+  /**
+   * Number of 429 and 503 answers received.
+   * @return The count, attempts included.
+   */
+  public long throttledResponses() {
+    return throttledResponses.get();
+  }
+
+  @Override
+  public String toString() {
+    return (
+      "Réponses 429/503 du serveur : "
+      + throttledResponses()
+      + (limit == null ? "" : ", limite de concurrence adaptative finale : " + limit.limit())
+    );
+  }
+}
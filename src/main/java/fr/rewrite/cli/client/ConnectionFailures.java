@@ -0,0 +1,37 @@
+package fr.rewrite.cli.client;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.nio.channels.UnresolvedAddressException;
+
+/**
+ * Tells the failures where the orchestrator could not be reached at all from the others. Only the former are worth
+ * queuing for later: a TLS handshake refused or a request that cannot be serialized fails again however long it waits.
+ */
+public final class ConnectionFailures {
+
+  private ConnectionFailures() {}
+
+  /**
+   * Tells whether a failure happened while connecting to the server.
+   * @param failure The failure of a request.
+   * @return Whether the failure, or one of its causes, is a refused, timed out or unresolved connection.
+   */
+  public static boolean isUnreachable(Throwable failure) {
+    // Le client HTTP enveloppe volontiers la cause réelle, par exemple une adresse non résolue dans une ConnectException
+    for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+      if (
+        cause instanceof ConnectException
+        || cause instanceof HttpConnectTimeoutException
+        || cause instanceof UnresolvedAddressException
+        || cause instanceof UnknownHostException
+        || cause instanceof NoRouteToHostException
+      ) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,50 @@
+package fr.rewrite.cli.client;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Content codings of the bodies exchanged with the orchestrator, both implemented with {@link java.util.zip}.
+ * {@code gzip} wraps a raw deflate stream between its own header and trailer, {@code deflate} is the zlib format.
+ */
+public enum ContentEncoding {
+  GZIP("gzip"),
+  DEFLATE("deflate");
+
+  /**
+   * Value of the Accept-Encoding header of the requests.
+   */
+  public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+  private final String token;
+
+  ContentEncoding(String token) {
+    this.token = token;
+  }
+
+  public String token() {
+    return token;
+  }
+
+  /**
+   * Coding of a Content-Encoding or Accept-Encoding item, parameters ignored.
+   * @param value The header item, for instance {@code gzip;q=1.0}.
+   * @return The coding, empty for {@code identity} and the codings that are not supported.
+   */
+  public static Optional<ContentEncoding> fromToken(String value) {
+    String token = value.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+    // x-gzip est l'ancien nom de gzip, que la RFC 9110 demande toujours d'accepter
+    return Stream.of(values()).filter(encoding -> encoding.token.equals(token) || ("x-" + encoding.token).equals(token)).findFirst();
+  }
+
+  Deflater newDeflater() {
+    return new Deflater(Deflater.DEFAULT_COMPRESSION, this == GZIP);
+  }
+
+  Inflater newInflater() {
+    return new Inflater(this == GZIP);
+  }
+}
@@ -0,0 +1,229 @@
+package fr.rewrite.cli.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Body subscriber inflating a compressed response as its chunks arrive, before handing them to another subscriber.
+ * Only the inflater window and the chunk being decoded are held: the compressed body is never buffered as a whole.
+ *
+ * <p>
+ * Each received list of buffers is forwarded as exactly one list of inflated buffers, so the demand of the downstream
+ * subscriber is passed through unchanged. A truncated or corrupted body fails the downstream subscriber.
+ * </p>
+ *
+ * @param <T> The type of the body produced by the downstream subscriber.
+ */
+final class DecompressingBodySubscriber<T> implements HttpResponse.BodySubscriber<T> {
+
+  private static final int CHUNK_SIZE = 16 * 1024;
+  private static final int GZIP_TRAILER_LENGTH = 8;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  private enum State {
+    HEADER,
+    BODY,
+    TRAILER,
+    DONE,
+  }
+
+  private final ContentEncoding encoding;
+  private final HttpResponse.BodySubscriber<T> downstream;
+  private final Inflater inflater;
+  private final CRC32 crc = new CRC32();
+  // En-tête puis trailer gzip, qui peuvent arriver à cheval sur plusieurs tampons
+  private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+  private State state;
+  private boolean empty = true;
+  private boolean failed;
+  private Flow.Subscription subscription;
+  private ByteBuffer output;
+
+  DecompressingBodySubscriber(ContentEncoding encoding, HttpResponse.BodySubscriber<T> downstream) {
+    this.encoding = encoding;
+    this.downstream = downstream;
+    this.inflater = encoding.newInflater();
+    this.state = encoding == ContentEncoding.GZIP ? State.HEADER : State.BODY;
+  }
+
+  @Override
+  public CompletionStage<T> getBody() {
+    return downstream.getBody();
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    this.subscription = subscription;
+    downstream.onSubscribe(subscription);
+  }
+
+  @Override
+  public void onNext(List<ByteBuffer> items) {
+    if (failed) {
+      return;
+    }
+
+    List<ByteBuffer> inflated = new ArrayList<>();
+    try {
+      for (ByteBuffer item : items) {
+        empty &= !item.hasRemaining();
+        while (item.hasRemaining()) {
+          feed(item, inflated);
+        }
+      }
+    } catch (IOException | DataFormatException e) {
+      fail(e);
+      return;
+    }
+    if (output != null && output.position() > 0) {
+      inflated.add(output.flip());
+      output = null;
+    }
+    downstream.onNext(inflated);
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    inflater.end();
+    if (!failed) {
+      failed = true;
+      downstream.onError(throwable);
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    if (failed) {
+      return;
+    }
+    // Un corps vide (réponse 204 ou 304 portant tout de même un Content-Encoding) n'a rien à décompresser
+    if (state != State.DONE && !empty) {
+      fail(new EOFException("Unexpected end of " + encoding.token() + " response body"));
+      return;
+    }
+    inflater.end();
+    downstream.onComplete();
+  }
+
+  private void feed(ByteBuffer input, List<ByteBuffer> inflated) throws IOException, DataFormatException {
+    switch (state) {
+      case HEADER -> {
+        frame.write(input.get());
+        if (gzipHeaderComplete(frame.toByteArray())) {
+          frame.reset();
+          state = State.BODY;
+        }
+      }
+      case BODY -> inflate(input, inflated);
+      case TRAILER -> {
+        frame.write(input.get());
+        if (frame.size() == GZIP_TRAILER_LENGTH) {
+          checkGzipTrailer(frame.toByteArray());
+          state = State.DONE;
+        }
+      }
+      // Comme GZIPInputStream, les octets qui suivent la fin du flux sont ignorés
+      case DONE -> input.position(input.limit());
+    }
+  }
+
+  private void inflate(ByteBuffer input, List<ByteBuffer> inflated) throws DataFormatException, ZipException {
+    inflater.setInput(input);
+    while (!inflater.finished() && !inflater.needsInput()) {
+      if (output == null || !output.hasRemaining()) {
+        if (output != null) {
+          inflated.add(output.flip());
+        }
+        output = ByteBuffer.allocate(CHUNK_SIZE);
+      }
+      int start = output.position();
+      if (inflater.inflate(output) == 0 && inflater.needsDictionary()) {
+        throw new ZipException("Preset dictionaries are not supported in " + encoding.token() + " response bodies");
+      }
+      crc.update(output.duplicate().position(start).limit(output.position()));
+    }
+    if (inflater.finished()) {
+      state = encoding == ContentEncoding.GZIP ? State.TRAILER : State.DONE;
+    }
+  }
+
+  // RFC 1952 : 10 octets fixes, puis les champs optionnels annoncés par les drapeaux
+  private static boolean gzipHeaderComplete(byte[] header) throws ZipException {
+    if (header.length >= 2 && ((header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b)) {
+      throw new ZipException("Not in GZIP format");
+    }
+    if (header.length >= 3 && header[2] != 8) {
+      throw new ZipException("Unsupported GZIP compression method " + header[2]);
+    }
+    if (header.length < 10) {
+      return false;
+    }
+
+    int flags = header[3];
+    int position = 10;
+    if ((flags & FEXTRA) != 0) {
+      if (header.length < position + 2) {
+        return false;
+      }
+      position += 2 + ((header[position] & 0xff) | ((header[position + 1] & 0xff) << 8));
+    }
+    if ((flags & FNAME) != 0) {
+      position = afterZero(header, position);
+    }
+    if ((flags & FCOMMENT) != 0) {
+      position = afterZero(header, position);
+    }
+    if ((flags & FHCRC) != 0) {
+      position += 2;
+    }
+    return header.length == position;
+  }
+
+  private static int afterZero(byte[] header, int position) {
+    for (int i = position; i < header.length; i++) {
+      if (header[i] == 0) {
+        return i + 1;
+      }
+    }
+    // Le champ n'est pas encore terminé : une position au-delà de l'en-tête reçu
+    return header.length + 1;
+  }
+
+  private void checkGzipTrailer(byte[] trailer) throws ZipException {
+    if (littleEndianInt(trailer, 0) != crc.getValue()) {
+      throw new ZipException("Corrupt GZIP trailer: CRC mismatch");
+    }
+    if (littleEndianInt(trailer, 4) != (inflater.getBytesWritten() & 0xffffffffL)) {
+      throw new ZipException("Corrupt GZIP trailer: size mismatch");
+    }
+  }
+
+  private static long littleEndianInt(byte[] bytes, int offset) {
+    long value = 0;
+    for (int i = 3; i >= 0; i--) {
+      value = (value << 8) | (bytes[offset + i] & 0xffL);
+    }
+    return value;
+  }
+
+  private void fail(Exception e) {
+    failed = true;
+    subscription.cancel();
+    inflater.end();
+    downstream.onError(e);
+  }
+}
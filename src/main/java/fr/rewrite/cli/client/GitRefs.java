@@ -0,0 +1,124 @@
+package fr.rewrite.cli.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the commit a branch of a Git repository points to, the way {@code git ls-remote} does, without cloning and
+ * without a git executable: a single {@code ls-refs} request of the Git protocol v2 over smart HTTP, restricted to the
+ * branch, so the answer is one line whatever the number of refs of the repository.
+ */
+public final class GitRefs {
+
+  private static final String UPLOAD_PACK = "/git-upload-pack";
+  private static final Pattern OBJECT_ID = Pattern.compile("[0-9a-f]{40}|[0-9a-f]{64}");
+  private static final String FLUSH = "0000";
+  private static final String DELIMITER = "0001";
+
+  private final HttpClient httpClient;
+  private final Duration timeout;
+
+  /**
+   * @param httpClient The client to reach the Git hosts with. It must not follow redirects, which would send the Git
+   *     token to wherever the host redirects to.
+   * @param timeout The maximum time to wait for the answer of a host.
+   */
+  public GitRefs(HttpClient httpClient, Duration timeout) {
+    if (httpClient.followRedirects() != HttpClient.Redirect.NEVER) {
+      throw new IllegalArgumentException("The client of the Git hosts must not follow redirects");
+    }
+    this.httpClient = httpClient;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Resolves the head of a branch.
+   * @param repoUrl The HTTP(S) URL of the repository.
+   * @param branch The branch, null for the default branch of the repository.
+   * @param username The user to authenticate as, null for the default.
+   * @param token The token to authenticate with, null to query the repository anonymously. It is only sent over
+   *     HTTPS: a repository over plain HTTP is always queried anonymously.
+   * @return The id of the commit, empty if the repository is not reachable over HTTP(S), if the branch does not exist,
+   *     or if the host does not speak the protocol v2.
+   * @throws InterruptedException If the calling thread is interrupted while waiting for the answer.
+   */
+  public Optional<String> head(String repoUrl, String branch, String username, String token) throws InterruptedException {
+    if (repoUrl == null || !(repoUrl.startsWith("https://") || repoUrl.startsWith("http://"))) {
+      return Optional.empty();
+    }
+
+    String ref = branch == null ? "HEAD" : "refs/heads/" + branch;
+    String body = pktLine("command=ls-refs\n") + DELIMITER + pktLine("ref-prefix " + ref + "\n") + FLUSH;
+    try {
+      HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(stripTrailingSlash(repoUrl) + UPLOAD_PACK))
+        .timeout(timeout)
+        .header("Content-Type", "application/x-git-upload-pack-request")
+        .header("Accept", "application/x-git-upload-pack-result")
+        .header("Git-Protocol", "version=2")
+        .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8));
+      // Jamais de jeton en clair sur le réseau
+      if (token != null && !token.isEmpty() && repoUrl.startsWith("https://")) {
+        String credentials = (username == null || username.isEmpty() ? "git" : username) + ":" + token;
+        request.header("Authorization", "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+      }
+
+      HttpResponse<InputStream> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+      try (InputStream in = response.body()) {
+        if (response.statusCode() != 200) {
+          return Optional.empty();
+        }
+        return find(in, ref);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      // Hôte injoignable ou URL invalide : le dépôt est simplement soumis sans déduplication
+      return Optional.empty();
+    }
+  }
+
+  // Chaque ligne de la réponse est "<id> <ref>[ <attributs>]", le préfixe demandé pouvant aussi désigner d'autres refs
+  static Optional<String> find(InputStream in, String ref) throws IOException {
+    for (String line = readPktLine(in); line != null; line = readPktLine(in)) {
+      String[] fields = line.stripTrailing().split(" ");
+      if (fields.length >= 2 && fields[1].equals(ref) && OBJECT_ID.matcher(fields[0]).matches()) {
+        return Optional.of(fields[0]);
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static String pktLine(String payload) {
+    return String.format("%04x", payload.getBytes(StandardCharsets.UTF_8).length + 4) + payload;
+  }
+
+  // Une ligne pkt-line est préfixée par sa longueur en hexadécimal, préfixe compris ; 0000 termine la réponse
+  private static String readPktLine(InputStream in) throws IOException {
+    byte[] header = in.readNBytes(4);
+    if (header.length < 4) {
+      return null;
+    }
+    int length;
+    try {
+      length = Integer.parseInt(new String(header, StandardCharsets.US_ASCII), 16);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    if (length < 4) {
+      return null;
+    }
+    byte[] payload = in.readNBytes(length - 4);
+    return payload.length < length - 4 ? null : new String(payload, StandardCharsets.UTF_8);
+  }
+
+  private static String stripTrailingSlash(String url) {
+    return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+  }
+}
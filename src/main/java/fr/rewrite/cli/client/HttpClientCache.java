@@ -0,0 +1,112 @@
+package fr.rewrite.cli.client;
+
+import fr.rewrite.cli.config.Config;
+import fr.rewrite.cli.config.ConfigDiff;
+import fr.rewrite.cli.config.NamedCluster;
+import fr.rewrite.cli.config.NamedUser;
+import java.net.http.HttpClient;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.net.ssl.SSLContext;
+
+/**
+ * Keeps one {@link HttpClient} per cluster and user pair, so the keystores and truststores are parsed and the
+ * {@link SSLContext} built only once per process, and every request of a run shares the same connection pool
+ * and TLS session cache. Clients negotiate HTTP/2 unless the cluster sets {@code httpVersion: HTTP_1_1}. An entry is rebuilt when its {@link TlsFingerprint} changes,
+ * that is when a TLS setting changes or a referenced file is modified.
+ */
+public class HttpClientCache {
+
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Gets the client of a cluster and user, building it if absent or outdated.
+   * @param namedCluster The cluster to connect to.
+   * @param namedUser The user connecting.
+   * @return The shared client.
+   * @throws Exception If the TLS material cannot be loaded.
+   */
+  public Connection get(NamedCluster namedCluster, NamedUser namedUser) throws Exception {
+    Key key = new Key(namedCluster.getName(), namedUser.getName());
+    TlsFingerprint fingerprint = TlsFingerprint.of(namedCluster.getCluster(), namedUser.getUser());
+
+    Entry entry = entries.get(key);
+    if (entry != null && entry.fingerprint().equals(fingerprint)) {
+      return entry.connection();
+    }
+
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry == null || !entry.fingerprint().equals(fingerprint)) {
+        entry = new Entry(fingerprint, connect(namedCluster.getCluster(), namedUser.getUser()));
+        entries.put(key, entry);
+      }
+      return entry.connection();
+    }
+  }
+
+  private static Connection connect(NamedCluster.Cluster cluster, NamedUser.User user) throws Exception {
+    TlsHandshakeStats handshakeStats = new TlsHandshakeStats();
+    SSLContext sslContext = SslContextFactory.create(cluster, user, handshakeStats);
+    HttpClient httpClient = HttpClient.newBuilder()
+      .sslContext(sslContext)
+      .version(cluster.getHttpVersion() == null ? HttpClient.Version.HTTP_2 : HttpClient.Version.valueOf(cluster.getHttpVersion()))
+      .build();
+
+    return new Connection(httpClient, handshakeStats);
+  }
+
+  /**
+   * Applies a configuration change: the clients of the changed clusters and users are rebuilt right away, but only if
+   * their TLS material differs, so the connection pools of the others (and of a mere server URL or PAT change) survive.
+   * Clients of removed clusters and users are dropped, as are those which cannot be rebuilt: the error will be reported
+   * by the next {@link #get(NamedCluster, NamedUser)}.
+   * @param diff The changed clusters and users.
+   * @param current The configuration after the change.
+   * @return The number of clients rebuilt.
+   */
+  public synchronized int reload(ConfigDiff diff, Config current) {
+    int rebuilt = 0;
+    for (Map.Entry<Key, Entry> cached : entries.entrySet()) {
+      Key key = cached.getKey();
+      if (!diff.clusters().contains(key.clusterName()) && !diff.users().contains(key.userName())) {
+        continue;
+      }
+
+      Optional<NamedCluster> namedCluster = current.index().cluster(key.clusterName());
+      Optional<NamedUser> namedUser = current.index().user(key.userName());
+      if (namedCluster.isEmpty() || namedUser.isEmpty() || namedCluster.get().getCluster() == null || namedUser.get().getUser() == null) {
+        entries.remove(key);
+        continue;
+      }
+
+      try {
+        TlsFingerprint fingerprint = TlsFingerprint.of(namedCluster.get().getCluster(), namedUser.get().getUser());
+        if (!fingerprint.equals(cached.getValue().fingerprint())) {
+          entries.put(key, new Entry(fingerprint, connect(namedCluster.get().getCluster(), namedUser.get().getUser())));
+          rebuilt++;
+        }
+      } catch (Exception e) {
+        entries.remove(key);
+      }
+    }
+    return rebuilt;
+  }
+
+  /**
+   * Drops every cached client.
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * A shared client, with the handshake counters of its SSL context.
+   */
+  public record Connection(HttpClient httpClient, TlsHandshakeStats handshakeStats) {}
+
+  private record Key(String clusterName, String userName) {}
+
+  private record Entry(TlsFingerprint fingerprint, Connection connection) {}
+}
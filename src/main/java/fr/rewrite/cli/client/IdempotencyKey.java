@@ -0,0 +1,55 @@
+package fr.rewrite.cli.client;
+
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Derives the {@code Idempotency-Key} header of a submission, so that the orchestrator can recognize a request it
+ * already received and answer it without starting the rewrite again.
+ * The key is the SHA-256 of the run id, the repository, the recipe and the base branch: it is the same for every
+ * attempt of a submission, and for a run resumed with the same run id, but differs between runs.
+ */
+public final class IdempotencyKey {
+
+  public static final String HEADER = "Idempotency-Key";
+
+  private IdempotencyKey() {}
+
+  /**
+   * Computes the key of a single submission.
+   * @param runId The identifier of the run.
+   * @param requestConfig The submitted request.
+   * @return The key, 64 hexadecimal characters.
+   */
+  public static String of(String runId, RewriteConfig requestConfig) {
+    return sha256(runId, requestConfig.getRepoUrl(), requestConfig.getRecipeName(), requestConfig.getBaseBranch());
+  }
+
+  /**
+   * Computes the key of a bulk submission, from the keys of its requests in order.
+   * @param itemKeys The keys of the requests, see {@link #of(String, RewriteConfig)}.
+   * @return The key, 64 hexadecimal characters.
+   */
+  public static String ofBulk(List<String> itemKeys) {
+    return sha256(itemKeys.toArray(String[]::new));
+  }
+
+  // Chaque champ est préfixé par sa longueur : ("a/b", "c") et ("a", "b/c") ne donnent pas la même clé
+  private static String sha256(String... fields) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (String field : fields) {
+        byte[] bytes = field == null ? new byte[0] : field.getBytes(StandardCharsets.UTF_8);
+        digest.update((field == null ? "-1:" : bytes.length + ":").getBytes(StandardCharsets.US_ASCII));
+        digest.update(bytes);
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package fr.rewrite.cli.client;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for orchestrator jobs to reach a terminal status.
+ *
+ * <p>
+ * Every job is polled from a single scheduler thread: the scheduler only fires asynchronous requests, so
+ * thousands of jobs can be awaited without a thread each. Polls use conditional requests (If-None-Match) and
+ * back off exponentially while the status does not change; the backoff is reset as soon as it changes. A 429 or 503
+ * answer with a Retry-After header delays the next poll accordingly.
+ * </p>
+ */
+public final class JobPoller implements AutoCloseable {
+
+  private static final int MAX_CONSECUTIVE_ERRORS = 5;
+
+  private final OrchestratorClient client;
+  private final Backoff backoff;
+  private final Duration timeout;
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "rewrite-job-poller");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public JobPoller(OrchestratorClient client, Backoff backoff, Duration timeout) {
+    this.client = client;
+    this.backoff = backoff;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Starts polling a job.
+   * @param jobId The job identifier.
+   * @return The terminal status of the job, {@link JobStatus#timeout(String)} if it is not reached within the timeout.
+   */
+  public CompletableFuture<JobStatus> await(String jobId) {
+    Poll poll = new Poll(jobId, Instant.now().plus(timeout));
+    schedule(poll, Duration.ZERO);
+    return poll.result;
+  }
+
+  private void schedule(Poll poll, Duration delay) {
+    if (Instant.now().plus(delay).isAfter(poll.deadline)) {
+      poll.result.complete(JobStatus.timeout(poll.jobId));
+      return;
+    }
+
+    scheduler.schedule(() -> run(poll), delay.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private void run(Poll poll) {
+    client
+      .fetchStatus(poll.jobId, poll.etag)
+      .whenComplete((response, error) -> {
+        try {
+          handle(poll, response, error);
+        } catch (RuntimeException e) {
+          poll.result.completeExceptionally(e);
+        }
+      });
+  }
+
+  private void handle(Poll poll, HttpResponse<ResponseBody> response, Throwable error) {
+    // Un serveur qui demande de ralentir n'est pas en panne : l'attente indiquée est respectée sans compter d'erreur
+    Optional<Duration> retryAfter = error == null && RetryAfter.isThrottled(response.statusCode())
+      ? RetryAfter.of(response)
+      : Optional.empty();
+    if (retryAfter.isPresent() || (error == null && response.statusCode() == 429)) {
+      Duration delay = backoff.delay(poll.attempt++);
+      schedule(poll, retryAfter.filter(after -> after.compareTo(delay) > 0).orElse(delay));
+      return;
+    }
+
+    if (error != null || response.statusCode() >= 500) {
+      if (++poll.consecutiveErrors >= MAX_CONSECUTIVE_ERRORS) {
+        poll.result.completeExceptionally(
+          error != null ? error : new IllegalStateException("Status endpoint answered " + response.statusCode() + " for job " + poll.jobId)
+        );
+        return;
+      }
+      schedule(poll, backoff.delay(poll.attempt++));
+      return;
+    }
+    poll.consecutiveErrors = 0;
+
+    if (response.statusCode() == 304) {
+      schedule(poll, backoff.delay(poll.attempt++));
+      return;
+    }
+
+    if (response.statusCode() < 200 || response.statusCode() >= 300) {
+      poll.result.completeExceptionally(
+        new IllegalStateException("Status endpoint answered " + response.statusCode() + " for job " + poll.jobId + ": " + response.body())
+      );
+      return;
+    }
+
+    poll.etag = response.headers().firstValue("ETag").orElse(null);
+    JobStatus status = client.readStatus(poll.jobId, response.body());
+    if (status.isTerminal()) {
+      poll.result.complete(status);
+      return;
+    }
+
+    if (poll.last == null || !poll.last.equals(status)) {
+      poll.attempt = 0;
+    }
+    poll.last = status;
+    schedule(poll, backoff.delay(poll.attempt++));
+  }
+
+  /**
+   * Stops polling; pending {@link #await(String)} results are left incomplete.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+
+  // Les champs mutables ne sont touchés que par un seul poll à la fois : le suivant n'est planifié qu'à la fin du précédent
+  private static final class Poll {
+
+    private final String jobId;
+    private final Instant deadline;
+    private final CompletableFuture<JobStatus> result = new CompletableFuture<>();
+    private volatile String etag;
+    private volatile JobStatus last;
+    private volatile int attempt;
+    private volatile int consecutiveErrors;
+
+    private Poll(String jobId, Instant deadline) {
+      this.jobId = jobId;
+      this.deadline = deadline;
+    }
+  }
+}
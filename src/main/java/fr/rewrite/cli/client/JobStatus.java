@@ -0,0 +1,30 @@
+package fr.rewrite.cli.client;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Status of an orchestrator job, as reported by its status endpoint.
+ * @param jobId The job identifier.
+ * @param status The raw status reported by the orchestrator.
+ */
+public record JobStatus(String jobId, String status) {
+  private static final Set<String> SUCCESS_STATUSES = Set.of("COMPLETED", "SUCCEEDED", "SUCCESS", "DONE");
+  private static final Set<String> FAILURE_STATUSES = Set.of("FAILED", "FAILURE", "ERROR", "CANCELLED", "CANCELED", "TIMEOUT");
+
+  public static JobStatus timeout(String jobId) {
+    return new JobStatus(jobId, "TIMEOUT");
+  }
+
+  public boolean isTerminal() {
+    return succeeded() || FAILURE_STATUSES.contains(normalized());
+  }
+
+  public boolean succeeded() {
+    return SUCCESS_STATUSES.contains(normalized());
+  }
+
+  private String normalized() {
+    return status == null ? "" : status.trim().toUpperCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,117 @@
+package fr.rewrite.cli.client;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Histogram of the latencies recently observed for a server, recorded without locking by concurrent requests.
+ *
+ * <p>
+ * Latencies are counted in microseconds, in log-linear buckets: 8 per power of two, so a percentile is read with at
+ * most 12.5% error whatever the latency. Only recent latencies are kept: the histogram covers the current window and
+ * the previous one, a new window starting every {@link #WINDOW} samples.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+  static final int WINDOW = 1024;
+  // Nombre d'échantillons en dessous duquel les centiles ne sont pas significatifs
+  static final int MIN_SAMPLES = 20;
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // Jusqu'à 2^36 µs, soit 19 heures : au-delà, les latences sont comptées dans le dernier intervalle
+  private static final int MAX_EXPONENT = 36;
+  private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private record Window(AtomicLongArray counts, AtomicLong total) {
+    Window() {
+      this(new AtomicLongArray(BUCKETS), new AtomicLong());
+    }
+  }
+
+  private final AtomicReference<Window> current = new AtomicReference<>(new Window());
+  private volatile Window previous = new Window();
+
+  /**
+   * Records the latency of a request.
+   * @param nanos The latency in nanoseconds.
+   */
+  public void record(long nanos) {
+    Window window = current.get();
+    window.counts().incrementAndGet(bucket(Math.max(0, nanos / 1000)));
+    // Un seul thread voit le compteur atteindre la taille de la fenêtre : lui seul en ouvre une nouvelle
+    if (window.total().incrementAndGet() == WINDOW) {
+      previous = window;
+      current.set(new Window());
+    }
+  }
+
+  /**
+   * Computes a percentile of the recent latencies.
+   * @param percentile The percentile, between 0 and 100.
+   * @return The latency under which {@code percentile}% of the recent requests answered, rounded up to its bucket;
+   *     empty until {@link #MIN_SAMPLES} latencies are recorded.
+   */
+  public Optional<Duration> percentile(double percentile) {
+    Window last = previous;
+    Window window = current.get();
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = last.counts().get(i) + window.counts().get(i);
+      total += counts[i];
+    }
+    if (total < MIN_SAMPLES) {
+      return Optional.empty();
+    }
+
+    long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= Math.max(1, rank)) {
+        return Optional.of(Duration.ofNanos(upperBound(i) * 1000));
+      }
+    }
+    return Optional.of(Duration.ofNanos(upperBound(BUCKETS - 1) * 1000));
+  }
+
+  // Sous 8 µs, une valeur par intervalle ; au-delà, 8 intervalles par puissance de deux
+  static int bucket(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+    int subBucket = (int) (Math.min(micros >>> (exponent - SUB_BUCKET_BITS), 2 * SUB_BUCKETS - 1) & (SUB_BUCKETS - 1));
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long upperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket + 1;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return (SUB_BUCKETS + bucket % SUB_BUCKETS + 1) * width;
+  }
+
+  @Override
+  public String toString() {
+    return (
+      "p50 "
+      + format(percentile(50))
+      + ", p90 "
+      + format(percentile(90))
+      + ", p99 "
+      + format(percentile(99))
+    );
+  }
+
+  private static String format(Optional<Duration> latency) {
+    return latency.map(value -> value.toMillis() + " ms").orElse("n/a");
+  }
+}
@@ -0,0 +1,458 @@
+package fr.rewrite.cli.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import fr.rewrite.cli.application.dto.BulkRequestItem;
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.serialization.Mappers;
+import fr.rewrite.cli.serialization.WireFormat;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Sends rewrite requests to the orchestrator.
+ * A single instance is shared by every submission of a run so that the underlying
+ * {@link HttpClient} (and its connections) is reused.
+ */
+public class OrchestratorClient {
+
+  /**
+   * @param requestCompressionThreshold Size in bytes from which request bodies are compressed, null to never compress them.
+   * @param throttle The throttle of the server, paces the submissions.
+   * @param retryPolicy How to send a submission again after a transient failure.
+   * @param runId The identifier of the run the submissions belong to, from which their {@link IdempotencyKey} is derived;
+   *     null to send them without key, and never retry nor hedge them.
+   * @param hedgePercentile The percentile of the server latencies after which a submission still unanswered is sent a
+   *     second time, null to never hedge.
+   */
+  public record Settings(
+    Integer requestCompressionThreshold,
+    ClusterThrottle throttle,
+    RetryPolicy retryPolicy,
+    String runId,
+    Double hedgePercentile
+  ) {
+    /**
+     * Settings of a client that sends each submission once, as soon as it is asked to, uncompressed and without key.
+     * @return The settings.
+     */
+    public static Settings defaults() {
+      return new Settings(null, ClusterThrottle.unthrottled(), RetryPolicy.none(), null, null);
+    }
+  }
+
+  private static final List<String> JOB_ID_FIELDS = List.of("jobId", "id");
+  private static final List<String> STATUS_FIELDS = List.of("status", "state");
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+  // Une requête tient en général dans un tampon : de quoi servir une soumission par lots à pleine concurrence
+  private static final ByteBufferPool REQUEST_BUFFERS = new ByteBufferPool(8 * 1024, 512);
+  private static final String ACCEPT =
+    WireFormat.SMILE.mediaType() + ", " + WireFormat.CBOR.mediaType() + ";q=0.9, " + WireFormat.JSON.mediaType() + ";q=0.8";
+  private static final HttpResponse.BodyHandler<ResponseBody> AS_RESPONSE_BODY = decompressing(OrchestratorClient::responseBody);
+
+  private final HttpClient httpClient;
+  private final Integer requestCompressionThreshold;
+  private final ClusterThrottle throttle;
+  private final RetryPolicy retryPolicy;
+  private final RequestHedger hedger;
+  private final String runId;
+  private final TlsHandshakeStats handshakeStats;
+  private final URI serverUri;
+  private final AtomicReference<WireFormat> requestFormat = new AtomicReference<>(WireFormat.JSON);
+  private final AtomicReference<ContentEncoding> requestEncoding = new AtomicReference<>(ContentEncoding.GZIP);
+
+  public OrchestratorClient(HttpClient httpClient, String serverUrl) {
+    this(httpClient, new TlsHandshakeStats(), serverUrl);
+  }
+
+  public OrchestratorClient(HttpClient httpClient, TlsHandshakeStats handshakeStats, String serverUrl) {
+    this(httpClient, handshakeStats, serverUrl, Settings.defaults());
+  }
+
+  /**
+   * @param httpClient The client to send the requests with.
+   * @param handshakeStats The statistics to record the TLS sessions of the responses in.
+   * @param serverUrl The submission endpoint.
+   * @param settings How to compress, pace, retry and identify the submissions.
+   */
+  public OrchestratorClient(HttpClient httpClient, TlsHandshakeStats handshakeStats, String serverUrl, Settings settings) {
+    this.httpClient = httpClient;
+    this.handshakeStats = handshakeStats;
+    this.serverUri = URI.create(serverUrl);
+    this.requestCompressionThreshold = settings.requestCompressionThreshold();
+    this.throttle = settings.throttle();
+    this.retryPolicy = settings.retryPolicy();
+    this.hedger = new RequestHedger(throttle.latencies(), settings.hedgePercentile(), retryPolicy::isRetryable);
+    this.runId = settings.runId();
+  }
+
+  public URI serverUri() {
+    return serverUri;
+  }
+
+  public TlsHandshakeStats handshakeStats() {
+    return handshakeStats;
+  }
+
+  public ClusterThrottle throttle() {
+    return throttle;
+  }
+
+  public RetryPolicy retryPolicy() {
+    return retryPolicy;
+  }
+
+  /**
+   * Number of submissions sent a second time because the first attempt was slower than the hedge percentile.
+   * @return The count.
+   */
+  public long hedgedRequests() {
+    return hedger.hedged();
+  }
+
+  /**
+   * Number of hedged submissions whose second attempt answered first.
+   * @return The count.
+   */
+  public long hedgeWins() {
+    return hedger.hedgeWins();
+  }
+
+  // Les réponses compressées sont décompressées au fil de l'eau, avant d'être décodées par le handler
+  private static <T> HttpResponse.BodyHandler<T> decompressing(HttpResponse.BodyHandler<T> handler) {
+    return responseInfo -> {
+      HttpResponse.BodySubscriber<T> subscriber = handler.apply(responseInfo);
+      return responseInfo
+        .headers()
+        .firstValue("Content-Encoding")
+        .flatMap(ContentEncoding::fromToken)
+        .<HttpResponse.BodySubscriber<T>>map(encoding -> new DecompressingBodySubscriber<>(encoding, subscriber))
+        .orElse(subscriber);
+    };
+  }
+
+  // Les réponses Smile ou CBOR restent l'arbre décodé : le texte JSON n'est écrit que si la réponse est affichée
+  private static HttpResponse.BodySubscriber<ResponseBody> responseBody(HttpResponse.ResponseInfo responseInfo) {
+    Optional<WireFormat> format = responseInfo.headers().firstValue("Content-Type").flatMap(WireFormat::fromContentType);
+    if (format.isEmpty() || !format.get().binary()) {
+      return HttpResponse.BodySubscribers.mapping(HttpResponse.BodyHandlers.ofString().apply(responseInfo), ResponseBody::of);
+    }
+
+    return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), bytes -> {
+      try {
+        return ResponseBody.of(Mappers.treeReader(format.get()).readTree(bytes));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  /**
+   * Submits one rewrite request and waits for the orchestrator answer.
+   * The request is sent in JSON until the orchestrator advertises a binary format in an {@code Accept-Post} header, and
+   * gzipped above the compression threshold of the cluster, with the codings listed in an {@code Accept-Encoding}
+   * header of the orchestrator if it sends one. A binary or compressed request answered by 415 Unsupported Media Type
+   * is sent again in plain JSON, as are the following ones. Requests are paced by the {@link ClusterThrottle} of the
+   * server.
+   * With a run id, the request carries its {@link IdempotencyKey} and is sent again, with the same key, as long as the
+   * {@link RetryPolicy} deems its failure transient, and a second time while it is slower than the hedge percentile of
+   * the server latencies; without one, it is sent once.
+   * @param requestConfig The request to send.
+   * @return The orchestrator response, its body decompressed and decoded once, whatever its format.
+   * @throws IOException If the request cannot be serialized or sent.
+   * @throws InterruptedException If the calling thread is interrupted while waiting.
+   */
+  public HttpResponse<ResponseBody> submit(RewriteConfig requestConfig) throws IOException, InterruptedException {
+    return submit(requestConfig, runId == null ? null : IdempotencyKey.of(runId, requestConfig));
+  }
+
+  /**
+   * Submits one rewrite request under a given idempotency key, as {@link #submit(RewriteConfig)} does under the key of
+   * the run of the client; used to send again a request of another run.
+   * @param requestConfig The request to send.
+   * @param idempotencyKey The key of the request, null to send it once without key.
+   * @return The orchestrator response.
+   * @throws IOException If the request cannot be serialized or sent.
+   * @throws InterruptedException If the calling thread is interrupted while waiting.
+   */
+  public HttpResponse<ResponseBody> submit(RewriteConfig requestConfig, String idempotencyKey) throws IOException, InterruptedException {
+    return post(serverUri, requestConfig, Mappers::rewriteConfigWriter, idempotencyKey);
+  }
+
+  /**
+   * Submits several rewrite requests in a single call to the bulk endpoint ({@code <server>/bulk}), negotiated and
+   * compressed as {@link #submit(RewriteConfig)}. The body is the array of the requests, the orchestrator answers with
+   * the array of their results, in the same order; see {@link #readBulkItems(String, int)}. Each request carries its own
+   * idempotency key in an {@code idempotencyKey} field, and the key of the call is derived from them, see
+   * {@link IdempotencyKey#ofBulk(List)}.
+   * @param requestConfigs The requests to send.
+   * @return The orchestrator response, 404 or 405 if it has no bulk endpoint.
+   * @throws IOException If the requests cannot be serialized or sent.
+   * @throws InterruptedException If the calling thread is interrupted while waiting.
+   */
+  public HttpResponse<ResponseBody> submitBulk(List<RewriteConfig> requestConfigs) throws IOException, InterruptedException {
+    // Chaque élément porte sa propre clé : le serveur le reconnaît même regroupé autrement, ou envoyé seul
+    List<BulkRequestItem> items = requestConfigs
+      .stream()
+      .map(requestConfig -> new BulkRequestItem(runId == null ? null : IdempotencyKey.of(runId, requestConfig), requestConfig))
+      .toList();
+    String key = runId == null ? null : IdempotencyKey.ofBulk(items.stream().map(BulkRequestItem::idempotencyKey).toList());
+    return post(bulkUri(), items, Mappers::bulkRequestWriter, key);
+  }
+
+  private HttpResponse<ResponseBody> post(URI uri, Object value, Function<WireFormat, ObjectWriter> writers, String key)
+    throws IOException, InterruptedException {
+    WireFormat format = requestFormat.get();
+    ContentEncoding encoding = requestEncoding.get();
+    HttpResponse<ResponseBody> response = post(uri, value, writers.apply(format), format, encoding, key);
+    boolean compressed = response.request().headers().firstValue("Content-Encoding").isPresent();
+    if (response.statusCode() == 415 && (format.binary() || compressed)) {
+      requestFormat.compareAndSet(format, WireFormat.JSON);
+      if (compressed) {
+        requestEncoding.compareAndSet(encoding, null);
+      }
+      response = post(uri, value, writers.apply(WireFormat.JSON), WireFormat.JSON, null, key);
+    }
+    return response;
+  }
+
+  // Sans clé, le serveur ne saurait pas reconnaître une requête déjà reçue : elle n'est jamais renvoyée
+  private HttpResponse<ResponseBody> post(
+    URI uri,
+    Object value,
+    ObjectWriter writer,
+    WireFormat format,
+    ContentEncoding encoding,
+    String key
+  ) throws IOException, InterruptedException {
+    if (key == null) {
+      return send(uri, value, writer, format, encoding, null, () -> {});
+    }
+    return retryPolicy.execute(() -> hedger.send(onTurn -> send(uri, value, writer, format, encoding, key, onTurn)));
+  }
+
+  // Le corps est resérialisé à chaque tentative ; seuls les tampons jamais confiés au client HTTP retournent au pool
+  private HttpResponse<ResponseBody> send(
+    URI uri,
+    Object value,
+    ObjectWriter writer,
+    WireFormat format,
+    ContentEncoding encoding,
+    String key,
+    Runnable onTurn
+  ) throws IOException, InterruptedException {
+    try (PooledJsonBody body = body(value, writer, encoding)) {
+      HttpRequest.Builder request = HttpRequest.newBuilder()
+        .uri(uri)
+        .header("Content-Type", format.mediaType())
+        .header("Accept", ACCEPT)
+        .header("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING)
+        .POST(body);
+      body.contentEncoding().ifPresent(coding -> request.header("Content-Encoding", coding.token()));
+      if (key != null) {
+        request.header(IdempotencyKey.HEADER, key);
+      }
+
+      HttpRequest built = request.build();
+      HttpResponse<ResponseBody> response = throttle.send(() -> httpClient.send(built, AS_RESPONSE_BODY), onTurn);
+      handshakeStats.record(response);
+      negotiate(response);
+      return response;
+    }
+  }
+
+  private PooledJsonBody body(Object value, ObjectWriter writer, ContentEncoding encoding) throws IOException {
+    PooledJsonBody body = PooledJsonBody.of(writer, value, REQUEST_BUFFERS);
+    if (encoding == null || requestCompressionThreshold == null || body.contentLength() < requestCompressionThreshold) {
+      return body;
+    }
+    return body.encode(encoding);
+  }
+
+  // Le serveur annonce les formats (Accept-Post) et les codages (Accept-Encoding, RFC 7694) qu'il accepte en entrée
+  private void negotiate(HttpResponse<?> response) {
+    List<WireFormat> accepted = headerItems(response, "Accept-Post").map(WireFormat::fromContentType).flatMap(Optional::stream).toList();
+    Stream.of(WireFormat.values()).filter(accepted::contains).findFirst().ifPresent(requestFormat::set);
+
+    if (response.headers().firstValue("Accept-Encoding").isPresent()) {
+      List<ContentEncoding> codings = headerItems(response, "Accept-Encoding")
+        .map(ContentEncoding::fromToken)
+        .flatMap(Optional::stream)
+        .toList();
+      requestEncoding.set(Stream.of(ContentEncoding.values()).filter(codings::contains).findFirst().orElse(null));
+    }
+  }
+
+  private static Stream<String> headerItems(HttpResponse<?> response, String name) {
+    return response.headers().allValues(name).stream().flatMap(value -> Stream.of(value.split(",")));
+  }
+
+  /**
+   * Format of the next requests, as negotiated with the orchestrator.
+   * @return The request format.
+   */
+  public WireFormat requestFormat() {
+    return requestFormat.get();
+  }
+
+  /**
+   * Content coding of the next requests above the compression threshold, as negotiated with the orchestrator.
+   * @return The request coding, empty if requests are not compressed.
+   */
+  public Optional<ContentEncoding> requestEncoding() {
+    return requestCompressionThreshold == null ? Optional.empty() : Optional.ofNullable(requestEncoding.get());
+  }
+
+  /**
+   * Extracts the job identifier from a submission response body ({@code jobId} or {@code id} field).
+   * @param responseBody The body returned by {@link #submit(RewriteConfig)}.
+   * @return The job identifier, empty if the body is not JSON or carries no identifier.
+   */
+  public Optional<String> jobId(ResponseBody responseBody) {
+    return textField(responseBody, JOB_ID_FIELDS);
+  }
+
+  /**
+   * Builds the status endpoint of a job: {@code <server>/<jobId>/status}.
+   * @param jobId The job identifier.
+   * @return The status URI.
+   */
+  public URI statusUri(String jobId) {
+    return jobUri(jobId, "/status");
+  }
+
+  public URI bulkUri() {
+    return URI.create(trimmedServer() + "/bulk");
+  }
+
+  /**
+   * Splits the body of a bulk response into the results of its items.
+   * Each item carries its HTTP status in a {@code status} field and, like the body of a single submission, the job
+   * identifier ({@code jobId} or {@code id}) of the accepted requests.
+   * @param responseBody The body returned by {@link #submitBulk(List)}.
+   * @param expected The number of requests of the bulk call.
+   * @return One result per request, in the order of the requests; status -1 for the items missing from the body.
+   */
+  public List<BulkItem> readBulkItems(ResponseBody responseBody, int expected) {
+    JsonNode items = responseBody.tree().orElse(null);
+
+    List<BulkItem> results = new ArrayList<>(expected);
+    for (int i = 0; i < expected; i++) {
+      JsonNode item = items != null && items.isArray() ? items.get(i) : null;
+      results.add(
+        item == null
+          ? new BulkItem(-1, ResponseBody.of("No result for item " + i + " in the bulk response"))
+          : new BulkItem(item.path("status").asInt(-1), ResponseBody.of(item))
+      );
+    }
+    return results;
+  }
+
+  /**
+   * Asynchronously fetches the status of a job.
+   * @param jobId The job identifier.
+   * @param etag The ETag of the previous status response, sent as If-None-Match, may be null.
+   * @return The response, with status 304 when the status did not change since {@code etag}.
+   */
+  public CompletableFuture<HttpResponse<ResponseBody>> fetchStatus(String jobId, String etag) {
+    HttpRequest.Builder request = HttpRequest.newBuilder()
+      .uri(statusUri(jobId))
+      .header("Accept", ACCEPT)
+      .header("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING)
+      .GET();
+    if (etag != null) {
+      request.header("If-None-Match", etag);
+    }
+
+    return httpClient
+      .sendAsync(request.build(), AS_RESPONSE_BODY)
+      .thenApply(response -> {
+        handshakeStats.record(response);
+        return response;
+      });
+  }
+
+  /**
+   * Streams the logs of a job line by line, without buffering the whole body, compressed or not.
+   * Server-Sent Events responses are decoded by {@link ServerSentEvents}, other content types are forwarded as is.
+   * @param jobId The job identifier.
+   * @param follow Whether the server should keep the stream open until the job completes.
+   * @param sink Receives each log line as soon as it is read.
+   * @return The HTTP status of the logs endpoint; on error, the body is forwarded to {@code sink}.
+   * @throws IOException If the stream cannot be opened or is interrupted.
+   * @throws InterruptedException If the calling thread is interrupted while waiting for the response headers.
+   */
+  public int streamLogs(String jobId, boolean follow, Consumer<String> sink) throws IOException, InterruptedException {
+    HttpRequest request = HttpRequest.newBuilder()
+      .uri(jobUri(jobId, "/logs?follow=" + follow))
+      .header("Accept", ServerSentEvents.CONTENT_TYPE + ", text/plain")
+      .header("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING)
+      .GET()
+      .build();
+
+    HttpResponse<Stream<String>> response = httpClient.send(request, decompressing(HttpResponse.BodyHandlers.ofLines()));
+    handshakeStats.record(response);
+    boolean eventStream = response
+      .headers()
+      .firstValue("Content-Type")
+      .map(contentType -> contentType.startsWith(ServerSentEvents.CONTENT_TYPE))
+      .orElse(false);
+
+    try (Stream<String> lines = response.body()) {
+      (eventStream && response.statusCode() == 200 ? ServerSentEvents.data(lines) : lines).forEach(sink);
+    }
+    return response.statusCode();
+  }
+
+  /**
+   * Reads a job status from a status response body ({@code status} or {@code state} field).
+   * @param jobId The job identifier.
+   * @param responseBody The body of a status response.
+   * @return The job status, with a null status when the body carries none.
+   */
+  public JobStatus readStatus(String jobId, ResponseBody responseBody) {
+    return new JobStatus(jobId, textField(responseBody, STATUS_FIELDS).orElse(null));
+  }
+
+  private static Optional<String> textField(ResponseBody body, List<String> fieldNames) {
+    return body
+      .tree()
+      .flatMap(node -> fieldNames.stream().filter(node::hasNonNull).map(field -> node.get(field).asText()).findFirst());
+  }
+
+  private URI jobUri(String jobId, String suffix) {
+    return URI.create(trimmedServer() + "/" + pathSegment(jobId) + suffix);
+  }
+
+  // Encodage d'un segment de chemin (RFC 3986) : URLEncoder encode pour les formulaires, une espace y devient '+'
+  private static String pathSegment(String value) {
+    StringBuilder encoded = new StringBuilder(value.length());
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      char c = (char) (b & 0xFF);
+      if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || "-._~".indexOf(c) >= 0) {
+        encoded.append(c);
+      } else {
+        encoded.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+      }
+    }
+    return encoded.toString();
+  }
+
+  private String trimmedServer() {
+    String server = serverUri.toString();
+    return server.endsWith("/") ? server.substring(0, server.length() - 1) : server;
+  }
+}
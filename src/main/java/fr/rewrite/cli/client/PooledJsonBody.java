@@ -0,0 +1,238 @@
+package fr.rewrite.cli.client;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Request body holding a value serialized by Jackson (in JSON, or in the binary format of the writer) straight into
+ * buffers taken from a {@link ByteBufferPool}, without the intermediate {@code String} and {@code byte[]} of
+ * {@code BodyPublishers.ofString(writeValueAsString())}.
+ *
+ * <p>
+ * The body can be subscribed to several times (the HTTP client does so to retry or follow a redirect), each
+ * subscription reading its own views of the buffers. Once subscribed to, the buffers are never given back to the pool:
+ * the HTTP client may still hold views of them in its queues after the exchange, whether it was cancelled, timed out
+ * or answered before the whole body was sent, and nothing tells when it lets go of them. {@link #close()} only gives
+ * back the buffers of a body that was never published, such as the uncompressed source of
+ * {@link #encode(ContentEncoding)}.
+ * </p>
+ *
+ * <p>
+ * A large body can be compressed with {@link #encode(ContentEncoding)}, again from buffer to buffer.
+ * </p>
+ */
+public final class PooledJsonBody implements HttpRequest.BodyPublisher, AutoCloseable {
+
+  // RFC 1952 : deflate, ni drapeau ni date de modification, système d'exploitation inconnu
+  private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+  private final ByteBufferPool pool;
+  private final List<ByteBuffer> buffers;
+  private final long contentLength;
+  private final ContentEncoding contentEncoding;
+  private final AtomicBoolean published = new AtomicBoolean();
+
+  private PooledJsonBody(ByteBufferPool pool, List<ByteBuffer> buffers, ContentEncoding contentEncoding) {
+    long length = 0;
+    for (ByteBuffer buffer : buffers) {
+      length += buffer.flip().remaining();
+    }
+    this.pool = pool;
+    this.buffers = buffers;
+    this.contentLength = length;
+    this.contentEncoding = contentEncoding;
+  }
+
+  /**
+   * Serializes a value.
+   * @param writer The writer of the value.
+   * @param value The value to serialize.
+   * @param pool The pool to take the buffers from.
+   * @return The body, to be closed after the exchange.
+   * @throws IOException If the value cannot be serialized.
+   */
+  public static PooledJsonBody of(ObjectWriter writer, Object value, ByteBufferPool pool) throws IOException {
+    BufferOutputStream out = new BufferOutputStream(pool);
+    try {
+      writer.writeValue(out, value);
+    } catch (IOException | RuntimeException e) {
+      out.buffers.forEach(pool::release);
+      throw e;
+    }
+    return new PooledJsonBody(pool, out.buffers, null);
+  }
+
+  /**
+   * Compresses the body. Its buffers go back to the pool, it must not be used afterwards.
+   * @param encoding The content coding to apply.
+   * @return The compressed body, in buffers taken from the same pool, to be closed after the exchange.
+   */
+  public PooledJsonBody encode(ContentEncoding encoding) {
+    BufferOutputStream out = new BufferOutputStream(pool);
+    Deflater deflater = encoding.newDeflater();
+    CRC32 crc = new CRC32();
+    try {
+      if (encoding == ContentEncoding.GZIP) {
+        out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+      }
+      for (ByteBuffer buffer : buffers) {
+        crc.update(buffer.duplicate());
+        deflater.setInput(buffer.duplicate());
+        while (!deflater.needsInput()) {
+          deflater.deflate(out.writable());
+        }
+      }
+      deflater.finish();
+      while (!deflater.finished()) {
+        deflater.deflate(out.writable());
+      }
+      if (encoding == ContentEncoding.GZIP) {
+        writeLittleEndianInt(out, crc.getValue());
+        writeLittleEndianInt(out, deflater.getBytesRead());
+      }
+    } catch (RuntimeException e) {
+      out.buffers.forEach(pool::release);
+      throw e;
+    } finally {
+      deflater.end();
+    }
+
+    close();
+    return new PooledJsonBody(pool, out.buffers, encoding);
+  }
+
+  private static void writeLittleEndianInt(BufferOutputStream out, long value) {
+    for (int shift = 0; shift < 32; shift += 8) {
+      out.write((int) (value >>> shift) & 0xff);
+    }
+  }
+
+  @Override
+  public long contentLength() {
+    return contentLength;
+  }
+
+  /**
+   * Content coding of the body.
+   * @return The coding applied by {@link #encode(ContentEncoding)}, empty if the body is not compressed.
+   */
+  public Optional<ContentEncoding> contentEncoding() {
+    return Optional.ofNullable(contentEncoding);
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+    published.set(true);
+    Subscription subscription = new Subscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    subscription.drain();
+  }
+
+  /**
+   * Gives the buffers back to the pool if the body was never subscribed to; otherwise leaves them to the garbage
+   * collector, as the HTTP client may still be reading them.
+   */
+  @Override
+  public void close() {
+    if (!published.get()) {
+      buffers.forEach(pool::release);
+      buffers.clear();
+    }
+  }
+
+  // Jackson écrit déjà par blocs depuis son propre tampon recyclé : chaque bloc est recopié une seule fois, dans le pool
+  private static final class BufferOutputStream extends OutputStream {
+
+    private final ByteBufferPool pool;
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private ByteBuffer current;
+
+    private BufferOutputStream(ByteBufferPool pool) {
+      this.pool = pool;
+    }
+
+    @Override
+    public void write(int b) {
+      writable().put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      while (length > 0) {
+        ByteBuffer buffer = writable();
+        int chunk = Math.min(length, buffer.remaining());
+        buffer.put(bytes, offset, chunk);
+        offset += chunk;
+        length -= chunk;
+      }
+    }
+
+    private ByteBuffer writable() {
+      if (current == null || !current.hasRemaining()) {
+        current = pool.acquire();
+        buffers.add(current);
+      }
+      return current;
+    }
+  }
+
+  private final class Subscription implements Flow.Subscription {
+
+    private final Flow.Subscriber<? super ByteBuffer> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger drains = new AtomicInteger();
+    private int next;
+    private boolean done;
+    private volatile boolean cancelled;
+
+    private Subscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        cancelled = true;
+        subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+        return;
+      }
+      demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+
+    // Un seul thread émet à la fois, les appels à request() faits depuis onNext() sont repris par la boucle en cours
+    private void drain() {
+      if (drains.getAndIncrement() != 0) {
+        return;
+      }
+
+      do {
+        while (!cancelled && !done && next < buffers.size() && demand.get() > 0) {
+          demand.decrementAndGet();
+          subscriber.onNext(buffers.get(next++).duplicate());
+        }
+        if (!cancelled && !done && next == buffers.size()) {
+          done = true;
+          subscriber.onComplete();
+        }
+      } while (drains.decrementAndGet() != 0);
+    }
+  }
+}
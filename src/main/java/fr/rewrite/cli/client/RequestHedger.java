@@ -0,0 +1,146 @@
+package fr.rewrite.cli.client;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+/**
+ * Hedges slow requests: when the first attempt of a request has not answered within a percentile of the latencies
+ * recently observed for the server, counted from the moment the throttle let it go, a second attempt is sent, and the
+ * first answer of the two is kept, unless it is retryable while the other attempt is still in flight. The other
+ * attempt is then interrupted.
+ *
+ * <p>
+ * At the 95th percentile, about one request in twenty is sent twice, which cuts the latency of the slowest ones down
+ * to about that percentile plus the median. Both attempts carry the same idempotency key, so the orchestrator starts
+ * the rewrite once.
+ * </p>
+ */
+final class RequestHedger {
+
+  /**
+   * Sends one attempt of a hedged request, calling {@code onTurn} once the throttle lets it go.
+   * @param <T> The type of the response body.
+   */
+  @FunctionalInterface
+  interface Attempt<T> {
+    HttpResponse<T> send(Runnable onTurn) throws IOException, InterruptedException;
+  }
+
+  private record Outcome<T>(HttpResponse<T> response, Exception failure, boolean hedge) {}
+
+  private final LatencyHistogram latencies;
+  private final Double percentile;
+  private final IntPredicate retryable;
+  private final AtomicLong hedged = new AtomicLong();
+  private final AtomicLong hedgeWins = new AtomicLong();
+
+  /**
+   * @param latencies The latencies recently observed for the server.
+   * @param percentile The percentile of {@code latencies} after which a second attempt is sent, null to never hedge.
+   * @param retryable Tells the statuses of an answer not to keep while the other attempt may still succeed.
+   */
+  RequestHedger(LatencyHistogram latencies, Double percentile, IntPredicate retryable) {
+    if (percentile != null && (percentile <= 0 || percentile >= 100)) {
+      throw new IllegalArgumentException("Hedge percentile must be between 0 and 100 exclusive but was " + percentile);
+    }
+    this.latencies = latencies;
+    this.percentile = percentile;
+    this.retryable = retryable;
+  }
+
+  /**
+   * Sends an attempt, and a second one if the first is slow to answer once sent. The time the first attempt waits for
+   * its turn in the throttle does not count: it says nothing about the latency of the server.
+   * @param attempt The attempt, called by each attempt on its own virtual thread.
+   * @return The first response received, unless it is retryable and the other attempt answers better.
+   * @throws IOException If every attempt fails, the first failure received.
+   * @throws InterruptedException If the calling thread is interrupted while waiting; the attempts are interrupted too.
+   */
+  <T> HttpResponse<T> send(Attempt<T> attempt) throws IOException, InterruptedException {
+    Optional<Duration> delay = percentile == null ? Optional.empty() : latencies.percentile(percentile);
+    if (delay.isEmpty()) {
+      return attempt.send(() -> {});
+    }
+
+    BlockingQueue<Outcome<T>> outcomes = new LinkedBlockingQueue<>();
+    // Marqueur déposé quand la première tentative quitte le throttle : le délai ne court qu'à partir de là
+    Outcome<T> turn = new Outcome<>(null, null, false);
+    Thread first = start(attempt, outcomes, false, () -> outcomes.add(turn));
+    Thread second = null;
+    try {
+      Outcome<T> outcome = outcomes.take();
+      if (outcome == turn) {
+        outcome = outcomes.poll(delay.get().toNanos(), TimeUnit.NANOSECONDS);
+      }
+      if (outcome == null) {
+        hedged.incrementAndGet();
+        second = start(attempt, outcomes, true, () -> {});
+        outcome = outcomes.take();
+        if (!settled(outcome)) {
+          // Échec ou statut à réessayer : l'autre tentative, encore en vol, a encore sa chance
+          Outcome<T> other = outcomes.take();
+          if (settled(other) || (outcome.failure() != null && other.failure() == null)) {
+            outcome = other;
+          }
+        }
+        if (outcome.failure() == null && outcome.hedge()) {
+          hedgeWins.incrementAndGet();
+        }
+      }
+      if (outcome.failure() instanceof IOException e) {
+        throw e;
+      }
+      if (outcome.failure() instanceof RuntimeException e) {
+        throw e;
+      }
+      return outcome.response();
+    } finally {
+      first.interrupt();
+      if (second != null) {
+        second.interrupt();
+      }
+    }
+  }
+
+  private boolean settled(Outcome<?> outcome) {
+    return outcome.failure() == null && !retryable.test(outcome.response().statusCode());
+  }
+
+  // Chaque tentative dépose exactement un résultat dans la file, sans quoi l'appelant attendrait indéfiniment
+  private static <T> Thread start(Attempt<T> attempt, BlockingQueue<Outcome<T>> outcomes, boolean hedge, Runnable onTurn) {
+    return Thread.ofVirtual()
+      .name("rewrite-hedged-request")
+      .start(() -> {
+        try {
+          outcomes.add(new Outcome<>(attempt.send(onTurn), null, hedge));
+        } catch (InterruptedException e) {
+          outcomes.add(new Outcome<>(null, new IOException("Hedged attempt interrupted", e), hedge));
+        } catch (IOException | RuntimeException e) {
+          outcomes.add(new Outcome<>(null, e, hedge));
+        }
+      });
+  }
+
+  /**
+   * Number of requests sent a second time.
+   * @return The count.
+   */
+  long hedged() {
+    return hedged.get();
+  }
+
+  /**
+   * Number of hedged requests answered first on their second attempt.
+   * @return The count.
+   */
+  long hedgeWins() {
+    return hedgeWins.get();
+  }
+}
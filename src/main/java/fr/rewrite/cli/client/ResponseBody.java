@@ -0,0 +1,72 @@
+package fr.rewrite.cli.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import fr.rewrite.cli.serialization.Mappers;
+import java.util.Optional;
+
+/**
+ * Body of an orchestrator response, decoded once whatever its format.
+ * A Smile or CBOR body is kept as the tree it was decoded to, and only written as JSON text when printed; a text body is
+ * kept as received, and parsed the first time one of its fields is read. The text may not be JSON: an error page, or the
+ * reason why a request got no answer.
+ */
+public final class ResponseBody {
+
+  private volatile String text;
+  private volatile Optional<JsonNode> tree;
+
+  private ResponseBody(String text, Optional<JsonNode> tree) {
+    this.text = text;
+    this.tree = tree;
+  }
+
+  public static ResponseBody of(String text) {
+    return new ResponseBody(text, null);
+  }
+
+  public static ResponseBody of(JsonNode tree) {
+    return new ResponseBody(null, Optional.of(tree));
+  }
+
+  /**
+   * @return The body as a JSON tree, empty if it is blank or not JSON.
+   */
+  public Optional<JsonNode> tree() {
+    Optional<JsonNode> parsed = tree;
+    if (parsed == null) {
+      parsed = parse(text);
+      tree = parsed;
+    }
+    return parsed;
+  }
+
+  /**
+   * @return The body as text, in JSON if it came in a binary format.
+   */
+  public String text() {
+    String written = text;
+    if (written == null) {
+      written = tree.orElseThrow().toString();
+      text = written;
+    }
+    return written;
+  }
+
+  @Override
+  public String toString() {
+    return text();
+  }
+
+  private static Optional<JsonNode> parse(String text) {
+    if (text == null || text.isBlank()) {
+      return Optional.empty();
+    }
+
+    try {
+      return Optional.of(Mappers.jsonTreeReader().readTree(text));
+    } catch (JsonProcessingException e) {
+      return Optional.empty();
+    }
+  }
+}
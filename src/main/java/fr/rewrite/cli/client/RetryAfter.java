@@ -0,0 +1,51 @@
+package fr.rewrite.cli.client;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Reads the Retry-After header of 429 Too Many Requests and 503 Service Unavailable responses.
+ */
+final class RetryAfter {
+
+  private RetryAfter() {}
+
+  static boolean isThrottled(int statusCode) {
+    return statusCode == 429 || statusCode == 503;
+  }
+
+  /**
+   * Delay requested by a response.
+   * @param response The response.
+   * @return The delay, empty if the response has no valid Retry-After header.
+   */
+  static Optional<Duration> of(HttpResponse<?> response) {
+    return response.headers().firstValue("Retry-After").flatMap(value -> parse(value, Instant.now()));
+  }
+
+  /**
+   * Parses a Retry-After value: a number of seconds, or an HTTP date.
+   * @param value The header value.
+   * @param now The current time, for HTTP dates.
+   * @return The delay, never negative, empty if the value is neither a number of seconds nor an HTTP date.
+   */
+  static Optional<Duration> parse(String value, Instant now) {
+    String trimmed = value.trim();
+    try {
+      return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(trimmed))));
+    } catch (NumberFormatException e) {
+      // Pas un nombre de secondes : peut-être une date HTTP
+    }
+    try {
+      Duration delay = Duration.between(now, ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+      return Optional.of(delay.isNegative() ? Duration.ZERO : delay);
+    } catch (DateTimeParseException e) {
+      return Optional.empty();
+    }
+  }
+}
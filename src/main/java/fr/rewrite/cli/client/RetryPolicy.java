@@ -0,0 +1,146 @@
+package fr.rewrite.cli.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+/**
+ * Sends a request again when it fails transiently: on an {@link IOException} other than a TLS handshake or
+ * certificate failure or a serialization error, or on a response whose status is in one of the retryable classes, up to
+ * {@link Settings#maxAttempts()} attempts. Attempts are spaced by a jittered {@link Backoff}, or by the Retry-After
+ * delay of the response when it is longer.
+ *
+ * <p>
+ * A request is only safe to send again if the orchestrator recognizes it: {@link OrchestratorClient} retries the
+ * submissions that carry an {@link IdempotencyKey}, and only those.
+ * </p>
+ */
+public final class RetryPolicy {
+
+  /**
+   * Status classes retried by default: server errors, request timeouts and throttled requests.
+   */
+  public static final List<String> DEFAULT_RETRY_ON = List.of("5xx", "408", "429");
+
+  /**
+   * @param maxAttempts The maximum number of attempts of a request, the first one included.
+   * @param initialDelay The delay before the second attempt, before jitter.
+   * @param maxDelay The maximum delay between two attempts, before jitter.
+   * @param retryOn The retryable status classes: a status ({@code 429}) or a class of statuses ({@code 5xx}).
+   */
+  public record Settings(int maxAttempts, Duration initialDelay, Duration maxDelay, List<String> retryOn) {
+    public Settings {
+      if (maxAttempts < 1) {
+        throw new IllegalArgumentException("Retry max attempts must be at least 1 but was " + maxAttempts);
+      }
+      retryOn = List.copyOf(retryOn);
+    }
+  }
+
+  private final int maxAttempts;
+  private final Backoff backoff;
+  // Un bit par statut de 100 à 599
+  private final boolean[] retryable = new boolean[600];
+  private final AtomicLong retries = new AtomicLong();
+
+  private RetryPolicy(int maxAttempts, Backoff backoff, List<String> retryOn) {
+    this.maxAttempts = maxAttempts;
+    this.backoff = backoff;
+    retryOn.forEach(this::markRetryable);
+  }
+
+  /**
+   * Creates a retry policy.
+   * @param settings The settings of the cluster.
+   * @return The policy.
+   * @throws IllegalArgumentException If a status class is not a status ({@code 503}) or a class ({@code 5xx}).
+   */
+  public static RetryPolicy of(Settings settings) {
+    return new RetryPolicy(settings.maxAttempts(), new Backoff(settings.initialDelay(), settings.maxDelay(), 2), settings.retryOn());
+  }
+
+  /**
+   * A policy that sends every request once.
+   * @return The policy.
+   */
+  public static RetryPolicy none() {
+    return new RetryPolicy(1, null, List.of());
+  }
+
+  private void markRetryable(String statusClass) {
+    String value = statusClass.trim().toLowerCase();
+    if (value.matches("[1-5]xx")) {
+      int first = (value.charAt(0) - '0') * 100;
+      for (int status = first; status < first + 100; status++) {
+        retryable[status] = true;
+      }
+    } else if (value.matches("[1-5][0-9][0-9]")) {
+      retryable[Integer.parseInt(value)] = true;
+    } else {
+      throw new IllegalArgumentException("Retryable status must be a status (503) or a status class (5xx) but was '" + statusClass + "'");
+    }
+  }
+
+  /**
+   * Tells whether a response status is retried.
+   * @param statusCode The HTTP status.
+   * @return Whether the status is in one of the retryable classes.
+   */
+  public boolean isRetryable(int statusCode) {
+    return statusCode >= 0 && statusCode < retryable.length && retryable[statusCode];
+  }
+
+  /**
+   * Sends an exchange, again while it fails transiently.
+   * @param exchange The exchange, called once per attempt.
+   * @return The first response that is not retryable, or the response of the last attempt.
+   * @throws IOException If the last attempt fails, or if an attempt fails with a TLS, certificate or serialization error.
+   * @throws InterruptedException If the calling thread is interrupted while sending or waiting between attempts.
+   */
+  public <T> HttpResponse<T> execute(ClusterThrottle.Exchange<T> exchange) throws IOException, InterruptedException {
+    for (int attempt = 1;; attempt++) {
+      Duration delay;
+      try {
+        HttpResponse<T> response = exchange.send();
+        if (attempt >= maxAttempts || !isRetryable(response.statusCode())) {
+          return response;
+        }
+        Duration backoffDelay = backoff.delay(attempt - 1);
+        delay = RetryAfter.of(response).filter(retryAfter -> retryAfter.compareTo(backoffDelay) > 0).orElse(backoffDelay);
+      } catch (SSLHandshakeException | SSLPeerUnverifiedException | JsonProcessingException e) {
+        // Un certificat refusé ou une requête impossible à sérialiser le seront encore à la tentative suivante
+        throw e;
+      } catch (IOException e) {
+        if (attempt >= maxAttempts) {
+          throw e;
+        }
+        delay = backoff.delay(attempt - 1);
+      }
+
+      retries.incrementAndGet();
+      TimeUnit.MILLISECONDS.sleep(delay.toMillis());
+    }
+  }
+
+  /**
+   * Maximum number of attempts of a request.
+   * @return The number of attempts, the first one included.
+   */
+  public int maxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * Number of attempts that followed a transient failure.
+   * @return The count, across every request sent with this policy.
+   */
+  public long retries() {
+    return retries.get();
+  }
+}
@@ -0,0 +1,40 @@
+package fr.rewrite.cli.client;
+
+import java.util.stream.Stream;
+
+/**
+ * Minimal decoder of a Server-Sent Events stream (text/event-stream), as sent by the orchestrator logs endpoint.
+ *
+ * <p>
+ * Only the {@code data} field is kept: every data line is emitted as soon as it is read, so a multi-line event is
+ * printed line by line and nothing but the current line is held in memory. Comments and other fields are
+ * skipped, and an {@code end} event closes the stream.
+ * </p>
+ */
+public final class ServerSentEvents {
+
+  public static final String CONTENT_TYPE = "text/event-stream";
+
+  private static final String DATA_FIELD = "data:";
+  private static final String END_EVENT = "event:end";
+
+  private ServerSentEvents() {}
+
+  /**
+   * Lazily extracts the data lines of an event stream.
+   * @param lines The raw lines of the stream.
+   * @return The data lines, up to the first {@code end} event.
+   */
+  public static Stream<String> data(Stream<String> lines) {
+    return lines
+      .takeWhile(line -> !END_EVENT.equals(line.replace(" ", "")))
+      .filter(line -> line.startsWith(DATA_FIELD))
+      .map(ServerSentEvents::value);
+  }
+
+  private static String value(String line) {
+    String value = line.substring(DATA_FIELD.length());
+    // Un seul espace après les deux-points fait partie du séparateur (spécification SSE)
+    return value.startsWith(" ") ? value.substring(1) : value;
+  }
+}
@@ -0,0 +1,116 @@
+package fr.rewrite.cli.client;
+
+import fr.rewrite.cli.config.NamedCluster;
+import fr.rewrite.cli.config.NamedUser;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.Optional;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+public final class SslContextFactory {
+
+  private SslContextFactory() {}
+
+  /**
+   * Builds the SSL context of a cluster and user: client keystore, then trust material from (by priority)
+   * insecureSkipTlsVerify, the client truststore, the CA file or the inline CA data, or the system truststore.
+   * @param clusterConfig The cluster to connect to.
+   * @param userConfig The user connecting.
+   * @param handshakeStats Counts the connections and full handshakes made with the context.
+   * @return The initialized SSL context, with the session cache of the cluster.
+   * @throws Exception If a keystore, truststore or certificate cannot be loaded.
+   */
+  public static SSLContext create(NamedCluster.Cluster clusterConfig, NamedUser.User userConfig, TlsHandshakeStats handshakeStats)
+    throws Exception {
+    SSLContext sslContext = SSLContext.getInstance("TLS");
+
+    KeyManagerFactory keyManagerFactory = null;
+    if (userConfig.getClientKeystorePath() != null && !userConfig.getClientKeystorePath().isEmpty()) {
+      KeyStore clientKeyStore = KeyStore.getInstance("PKCS12");
+      try (InputStream is = new FileInputStream(userConfig.getClientKeystorePath())) {
+        clientKeyStore.load(is, userConfig.getClientKeystorePassword().toCharArray());
+      }
+      keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+      keyManagerFactory.init(clientKeyStore, userConfig.getClientKeystorePassword().toCharArray());
+    }
+
+    TrustManager[] trustManagers = null;
+
+    if (clusterConfig.isInsecureSkipTlsVerify()) {
+      System.err.println("WARNING: insecureSkipTlsVerify is true. TLS certificate verification will be skipped.");
+      trustManagers = new TrustManager[] {
+        new X509TrustManager() {
+          @Override
+          public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+          }
+
+          @Override
+          public void checkClientTrusted(X509Certificate[] certs, String authType) {}
+
+          @Override
+          public void checkServerTrusted(X509Certificate[] certs, String authType) {}
+        },
+      };
+    } else if (userConfig.getClientTruststorePath() != null && !userConfig.getClientTruststorePath().isEmpty()) {
+      KeyStore trustStore = KeyStore.getInstance("JKS");
+      try (InputStream is = new FileInputStream(userConfig.getClientTruststorePath())) {
+        String tsPassword = Optional.ofNullable(userConfig.getClientTruststorePassword()).orElse("");
+        trustStore.load(is, tsPassword.toCharArray());
+      }
+      TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+      trustManagerFactory.init(trustStore);
+      trustManagers = trustManagerFactory.getTrustManagers();
+    } else if (clusterConfig.getCertificateAuthorityFile() != null && !clusterConfig.getCertificateAuthorityFile().isEmpty()) {
+      KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+      trustStore.load(null, null);
+      try (InputStream caIs = new FileInputStream(clusterConfig.getCertificateAuthorityFile())) {
+        CertificateFactory certFactory = CertificateFactory.getInstance("X.509");
+        X509Certificate caCert = (X509Certificate) certFactory.generateCertificate(caIs);
+        trustStore.setCertificateEntry("ca_cert", caCert);
+      }
+      TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+      trustManagerFactory.init(trustStore);
+      trustManagers = trustManagerFactory.getTrustManagers();
+    } else if (clusterConfig.getCertificateAuthorityData() != null && !clusterConfig.getCertificateAuthorityData().isEmpty()) {
+      KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+      trustStore.load(null, null);
+      CertificateFactory certFactory = CertificateFactory.getInstance("X.509");
+      X509Certificate caCert = (X509Certificate) certFactory.generateCertificate(
+        new ByteArrayInputStream(Base64.getDecoder().decode(clusterConfig.getCertificateAuthorityData()))
+      );
+      trustStore.setCertificateEntry("ca_cert", caCert);
+      TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+      trustManagerFactory.init(trustStore);
+      trustManagers = trustManagerFactory.getTrustManagers();
+    } else {
+      System.out.println(
+        "Aucun certificat CA ou truststore spécifié dans la configuration. Le truststore système par défaut sera utilisé pour la vérification du serveur."
+      );
+      // Équivalent au truststore par défaut de SSLContext.init(..., null, ...), mais explicite pour pouvoir compter les handshakes
+      TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+      trustManagerFactory.init((KeyStore) null);
+      trustManagers = trustManagerFactory.getTrustManagers();
+    }
+
+    sslContext.init(keyManagerFactory != null ? keyManagerFactory.getKeyManagers() : null, handshakeStats.wrap(trustManagers), null);
+
+    if (clusterConfig.getTlsSessionCacheSize() != null) {
+      sslContext.getClientSessionContext().setSessionCacheSize(clusterConfig.getTlsSessionCacheSize());
+    }
+    if (clusterConfig.getTlsSessionTimeout() != null) {
+      sslContext.getClientSessionContext().setSessionTimeout(clusterConfig.getTlsSessionTimeout());
+    }
+
+    return handshakeStats.wrap(sslContext);
+  }
+}
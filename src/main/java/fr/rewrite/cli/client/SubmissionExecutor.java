@@ -0,0 +1,73 @@
+package fr.rewrite.cli.client;
+
+import fr.rewrite.cli.shared.output.domain.OutputRoute;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs blocking submissions on one virtual thread per task, with a cap on the number of tasks in flight.
+ * The permit is taken by the submitting thread, so a caller feeding tasks from a lazy source is slowed
+ * down instead of piling up pending tasks. Each task writes to the {@link OutputRoute} of the thread that submitted it.
+ */
+public final class SubmissionExecutor implements AutoCloseable {
+
+  private final ExecutorService executor;
+  private final Semaphore inFlight;
+  private final int maxInFlight;
+
+  private SubmissionExecutor(ExecutorService executor, int maxInFlight) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("Max in flight must be at least 1 but was " + maxInFlight);
+    }
+    this.executor = executor;
+    this.inFlight = new Semaphore(maxInFlight);
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Creates an executor running each task on its own virtual thread.
+   * @param maxInFlight The maximum number of tasks running at the same time.
+   * @return The executor, to be closed once every task has been submitted.
+   */
+  public static SubmissionExecutor virtualThreads(int maxInFlight) {
+    return new SubmissionExecutor(Executors.newVirtualThreadPerTaskExecutor(), maxInFlight);
+  }
+
+  public int maxInFlight() {
+    return maxInFlight;
+  }
+
+  /**
+   * Submits a task, waiting for a free slot if {@code maxInFlight} tasks are already running.
+   * @param task The task to run.
+   * @return The future result of the task.
+   * @throws InterruptedException If the calling thread is interrupted while waiting for a slot.
+   */
+  public <T> Future<T> submit(Callable<T> task) throws InterruptedException {
+    inFlight.acquire();
+    Callable<T> routed = OutputRoute.propagate(task);
+    try {
+      return executor.submit(() -> {
+        try {
+          return routed.call();
+        } finally {
+          inFlight.release();
+        }
+      });
+    } catch (RuntimeException e) {
+      inFlight.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Waits for the running tasks to complete and releases the executor.
+   */
+  @Override
+  public void close() {
+    executor.close();
+  }
+}
@@ -0,0 +1,78 @@
+package fr.rewrite.cli.client;
+
+import fr.rewrite.cli.config.NamedCluster;
+import fr.rewrite.cli.config.NamedUser;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Identifies the TLS material of a cluster and user: the TLS and HTTP settings themselves plus, for every file they
+ * reference, its path, modification time, size and SHA-256. Two equal fingerprints produce the same SSL context.
+ * @param settings The TLS related settings of the cluster and user.
+ * @param files The fingerprints of the referenced files.
+ */
+public record TlsFingerprint(List<String> settings, List<FileFingerprint> files) {
+  /**
+   * Fingerprint of a file, {@code lastModified} and {@code size} are -1 and {@code sha256} is empty when the file does not exist.
+   */
+  public record FileFingerprint(String path, long lastModified, long size, String sha256) {
+    static FileFingerprint of(String path) {
+      Path file = Path.of(path);
+      if (!Files.isRegularFile(file)) {
+        return new FileFingerprint(path, -1, -1, "");
+      }
+
+      try {
+        byte[] content = Files.readAllBytes(file);
+        return new FileFingerprint(
+          path,
+          Files.getLastModifiedTime(file).toMillis(),
+          content.length,
+          HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content))
+        );
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  public static TlsFingerprint of(NamedCluster.Cluster cluster, NamedUser.User user) {
+    List<String> settings = Arrays.asList(
+      String.valueOf(cluster.isInsecureSkipTlsVerify()),
+      cluster.getHttpVersion(),
+      String.valueOf(cluster.getTlsSessionCacheSize()),
+      String.valueOf(cluster.getTlsSessionTimeout()),
+      cluster.getCertificateAuthorityData(),
+      cluster.getCertificateAuthorityFile(),
+      user.getClientKeystorePath(),
+      user.getClientKeystorePassword(),
+      user.getClientTruststorePath(),
+      user.getClientTruststorePassword()
+    );
+
+    List<FileFingerprint> files = new ArrayList<>();
+    Stream.of(cluster.getCertificateAuthorityFile(), user.getClientKeystorePath(), user.getClientTruststorePath())
+      .filter(path -> path != null && !path.isEmpty())
+      .map(FileFingerprint::of)
+      .forEach(files::add);
+
+    return new TlsFingerprint(settings, files);
+  }
+
+  @Override
+  public String toString() {
+    // Les mots de passe font partie des réglages, ils ne doivent pas apparaître dans les logs
+    return "TlsFingerprint" + files;
+  }
+}
@@ -0,0 +1,418 @@
+package fr.rewrite.cli.client;
+
+import java.net.Socket;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * Counts the TLS handshakes of an {@link java.net.http.HttpClient}, to check that connections and sessions are reused.
+ *
+ * <p>
+ * A full handshake is the only one to verify the server certificate, so full handshakes are counted by wrapping the
+ * trust managers. Connections are counted by wrapping the {@link SSLEngine} of each of them, on the first handshake it
+ * completes: a resumed TLS 1.2 connection shares the {@link SSLSession} of the one it resumes, so the
+ * sessions seen on responses would not tell them apart. The connections that did not go through a full handshake
+ * were resumed.
+ * </p>
+ */
+public class TlsHandshakeStats {
+
+  private final AtomicLong fullHandshakes = new AtomicLong();
+  private final AtomicLong connections = new AtomicLong();
+  private final AtomicLong requests = new AtomicLong();
+
+  /**
+   * Wraps trust managers so that each server certificate verification is counted as a full handshake.
+   * @param trustManagers The trust managers to wrap.
+   * @return The counting trust managers.
+   */
+  public TrustManager[] wrap(TrustManager[] trustManagers) {
+    TrustManager[] wrapped = new TrustManager[trustManagers.length];
+    for (int i = 0; i < trustManagers.length; i++) {
+      wrapped[i] = switch (trustManagers[i]) {
+        case X509ExtendedTrustManager extended -> new CountingExtendedTrustManager(extended);
+        // Un X509TrustManager simple reste simple : JSSE continue d'y ajouter ses propres contrôles
+        case X509TrustManager simple -> new CountingTrustManager(simple);
+        default -> trustManagers[i];
+      };
+    }
+    return wrapped;
+  }
+
+  /**
+   * Wraps an initialized SSL context so that each connection made with it is counted once its handshake completes.
+   * @param sslContext The context to wrap.
+   * @return The counting context.
+   */
+  public SSLContext wrap(SSLContext sslContext) {
+    return new CountingContext(sslContext);
+  }
+
+  /**
+   * Records a response.
+   * @param response The response.
+   */
+  public void record(HttpResponse<?> response) {
+    requests.incrementAndGet();
+  }
+
+  public long requests() {
+    return requests.get();
+  }
+
+  public long connections() {
+    return connections.get();
+  }
+
+  public long fullHandshakes() {
+    return fullHandshakes.get();
+  }
+
+  public long resumedHandshakes() {
+    return Math.max(0, connections() - fullHandshakes());
+  }
+
+  @Override
+  public String toString() {
+    return (
+      requests()
+      + " requête(s) sur "
+      + connections()
+      + " connexion(s) TLS : "
+      + fullHandshakes()
+      + " handshake(s) complet(s), "
+      + resumedHandshakes()
+      + " session(s) reprise(s)"
+    );
+  }
+
+  private class CountingContext extends SSLContext {
+
+    private CountingContext(SSLContext delegate) {
+      super(new CountingContextSpi(delegate), delegate.getProvider(), delegate.getProtocol());
+    }
+  }
+
+  private class CountingContextSpi extends SSLContextSpi {
+
+    private final SSLContext delegate;
+
+    private CountingContextSpi(SSLContext delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    protected void engineInit(KeyManager[] keyManagers, TrustManager[] trustManagers, SecureRandom random) throws KeyManagementException {
+      delegate.init(keyManagers, trustManagers, random);
+    }
+
+    @Override
+    protected SSLSocketFactory engineGetSocketFactory() {
+      return delegate.getSocketFactory();
+    }
+
+    @Override
+    protected SSLServerSocketFactory engineGetServerSocketFactory() {
+      return delegate.getServerSocketFactory();
+    }
+
+    @Override
+    protected SSLEngine engineCreateSSLEngine() {
+      return new CountingEngine(delegate.createSSLEngine());
+    }
+
+    @Override
+    protected SSLEngine engineCreateSSLEngine(String host, int port) {
+      return new CountingEngine(delegate.createSSLEngine(host, port));
+    }
+
+    @Override
+    protected SSLSessionContext engineGetServerSessionContext() {
+      return delegate.getServerSessionContext();
+    }
+
+    @Override
+    protected SSLSessionContext engineGetClientSessionContext() {
+      return delegate.getClientSessionContext();
+    }
+
+    @Override
+    protected SSLParameters engineGetDefaultSSLParameters() {
+      return delegate.getDefaultSSLParameters();
+    }
+
+    @Override
+    protected SSLParameters engineGetSupportedSSLParameters() {
+      return delegate.getSupportedSSLParameters();
+    }
+  }
+
+  // Compte la connexion au premier handshake terminé : les messages de TLS 1.3 reçus ensuite (tickets de session,
+  // changements de clés) terminent eux aussi sur FINISHED
+  private class CountingEngine extends SSLEngine {
+
+    private final SSLEngine delegate;
+    private final AtomicBoolean handshaken = new AtomicBoolean();
+
+    private CountingEngine(SSLEngine delegate) {
+      super(delegate.getPeerHost(), delegate.getPeerPort());
+      this.delegate = delegate;
+    }
+
+    private SSLEngineResult count(SSLEngineResult result) {
+      if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.FINISHED && handshaken.compareAndSet(false, true)) {
+        connections.incrementAndGet();
+      }
+      return result;
+    }
+
+    @Override
+    public SSLEngineResult wrap(ByteBuffer[] sources, int offset, int length, ByteBuffer destination) throws SSLException {
+      return count(delegate.wrap(sources, offset, length, destination));
+    }
+
+    @Override
+    public SSLEngineResult unwrap(ByteBuffer source, ByteBuffer[] destinations, int offset, int length) throws SSLException {
+      return count(delegate.unwrap(source, destinations, offset, length));
+    }
+
+    @Override
+    public Runnable getDelegatedTask() {
+      return delegate.getDelegatedTask();
+    }
+
+    @Override
+    public void closeInbound() throws SSLException {
+      delegate.closeInbound();
+    }
+
+    @Override
+    public boolean isInboundDone() {
+      return delegate.isInboundDone();
+    }
+
+    @Override
+    public void closeOutbound() {
+      delegate.closeOutbound();
+    }
+
+    @Override
+    public boolean isOutboundDone() {
+      return delegate.isOutboundDone();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+      return delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public String[] getEnabledCipherSuites() {
+      return delegate.getEnabledCipherSuites();
+    }
+
+    @Override
+    public void setEnabledCipherSuites(String[] suites) {
+      delegate.setEnabledCipherSuites(suites);
+    }
+
+    @Override
+    public String[] getSupportedProtocols() {
+      return delegate.getSupportedProtocols();
+    }
+
+    @Override
+    public String[] getEnabledProtocols() {
+      return delegate.getEnabledProtocols();
+    }
+
+    @Override
+    public void setEnabledProtocols(String[] protocols) {
+      delegate.setEnabledProtocols(protocols);
+    }
+
+    @Override
+    public SSLSession getSession() {
+      return delegate.getSession();
+    }
+
+    @Override
+    public SSLSession getHandshakeSession() {
+      return delegate.getHandshakeSession();
+    }
+
+    @Override
+    public void beginHandshake() throws SSLException {
+      delegate.beginHandshake();
+    }
+
+    @Override
+    public SSLEngineResult.HandshakeStatus getHandshakeStatus() {
+      return delegate.getHandshakeStatus();
+    }
+
+    @Override
+    public void setUseClientMode(boolean mode) {
+      delegate.setUseClientMode(mode);
+    }
+
+    @Override
+    public boolean getUseClientMode() {
+      return delegate.getUseClientMode();
+    }
+
+    @Override
+    public void setNeedClientAuth(boolean need) {
+      delegate.setNeedClientAuth(need);
+    }
+
+    @Override
+    public boolean getNeedClientAuth() {
+      return delegate.getNeedClientAuth();
+    }
+
+    @Override
+    public void setWantClientAuth(boolean want) {
+      delegate.setWantClientAuth(want);
+    }
+
+    @Override
+    public boolean getWantClientAuth() {
+      return delegate.getWantClientAuth();
+    }
+
+    @Override
+    public void setEnableSessionCreation(boolean flag) {
+      delegate.setEnableSessionCreation(flag);
+    }
+
+    @Override
+    public boolean getEnableSessionCreation() {
+      return delegate.getEnableSessionCreation();
+    }
+
+    @Override
+    public SSLParameters getSSLParameters() {
+      return delegate.getSSLParameters();
+    }
+
+    @Override
+    public void setSSLParameters(SSLParameters parameters) {
+      delegate.setSSLParameters(parameters);
+    }
+
+    @Override
+    public String getApplicationProtocol() {
+      return delegate.getApplicationProtocol();
+    }
+
+    @Override
+    public String getHandshakeApplicationProtocol() {
+      return delegate.getHandshakeApplicationProtocol();
+    }
+
+    @Override
+    public void setHandshakeApplicationProtocolSelector(BiFunction<SSLEngine, List<String>, String> selector) {
+      delegate.setHandshakeApplicationProtocolSelector(selector);
+    }
+
+    @Override
+    public BiFunction<SSLEngine, List<String>, String> getHandshakeApplicationProtocolSelector() {
+      return delegate.getHandshakeApplicationProtocolSelector();
+    }
+  }
+
+  private class CountingTrustManager implements X509TrustManager {
+
+    private final X509TrustManager delegate;
+
+    private CountingTrustManager(X509TrustManager delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+      delegate.checkClientTrusted(chain, authType);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+      fullHandshakes.incrementAndGet();
+      delegate.checkServerTrusted(chain, authType);
+    }
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers() {
+      return delegate.getAcceptedIssuers();
+    }
+  }
+
+  private class CountingExtendedTrustManager extends X509ExtendedTrustManager {
+
+    private final X509ExtendedTrustManager delegate;
+
+    private CountingExtendedTrustManager(X509ExtendedTrustManager delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+      delegate.checkClientTrusted(chain, authType);
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) throws CertificateException {
+      delegate.checkClientTrusted(chain, authType, socket);
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) throws CertificateException {
+      delegate.checkClientTrusted(chain, authType, engine);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+      fullHandshakes.incrementAndGet();
+      delegate.checkServerTrusted(chain, authType);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) throws CertificateException {
+      fullHandshakes.incrementAndGet();
+      delegate.checkServerTrusted(chain, authType, socket);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) throws CertificateException {
+      fullHandshakes.incrementAndGet();
+      delegate.checkServerTrusted(chain, authType, engine);
+    }
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers() {
+      return delegate.getAcceptedIssuers();
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package fr.rewrite.cli.client;
+
+/**
+ * Token bucket refilled at a constant rate, holding at most {@code burst} tokens.
+ * A caller that finds the bucket empty reserves the next token anyway and is told how long to wait for it, so waiting
+ * callers are served in the order they arrived without any of them holding the lock while they sleep.
+ */
+final class TokenBucket {
+
+  private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+  private final double permitsPerSecond;
+  private final double burst;
+  private double tokens;
+  private long refilledAt;
+
+  TokenBucket(double permitsPerSecond, int burst, long now) {
+    if (permitsPerSecond <= 0) {
+      throw new IllegalArgumentException("Rate limit must be positive but was " + permitsPerSecond);
+    }
+    if (burst < 1) {
+      throw new IllegalArgumentException("Rate limit burst must be at least 1 but was " + burst);
+    }
+    this.permitsPerSecond = permitsPerSecond;
+    this.burst = burst;
+    this.tokens = burst;
+    this.refilledAt = now;
+  }
+
+  /**
+   * Takes a token.
+   * @param now The current {@link System#nanoTime()}.
+   * @return The time to wait, in nanoseconds, before the token can be used.
+   */
+  synchronized long reserve(long now) {
+    tokens = Math.min(burst, tokens + (now - refilledAt) * permitsPerSecond / NANOS_PER_SECOND);
+    refilledAt = now;
+    tokens -= 1;
+    return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / permitsPerSecond * NANOS_PER_SECOND);
+  }
+}
@@ -1,7 +1,13 @@
 package fr.rewrite.cli.config;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.List;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 @Data
 public class Config {
@@ -11,4 +17,41 @@ public class Config {
   private List<NamedContext> contexts;
   private List<NamedCluster> clusters;
   private List<NamedUser> users;
+
+  @JsonIgnore
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private transient volatile ConfigIndex index;
+
+  /**
+   * Name-indexed view of the contexts, clusters and users, built on first use (by {@link ConfigLoader} at load time)
+   * and rebuilt after one of the lists is replaced.
+   * @return The index.
+   * @throws IllegalArgumentException If two contexts, clusters or users have the same name.
+   */
+  public ConfigIndex index() {
+    ConfigIndex current = index;
+    if (current == null) {
+      current = ConfigIndex.of(this);
+      index = current;
+    }
+    return current;
+  }
+
+  public void setContexts(List<NamedContext> contexts) {
+    this.contexts = contexts;
+    this.index = null;
+  }
+
+  public void setClusters(List<NamedCluster> clusters) {
+    this.clusters = clusters;
+    this.index = null;
+  }
+
+  public void setUsers(List<NamedUser> users) {
+    this.users = users;
+    this.index = null;
+  }
 }
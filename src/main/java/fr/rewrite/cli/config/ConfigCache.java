@@ -0,0 +1,85 @@
+package fr.rewrite.cli.config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the configurations loaded by {@link ConfigLoader}, so that a long-running process parses a configuration
+ * file again only when its modification time or size changes. Complete configurations and single contexts are kept apart.
+ */
+public class ConfigCache {
+
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Loads the configuration file, reusing the previously parsed one if the file did not change.
+   * @param configFilePath The configuration file.
+   * @return The configuration, empty if the file does not exist.
+   * @throws IOException If the file cannot be read.
+   */
+  public Config load(Path configFilePath) throws IOException {
+    return load(new Key(configFilePath.toAbsolutePath().normalize(), true, null), () -> ConfigLoader.loadConfig(configFilePath));
+  }
+
+  /**
+   * Loads one context of the configuration file with {@link ConfigLoader#loadContext(Path, String)}, reusing the
+   * previously loaded one if the file did not change.
+   * @param configFilePath The configuration file.
+   * @param contextName The context to select, null to select the current context of the file.
+   * @return The configuration holding the selected context, empty if the file does not exist.
+   * @throws IOException If the file cannot be read.
+   */
+  public Config loadContext(Path configFilePath, String contextName) throws IOException {
+    return load(
+      new Key(configFilePath.toAbsolutePath().normalize(), false, contextName),
+      () -> ConfigLoader.loadContext(configFilePath, contextName)
+    );
+  }
+
+  /**
+   * Replaces the configuration of a file, reloaded by a {@link ConfigWatcher}; the contexts loaded from the previous
+   * version of the file are dropped.
+   * @param configFilePath The configuration file.
+   * @param config The reloaded configuration.
+   * @throws IOException If the attributes of the file cannot be read.
+   */
+  public void update(Path configFilePath, Config config) throws IOException {
+    Path path = configFilePath.toAbsolutePath().normalize();
+    entries.keySet().removeIf(key -> key.path().equals(path));
+    if (Files.exists(path)) {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      entries.put(new Key(path, true, null), new Entry(attributes.lastModifiedTime().toMillis(), attributes.size(), config));
+    }
+  }
+
+  private Config load(Key key, Loader loader) throws IOException {
+    if (!Files.exists(key.path())) {
+      entries.remove(key);
+      return loader.load();
+    }
+
+    BasicFileAttributes attributes = Files.readAttributes(key.path(), BasicFileAttributes.class);
+    long lastModified = attributes.lastModifiedTime().toMillis();
+    Entry entry = entries.get(key);
+    if (entry != null && entry.lastModified() == lastModified && entry.size() == attributes.size()) {
+      return entry.config();
+    }
+
+    Config config = loader.load();
+    entries.put(key, new Entry(lastModified, attributes.size(), config));
+    return config;
+  }
+
+  @FunctionalInterface
+  private interface Loader {
+    Config load() throws IOException;
+  }
+
+  private record Key(Path path, boolean complete, String contextName) {}
+
+  private record Entry(long lastModified, long size, Config config) {}
+}
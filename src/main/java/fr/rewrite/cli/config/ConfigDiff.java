@@ -0,0 +1,42 @@
+package fr.rewrite.cli.config;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Names of the contexts, clusters and users added, removed or modified between two configurations.
+ * @param contexts The changed contexts.
+ * @param clusters The changed clusters.
+ * @param users The changed users.
+ */
+public record ConfigDiff(Set<String> contexts, Set<String> clusters, Set<String> users) {
+  /**
+   * Compares two configurations.
+   * @param previous The configuration before the change.
+   * @param current The configuration after the change.
+   * @return The names of the changed entries.
+   */
+  public static ConfigDiff between(Config previous, Config current) {
+    return new ConfigDiff(
+      changed(previous.index().contexts(), current.index().contexts()),
+      changed(previous.index().clusters(), current.index().clusters()),
+      changed(previous.index().users(), current.index().users())
+    );
+  }
+
+  private static <T> Set<String> changed(Map<String, T> previous, Map<String, T> current) {
+    Set<String> changed = new HashSet<>();
+    previous.forEach((name, entry) -> {
+      if (!entry.equals(current.get(name))) {
+        changed.add(name);
+      }
+    });
+    current.keySet().stream().filter(name -> !previous.containsKey(name)).forEach(changed::add);
+    return Set.copyOf(changed);
+  }
+
+  public boolean isEmpty() {
+    return contexts.isEmpty() && clusters.isEmpty() && users.isEmpty();
+  }
+}
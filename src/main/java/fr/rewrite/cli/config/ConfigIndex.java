@@ -0,0 +1,76 @@
+package fr.rewrite.cli.config;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Name-indexed view of the contexts, clusters and users of a {@link Config}, for constant time resolution.
+ */
+public final class ConfigIndex {
+
+  private final Map<String, NamedContext> contexts;
+  private final Map<String, NamedCluster> clusters;
+  private final Map<String, NamedUser> users;
+
+  private ConfigIndex(Map<String, NamedContext> contexts, Map<String, NamedCluster> clusters, Map<String, NamedUser> users) {
+    this.contexts = contexts;
+    this.clusters = clusters;
+    this.users = users;
+  }
+
+  /**
+   * Indexes a configuration.
+   * @param config The configuration to index.
+   * @return The index.
+   * @throws IllegalArgumentException If two contexts, clusters or users have the same name.
+   */
+  static ConfigIndex of(Config config) {
+    return new ConfigIndex(
+      index("context", config.getContexts(), NamedContext::getName),
+      index("cluster", config.getClusters(), NamedCluster::getName),
+      index("user", config.getUsers(), NamedUser::getName)
+    );
+  }
+
+  private static <T> Map<String, T> index(String type, List<T> elements, Function<T, String> name) {
+    if (elements == null) {
+      return Map.of();
+    }
+
+    Map<String, T> index = new LinkedHashMap<>(elements.size() * 2);
+    for (T element : elements) {
+      if (index.putIfAbsent(name.apply(element), element) != null) {
+        throw new IllegalArgumentException("Duplicate " + type + " name '" + name.apply(element) + "' in config.");
+      }
+    }
+    return Collections.unmodifiableMap(index);
+  }
+
+  public Optional<NamedContext> context(String name) {
+    return Optional.ofNullable(contexts.get(name));
+  }
+
+  public Optional<NamedCluster> cluster(String name) {
+    return Optional.ofNullable(clusters.get(name));
+  }
+
+  public Optional<NamedUser> user(String name) {
+    return Optional.ofNullable(users.get(name));
+  }
+
+  public Map<String, NamedContext> contexts() {
+    return contexts;
+  }
+
+  public Map<String, NamedCluster> clusters() {
+    return clusters;
+  }
+
+  public Map<String, NamedUser> users() {
+    return users;
+  }
+}
@@ -1,12 +1,12 @@
 package fr.rewrite.cli.config;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import fr.rewrite.cli.serialization.Mappers;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Optional;
 
 public class ConfigLoader {
 
@@ -20,14 +20,22 @@ public class ConfigLoader {
    * @throws IOException If there's an error reading or creating the file.
    */
   public static Config loadConfig() throws IOException {
-    Path configFilePath = Paths.get(System.getProperty("user.home"), CONFIG_DIR_NAME, CONFIG_FILE_NAME);
-    return loadConfig(configFilePath); // Appelle la nouvelle méthode surchargée
+    return loadConfig(defaultConfigPath()); // Appelle la nouvelle méthode surchargée
+  }
+
+  /**
+   * Default path of the configuration file: ~/.rewrite/config.yaml
+   * @return The default path.
+   */
+  public static Path defaultConfigPath() {
+    return Paths.get(System.getProperty("user.home"), CONFIG_DIR_NAME, CONFIG_FILE_NAME);
   }
 
   /**
    * Loads the configuration from a specific given path.
    * If the file does not exist, a warning is printed and an empty Config is returned.
    * (We don't create a default file here, as this path is explicitly specified by the user).
+   * The binary {@link ConfigSnapshot} of the file is used when still valid, and refreshed otherwise.
    * @param specificConfigPath The explicit Path to the configuration file.
    * @return The loaded Config object.
    * @throws IOException If there's an error reading the file.
@@ -44,26 +52,97 @@ public class ConfigLoader {
       return new Config();
     }
 
-    ObjectMapper objectMapper = new ObjectMapper(new YAMLFactory());
-    Config config = objectMapper.readValue(configFile, Config.class);
+    Optional<Config> snapshot = ConfigSnapshot.read(specificConfigPath);
+    if (snapshot.isPresent()) {
+      snapshot.get().index();
+      return snapshot.get();
+    }
 
-    config
-      .getUsers()
-      .forEach(u -> {
-        if (u.getUser().getClientTruststorePath() != null && u.getUser().getClientTruststorePath().contains("~/" + CONFIG_DIR_NAME)) {
-          u.getUser().setClientTruststorePath(u.getUser().getClientTruststorePath().replace("~", System.getProperty("user.home")));
-        }
-        if (u.getUser().getClientCertificateFile() != null && u.getUser().getClientCertificateFile().contains("~/" + CONFIG_DIR_NAME)) {
-          u.getUser().setClientCertificateFile(u.getUser().getClientCertificateFile().replace("~", System.getProperty("user.home")));
-        }
-        if (u.getUser().getClientKeystorePath() != null && u.getUser().getClientKeystorePath().contains("~/" + CONFIG_DIR_NAME)) {
-          u.getUser().setClientKeystorePath(u.getUser().getClientKeystorePath().replace("~", System.getProperty("user.home")));
+    Config config = parseConfig(specificConfigPath);
+    // Construit l'index une fois pour toutes, et refuse les noms en double avant d'écrire le snapshot
+    config.index();
+    try {
+      ConfigSnapshot.write(specificConfigPath, config);
+    } catch (IOException e) {
+      // Le snapshot n'est qu'un cache : un répertoire en lecture seule ne doit pas empêcher de charger la configuration
+    }
+    return config;
+  }
+
+  /**
+   * Loads only what is needed to resolve one context of a specific configuration file.
+   * The binary {@link ConfigSnapshot} is used when still valid; otherwise only the selected context, cluster and user
+   * are read by {@link ConfigSelector}, and the snapshot is refreshed in the background for the next calls.
+   * @param specificConfigPath The explicit Path to the configuration file.
+   * @param contextName The context to select, null to select the current context of the file.
+   * @return A configuration holding at least the selected context, its cluster and its user when they exist.
+   * @throws IOException If there's an error reading the file.
+   */
+  public static Config loadContext(Path specificConfigPath, String contextName) throws IOException {
+    if (!Files.exists(specificConfigPath)) {
+      System.err.println("Warning: Configuration file not found at " + specificConfigPath);
+      return new Config();
+    }
+
+    Optional<Config> snapshot = ConfigSnapshot.read(specificConfigPath);
+    if (snapshot.isPresent()) {
+      snapshot.get().index();
+      return snapshot.get();
+    }
+
+    Config selected = ConfigSelector.select(specificConfigPath, contextName);
+    refreshSnapshot(specificConfigPath);
+    return selected;
+  }
+
+  // Thread démon : le snapshot est écrit pendant les appels réseau de la commande, mais une commande plus rapide que
+  // l'analyse complète du YAML n'attend pas qu'il soit terminé ; il sera refait au prochain appel
+  private static void refreshSnapshot(Path configFilePath) {
+    Thread
+      .ofPlatform()
+      .name("rewrite-config-snapshot")
+      .daemon(true)
+      .start(() -> {
+        try {
+          Config config = parseConfig(configFilePath);
+          config.index();
+          ConfigSnapshot.write(configFilePath, config);
+        } catch (IOException | RuntimeException e) {
+          // Le snapshot n'est qu'un cache : les erreurs de la configuration complète seront signalées au prochain chargement complet
         }
       });
+  }
+
+  /**
+   * Parses a YAML configuration file and expands the '~' of the certificate paths, without using the snapshot.
+   * @param configFilePath The YAML configuration file.
+   * @return The resolved Config object.
+   * @throws IOException If there's an error reading the file.
+   */
+  public static Config parseConfig(Path configFilePath) throws IOException {
+    Config config = Mappers.configReader().readValue(configFilePath.toFile());
+
+    // Un fragment de REWRITECONFIG peut ne déclarer aucun utilisateur
+    if (config.getUsers() != null) {
+      config.getUsers().stream().filter(u -> u.getUser() != null).forEach(u -> expandHome(u.getUser()));
+    }
 
     return config;
   }
 
+  // Remplace le '~' des chemins de certificats situés sous ~/.rewrite par le répertoire de l'utilisateur
+  static void expandHome(NamedUser.User user) {
+    if (user.getClientTruststorePath() != null && user.getClientTruststorePath().contains("~/" + CONFIG_DIR_NAME)) {
+      user.setClientTruststorePath(user.getClientTruststorePath().replace("~", System.getProperty("user.home")));
+    }
+    if (user.getClientCertificateFile() != null && user.getClientCertificateFile().contains("~/" + CONFIG_DIR_NAME)) {
+      user.setClientCertificateFile(user.getClientCertificateFile().replace("~", System.getProperty("user.home")));
+    }
+    if (user.getClientKeystorePath() != null && user.getClientKeystorePath().contains("~/" + CONFIG_DIR_NAME)) {
+      user.setClientKeystorePath(user.getClientKeystorePath().replace("~", System.getProperty("user.home")));
+    }
+  }
+
   // Méthode pour créer le fichier de configuration par défaut, appelée uniquement par loadConfig() sans argument.
   private static void createDefaultConfigFile(Path configFilePath) throws IOException {
     Files.createDirectories(configFilePath.getParent());
@@ -77,6 +156,9 @@ public class ConfigLoader {
       "      insecureSkipTlsVerify: true # A NE PAS UTILISER EN PRODUCTION\n" +
       "      # certificateAuthorityFile: path/to/ca.crt\n" +
       "      # certificateAuthorityData: <base64 encoded ca.crt>\n" +
+      "      # httpVersion: HTTP_2 # ou HTTP_1_1\n" +
+      "      # tlsSessionCacheSize: 20480\n" +
+      "      # tlsSessionTimeout: 86400\n" +
       "users:\n" +
       "  - name: default-user\n" +
       "    user:\n" +
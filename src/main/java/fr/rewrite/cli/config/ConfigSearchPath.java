@@ -0,0 +1,181 @@
+package fr.rewrite.cli.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Configuration merged from several files, like kubectl with KUBECONFIG: the {@code REWRITECONFIG} environment
+ * variable lists files and directories separated by ':' (';' on Windows), a directory standing for its
+ * {@code *.yaml} and {@code *.yml} files in name order. Missing entries are ignored.
+ *
+ * <p>
+ * The first file setting {@code currentContext} wins, and so does the first context, cluster or user with a given
+ * name. The merged configuration is cached as a {@link ConfigSnapshot} in ~/.rewrite/cache, valid as long as the
+ * list of files and their contents do not change.
+ * </p>
+ */
+public final class ConfigSearchPath {
+
+  public static final String ENVIRONMENT_VARIABLE = "REWRITECONFIG";
+
+  private final List<Path> entries;
+  private final Path cacheDirectory;
+
+  ConfigSearchPath(List<Path> entries, Path cacheDirectory) {
+    this.entries = entries;
+    this.cacheDirectory = cacheDirectory;
+  }
+
+  /**
+   * Search path given by the {@code REWRITECONFIG} environment variable.
+   * @return The search path, empty if the variable is not set.
+   */
+  public static Optional<ConfigSearchPath> fromEnvironment() {
+    return parse(System.getenv(ENVIRONMENT_VARIABLE), ConfigLoader.defaultConfigPath().resolveSibling("cache"));
+  }
+
+  static Optional<ConfigSearchPath> parse(String value, Path cacheDirectory) {
+    if (value == null || value.isBlank()) {
+      return Optional.empty();
+    }
+
+    List<Path> entries = Stream.of(value.split(File.pathSeparator)).filter(entry -> !entry.isBlank()).map(Paths::get).toList();
+    return entries.isEmpty() ? Optional.empty() : Optional.of(new ConfigSearchPath(entries, cacheDirectory));
+  }
+
+  /**
+   * Files of the search path, in merge order.
+   * @return The existing files, each one only once.
+   * @throws IOException If a directory cannot be listed.
+   */
+  public List<Path> files() throws IOException {
+    Set<Path> files = new LinkedHashSet<>();
+    for (Path entry : entries) {
+      if (Files.isDirectory(entry)) {
+        try (Stream<Path> children = Files.list(entry)) {
+          // Les fichiers cachés sont exclus : ce sont notamment les snapshots des fichiers du répertoire
+          children
+            .filter(child -> Files.isRegularFile(child) && isYaml(child.getFileName().toString()))
+            .sorted()
+            .forEach(child -> files.add(child.toAbsolutePath().normalize()));
+        }
+      } else if (Files.isRegularFile(entry)) {
+        files.add(entry.toAbsolutePath().normalize());
+      }
+    }
+    return List.copyOf(files);
+  }
+
+  private static boolean isYaml(String fileName) {
+    return !fileName.startsWith(".") && (fileName.endsWith(".yaml") || fileName.endsWith(".yml"));
+  }
+
+  /**
+   * Loads the merged configuration, from its snapshot when still valid.
+   * @return The merged configuration, empty if no file of the search path exists.
+   * @throws IOException If a file cannot be read.
+   * @throws IllegalArgumentException If a file holds two contexts, clusters or users with the same name.
+   */
+  public Config load() throws IOException {
+    List<Path> files = files();
+    if (files.isEmpty()) {
+      System.err.println("Warning: No configuration file found in " + ENVIRONMENT_VARIABLE + "=" + joinedEntries());
+      return new Config();
+    }
+
+    Path snapshot = snapshotPath();
+    Optional<Config> cached = ConfigSnapshot.read(snapshot, files);
+    if (cached.isPresent()) {
+      cached.get().index();
+      return cached.get();
+    }
+
+    List<Config> fragments = new ArrayList<>(files.size());
+    for (Path file : files) {
+      Config fragment = ConfigLoader.parseConfig(file);
+      try {
+        fragment.index();
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(file + ": " + e.getMessage(), e);
+      }
+      fragments.add(fragment);
+    }
+
+    Config merged = merge(fragments);
+    try {
+      Files.createDirectories(cacheDirectory);
+      ConfigSnapshot.write(snapshot, files, merged);
+    } catch (IOException e) {
+      // Le snapshot n'est qu'un cache : un répertoire en lecture seule ne doit pas empêcher de charger la configuration
+    }
+    return merged;
+  }
+
+  /**
+   * Snapshot of the merged configuration, named after the search path.
+   * @return The snapshot path, in the cache directory.
+   */
+  public Path snapshotPath() {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(joinedEntries().getBytes(StandardCharsets.UTF_8));
+      return cacheDirectory.resolve("config-" + HexFormat.of().formatHex(digest, 0, 8) + ".snapshot");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private String joinedEntries() {
+    return String.join(File.pathSeparator, entries.stream().map(entry -> entry.toAbsolutePath().normalize().toString()).toList());
+  }
+
+  /**
+   * Merges configurations, the first definition of a current context or of a name winning.
+   * @param fragments The configurations, in order.
+   * @return The merged configuration.
+   */
+  static Config merge(List<Config> fragments) {
+    Config merged = new Config();
+    Map<String, NamedContext> contexts = new LinkedHashMap<>();
+    Map<String, NamedCluster> clusters = new LinkedHashMap<>();
+    Map<String, NamedUser> users = new LinkedHashMap<>();
+
+    for (Config fragment : fragments) {
+      if (merged.getCurrentContext() == null) {
+        merged.setCurrentContext(fragment.getCurrentContext());
+      }
+      putAbsent(contexts, fragment.getContexts(), NamedContext::getName);
+      putAbsent(clusters, fragment.getClusters(), NamedCluster::getName);
+      putAbsent(users, fragment.getUsers(), NamedUser::getName);
+    }
+    if (!fragments.isEmpty() && fragments.get(0).getApiVersion() != null) {
+      merged.setApiVersion(fragments.get(0).getApiVersion());
+    }
+
+    merged.setContexts(new ArrayList<>(contexts.values()));
+    merged.setClusters(new ArrayList<>(clusters.values()));
+    merged.setUsers(new ArrayList<>(users.values()));
+    return merged;
+  }
+
+  private static <T> void putAbsent(Map<String, T> merged, List<T> elements, Function<T, String> name) {
+    if (elements != null) {
+      elements.forEach(element -> merged.putIfAbsent(name.apply(element), element));
+    }
+  }
+}
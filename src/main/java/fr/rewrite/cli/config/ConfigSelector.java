@@ -0,0 +1,204 @@
+package fr.rewrite.cli.config;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import fr.rewrite.cli.serialization.Mappers;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming loader that reads only the selected context of a YAML configuration file, with its cluster and user.
+ *
+ * <p>
+ * The file is read once, token by token. When the name to select in a section is already known (the current context
+ * before the contexts, the context before its cluster and user), the other entries are skipped without building any
+ * object. Sections that come first, as the clusters and users usually do, are only kept as raw tokens until the end
+ * of the file, and just the selected entry is deserialized. The names of all the entries are checked as with
+ * {@link ConfigIndex}, so a file is rejected here as it would be when fully loaded.
+ * </p>
+ */
+public final class ConfigSelector {
+
+  private ConfigSelector() {}
+
+  /**
+   * Reads the selected context of a configuration file.
+   * @param configFilePath The YAML configuration file.
+   * @param contextName The context to select, null to select the current context of the file.
+   * @return A configuration holding at most the selected context, its cluster and its user, the '~' of the certificate
+   *     paths being expanded; the lists are empty when an entry is not found.
+   * @throws IOException If the file cannot be read or parsed.
+   * @throws IllegalArgumentException If two contexts, clusters or users have the same name.
+   */
+  public static Config select(Path configFilePath, String contextName) throws IOException {
+    Section<NamedContext.Context> contexts = new Section<>("context", NamedContext.Context.class);
+    Section<NamedCluster.Cluster> clusters = new Section<>("cluster", NamedCluster.Cluster.class);
+    Section<NamedUser.User> users = new Section<>("user", NamedUser.User.class);
+    String apiVersion = null;
+    String currentContext = null;
+
+    try (JsonParser parser = Mappers.yaml().createParser(configFilePath.toFile())) {
+      if (parser.nextToken() == JsonToken.START_OBJECT) {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String field = parser.currentName();
+          parser.nextToken();
+          switch (field) {
+            case "apiVersion" -> apiVersion = parser.getValueAsString();
+            case "currentContext" -> currentContext = parser.getValueAsString();
+            case "contexts" -> contexts.read(parser, contextName != null ? contextName : currentContext);
+            case "clusters" -> clusters.read(parser, contexts.value() == null ? null : contexts.value().getCluster());
+            case "users" -> users.read(parser, contexts.value() == null ? null : contexts.value().getUser());
+            default -> parser.skipChildren();
+          }
+        }
+      }
+    }
+
+    // Sections lues avant de connaître le nom à sélectionner : la sélection se fait maintenant, sur les tokens gardés
+    contexts.resolve(contextName != null ? contextName : currentContext);
+    clusters.resolve(contexts.value() == null ? null : contexts.value().getCluster());
+    users.resolve(contexts.value() == null ? null : contexts.value().getUser());
+
+    Config config = new Config();
+    if (apiVersion != null) {
+      config.setApiVersion(apiVersion);
+    }
+    config.setCurrentContext(currentContext);
+    config.setContexts(contexts.selected == null ? List.of() : List.of(named(new NamedContext(), contexts.selected)));
+    config.setClusters(clusters.selected == null ? List.of() : List.of(named(new NamedCluster(), clusters.selected)));
+    config.setUsers(users.selected == null ? List.of() : List.of(named(new NamedUser(), users.selected)));
+    if (users.value() != null) {
+      ConfigLoader.expandHome(users.value());
+    }
+    return config;
+  }
+
+  private static NamedContext named(NamedContext context, Element<NamedContext.Context> element) {
+    context.setName(element.name());
+    context.setContext(element.value());
+    return context;
+  }
+
+  private static NamedCluster named(NamedCluster cluster, Element<NamedCluster.Cluster> element) {
+    cluster.setName(element.name());
+    cluster.setCluster(element.value());
+    return cluster;
+  }
+
+  private static NamedUser named(NamedUser user, Element<NamedUser.User> element) {
+    user.setName(element.name());
+    user.setUser(element.value());
+    return user;
+  }
+
+  private record Element<T>(String name, T value) {}
+
+  /**
+   * A list of {@code {name, <valueField>}} objects (contexts, clusters or users) in which one entry is selected.
+   */
+  private static final class Section<T> {
+
+    private final String valueField;
+    private final Class<T> type;
+    private Element<T> selected;
+    // Valeurs brutes des entrées, quand la section est lue avant de connaître le nom à sélectionner
+    private Map<String, TokenBuffer> pending;
+    // Noms de toutes les entrées : un doublon hors sélection ferait échouer le chargement complet, et le snapshot
+    private final Set<String> names = new HashSet<>();
+
+    private Section(String valueField, Class<T> type) {
+      this.valueField = valueField;
+      this.type = type;
+    }
+
+    private T value() {
+      return selected == null ? null : selected.value();
+    }
+
+    /**
+     * Reads the section, the parser being on its first token.
+     * @param name The name to select, null if not known yet.
+     */
+    private void read(JsonParser parser, String name) throws IOException {
+      if (parser.currentToken() != JsonToken.START_ARRAY) {
+        parser.skipChildren();
+        return;
+      }
+      if (name == null) {
+        pending = new HashMap<>();
+      }
+
+      JsonToken token;
+      while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+        if (token != JsonToken.START_OBJECT) {
+          parser.skipChildren();
+          continue;
+        }
+        readEntry(parser, name);
+      }
+    }
+
+    private void readEntry(JsonParser parser, String name) throws IOException {
+      String entryName = null;
+      T value = null;
+      TokenBuffer buffered = null;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        parser.nextToken();
+        if ("name".equals(field)) {
+          entryName = parser.getValueAsString();
+        } else if (valueField.equals(field) && (name == null || entryName == null)) {
+          // Nom à sélectionner inconnu, ou valeur placée avant le nom : gardée sous forme de tokens
+          buffered = TokenBuffer.asCopyOfValue(parser);
+        } else if (valueField.equals(field) && entryName.equals(name)) {
+          value = parser.readValueAs(type);
+        } else {
+          parser.skipChildren();
+        }
+      }
+
+      if (entryName == null) {
+        return;
+      }
+      if (!names.add(entryName)) {
+        throw duplicate(entryName);
+      }
+      if (name == null) {
+        pending.put(entryName, buffered);
+      } else if (entryName.equals(name)) {
+        selected = new Element<>(entryName, buffered != null ? deserialize(buffered) : value);
+      }
+    }
+
+    /**
+     * Selects the entry among the raw entries kept by {@link #read(JsonParser, String)}, if any.
+     * @param name The name to select, null if there is nothing to select.
+     */
+    private void resolve(String name) throws IOException {
+      if (pending == null) {
+        return;
+      }
+      if (name != null && pending.containsKey(name)) {
+        TokenBuffer buffered = pending.get(name);
+        selected = new Element<>(name, buffered == null ? null : deserialize(buffered));
+      }
+      pending = null;
+    }
+
+    private T deserialize(TokenBuffer buffered) throws IOException {
+      try (JsonParser parser = buffered.asParser(Mappers.yaml())) {
+        return parser.readValueAs(type);
+      }
+    }
+
+    private IllegalArgumentException duplicate(String name) {
+      return new IllegalArgumentException("Duplicate " + valueField + " name '" + name + "' in config.");
+    }
+  }
+}
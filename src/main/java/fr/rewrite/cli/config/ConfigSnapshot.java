@@ -0,0 +1,479 @@
+package fr.rewrite.cli.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of a resolved {@link Config}, stored next to its YAML file as {@code .<name>.snapshot}, or
+ * anywhere for a configuration merged from several files.
+ *
+ * <p>
+ * The snapshot is only used while its YAML files keep the same paths, modification times, sizes and SHA-256, and while
+ * the home directory used to expand {@code ~} is unchanged; reading it needs neither YAML parsing nor Jackson. It ends
+ * with a CRC-32 of its content: a snapshot that is torn, corrupted or otherwise unreadable is ignored, and the YAML
+ * files are parsed instead.
+ * </p>
+ */
+public final class ConfigSnapshot {
+
+  private static final int MAGIC = 0x52574353; // "RWCS"
+  private static final int FORMAT_VERSION = 8; // À incrémenter à chaque changement des champs de Config, NamedCluster, NamedContext ou NamedUser
+  private static final int CRC_SIZE = 8;
+
+  private ConfigSnapshot() {}
+
+  /**
+   * Path of the snapshot of a configuration file.
+   * @param configFilePath The YAML configuration file.
+   * @return The snapshot path, in the same directory.
+   */
+  public static Path snapshotPath(Path configFilePath) {
+    return configFilePath.resolveSibling("." + configFilePath.getFileName() + ".snapshot");
+  }
+
+  /**
+   * Reads the snapshot of a configuration file if it is still valid.
+   * @param configFilePath The YAML configuration file.
+   * @return The snapshot configuration, empty if there is no snapshot or if it is outdated or unreadable.
+   */
+  public static Optional<Config> read(Path configFilePath) {
+    return read(snapshotPath(configFilePath), List.of(configFilePath));
+  }
+
+  /**
+   * Reads a snapshot if it is still valid for the given YAML files.
+   * @param snapshot The snapshot file.
+   * @param sources The YAML files the configuration was read from, in order.
+   * @return The snapshot configuration, empty if there is no snapshot or if it is outdated or unreadable.
+   */
+  public static Optional<Config> read(Path snapshot, List<Path> sources) {
+    if (!Files.isRegularFile(snapshot)) {
+      return Optional.empty();
+    }
+
+    try {
+      byte[] bytes = Files.readAllBytes(snapshot);
+      if (bytes.length < 8 + CRC_SIZE) {
+        return Optional.empty();
+      }
+      CRC32 crc = new CRC32();
+      crc.update(bytes, 0, bytes.length - CRC_SIZE);
+      if (ByteBuffer.wrap(bytes, bytes.length - CRC_SIZE, CRC_SIZE).getLong() != crc.getValue()) {
+        return Optional.empty();
+      }
+
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - CRC_SIZE));
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        return Optional.empty();
+      }
+
+      Fingerprint expected = Fingerprint.read(in);
+      if (!expected.matches(sources)) {
+        return Optional.empty();
+      }
+
+      Config config = readConfig(in);
+      return in.available() == 0 ? Optional.of(config) : Optional.empty();
+    } catch (IOException | RuntimeException e) {
+      // Snapshot illisible quelle qu'en soit la raison : le YAML reste la référence
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Writes the snapshot of a configuration file, replacing the previous one atomically.
+   * @param configFilePath The YAML configuration file the configuration was read from.
+   * @param config The resolved configuration.
+   * @throws IOException If the snapshot cannot be written.
+   */
+  public static void write(Path configFilePath, Config config) throws IOException {
+    write(snapshotPath(configFilePath), List.of(configFilePath), config);
+  }
+
+  /**
+   * Writes a snapshot, replacing the previous one atomically.
+   * @param snapshot The snapshot file, its directory must exist.
+   * @param sources The YAML files the configuration was read from, in order.
+   * @param config The resolved configuration.
+   * @throws IOException If the snapshot cannot be written.
+   */
+  public static void write(Path snapshot, List<Path> sources, Config config) throws IOException {
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(content);
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    Fingerprint.of(sources).write(out);
+    writeConfig(out, config);
+    CRC32 crc = new CRC32();
+    crc.update(content.toByteArray());
+    out.writeLong(crc.getValue());
+
+    // Fichier temporaire créé une fois le contenu prêt : un rafraîchissement interrompu par la fin de la JVM n'en laisse
+    // presque jamais derrière lui
+    Path temporary = Files.createTempFile(snapshot.toAbsolutePath().getParent(), snapshot.getFileName().toString(), ".tmp");
+    try {
+      restrictToOwner(temporary);
+      Files.write(temporary, content.toByteArray());
+      move(temporary, snapshot);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  // Le snapshot contient les mêmes secrets que le YAML (PATs, mots de passe)
+  private static void restrictToOwner(Path file) throws IOException {
+    try {
+      Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+    } catch (UnsupportedOperationException e) {
+      // Système de fichiers non POSIX : les droits par défaut s'appliquent
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private record Fingerprint(String userHome, List<FileFingerprint> files) {
+    static Fingerprint of(List<Path> sources) throws IOException {
+      List<FileFingerprint> files = new ArrayList<>(sources.size());
+      for (Path source : sources) {
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        files.add(new FileFingerprint(key(source), attributes.lastModifiedTime().toMillis(), attributes.size(), sha256(source)));
+      }
+      return new Fingerprint(currentUserHome(), files);
+    }
+
+    static Fingerprint read(DataInputStream in) throws IOException {
+      String userHome = readString(in);
+      int count = readLength(in);
+      List<FileFingerprint> files = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        String path = readString(in);
+        long lastModified = in.readLong();
+        long size = in.readLong();
+        byte[] sha256 = new byte[in.readUnsignedByte()];
+        in.readFully(sha256);
+        files.add(new FileFingerprint(path, lastModified, size, sha256));
+      }
+      return new Fingerprint(userHome, files);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      writeString(out, userHome);
+      out.writeInt(files.size());
+      for (FileFingerprint file : files) {
+        writeString(out, file.path());
+        out.writeLong(file.lastModified());
+        out.writeLong(file.size());
+        out.writeByte(file.sha256().length);
+        out.write(file.sha256());
+      }
+    }
+
+    boolean matches(List<Path> sources) throws IOException {
+      if (!currentUserHome().equals(userHome) || sources.size() != files.size()) {
+        return false;
+      }
+
+      // Les comparaisons bon marché d'abord, sur tous les fichiers : les hash ne sont calculés que si tout le reste correspond
+      for (int i = 0; i < sources.size(); i++) {
+        FileFingerprint file = files.get(i);
+        BasicFileAttributes attributes = Files.readAttributes(sources.get(i), BasicFileAttributes.class);
+        boolean unchanged =
+          key(sources.get(i)).equals(file.path())
+          && attributes.lastModifiedTime().toMillis() == file.lastModified()
+          && attributes.size() == file.size();
+        if (!unchanged) {
+          return false;
+        }
+      }
+      for (int i = 0; i < sources.size(); i++) {
+        if (!Arrays.equals(sha256(sources.get(i)), files.get(i).sha256())) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static String key(Path source) {
+      return source.toAbsolutePath().normalize().toString();
+    }
+
+    private static String currentUserHome() {
+      return System.getProperty("user.home");
+    }
+
+    private static byte[] sha256(Path file) throws IOException {
+      try (InputStream in = Files.newInputStream(file)) {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          digest.update(buffer, 0, read);
+        }
+        return digest.digest();
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  private record FileFingerprint(String path, long lastModified, long size, byte[] sha256) {}
+
+  private static void writeConfig(DataOutputStream out, Config config) throws IOException {
+    writeString(out, config.getApiVersion());
+    writeString(out, config.getCurrentContext());
+
+    writeList(out, config.getContexts(), context -> {
+      writeString(out, context.getName());
+      out.writeBoolean(context.getContext() != null);
+      if (context.getContext() != null) {
+        writeString(out, context.getContext().getCluster());
+        writeString(out, context.getContext().getUser());
+      }
+    });
+
+    writeList(out, config.getClusters(), cluster -> {
+      writeString(out, cluster.getName());
+      out.writeBoolean(cluster.getCluster() != null);
+      if (cluster.getCluster() != null) {
+        NamedCluster.Cluster value = cluster.getCluster();
+        writeString(out, value.getServer());
+        writeString(out, value.getCertificateAuthorityData());
+        writeString(out, value.getCertificateAuthorityFile());
+        out.writeBoolean(value.isInsecureSkipTlsVerify());
+        writeString(out, value.getHttpVersion());
+        writeInteger(out, value.getTlsSessionCacheSize());
+        writeInteger(out, value.getTlsSessionTimeout());
+        writeInteger(out, value.getRequestCompressionThreshold());
+        writeInteger(out, value.getBulkMaxJobs());
+        out.writeInt(value.getBulkLingerMillis());
+        writeDouble(out, value.getRateLimit());
+        writeInteger(out, value.getRateLimitBurst());
+        out.writeBoolean(value.isAdaptiveConcurrency());
+        out.writeInt(value.getRetryMaxAttempts());
+        out.writeInt(value.getRetryInitialDelayMillis());
+        out.writeInt(value.getRetryMaxDelayMillis());
+        writeList(out, value.getRetryOn(), statusClass -> writeString(out, statusClass));
+        writeDouble(out, value.getHedgePercentile());
+      }
+    });
+
+    writeList(out, config.getUsers(), user -> {
+      writeString(out, user.getName());
+      out.writeBoolean(user.getUser() != null);
+      if (user.getUser() != null) {
+        NamedUser.User value = user.getUser();
+        writeString(out, value.getUsername());
+        writeString(out, value.getGitPatForGit());
+        writeString(out, value.getGitPatForApi());
+        writeString(out, value.getClientCertificateData());
+        writeString(out, value.getClientCertificateFile());
+        writeString(out, value.getClientKeyData());
+        writeString(out, value.getClientKeyFile());
+        writeString(out, value.getClientKeystorePath());
+        writeString(out, value.getClientKeystorePassword());
+        writeString(out, value.getClientTruststorePath());
+        writeString(out, value.getClientTruststorePassword());
+      }
+    });
+  }
+
+  private static Config readConfig(DataInputStream in) throws IOException {
+    Config config = new Config();
+    config.setApiVersion(readString(in));
+    config.setCurrentContext(readString(in));
+
+    config.setContexts(
+      readList(in, () -> {
+        NamedContext context = new NamedContext();
+        context.setName(readString(in));
+        if (in.readBoolean()) {
+          NamedContext.Context value = new NamedContext.Context();
+          value.setCluster(readString(in));
+          value.setUser(readString(in));
+          context.setContext(value);
+        }
+        return context;
+      })
+    );
+
+    config.setClusters(
+      readList(in, () -> {
+        NamedCluster cluster = new NamedCluster();
+        cluster.setName(readString(in));
+        if (in.readBoolean()) {
+          NamedCluster.Cluster value = new NamedCluster.Cluster();
+          value.setServer(readString(in));
+          value.setCertificateAuthorityData(readString(in));
+          value.setCertificateAuthorityFile(readString(in));
+          value.setInsecureSkipTlsVerify(in.readBoolean());
+          value.setHttpVersion(readString(in));
+          value.setTlsSessionCacheSize(readInteger(in));
+          value.setTlsSessionTimeout(readInteger(in));
+          value.setRequestCompressionThreshold(readInteger(in));
+          value.setBulkMaxJobs(readInteger(in));
+          value.setBulkLingerMillis(in.readInt());
+          value.setRateLimit(readDouble(in));
+          value.setRateLimitBurst(readInteger(in));
+          value.setAdaptiveConcurrency(in.readBoolean());
+          value.setRetryMaxAttempts(in.readInt());
+          value.setRetryInitialDelayMillis(in.readInt());
+          value.setRetryMaxDelayMillis(in.readInt());
+          value.setRetryOn(readList(in, () -> readString(in)));
+          value.setHedgePercentile(readDouble(in));
+          cluster.setCluster(value);
+        }
+        return cluster;
+      })
+    );
+
+    config.setUsers(
+      readList(in, () -> {
+        NamedUser user = new NamedUser();
+        user.setName(readString(in));
+        if (in.readBoolean()) {
+          NamedUser.User value = new NamedUser.User();
+          value.setUsername(readString(in));
+          value.setGitPatForGit(readString(in));
+          value.setGitPatForApi(readString(in));
+          value.setClientCertificateData(readString(in));
+          value.setClientCertificateFile(readString(in));
+          value.setClientKeyData(readString(in));
+          value.setClientKeyFile(readString(in));
+          value.setClientKeystorePath(readString(in));
+          value.setClientKeystorePassword(readString(in));
+          value.setClientTruststorePath(readString(in));
+          value.setClientTruststorePassword(readString(in));
+          user.setUser(value);
+        }
+        return user;
+      })
+    );
+
+    return config;
+  }
+
+  @FunctionalInterface
+  private interface ElementWriter<T> {
+    void write(T element) throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface ElementReader<T> {
+    T read() throws IOException;
+  }
+
+  // Une liste nulle est écrite -1, pour être relue nulle comme après la lecture du YAML
+  private static <T> void writeList(DataOutputStream out, List<T> list, ElementWriter<T> writer) throws IOException {
+    if (list == null) {
+      out.writeInt(-1);
+      return;
+    }
+
+    out.writeInt(list.size());
+    for (T element : list) {
+      writer.write(element);
+    }
+  }
+
+  private static <T> List<T> readList(DataInputStream in, ElementReader<T> reader) throws IOException {
+    int size = in.readInt();
+    if (size < 0) {
+      return null;
+    }
+    checkRemaining(in, size);
+
+    List<T> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(reader.read());
+    }
+    return list;
+  }
+
+  private static int readLength(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Negative length in snapshot: " + length);
+    }
+    checkRemaining(in, length);
+    return length;
+  }
+
+  // Chaque élément occupe au moins un octet : une longueur au-delà du reste du fichier ne peut venir que d'une corruption,
+  // et n'alloue rien
+  private static void checkRemaining(DataInputStream in, int length) throws IOException {
+    if (length > in.available()) {
+      throw new IOException("Length " + length + " beyond the " + in.available() + " bytes left in snapshot");
+    }
+  }
+
+  private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeInt(value);
+    }
+  }
+
+  private static Integer readInteger(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readInt() : null;
+  }
+
+  private static void writeDouble(DataOutputStream out, Double value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeDouble(value);
+    }
+  }
+
+  private static Double readDouble(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readDouble() : null;
+  }
+
+  // Longueur en int plutôt que writeUTF, limité à 64 Ko : un certificat encodé en base64 peut dépasser
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    checkRemaining(in, length);
+
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
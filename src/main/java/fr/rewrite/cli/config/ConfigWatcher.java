@@ -0,0 +1,134 @@
+package fr.rewrite.cli.config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads a configuration file as soon as it changes, for long-running processes.
+ *
+ * <p>
+ * The directory of the file is watched with a {@link WatchService}, so both in-place writes and editors replacing the
+ * file are seen. The file is reloaded once it has not changed for a short quiet period, then compared with the
+ * previous configuration: the listener is only called when a context, cluster or user actually changed. A file that
+ * cannot be parsed, typically while being written, keeps the previous configuration.
+ * </p>
+ */
+public final class ConfigWatcher implements AutoCloseable {
+
+  /**
+   * Called, from the watcher thread, after a reload changing the configuration.
+   */
+  @FunctionalInterface
+  public interface Listener {
+    void reloaded(Config previous, Config current, ConfigDiff diff);
+  }
+
+  private static final Duration QUIET_PERIOD = Duration.ofMillis(200);
+
+  private final Path configFilePath;
+  private final Listener listener;
+  private final WatchService watchService;
+  private final Thread thread;
+  private volatile Config current;
+
+  private ConfigWatcher(Path configFilePath, Listener listener, WatchService watchService, Config current) {
+    this.configFilePath = configFilePath;
+    this.listener = listener;
+    this.watchService = watchService;
+    this.current = current;
+    this.thread = new Thread(this::run, "rewrite-config-watcher");
+    this.thread.setDaemon(true);
+  }
+
+  /**
+   * Loads the configuration file and starts watching it.
+   * @param configFilePath The configuration file, it does not need to exist yet.
+   * @param listener Called after every reload changing the configuration.
+   * @return The running watcher.
+   * @throws IOException If the file cannot be read or its directory cannot be watched.
+   */
+  public static ConfigWatcher start(Path configFilePath, Listener listener) throws IOException {
+    Path file = configFilePath.toAbsolutePath().normalize();
+    Files.createDirectories(file.getParent());
+
+    WatchService watchService = FileSystems.getDefault().newWatchService();
+    try {
+      file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+      ConfigWatcher watcher = new ConfigWatcher(file, listener, watchService, ConfigLoader.loadConfig(file));
+      watcher.thread.start();
+      return watcher;
+    } catch (IOException | RuntimeException e) {
+      watchService.close();
+      throw e;
+    }
+  }
+
+  /**
+   * The last configuration successfully loaded.
+   * @return The configuration.
+   */
+  public Config current() {
+    return current;
+  }
+
+  private void run() {
+    try {
+      while (true) {
+        if (!concernsFile(watchService.take())) {
+          continue;
+        }
+
+        // Un éditeur écrit souvent le fichier en plusieurs fois : relu seulement une fois qu'il ne bouge plus
+        WatchKey key;
+        while ((key = watchService.poll(QUIET_PERIOD.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+          concernsFile(key);
+        }
+        reload();
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // Arrêt demandé par close()
+    }
+  }
+
+  private boolean concernsFile(WatchKey key) {
+    boolean concerned = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      // Les snapshots écrits à côté du fichier sont ignorés ; après un OVERFLOW, le fichier a pu changer
+      concerned |= event.kind() == StandardWatchEventKinds.OVERFLOW || configFilePath.getFileName().equals(event.context());
+    }
+    key.reset();
+    return concerned;
+  }
+
+  private void reload() {
+    try {
+      Config reloaded = ConfigLoader.loadConfig(configFilePath);
+      Config previous = current;
+      ConfigDiff diff = ConfigDiff.between(previous, reloaded);
+      current = reloaded;
+      if (!diff.isEmpty()) {
+        listener.reloaded(previous, reloaded, diff);
+      }
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Error: Cannot reload " + configFilePath + ", keeping the previous configuration: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Stops watching the file.
+   */
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+    thread.interrupt();
+  }
+}
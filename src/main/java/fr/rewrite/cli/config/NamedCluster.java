@@ -1,5 +1,6 @@
 package fr.rewrite.cli.config;
 
+import java.util.List;
 import lombok.Data;
 
 @Data
@@ -15,5 +16,19 @@ public class NamedCluster {
     private String certificateAuthorityData; // Contenu encodé en base64 du CA cert (ca.crt)
     private String certificateAuthorityFile; // Chemin vers le fichier ca.crt
     private boolean insecureSkipTlsVerify = false; // Pour désactiver la vérification du certificat (à éviter en prod)
+    private String httpVersion = "HTTP_2"; // HTTP_2 (négocié par ALPN, repli automatique en HTTP/1.1) ou HTTP_1_1
+    private Integer tlsSessionCacheSize; // Nombre de sessions TLS gardées pour la reprise (défaut JDK : 20480)
+    private Integer tlsSessionTimeout; // Durée de vie en secondes d'une session TLS reprenable (défaut JDK : 86400)
+    private Integer requestCompressionThreshold; // Taille en octets à partir de laquelle les requêtes sont compressées (absent : jamais)
+    private Integer bulkMaxJobs; // Nombre maximal de dépôts par requête groupée avec --repo-list (absent : une requête par dépôt)
+    private int bulkLingerMillis = 50; // Attente maximale en millisecondes pour compléter une requête groupée
+    private Double rateLimit; // Nombre maximal de requêtes par seconde vers le serveur (absent : pas de limite)
+    private Integer rateLimitBurst; // Requêtes envoyables d'un coup après une période calme (absent : une seconde de rateLimit)
+    private boolean adaptiveConcurrency = true; // Ajuste le nombre de requêtes simultanées à la latence et aux refus du serveur
+    private int retryMaxAttempts = 5; // Nombre maximal de tentatives d'une soumission, la première comprise (1 : pas de nouvel essai)
+    private int retryInitialDelayMillis = 500; // Attente en millisecondes avant la deuxième tentative, doublée ensuite
+    private int retryMaxDelayMillis = 30000; // Attente maximale en millisecondes entre deux tentatives
+    private List<String> retryOn = List.of("5xx", "408", "429"); // Statuts (429) ou classes de statuts (5xx) réessayés
+    private Double hedgePercentile; // Centile de latence au-delà duquel une soumission est envoyée une seconde fois (absent : jamais)
   }
 }
@@ -0,0 +1,194 @@
+package fr.rewrite.cli.daemon;
+
+import fr.rewrite.cli.config.ConfigSearchPath;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Thin client forwarding a command line to a running {@link DaemonServer} and replaying its output.
+ *
+ * <p>
+ * Forwarding is enabled by the {@code REWRITE_DAEMON=true} environment variable, the socket being
+ * {@code REWRITE_DAEMON_SOCKET} or ~/.rewrite/daemon.sock. Relative paths given to {@code --config} and
+ * {@code --repo-list} are made absolute first since the daemon has its own working directory; a repository
+ * list read from stdin is not forwarded, nor is a command relying on {@code REWRITECONFIG}, which the daemon
+ * environment would not see.
+ * </p>
+ */
+public final class DaemonClient {
+
+  private static final Set<String> PATH_OPTIONS = Set.of("-c", "--config", "--repo-list");
+  private static final Set<String> CONFIG_OPTIONS = Set.of("-c", "--config");
+  private static final String STDIN = "-";
+
+  private DaemonClient() {}
+
+  /**
+   * Socket of the daemon: {@code REWRITE_DAEMON_SOCKET}, or ~/.rewrite/daemon.sock
+   * @return The socket path.
+   */
+  public static Path socket() {
+    return Optional.ofNullable(System.getenv("REWRITE_DAEMON_SOCKET")).map(Paths::get).orElseGet(DaemonProtocol::defaultSocket);
+  }
+
+  /**
+   * Forwards the command line to the daemon if forwarding is enabled and the daemon is reachable.
+   * @param args The command line.
+   * @return The exit code of the command, empty if it must be run in process.
+   */
+  public static OptionalInt tryForward(String[] args) {
+    boolean daemonCommand = args.length > 0 && "daemon".equals(args[0]);
+    if (!Boolean.parseBoolean(System.getenv("REWRITE_DAEMON")) || daemonCommand || readsStdin(args) || readsSearchPath(args)) {
+      return OptionalInt.empty();
+    }
+
+    Path socket = socket();
+    if (!Files.exists(socket)) {
+      return OptionalInt.empty();
+    }
+
+    try {
+      OutputStream stdout = new FileOutputStream(FileDescriptor.out);
+      OutputStream stderr = new FileOutputStream(FileDescriptor.err);
+      return OptionalInt.of(forward(socket, absolutePaths(args), stdout, stderr));
+    } catch (IOException e) {
+      // Démon arrêté ou injoignable avant d'avoir reçu la commande : elle s'exécute dans ce processus
+      return OptionalInt.empty();
+    }
+  }
+
+  /**
+   * Asks the daemon listening on the socket to stop.
+   * @param socket The daemon socket.
+   * @return true if a daemon was listening.
+   */
+  public static boolean stop(Path socket) {
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+      out.writeInt(DaemonProtocol.STOP);
+      out.flush();
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  static boolean isRunning(Path socket) {
+    if (!Files.exists(socket)) {
+      return false;
+    }
+
+    try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      return channel.connect(UnixDomainSocketAddress.of(socket));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Forwards a command line to the daemon and replays its output.
+   * @param socket The daemon socket.
+   * @param args The command line.
+   * @param stdout Where to replay the standard output of the command.
+   * @param stderr Where to replay the error output of the command.
+   * @return The exit code of the command, 1 if the connection was lost once the command was sent.
+   * @throws IOException If the command could not be sent to the daemon: it was not run, and can be run in process.
+   */
+  static int forward(Path socket, String[] args, OutputStream stdout, OutputStream stderr) throws IOException {
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+      DaemonProtocol.writeRequest(new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel))), args);
+      try {
+        return replay(new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))), stdout, stderr);
+      } catch (IOException e) {
+        // La commande a pu soumettre des jobs avant la coupure : la relancer ici les soumettrait une seconde fois
+        PrintStream err = new PrintStream(stderr, true, StandardCharsets.UTF_8);
+        err.println("Error: " + e.getMessage() + ". The command may have partly run in the daemon; it is not run again.");
+        return 1;
+      }
+    }
+  }
+
+  private static int replay(DataInputStream in, OutputStream stdout, OutputStream stderr) throws IOException {
+    byte[] buffer = new byte[8192];
+    while (true) {
+      byte type;
+      try {
+        type = in.readByte();
+      } catch (EOFException e) {
+        throw new IOException("Connection to the daemon closed before the end of the command", e);
+      }
+      int length = in.readInt();
+      if (type == DaemonProtocol.EXIT) {
+        return in.readInt();
+      }
+
+      OutputStream target = type == DaemonProtocol.STDERR ? stderr : stdout;
+      while (length > 0) {
+        int read = in.read(buffer, 0, Math.min(buffer.length, length));
+        if (read < 0) {
+          throw new EOFException("Truncated frame from the daemon");
+        }
+        target.write(buffer, 0, read);
+        length -= read;
+      }
+      target.flush();
+    }
+  }
+
+  private static boolean readsStdin(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--repo-list=" + STDIN) || (args[i].equals("--repo-list") && i + 1 < args.length && STDIN.equals(args[i + 1]))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // La variable d'environnement du client n'est pas transmise au démon : seul --config la remplace
+  private static boolean readsSearchPath(String[] args) {
+    String searchPath = System.getenv(ConfigSearchPath.ENVIRONMENT_VARIABLE);
+    if (searchPath == null || searchPath.isBlank()) {
+      return false;
+    }
+    return Stream.of(args).noneMatch(arg -> CONFIG_OPTIONS.contains(arg) || CONFIG_OPTIONS.contains(arg.split("=", 2)[0]));
+  }
+
+  static String[] absolutePaths(String[] args) {
+    String[] absolute = args.clone();
+    for (int i = 0; i < absolute.length; i++) {
+      String arg = absolute[i];
+      int equals = arg.indexOf('=');
+      if (equals > 0 && PATH_OPTIONS.contains(arg.substring(0, equals))) {
+        absolute[i] = arg.substring(0, equals + 1) + absolutePath(arg.substring(equals + 1));
+      } else if (PATH_OPTIONS.contains(arg) && i + 1 < absolute.length) {
+        absolute[i + 1] = absolutePath(absolute[i + 1]);
+        i++;
+      }
+    }
+    return absolute;
+  }
+
+  private static String absolutePath(String path) {
+    return STDIN.equals(path) ? path : Paths.get(path).toAbsolutePath().toString();
+  }
+}
@@ -0,0 +1,56 @@
+package fr.rewrite.cli.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Framing of the exchanges between the thin client and the daemon.
+ *
+ * <p>
+ * Request: {@code int argc} followed by {@code argc} UTF strings; {@code argc == STOP} asks the daemon to stop.
+ * Response: a sequence of frames {@code byte type, int length, byte[length]} for stdout and stderr, ended by an
+ * {@code EXIT} frame carrying the exit code as an {@code int}.
+ * </p>
+ */
+final class DaemonProtocol {
+
+  static final int STOP = -1;
+
+  static final byte STDOUT = 1;
+  static final byte STDERR = 2;
+  static final byte EXIT = 3;
+
+  private DaemonProtocol() {}
+
+  /**
+   * Default socket of the daemon: ~/.rewrite/daemon.sock
+   * @return The socket path.
+   */
+  static Path defaultSocket() {
+    return Paths.get(System.getProperty("user.home"), ".rewrite", "daemon.sock");
+  }
+
+  static void writeRequest(DataOutputStream out, String[] args) throws IOException {
+    out.writeInt(args.length);
+    for (String arg : args) {
+      out.writeUTF(arg);
+    }
+    out.flush();
+  }
+
+  static String[] readRequest(DataInputStream in) throws IOException {
+    int argc = in.readInt();
+    if (argc == STOP) {
+      return null;
+    }
+
+    String[] args = new String[argc];
+    for (int i = 0; i < argc; i++) {
+      args[i] = in.readUTF();
+    }
+    return args;
+  }
+}
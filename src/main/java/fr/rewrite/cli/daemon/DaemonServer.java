@@ -0,0 +1,203 @@
+package fr.rewrite.cli.daemon;
+
+import fr.rewrite.cli.shared.output.domain.OutputRoute;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived process running the CLI commands forwarded by {@link DaemonClient} over a Unix domain socket.
+ *
+ * <p>
+ * Everything a command keeps in static state (parsed configuration, SSL contexts and HTTP clients, Jackson
+ * serializers, JIT compiled code) survives from one call to the next. Each connection runs on its own virtual
+ * thread, with its {@code System.out} and {@code System.err} routed back to its client: the threads the command
+ * hands work to only write there if the work is wrapped with {@link OutputRoute#propagate}. The daemon stops when
+ * asked to, or once idle for {@code idleTimeout}.
+ * </p>
+ */
+public final class DaemonServer {
+
+  /**
+   * Runs one forwarded command line.
+   */
+  @FunctionalInterface
+  public interface Command {
+    int execute(String[] args, PrintWriter out, PrintWriter err);
+  }
+
+  private final Path socket;
+  private final Duration idleTimeout;
+  private final Command command;
+  private final AtomicInteger activeConnections = new AtomicInteger();
+  private final AtomicLong lastActivity = new AtomicLong(System.nanoTime());
+  private volatile ServerSocketChannel server;
+
+  public DaemonServer(Path socket, Duration idleTimeout, Command command) {
+    this.socket = socket;
+    this.idleTimeout = idleTimeout;
+    this.command = command;
+  }
+
+  /**
+   * Serves connections until the daemon is stopped.
+   * @throws IOException If the socket cannot be bound.
+   * @throws IllegalStateException If another daemon already listens on the socket.
+   */
+  public void run() throws IOException {
+    if (DaemonClient.isRunning(socket)) {
+      throw new IllegalStateException("A daemon is already listening on " + socket);
+    }
+    Files.createDirectories(socket.getParent());
+    Files.deleteIfExists(socket);
+
+    PrintStream originalOut = System.out;
+    PrintStream originalErr = System.err;
+    System.setOut(new PrintStream(new ThreadRoutedOutputStream(originalOut, OutputRoute::out), true, StandardCharsets.UTF_8));
+    System.setErr(new PrintStream(new ThreadRoutedOutputStream(originalErr, OutputRoute::err), true, StandardCharsets.UTF_8));
+
+    ScheduledExecutorService idleWatchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "rewrite-daemon-idle-watchdog");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try (
+      ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+      ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor()
+    ) {
+      server = channel;
+      bindPrivately(channel);
+      long checkPeriod = Math.max(1, Math.min(idleTimeout.toMillis(), 60_000));
+      idleWatchdog.scheduleAtFixedRate(this::stopIfIdle, checkPeriod, checkPeriod, TimeUnit.MILLISECONDS);
+      originalOut.println("Démon rewrite à l'écoute sur " + socket);
+
+      while (channel.isOpen()) {
+        SocketChannel client;
+        try {
+          client = channel.accept();
+        } catch (AsynchronousCloseException e) {
+          break;
+        }
+        activeConnections.incrementAndGet();
+        connections.submit(() -> handle(client));
+      }
+    } finally {
+      idleWatchdog.shutdownNow();
+      System.setOut(originalOut);
+      System.setErr(originalErr);
+      Files.deleteIfExists(socket);
+    }
+  }
+
+  /**
+   * Stops accepting connections; the running commands are completed first.
+   */
+  public void stop() {
+    ServerSocketChannel channel = server;
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // Déjà fermé
+      }
+    }
+  }
+
+  private void stopIfIdle() {
+    if (activeConnections.get() == 0 && System.nanoTime() - lastActivity.get() > idleTimeout.toNanos()) {
+      stop();
+    }
+  }
+
+  private void handle(SocketChannel client) {
+    try (client) {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)));
+
+      String[] args = DaemonProtocol.readRequest(in);
+      if (args == null) {
+        stop();
+        writeExit(out, 0);
+        return;
+      }
+
+      FrameOutputStream stdout = new FrameOutputStream(out, DaemonProtocol.STDOUT);
+      FrameOutputStream stderr = new FrameOutputStream(out, DaemonProtocol.STDERR);
+      int exitCode;
+      try (OutputRoute.Scope route = new OutputRoute(stdout, stderr).enter()) {
+        exitCode = command.execute(
+          args,
+          new PrintWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8), true),
+          new PrintWriter(new OutputStreamWriter(stderr, StandardCharsets.UTF_8), true)
+        );
+        System.out.flush();
+        System.err.flush();
+      }
+      writeExit(out, exitCode);
+    } catch (IOException e) {
+      // Le client s'est déconnecté, il n'y a plus personne à qui répondre
+    } finally {
+      lastActivity.set(System.nanoTime());
+      activeConnections.decrementAndGet();
+    }
+  }
+
+  private static void writeExit(DataOutputStream out, int exitCode) throws IOException {
+    synchronized (out) {
+      out.writeByte(DaemonProtocol.EXIT);
+      out.writeInt(Integer.BYTES);
+      out.writeInt(exitCode);
+      out.flush();
+    }
+  }
+
+  // Le socket est créé selon l'umask : il est lié dans un répertoire réservé au propriétaire, restreint, puis seulement
+  // alors déplacé à sa place, pour qu'aucun autre utilisateur ne puisse s'y connecter entre-temps
+  private void bindPrivately(ServerSocketChannel channel) throws IOException {
+    Path directory;
+    try {
+      directory = Files.createTempDirectory(
+        socket.getParent(),
+        ".daemon-",
+        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------"))
+      );
+    } catch (UnsupportedOperationException e) {
+      // Système de fichiers non POSIX : les droits par défaut s'appliquent
+      channel.bind(UnixDomainSocketAddress.of(socket));
+      return;
+    }
+
+    Path bound = directory.resolve(socket.getFileName());
+    try {
+      channel.bind(UnixDomainSocketAddress.of(bound));
+      Files.setPosixFilePermissions(bound, PosixFilePermissions.fromString("rw-------"));
+      Files.move(bound, socket, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(bound);
+      Files.deleteIfExists(directory);
+    }
+  }
+}
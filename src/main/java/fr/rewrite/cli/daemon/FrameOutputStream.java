@@ -0,0 +1,45 @@
+package fr.rewrite.cli.daemon;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Sends everything written to it as {@link DaemonProtocol} frames of the given type.
+ * Frames of the stdout and stderr streams of a client are interleaved on the same connection, hence the lock.
+ */
+final class FrameOutputStream extends OutputStream {
+
+  private final DataOutputStream connection;
+  private final byte type;
+
+  FrameOutputStream(DataOutputStream connection, byte type) {
+    this.connection = connection;
+    this.type = type;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] { (byte) b }, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return;
+    }
+
+    synchronized (connection) {
+      connection.writeByte(type);
+      connection.writeInt(len);
+      connection.write(b, off, len);
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    synchronized (connection) {
+      connection.flush();
+    }
+  }
+}
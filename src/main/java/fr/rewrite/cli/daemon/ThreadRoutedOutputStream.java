@@ -0,0 +1,45 @@
+package fr.rewrite.cli.daemon;
+
+import fr.rewrite.cli.shared.output.domain.OutputRoute;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Function;
+
+/**
+ * Output stream writing to the {@link OutputRoute} of the current thread, so that several commands run concurrently by
+ * the daemon each send their {@code System.out} and {@code System.err} to their own client. A thread without route,
+ * such as a shared pool thread, writes to the fallback stream.
+ */
+final class ThreadRoutedOutputStream extends OutputStream {
+
+  private final OutputStream fallback;
+  private final Function<OutputRoute, OutputStream> stream;
+
+  /**
+   * @param fallback The stream written to by the threads without route.
+   * @param stream Selects the stream of a route: {@link OutputRoute#out()} or {@link OutputRoute#err()}.
+   */
+  ThreadRoutedOutputStream(OutputStream fallback, Function<OutputRoute, OutputStream> stream) {
+    this.fallback = fallback;
+    this.stream = stream;
+  }
+
+  private OutputStream current() {
+    return OutputRoute.current().map(stream).orElse(fallback);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    current().write(b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    current().write(b, off, len);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    current().flush();
+  }
+}
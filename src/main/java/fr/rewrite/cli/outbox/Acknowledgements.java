@@ -0,0 +1,110 @@
+package fr.rewrite.cli.outbox;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves the checkpoint of a drain past the records delivered, in order: records are delivered concurrently, but the
+ * checkpoint only passes a record once every record before it is delivered too.
+ */
+final class Acknowledgements {
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Path checkpointFile;
+  // Fin de chaque enregistrement en vol, par numéro d'ordre : seuls les enregistrements non encore dépassés sont gardés
+  private final TreeMap<Long, OutboxCheckpoint> ends = new TreeMap<>();
+  // Enregistrements acquittés au-delà du point de reprise, relativement à celui-ci
+  private final BitSet acknowledged = new BitSet();
+  private OutboxCheckpoint checkpoint;
+  private OutboxCheckpoint saved;
+  private long registered;
+  private long next;
+
+  Acknowledgements(OutboxCheckpoint start, Path checkpointFile) {
+    this.checkpoint = start;
+    this.saved = start;
+    this.checkpointFile = checkpointFile;
+  }
+
+  /**
+   * Registers a record read from the outbox.
+   * @param end The position just after the record.
+   * @return The index of the record, to acknowledge it.
+   */
+  long register(OutboxCheckpoint end) {
+    lock.lock();
+    try {
+      ends.put(registered, end);
+      return registered++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Acknowledges a record, saving the checkpoint every {@link Outbox#CHECKPOINT_INTERVAL} records passed.
+   * @param index The index of the record.
+   * @throws IOException If the checkpoint cannot be saved.
+   */
+  void acknowledge(long index) throws IOException {
+    lock.lock();
+    try {
+      acknowledged.set((int) (index - next));
+      int passed = acknowledged.nextClearBit(0);
+      if (passed == 0) {
+        return;
+      }
+
+      checkpoint = ends.get(next + passed - 1);
+      ends.headMap(next + passed).clear();
+      long previous = next;
+      next += passed;
+      // Décalage du BitSet : le bit 0 redevient le premier enregistrement non dépassé
+      BitSet remaining = acknowledged.get(passed, Math.max(passed, acknowledged.length()));
+      acknowledged.clear();
+      acknowledged.or(remaining);
+      if (next / Outbox.CHECKPOINT_INTERVAL != previous / Outbox.CHECKPOINT_INTERVAL) {
+        saveLocked(checkpoint);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Tells whether every registered record was acknowledged.
+   * @return Whether the checkpoint is past every registered record.
+   */
+  boolean allAcknowledged() {
+    lock.lock();
+    try {
+      return next == registered;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Saves the checkpoint if it moved since it was last saved.
+   * @param override The checkpoint to save instead of the one reached by the acknowledgements, null for none.
+   * @throws IOException If the checkpoint cannot be saved.
+   */
+  void save(OutboxCheckpoint override) throws IOException {
+    lock.lock();
+    try {
+      saveLocked(override != null ? override : checkpoint);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void saveLocked(OutboxCheckpoint value) throws IOException {
+    if (!value.equals(saved)) {
+      value.write(checkpointFile);
+      saved = value;
+    }
+  }
+}
@@ -0,0 +1,435 @@
+package fr.rewrite.cli.outbox;
+
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.client.SubmissionExecutor;
+import fr.rewrite.cli.serialization.Mappers;
+import fr.rewrite.cli.serialization.WireFormat;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable queue of the submissions that could not reach the orchestrator, drained by {@code rewrite flush} once the
+ * server is back. There is one outbox per server, in a directory of {@code ~/.rewrite/outbox}.
+ *
+ * <p>
+ * The outbox is a sequence of append-only segment files. Each record is framed by its length and its CRC-32, and holds
+ * the run id and the request, in Smile. An append writes one frame at the end of the current segment and returns once
+ * it is on disk; appends made at the same time share a single {@code fsync} (group commit), so concurrent submissions
+ * are not serialized on the disk. A record torn by a crash fails its CRC and ends the segment when it is read back.
+ * </p>
+ *
+ * <p>
+ * Draining reads the segments from the checkpoint, the position of the first record not yet delivered, and sends their
+ * records concurrently. The checkpoint only moves past a record once it and every record before it are delivered, and
+ * is saved every {@link #CHECKPOINT_INTERVAL} records: after a crash, draining resumes from there. The records sent
+ * again carry the idempotency key of their run, so the orchestrator does not start their rewrite twice.
+ * </p>
+ */
+public final class Outbox implements AutoCloseable {
+
+  /**
+   * A queued submission.
+   * @param runId The run the submission belongs to, from which its idempotency key is derived.
+   * @param request The request to submit.
+   */
+  public record Entry(String runId, RewriteConfig request) {}
+
+  /**
+   * Fate of a drained record.
+   */
+  public enum Delivery {
+    /** The orchestrator accepted the request, the record is removed. */
+    DELIVERED,
+    /** The orchestrator refused the request, the record is removed as sending it again would not help. */
+    REJECTED,
+    /** The request failed for another reason than a connection failure, the record is removed as it would fail again. */
+    FAILED,
+    /** The orchestrator could not be reached, the record and the following ones stay queued. */
+    UNREACHABLE,
+  }
+
+  /**
+   * Sends a drained record to the orchestrator.
+   */
+  @FunctionalInterface
+  public interface Sender {
+    Delivery send(Entry entry) throws InterruptedException;
+  }
+
+  /**
+   * Outcome of a drain.
+   * @param delivered The number of records delivered.
+   * @param rejected The number of records rejected by the orchestrator.
+   * @param failed The number of records whose request failed without reaching the orchestrator's answer.
+   * @param complete Whether every record was drained, false if the orchestrator became unreachable.
+   */
+  public record DrainResult(long delivered, long rejected, long failed, boolean complete) {}
+
+  static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+  static final int CHECKPOINT_INTERVAL = 1024;
+
+  static final int SEGMENT_MAGIC = 0x52574f42; // "RWOB"
+  static final int SEGMENT_FORMAT_VERSION = 1;
+  static final int SEGMENT_HEADER_SIZE = 8;
+  static final int FRAME_HEADER_SIZE = 8;
+  // Une trame plus grande ne peut venir que d'une longueur écrite à moitié
+  static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String CHECKPOINT_FILE = "checkpoint";
+  private static final String DRAIN_LOCK_FILE = "drain.lock";
+
+  private final Path directory;
+  private final long segmentSize;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition synced = lock.newCondition();
+  private FileChannel active;
+  private FileLock activeLock;
+  private long activeSequence;
+  private long activeSize;
+  private long written;
+  private long durable;
+  private boolean syncing;
+
+  private Outbox(Path directory, long segmentSize, long lastSequence) {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.activeSequence = lastSequence;
+  }
+
+  /**
+   * Default root of the outboxes: ~/.rewrite/outbox
+   * @return The root directory.
+   */
+  public static Path defaultRoot() {
+    return Paths.get(System.getProperty("user.home"), ".rewrite", "outbox");
+  }
+
+  /**
+   * Directory of the outbox of a server.
+   * @param root The root of the outboxes.
+   * @param server The URL of the server.
+   * @return The directory, named after a hash of the URL.
+   */
+  public static Path directory(Path root, String server) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(server.getBytes(StandardCharsets.UTF_8));
+      return root.resolve(HexFormat.of().formatHex(digest, 0, 8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Tells whether an outbox holds no record, without opening it.
+   * @param directory The directory of the outbox.
+   * @return Whether the directory is missing or holds no segment.
+   * @throws IOException If the directory cannot be listed.
+   */
+  public static boolean isEmpty(Path directory) throws IOException {
+    return !Files.isDirectory(directory) || segments(directory).isEmpty();
+  }
+
+  /**
+   * Opens an outbox, creating its directory if needed.
+   * The records hold the Git tokens of the requests: the directory is only readable by its owner.
+   * @param directory The directory of the outbox.
+   * @return The outbox, to be closed.
+   * @throws IOException If the directory cannot be created or listed.
+   */
+  public static Outbox open(Path directory) throws IOException {
+    return open(directory, DEFAULT_SEGMENT_SIZE);
+  }
+
+  static Outbox open(Path directory, long segmentSize) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      Files.createDirectories(directory);
+      try {
+        Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwx------"));
+      } catch (UnsupportedOperationException e) {
+        // Système de fichiers non POSIX : les droits par défaut du répertoire s'appliquent
+      }
+    }
+    List<Long> sequences = segments(directory);
+    return new Outbox(directory, segmentSize, sequences.isEmpty() ? 0 : sequences.get(sequences.size() - 1));
+  }
+
+  /**
+   * Appends a submission to the outbox.
+   * @param entry The submission.
+   * @throws IOException If the record cannot be written or synced to disk.
+   */
+  public void append(Entry entry) throws IOException {
+    appendAll(List.of(entry));
+  }
+
+  /**
+   * Appends submissions to the outbox, synced to disk together.
+   * @param entries The submissions.
+   * @throws IOException If a record cannot be written or synced to disk.
+   */
+  public void appendAll(List<Entry> entries) throws IOException {
+    List<ByteBuffer> frames = new ArrayList<>(entries.size());
+    for (Entry entry : entries) {
+      frames.add(frame(entry));
+    }
+
+    lock.lock();
+    try {
+      for (ByteBuffer frame : frames) {
+        if (active == null || (activeSize + frame.remaining() > segmentSize && activeSize > SEGMENT_HEADER_SIZE)) {
+          rotate();
+        }
+        while (frame.hasRemaining()) {
+          activeSize += active.write(frame);
+        }
+      }
+      long ticket = written += frames.size();
+
+      // Le premier arrivé synchronise pour tous ceux qui ont écrit avant lui, les autres attendent son fsync
+      while (durable < ticket) {
+        if (syncing) {
+          synced.awaitUninterruptibly();
+          continue;
+        }
+        syncing = true;
+        long target = written;
+        FileChannel channel = active;
+        lock.unlock();
+        try {
+          channel.force(false);
+        } finally {
+          lock.lock();
+          syncing = false;
+          synced.signalAll();
+        }
+        durable = Math.max(durable, target);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Le segment courant est verrouillé tant qu'il reçoit des écritures : un drain, même d'un autre processus, s'arrête avant lui
+  private void rotate() throws IOException {
+    seal();
+    while (true) {
+      Path file = segmentFile(++activeSequence);
+      try {
+        active = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+      } catch (FileAlreadyExistsException e) {
+        // Un autre processus a ouvert ce segment entre-temps
+        continue;
+      }
+      activeLock = active.lock();
+      ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE).putInt(SEGMENT_MAGIC).putInt(SEGMENT_FORMAT_VERSION).flip();
+      while (header.hasRemaining()) {
+        active.write(header);
+      }
+      activeSize = SEGMENT_HEADER_SIZE;
+      return;
+    }
+  }
+
+  private void seal() throws IOException {
+    while (syncing) {
+      synced.awaitUninterruptibly();
+    }
+    if (active != null) {
+      try {
+        active.force(false);
+        durable = written;
+        activeLock.release();
+      } finally {
+        active.close();
+        active = null;
+      }
+    }
+  }
+
+  private static ByteBuffer frame(Entry entry) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream(512);
+    DataOutputStream out = new DataOutputStream(payload);
+    out.writeUTF(entry.runId() == null ? "" : entry.runId());
+    Mappers.rewriteConfigWriter(WireFormat.SMILE).writeValue((OutputStream) out, entry.request());
+
+    byte[] bytes = payload.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(bytes);
+    return ByteBuffer.allocate(FRAME_HEADER_SIZE + bytes.length).putInt(bytes.length).putInt((int) crc.getValue()).put(bytes).flip();
+  }
+
+  /**
+   * Sends the queued submissions, at most {@link SubmissionExecutor#maxInFlight()} at a time, until the outbox is
+   * empty or the orchestrator becomes unreachable. Records appended during the drain are left for the next one.
+   * @param executor The executor to send the records on.
+   * @param sender Sends one record.
+   * @return The outcome of the drain.
+   * @throws IOException If the outbox cannot be read, or if it is being drained by another process.
+   * @throws InterruptedException If the calling thread is interrupted while waiting for the records in flight.
+   */
+  public DrainResult drain(SubmissionExecutor executor, Sender sender) throws IOException, InterruptedException {
+    lock.lock();
+    try {
+      seal();
+    } finally {
+      lock.unlock();
+    }
+
+    try (
+      FileChannel lockChannel = FileChannel.open(directory.resolve(DRAIN_LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      FileLock drainLock = tryLock(lockChannel)
+    ) {
+      if (drainLock == null) {
+        throw new IOException("Outbox " + directory + " is already being drained");
+      }
+      return drainSegments(executor, sender);
+    }
+  }
+
+  private DrainResult drainSegments(SubmissionExecutor executor, Sender sender) throws IOException, InterruptedException {
+    Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+    OutboxCheckpoint start = OutboxCheckpoint.read(checkpointFile);
+    Acknowledgements acknowledgements = new Acknowledgements(start, checkpointFile);
+    AtomicBoolean unreachable = new AtomicBoolean();
+    AtomicLong delivered = new AtomicLong();
+    AtomicLong rejected = new AtomicLong();
+    AtomicLong failed = new AtomicLong();
+    List<Future<Void>> inFlight = new ArrayList<>();
+    long lastDrained = start.segment() - 1;
+
+    for (long sequence : segments(directory)) {
+      if (sequence < start.segment()) {
+        continue;
+      }
+      try (
+        FileChannel channel = FileChannel.open(segmentFile(sequence), StandardOpenOption.READ);
+        FileLock segmentLock = tryShared(channel)
+      ) {
+        if (segmentLock == null) {
+          // Segment en cours d'écriture par un autre processus : il sera vidé au prochain drain
+          break;
+        }
+
+        SegmentReader reader = new SegmentReader(channel, sequence == start.segment() ? start.offset() : 0);
+        for (SegmentReader.Frame frame = reader.next(); frame != null && !unreachable.get(); frame = reader.next()) {
+          Entry entry = frame.entry();
+          long index = acknowledgements.register(new OutboxCheckpoint(sequence, frame.end()));
+          inFlight.add(
+            executor.submit(() -> {
+              Delivery delivery = sender.send(entry);
+              if (delivery == Delivery.UNREACHABLE) {
+                unreachable.set(true);
+              } else {
+                AtomicLong counter = switch (delivery) {
+                  case DELIVERED -> delivered;
+                  case REJECTED -> rejected;
+                  default -> failed;
+                };
+                counter.incrementAndGet();
+                acknowledgements.acknowledge(index);
+              }
+              return null;
+            })
+          );
+          // Les envois en échec restent dans la liste, pour que leur exception soit remontée à la fin du drain
+          inFlight.removeIf(future -> future.state() == Future.State.SUCCESS);
+        }
+      }
+      if (unreachable.get()) {
+        break;
+      }
+      lastDrained = sequence;
+    }
+
+    for (Future<Void> future : inFlight) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        throw new IOException("Failed to drain outbox " + directory, e.getCause());
+      }
+    }
+
+    boolean complete = !unreachable.get() && acknowledgements.allAcknowledged();
+    // Un drain complet passe au segment suivant : tous les segments lus peuvent disparaître
+    acknowledgements.save(complete ? new OutboxCheckpoint(lastDrained + 1, 0) : null);
+    long firstKept = OutboxCheckpoint.read(checkpointFile).segment();
+    for (long sequence : segments(directory)) {
+      if (sequence < firstKept) {
+        Files.deleteIfExists(segmentFile(sequence));
+      }
+    }
+    return new DrainResult(delivered.get(), rejected.get(), failed.get(), complete);
+  }
+
+  private Path segmentFile(long sequence) {
+    return directory.resolve(SEGMENT_PREFIX + String.format("%016d", sequence) + SEGMENT_SUFFIX);
+  }
+
+  private static List<Long> segments(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+        .map(file -> file.getFileName().toString())
+        .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+        .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+        .sorted()
+        .toList();
+    }
+  }
+
+  /**
+   * Closes the current segment; the next append opens a new one.
+   * @throws IOException If the current segment cannot be synced to disk.
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      seal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static FileLock tryLock(FileChannel channel) throws IOException {
+    try {
+      return channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      return null;
+    }
+  }
+
+  private static FileLock tryShared(FileChannel channel) throws IOException {
+    try {
+      return channel.tryLock(0, Long.MAX_VALUE, true);
+    } catch (OverlappingFileLockException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package fr.rewrite.cli.outbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Position of the first record of the outbox not yet delivered: every record before it was delivered or rejected.
+ * @param segment The sequence number of the segment of the record.
+ * @param offset The offset of the record in its segment, 0 for the first record of the segment.
+ */
+record OutboxCheckpoint(long segment, long offset) {
+  static final OutboxCheckpoint START = new OutboxCheckpoint(0, 0);
+
+  private static final int MAGIC = 0x5257434b; // "RWCK"
+  private static final int SIZE = 4 + 8 + 8 + 8;
+
+  /**
+   * Reads the checkpoint of an outbox.
+   * @param file The checkpoint file.
+   * @return The checkpoint, {@link #START} if the file is missing or invalid.
+   * @throws IOException If the file cannot be read.
+   */
+  static OutboxCheckpoint read(Path file) throws IOException {
+    byte[] bytes;
+    try {
+      bytes = Files.readAllBytes(file);
+    } catch (NoSuchFileException e) {
+      return START;
+    }
+    if (bytes.length != SIZE) {
+      return START;
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, SIZE - 8);
+    if (buffer.getInt() != MAGIC || buffer.getLong(SIZE - 8) != crc.getValue()) {
+      return START;
+    }
+    return new OutboxCheckpoint(buffer.getLong(), buffer.getLong());
+  }
+
+  /**
+   * Replaces the checkpoint of an outbox, durably: after a crash, the file holds this checkpoint or the previous one.
+   * @param file The checkpoint file.
+   * @throws IOException If the file cannot be written.
+   */
+  void write(Path file) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(SIZE).putInt(MAGIC).putLong(segment).putLong(offset);
+    CRC32 crc = new CRC32();
+    crc.update(buffer.array(), 0, SIZE - 8);
+    buffer.putLong(crc.getValue()).flip();
+
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (
+      FileChannel channel = FileChannel.open(
+        temporary,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING
+      )
+    ) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
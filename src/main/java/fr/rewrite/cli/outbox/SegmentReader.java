@@ -0,0 +1,97 @@
+package fr.rewrite.cli.outbox;
+
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.serialization.Mappers;
+import fr.rewrite.cli.serialization.WireFormat;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the records of an outbox segment in order, up to its end or to a record torn by a crash.
+ */
+final class SegmentReader {
+
+  /**
+   * @param entry The record.
+   * @param end The offset just after the record in its segment.
+   */
+  record Frame(Outbox.Entry entry, long end) {}
+
+  private final DataInputStream in;
+  private long position;
+  private boolean ended;
+
+  /**
+   * @param channel The segment, positioned anywhere.
+   * @param offset The offset of the first record to read, from {@link Outbox#SEGMENT_HEADER_SIZE}.
+   * @throws IOException If the segment cannot be read.
+   */
+  SegmentReader(FileChannel channel, long offset) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(Outbox.SEGMENT_HEADER_SIZE);
+    channel.position(0);
+    while (header.hasRemaining()) {
+      if (channel.read(header) < 0) {
+        break;
+      }
+    }
+    header.flip();
+    ended = header.remaining() < Outbox.SEGMENT_HEADER_SIZE
+      || header.getInt() != Outbox.SEGMENT_MAGIC
+      || header.getInt() != Outbox.SEGMENT_FORMAT_VERSION;
+
+    position = Math.max(offset, Outbox.SEGMENT_HEADER_SIZE);
+    channel.position(position);
+    in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+  }
+
+  /**
+   * Reads the next record.
+   * @return The record, null at the end of the segment or at the first torn record.
+   * @throws IOException If the segment cannot be read.
+   */
+  Frame next() throws IOException {
+    if (ended) {
+      return null;
+    }
+
+    try {
+      int length = in.readInt();
+      int crc = in.readInt();
+      if (length <= 0 || length > Outbox.MAX_RECORD_SIZE) {
+        return end();
+      }
+      byte[] payload = new byte[length];
+      in.readFully(payload);
+      CRC32 actual = new CRC32();
+      actual.update(payload);
+      if ((int) actual.getValue() != crc) {
+        return end();
+      }
+
+      position += Outbox.FRAME_HEADER_SIZE + length;
+      return new Frame(decode(payload), position);
+    } catch (EOFException e) {
+      return end();
+    }
+  }
+
+  private Frame end() {
+    ended = true;
+    return null;
+  }
+
+  private static Outbox.Entry decode(byte[] payload) throws IOException {
+    DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+    String runId = record.readUTF();
+    RewriteConfig request = Mappers.rewriteConfigReader(WireFormat.SMILE).readValue((InputStream) record);
+    return new Outbox.Entry(runId.isEmpty() ? null : runId, request);
+  }
+}
@@ -0,0 +1,172 @@
+package fr.rewrite.cli.serialization;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import fr.rewrite.cli.application.dto.BulkRequestItem;
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.config.Config;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Jackson readers and writers shared by the whole process.
+ *
+ * <p>
+ * Mappers are expensive to create and keep their serializer caches, readers and writers are immutable and
+ * thread-safe: building them once and binding them to their type spares every call the lookups and the cache
+ * warm-up. {@link #warmUp()} pays that cost up front, for long-running processes.
+ * </p>
+ */
+public final class Mappers {
+
+  private static final Map<WireFormat, ObjectMapper> WIRE_MAPPERS = byFormat(Mappers::newMapper);
+  private static final ObjectMapper YAML = new ObjectMapper(new YAMLFactory());
+
+  private static final Map<WireFormat, ObjectWriter> REWRITE_CONFIG_WRITERS = byFormat(format ->
+    WIRE_MAPPERS.get(format).writerFor(RewriteConfig.class)
+  );
+  private static final Map<WireFormat, ObjectWriter> BULK_REQUEST_WRITERS = byFormat(format ->
+    WIRE_MAPPERS.get(format).writerFor(new TypeReference<List<BulkRequestItem>>() {})
+  );
+  private static final Map<WireFormat, ObjectReader> REWRITE_CONFIG_READERS = byFormat(format ->
+    WIRE_MAPPERS.get(format).readerFor(RewriteConfig.class)
+  );
+  private static final Map<WireFormat, ObjectReader> TREE_READERS = byFormat(format -> WIRE_MAPPERS.get(format).readerFor(JsonNode.class));
+  private static final ObjectReader CONFIG_READER = YAML.readerFor(Config.class);
+
+  private Mappers() {}
+
+  private static ObjectMapper newMapper(WireFormat format) {
+    return switch (format) {
+      case JSON -> new ObjectMapper();
+      case SMILE -> new ObjectMapper(new SmileFactory());
+      case CBOR -> new ObjectMapper(new CBORFactory());
+    };
+  }
+
+  private static <T> Map<WireFormat, T> byFormat(Function<WireFormat, T> factory) {
+    Map<WireFormat, T> values = new EnumMap<>(WireFormat.class);
+    for (WireFormat format : WireFormat.values()) {
+      values.put(format, factory.apply(format));
+    }
+    return values;
+  }
+
+  /**
+   * Writer of the requests sent to the orchestrator.
+   * @return The JSON writer bound to {@link RewriteConfig}.
+   */
+  public static ObjectWriter rewriteConfigWriter() {
+    return rewriteConfigWriter(WireFormat.JSON);
+  }
+
+  /**
+   * Writer of the requests sent to the orchestrator, in a given format.
+   * @param format The format of the request body.
+   * @return The writer bound to {@link RewriteConfig}.
+   */
+  public static ObjectWriter rewriteConfigWriter(WireFormat format) {
+    return REWRITE_CONFIG_WRITERS.get(format);
+  }
+
+  /**
+   * Reader of the requests stored in a given format, such as those of the outbox.
+   * @param format The format of the stored requests.
+   * @return The reader bound to {@link RewriteConfig}.
+   */
+  public static ObjectReader rewriteConfigReader(WireFormat format) {
+    return REWRITE_CONFIG_READERS.get(format);
+  }
+
+  /**
+   * Reader of the orchestrator responses.
+   * @return The JSON reader bound to {@link JsonNode}.
+   */
+  public static ObjectReader jsonTreeReader() {
+    return treeReader(WireFormat.JSON);
+  }
+
+  /**
+   * Writer of the bulk requests sent to the orchestrator, in a given format.
+   * @param format The format of the request body.
+   * @return The writer bound to a list of {@link BulkRequestItem}.
+   */
+  public static ObjectWriter bulkRequestWriter(WireFormat format) {
+    return BULK_REQUEST_WRITERS.get(format);
+  }
+
+  /**
+   * Reader of the orchestrator responses, in a given format.
+   * @param format The format of the response body.
+   * @return The reader bound to {@link JsonNode}.
+   */
+  public static ObjectReader treeReader(WireFormat format) {
+    return TREE_READERS.get(format);
+  }
+
+  /**
+   * Reader of the configuration files.
+   * @return The YAML reader bound to {@link Config}.
+   */
+  public static ObjectReader configReader() {
+    return CONFIG_READER;
+  }
+
+  /**
+   * YAML mapper, for the configuration files read token by token.
+   * @return The shared YAML mapper, it must not be reconfigured.
+   */
+  public static ObjectMapper yaml() {
+    return YAML;
+  }
+
+  /**
+   * Builds the serializers and deserializers of every shared reader and writer.
+   */
+  public static void warmUp() {
+    try {
+      for (WireFormat format : WireFormat.values()) {
+        rewriteConfigReader(format).readValue(rewriteConfigWriter(format).writeValueAsBytes(sampleRequest()));
+        treeReader(format).readTree(rewriteConfigWriter(format).writeValueAsBytes(sampleRequest()));
+        treeReader(format).readTree(bulkRequestWriter(format).writeValueAsBytes(List.of(new BulkRequestItem("warm-up", sampleRequest()))));
+      }
+      CONFIG_READER.readValue(
+        """
+        currentContext: warm-up
+        clusters:
+          - name: warm-up
+            cluster:
+              server: https://localhost
+              tlsSessionCacheSize: 1
+        users:
+          - name: warm-up
+            user:
+              username: warm-up
+        contexts:
+          - name: warm-up
+            context:
+              cluster: warm-up
+              user: warm-up
+        """
+      );
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static RewriteConfig sampleRequest() {
+    RewriteConfig request = new RewriteConfig();
+    request.setRepoUrl("https://localhost/warm-up.git");
+    request.setSourceExcludePatterns(List.of("**/target/**"));
+    return request;
+  }
+}
@@ -0,0 +1,39 @@
+package fr.rewrite.cli.serialization;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Formats of the bodies exchanged with the orchestrator: JSON, or one of the binary encodings of the same data model,
+ * more compact and faster to parse.
+ */
+public enum WireFormat {
+  SMILE("application/x-jackson-smile"),
+  CBOR("application/cbor"),
+  JSON("application/json");
+
+  private final String mediaType;
+
+  WireFormat(String mediaType) {
+    this.mediaType = mediaType;
+  }
+
+  public String mediaType() {
+    return mediaType;
+  }
+
+  public boolean binary() {
+    return this != JSON;
+  }
+
+  /**
+   * Format of a Content-Type header value, parameters ignored.
+   * @param contentType The header value, for instance {@code application/json; charset=utf-8}.
+   * @return The format, empty if the media type is not one of the supported formats.
+   */
+  public static Optional<WireFormat> fromContentType(String contentType) {
+    String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+    return Stream.of(values()).filter(format -> format.mediaType.equals(mediaType)).findFirst();
+  }
+}
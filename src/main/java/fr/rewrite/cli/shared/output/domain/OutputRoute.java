@@ -0,0 +1,105 @@
+package fr.rewrite.cli.shared.output.domain;
+
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+/**
+ * Streams the {@code System.out} and {@code System.err} of the current thread are written to, when they are routed
+ * per thread as the daemon does for each command it runs.
+ *
+ * <p>
+ * The route is not inherited: a thread started by a command, or a pooled thread running one of its tasks, writes to
+ * the default streams unless the task was wrapped by one of the {@code propagate} methods on the thread of the command.
+ * </p>
+ *
+ * @param out The stream {@code System.out} is written to.
+ * @param err The stream {@code System.err} is written to.
+ */
+public record OutputRoute(OutputStream out, OutputStream err) {
+  private static final ThreadLocal<OutputRoute> CURRENT = new ThreadLocal<>();
+
+  /**
+   * Restores the route the thread had before {@link #enter()}.
+   */
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  /**
+   * @return The route of the current thread, empty if its output is not routed.
+   */
+  public static Optional<OutputRoute> current() {
+    return Optional.ofNullable(CURRENT.get());
+  }
+
+  /**
+   * Routes the output of the current thread until the returned scope is closed.
+   * @return The scope, to be closed on the same thread.
+   */
+  public Scope enter() {
+    OutputRoute previous = CURRENT.get();
+    CURRENT.set(this);
+    return () -> {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  /**
+   * Wraps a task so that it writes to the route of the calling thread, whichever thread runs it.
+   * @param task The task.
+   * @return The wrapped task, or the task itself if the output of the calling thread is not routed.
+   */
+  public static Runnable propagate(Runnable task) {
+    OutputRoute route = CURRENT.get();
+    if (route == null) {
+      return task;
+    }
+    return () -> {
+      try (Scope scope = route.enter()) {
+        task.run();
+      }
+    };
+  }
+
+  /**
+   * Wraps a task so that it writes to the route of the calling thread, whichever thread runs it.
+   * @param task The task.
+   * @return The wrapped task, or the task itself if the output of the calling thread is not routed.
+   */
+  public static <T> Callable<T> propagate(Callable<T> task) {
+    OutputRoute route = CURRENT.get();
+    if (route == null) {
+      return task;
+    }
+    return () -> {
+      try (Scope scope = route.enter()) {
+        return task.call();
+      }
+    };
+  }
+
+  /**
+   * Wraps a completion callback so that it writes to the route of the calling thread, whichever thread completes the
+   * future.
+   * @param callback The callback.
+   * @return The wrapped callback, or the callback itself if the output of the calling thread is not routed.
+   */
+  public static <T, U> BiConsumer<T, U> propagate(BiConsumer<T, U> callback) {
+    OutputRoute route = CURRENT.get();
+    if (route == null) {
+      return callback;
+    }
+    return (value, error) -> {
+      try (Scope scope = route.enter()) {
+        callback.accept(value, error);
+      }
+    };
+  }
+}
@@ -0,0 +1,2 @@
+@fr.rewrite.cli.SharedKernel
+package fr.rewrite.cli.shared.output;
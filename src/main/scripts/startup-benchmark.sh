@@ -0,0 +1,50 @@
+#!/usr/bin/env bash
+# Compare le temps de démarrage de l'exécutable natif et du jar JVM.
+#
+# Usage : src/main/scripts/startup-benchmark.sh [runs]
+# Prérequis : ./mvnw -Pnative package (produit target/rewrite et le jar-with-dependencies)
+
+set -euo pipefail
+
+RUNS="${1:-20}"
+TARGET_DIR="$(cd "$(dirname "$0")/../../.." && pwd)/target"
+NATIVE="$TARGET_DIR/rewrite"
+JAR="$(ls "$TARGET_DIR"/*-jar-with-dependencies.jar)"
+CONFIG="$(mktemp)"
+trap 'rm -f "$CONFIG"' EXIT
+
+# Le serveur ne répond pas : chaque exécution charge la config, prépare le TLS et échoue à la connexion
+cat > "$CONFIG" <<YAML
+currentContext: bench
+clusters:
+  - name: bench
+    cluster:
+      server: https://127.0.0.1:9/api/rewrite
+users:
+  - name: bench
+    user:
+      username: bench
+contexts:
+  - name: bench
+    context:
+      cluster: bench
+      user: bench
+YAML
+
+measure() {
+  local label="$1"
+  shift
+  local start end
+  start=$(date +%s%N)
+  for _ in $(seq "$RUNS"); do
+    "$@" > /dev/null 2>&1 || true
+  done
+  end=$(date +%s%N)
+  printf '%-8s %8.1f ms/run\n' "$label" "$(echo "($end - $start) / 1000000 / $RUNS" | bc -l)"
+}
+
+echo "Startup time over $RUNS runs ('--version', then 'logs' against an unreachable server):"
+measure native "$NATIVE" --version
+measure jvm java -jar "$JAR" --version
+measure native "$NATIVE" -c "$CONFIG" logs bench-job
+measure jvm java -jar "$JAR" -c "$CONFIG" logs bench-job
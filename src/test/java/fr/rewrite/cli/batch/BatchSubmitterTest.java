@@ -0,0 +1,210 @@
+package fr.rewrite.cli.batch;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.client.GitRefs;
+import fr.rewrite.cli.client.OrchestratorClient;
+import fr.rewrite.cli.client.SubmissionExecutor;
+import fr.rewrite.cli.serialization.Mappers;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchSubmitterTest {
+
+  private static final String HEAD = "1234567890abcdef1234567890abcdef12345678";
+
+  private final List<String> submittedRepoUrls = new CopyOnWriteArrayList<>();
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger maxRunning = new AtomicInteger();
+  private CountDownLatch answer = new CountDownLatch(0);
+  private long latencyMillis;
+  private HttpServer server;
+  private OrchestratorClient client;
+  private String git;
+
+  @TempDir
+  private Path folder;
+
+  // Chaque dépôt est accepté avec l'identifiant de job tiré de son URL, sauf les dépôts "broken", refusés
+  @BeforeEach
+  void startServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    server.createContext("/api/rewrite", exchange -> {
+      String repoUrl = Mappers.jsonTreeReader().readTree(exchange.getRequestBody()).get("repoUrl").asText();
+      submittedRepoUrls.add(repoUrl);
+      work();
+      try {
+        answer.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      boolean broken = repoUrl.contains("broken");
+      String response = broken ? "{\"error\":\"boom\"}" : "{\"jobId\":\"job-" + repoUrl.replaceAll(".*-(\\d+)\\.git", "$1") + "\"}";
+      byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(broken ? 500 : 202, bytes.length);
+      exchange.getResponseBody().write(bytes);
+      exchange.close();
+    });
+    server.createContext("/git", exchange -> {
+      exchange.getRequestBody().readAllBytes();
+      work();
+      byte[] response = ("003d" + HEAD + " refs/heads/main\n0000").getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, response.length);
+      exchange.getResponseBody().write(response);
+      exchange.close();
+    });
+    server.start();
+
+    String base = "http://localhost:" + server.getAddress().getPort();
+    git = base + "/git/";
+    client = new OrchestratorClient(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(), base + "/api/rewrite");
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void shouldSkipOnlyTheRepositoriesTheJournalHoldsAsAcceptedAtTheSamePosition() throws Exception {
+    Path journalFile = folder.resolve("run-1.journal");
+    try (RunJournal journal = RunJournal.create(journalFile)) {
+      journal.submitted(0, "https://github.com/org/repo-1.git");
+      journal.answered(0, 202, "job-1");
+      journal.submitted(1, "https://github.com/org/repo-2.git");
+      journal.answered(1, 202, "job-2");
+      journal.submitted(2, "https://github.com/org/repo-3.git");
+      journal.answered(2, 500, null);
+    }
+
+    BatchSubmitter submitter;
+    List<SubmissionResult> results;
+    try (RunJournal journal = RunJournal.resume(journalFile); SubmissionExecutor executor = SubmissionExecutor.virtualThreads(1)) {
+      submitter = new BatchSubmitter(client, executor, null, journal, null);
+      // repo-2 a été remplacé dans la liste : le dépôt à sa place est soumis
+      results = submitAll(
+        submitter,
+        Stream.of("https://github.com/org/repo-1.git", "https://github.com/org/repo-9.git", "https://github.com/org/repo-3.git")
+      );
+    }
+
+    assertThat(submitter.resumed()).isEqualTo(1);
+    assertThat(submittedRepoUrls).containsExactly("https://github.com/org/repo-9.git", "https://github.com/org/repo-3.git");
+    assertThat(results).extracting(SubmissionResult::repoUrl).containsOnlyElementsOf(submittedRepoUrls).hasSize(2);
+    assertThat(RunJournal.progress(journalFile)).isEqualTo(new RunJournal.Progress(3, 0, 3, 0));
+  }
+
+  @Test
+  void shouldJournalEachRepositoryAsSubmittedThenAsAnswered() throws Exception {
+    answer = new CountDownLatch(1);
+    Path journalFile = folder.resolve("run-1.journal");
+
+    try (RunJournal journal = RunJournal.create(journalFile); SubmissionExecutor executor = SubmissionExecutor.virtualThreads(2)) {
+      BatchSubmitter submitter = new BatchSubmitter(client, executor, null, journal, null);
+      CompletableFuture<List<SubmissionResult>> results = CompletableFuture.supplyAsync(() -> {
+        try {
+          return submitAll(submitter, Stream.of("https://github.com/org/repo-1.git", "https://github.com/org/broken-2.git"));
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+
+      // Les deux requêtes attendent la réponse du serveur : le journal les tient pour soumises
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (submittedRepoUrls.size() < 2 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(journal.progress()).isEqualTo(new RunJournal.Progress(2, 2, 0, 0));
+
+      answer.countDown();
+      assertThat(results.get(5, TimeUnit.SECONDS)).extracting(SubmissionResult::statusCode).containsExactlyInAnyOrder(202, 500);
+      assertThat(journal.progress()).isEqualTo(new RunJournal.Progress(2, 0, 1, 1));
+      assertThat(journal.jobId(0)).contains("job-1");
+      assertThat(journal.jobId(1)).isEmpty();
+    }
+  }
+
+  @Test
+  void shouldSkipUnchangedRepositoriesWithoutJournalingThem() throws Exception {
+    SubmissionCache cache = SubmissionCache.load(folder.resolve("submissions"));
+    cache.put(
+      SubmissionCache.key(client.serverUri().toString(), git + "repo-1.git", HEAD, null, null),
+      new SubmissionCache.Outcome(202, 1L, "job-1", true)
+    );
+    GitRefs refs = new GitRefs(HttpClient.newHttpClient(), Duration.ofSeconds(5));
+    Deduplicator deduplicator = new Deduplicator(cache, refs, client, null, false);
+    Path journalFile = folder.resolve("run-1.journal");
+
+    BatchSubmitter submitter;
+    try (RunJournal journal = RunJournal.create(journalFile); SubmissionExecutor executor = SubmissionExecutor.virtualThreads(4)) {
+      submitter = new BatchSubmitter(client, executor, null, journal, deduplicator);
+      submitAll(submitter, Stream.of(git + "repo-1.git", git + "repo-2.git"));
+    }
+
+    assertThat(submitter.unchanged()).isEqualTo(1);
+    assertThat(submittedRepoUrls).containsExactly(git + "repo-2.git");
+    // repo-1, jamais soumis, reste en attente dans le journal
+    assertThat(RunJournal.progress(journalFile)).isEqualTo(new RunJournal.Progress(2, 0, 1, 0));
+    assertThat(cache.get(SubmissionCache.key(client.serverUri().toString(), git + "repo-2.git", HEAD, null, null)))
+      .hasValueSatisfying(outcome -> assertThat(outcome.jobId()).isEqualTo("job-2"));
+  }
+
+  @Test
+  void shouldResolveTheHeadsWithinTheConcurrencyOfTheSubmissions() throws Exception {
+    latencyMillis = 20;
+    SubmissionCache cache = SubmissionCache.load(folder.resolve("submissions"));
+    GitRefs refs = new GitRefs(HttpClient.newHttpClient(), Duration.ofSeconds(5));
+    List<String> repoUrls = IntStream.range(0, 8).mapToObj(i -> git + "repo-" + i + ".git").toList();
+
+    try (SubmissionExecutor executor = SubmissionExecutor.virtualThreads(2)) {
+      submitAll(new BatchSubmitter(client, executor, null, null, new Deduplicator(cache, refs, client, null, false)), repoUrls.stream());
+    }
+
+    assertThat(submittedRepoUrls).containsExactlyElementsOf(repoUrls);
+    assertThat(maxRunning.get()).isBetween(1, 2);
+  }
+
+  // Compte les requêtes servies en même temps, résolutions de têtes et soumissions confondues
+  private void work() {
+    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+    try {
+      Thread.sleep(latencyMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      running.decrementAndGet();
+    }
+  }
+
+  private static List<SubmissionResult> submitAll(BatchSubmitter submitter, Stream<String> repoUrls) throws Exception {
+    List<SubmissionResult> results = new CopyOnWriteArrayList<>();
+    submitter.submitAll(repoUrls, BatchSubmitterTest::request, null, results::add);
+    return results;
+  }
+
+  private static RewriteConfig request(String repoUrl) {
+    RewriteConfig request = new RewriteConfig();
+    request.setRepoUrl(repoUrl);
+    request.setBaseBranch("main");
+    return request;
+  }
+}
@@ -0,0 +1,55 @@
+package fr.rewrite.cli.batch;
+
+import static org.assertj.core.api.Assertions.*;
+
+import fr.rewrite.cli.client.ResponseBody;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchSummaryTest {
+
+  @Test
+  void shouldPrintTotalsAndOnlyTheFirstFailures() throws Exception {
+    BatchSummary summary = new BatchSummary();
+    for (int i = 0; i < 1000; i++) {
+      summary.accept(new SubmissionResult("https://github.com/org/repo-" + i + ".git", i % 10 == 0 ? 500 : 202, ResponseBody.of("{}")));
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    summary.print(new PrintStream(out, true, StandardCharsets.UTF_8));
+    String printed = out.toString(StandardCharsets.UTF_8);
+
+    assertThat(printed.lines().filter(line -> line.contains("[ERREUR]"))).hasSize(BatchSummary.MAX_FAILURES);
+    assertThat(printed)
+      .doesNotContain("[OK]")
+      .contains("... et 80 autre(s) échec(s)")
+      .contains("1000 dépôt(s) soumis, 900 succès, 100 échec(s).");
+    assertThat(summary.allSucceeded()).isFalse();
+  }
+
+  @Test
+  void shouldListEveryRepositoryAndDeleteItsTemporaryFile(@TempDir Path folder) throws Exception {
+    String printed;
+    try (BatchSummary summary = BatchSummary.listingEveryRepository(folder)) {
+      for (int i = 0; i < 1000; i++) {
+        summary.accept(new SubmissionResult("https://github.com/org/repo-" + i + ".git", i % 10 == 0 ? 500 : 202, ResponseBody.of("{}")));
+      }
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      summary.print(new PrintStream(out, true, StandardCharsets.UTF_8));
+      printed = out.toString(StandardCharsets.UTF_8);
+    }
+
+    assertThat(printed.lines().filter(line -> line.contains("[OK]"))).hasSize(900);
+    assertThat(printed.lines().filter(line -> line.contains("[ERREUR]"))).hasSize(100);
+    assertThat(printed)
+      .contains("  [ERREUR] https://github.com/org/repo-990.git (500) {}")
+      .doesNotContain("autre(s) échec(s)")
+      .contains("1000 dépôt(s) soumis, 900 succès, 100 échec(s).");
+    assertThat(folder.toFile().list()).isEmpty();
+  }
+}
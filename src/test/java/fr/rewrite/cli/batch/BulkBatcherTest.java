@@ -0,0 +1,278 @@
+package fr.rewrite.cli.batch;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.net.httpserver.HttpServer;
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.client.Backoff;
+import fr.rewrite.cli.client.GitRefs;
+import fr.rewrite.cli.client.JobPoller;
+import fr.rewrite.cli.client.OrchestratorClient;
+import fr.rewrite.cli.client.SubmissionExecutor;
+import fr.rewrite.cli.serialization.Mappers;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BulkBatcherTest {
+
+  private final List<Integer> bulkSizes = new CopyOnWriteArrayList<>();
+  private final List<String> singleRepoUrls = new CopyOnWriteArrayList<>();
+  private final Map<String, String> jobStatuses = new ConcurrentHashMap<>();
+  private HttpServer server;
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void shouldGroupRepositoriesAndDemultiplexTheirResults() throws Exception {
+    OrchestratorClient client = startServer(true);
+    List<String> repoUrls = IntStream.range(0, 7).mapToObj(i -> "https://github.com/org/repo-" + i + ".git").toList();
+
+    List<SubmissionResult> results;
+    try (SubmissionExecutor executor = SubmissionExecutor.virtualThreads(1)) {
+      BatchSubmitter submitter = new BatchSubmitter(client, executor, new BulkBatcher.Settings(3, Duration.ofSeconds(10)));
+      results = submitAll(submitter, repoUrls.stream(), BulkBatcherTest::request);
+    }
+
+    assertThat(bulkSizes).containsExactly(3, 3, 1);
+    assertThat(results).extracting(SubmissionResult::repoUrl).containsExactlyInAnyOrderElementsOf(repoUrls);
+    assertThat(results).extracting(SubmissionResult::statusCode).containsOnly(202);
+    assertThat(results).allSatisfy(result ->
+      assertThat(client.jobId(result.body())).contains("job-" + result.repoUrl().replaceAll("\\D", ""))
+    );
+  }
+
+  @Test
+  void shouldSendIncompleteGroupAfterLinger() throws Exception {
+    OrchestratorClient client = startServer(true);
+
+    try (
+      SubmissionExecutor executor = SubmissionExecutor.virtualThreads(1);
+      BulkBatcher batcher = new BulkBatcher(client, executor, new BulkBatcher.Settings(100, Duration.ofMillis(50)))
+    ) {
+      CompletableFuture<SubmissionResult> first = add(batcher, "https://github.com/org/repo-1.git");
+      CompletableFuture<SubmissionResult> second = add(batcher, "https://github.com/org/repo-2.git");
+
+      assertThat(first.get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(202);
+      assertThat(second.get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(202);
+      assertThat(bulkSizes).containsExactly(2);
+    }
+  }
+
+  @Test
+  void shouldSubmitOneByOneWithoutBulkEndpoint() throws Exception {
+    OrchestratorClient client = startServer(false);
+
+    List<SubmissionResult> results;
+    try (SubmissionExecutor executor = SubmissionExecutor.virtualThreads(1)) {
+      BatchSubmitter submitter = new BatchSubmitter(client, executor, new BulkBatcher.Settings(2, Duration.ofSeconds(10)));
+      results = submitAll(
+        submitter,
+        Stream.of("https://github.com/org/repo-1.git", "https://github.com/org/repo-2.git", "https://github.com/org/repo-3.git"),
+        BulkBatcherTest::request
+      );
+    }
+
+    assertThat(results).extracting(SubmissionResult::statusCode).containsOnly(202);
+    assertThat(singleRepoUrls).containsExactly(
+      "https://github.com/org/repo-1.git",
+      "https://github.com/org/repo-2.git",
+      "https://github.com/org/repo-3.git"
+    );
+  }
+
+  @Test
+  void shouldHandEachResultWithTheFinalStatusOfItsJob() throws Exception {
+    OrchestratorClient client = startServer(true);
+    List<String> repoUrls = IntStream.range(0, 5).mapToObj(i -> "https://github.com/org/repo-" + i + ".git").toList();
+    repoUrls.forEach(repoUrl -> jobStatuses.put(jobId(repoUrl), repoUrl.endsWith("-3.git") ? "FAILED" : "SUCCEEDED"));
+
+    BatchSummary summary = new BatchSummary();
+    List<SubmissionResult> results = new CopyOnWriteArrayList<>();
+    try (
+      SubmissionExecutor executor = SubmissionExecutor.virtualThreads(2);
+      JobPoller poller = new JobPoller(client, new Backoff(Duration.ofMillis(1), Duration.ofMillis(10), 2), Duration.ofSeconds(10))
+    ) {
+      BatchSubmitter submitter = new BatchSubmitter(client, executor, new BulkBatcher.Settings(2, Duration.ofMillis(10)));
+      submitter.submitAll(repoUrls.stream(), BulkBatcherTest::request, poller, summary.andThen(results::add));
+    }
+
+    assertThat(results).extracting(result -> result.job().status()).containsOnly("SUCCEEDED", "FAILED").hasSize(5);
+    assertThat(results).filteredOn(result -> !result.succeeded()).extracting(SubmissionResult::repoUrl).containsExactly(repoUrls.get(3));
+    assertThat(summary.allSucceeded()).isFalse();
+  }
+
+  @Test
+  void shouldSkipRepositoriesAcceptedBeforeOnResume(@TempDir Path folder) throws Exception {
+    OrchestratorClient client = startServer(false);
+    Path journalFile = folder.resolve("run-1.journal");
+    try (RunJournal journal = RunJournal.create(journalFile)) {
+      journal.submitted(0, "https://github.com/org/repo-1.git");
+      journal.answered(0, 202, "job-1");
+      journal.submitted(1, "https://github.com/org/repo-2.git");
+      journal.answered(1, -1, null);
+    }
+
+    List<SubmissionResult> results;
+    BatchSubmitter submitter;
+    try (RunJournal journal = RunJournal.resume(journalFile); SubmissionExecutor executor = SubmissionExecutor.virtualThreads(1)) {
+      submitter = new BatchSubmitter(client, executor, null, journal, null);
+      results = submitAll(
+        submitter,
+        Stream.of("https://github.com/org/repo-1.git", "https://github.com/org/repo-2.git", "https://github.com/org/repo-3.git"),
+        BulkBatcherTest::request
+      );
+      assertThat(journal.jobId(2)).contains("job-3");
+    }
+
+    assertThat(submitter.resumed()).isEqualTo(1);
+    assertThat(singleRepoUrls).containsExactly("https://github.com/org/repo-2.git", "https://github.com/org/repo-3.git");
+    assertThat(results).extracting(SubmissionResult::statusCode).containsOnly(202);
+    assertThat(RunJournal.progress(journalFile)).isEqualTo(new RunJournal.Progress(3, 0, 3, 0));
+  }
+
+  @Test
+  void shouldSkipRepositoriesUnchangedSinceTheirLastSubmission(@TempDir Path folder) throws Exception {
+    OrchestratorClient client = startServer(false);
+    String git = "http://localhost:" + server.getAddress().getPort() + "/git/";
+    // Chaque dépôt a la même tête de branche : seule la clé du cache les distingue
+    server.createContext("/git", exchange -> {
+      byte[] response = "003d1234567890abcdef1234567890abcdef12345678 refs/heads/main\n0000".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, response.length);
+      exchange.getResponseBody().write(response);
+      exchange.close();
+    });
+    SubmissionCache cache = SubmissionCache.load(folder.resolve("submissions"));
+    GitRefs refs = new GitRefs(HttpClient.newHttpClient(), Duration.ofSeconds(5));
+    List<String> repoUrls = List.of(git + "repo-1.git", git + "repo-2.git");
+
+    try (SubmissionExecutor executor = SubmissionExecutor.virtualThreads(4)) {
+      Deduplicator deduplicator = new Deduplicator(cache, refs, client, null, false);
+      submitAll(new BatchSubmitter(client, executor, null, null, deduplicator), repoUrls.stream().limit(1), BulkBatcherTest::mainBranch);
+      jobStatuses.put(jobId(git + "repo-1.git"), "SUCCEEDED");
+
+      BatchSubmitter submitter = new BatchSubmitter(client, executor, null, null, deduplicator);
+      List<SubmissionResult> results = submitAll(submitter, repoUrls.stream(), BulkBatcherTest::mainBranch);
+
+      assertThat(submitter.unchanged()).isEqualTo(1);
+      assertThat(results).extracting(SubmissionResult::repoUrl).containsExactly(git + "repo-2.git");
+
+      // Le job du second dépôt a échoué sans que le run l'attende : il est soumis de nouveau
+      jobStatuses.put(jobId(git + "repo-2.git"), "FAILED");
+      BatchSubmitter again = new BatchSubmitter(client, executor, null, null, deduplicator);
+      assertThat(submitAll(again, repoUrls.stream(), BulkBatcherTest::mainBranch))
+        .extracting(SubmissionResult::repoUrl)
+        .containsExactly(git + "repo-2.git");
+
+      Deduplicator forced = new Deduplicator(cache, refs, client, null, true);
+      assertThat(submitAll(new BatchSubmitter(client, executor, null, null, forced), repoUrls.stream(), BulkBatcherTest::mainBranch))
+        .hasSize(2);
+    }
+    assertThat(singleRepoUrls).containsExactly(
+      git + "repo-1.git",
+      git + "repo-2.git",
+      git + "repo-2.git",
+      git + "repo-1.git",
+      git + "repo-2.git"
+    );
+  }
+
+  // Le serveur répond à chaque élément dans l'ordre, avec l'identifiant de job tiré de l'URL du dépôt
+  private OrchestratorClient startServer(boolean bulkEndpoint) throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite", exchange -> {
+      if (exchange.getRequestURI().getPath().endsWith("/status")) {
+        String jobId = exchange.getRequestURI().getPath().replaceAll(".*/(job-\\d+)/status", "$1");
+        byte[] bytes = ("{\"status\":\"" + jobStatuses.getOrDefault(jobId, "RUNNING") + "\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+        return;
+      }
+      JsonNode body = Mappers.jsonTreeReader().readTree(exchange.getRequestBody());
+      String response;
+      int status;
+      if (exchange.getRequestURI().getPath().endsWith("/bulk")) {
+        if (!bulkEndpoint) {
+          exchange.sendResponseHeaders(404, -1);
+          exchange.close();
+          return;
+        }
+        bulkSizes.add(body.size());
+        StringBuilder items = new StringBuilder("[");
+        for (JsonNode item : body) {
+          items.append(items.length() > 1 ? "," : "").append(item(item));
+        }
+        response = items.append("]").toString();
+        status = 200;
+      } else {
+        singleRepoUrls.add(body.get("repoUrl").asText());
+        response = item(body);
+        status = 202;
+      }
+
+      byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(status, bytes.length);
+      exchange.getResponseBody().write(bytes);
+      exchange.close();
+    });
+    server.start();
+
+    return new OrchestratorClient(
+      HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(),
+      "http://localhost:" + server.getAddress().getPort() + "/api/rewrite"
+    );
+  }
+
+  private static String item(JsonNode request) {
+    return "{\"status\":202,\"jobId\":\"" + jobId(request.get("repoUrl").asText()) + "\"}";
+  }
+
+  private static String jobId(String repoUrl) {
+    return "job-" + repoUrl.replaceAll("\\D", "");
+  }
+
+  private static List<SubmissionResult> submitAll(
+    BatchSubmitter submitter,
+    Stream<String> repoUrls,
+    Function<String, RewriteConfig> requests
+  ) throws Exception {
+    List<SubmissionResult> results = new CopyOnWriteArrayList<>();
+    submitter.submitAll(repoUrls, requests, null, results::add);
+    return results;
+  }
+
+  private static CompletableFuture<SubmissionResult> add(BulkBatcher batcher, String repoUrl) throws InterruptedException {
+    return batcher.add(repoUrl, request(repoUrl));
+  }
+
+  private static RewriteConfig mainBranch(String repoUrl) {
+    RewriteConfig request = request(repoUrl);
+    request.setBaseBranch("main");
+    return request;
+  }
+
+  private static RewriteConfig request(String repoUrl) {
+    RewriteConfig request = new RewriteConfig();
+    request.setRepoUrl(repoUrl);
+    return request;
+  }
+}
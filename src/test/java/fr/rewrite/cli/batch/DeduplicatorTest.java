@@ -0,0 +1,196 @@
+package fr.rewrite.cli.batch;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.client.GitRefs;
+import fr.rewrite.cli.client.OrchestratorClient;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DeduplicatorTest {
+
+  private static final String HEAD = "1234567890abcdef1234567890abcdef12345678";
+
+  private final Map<String, String> jobStatuses = new ConcurrentHashMap<>();
+  private final List<String> statusRequests = new CopyOnWriteArrayList<>();
+  private HttpServer server;
+  private OrchestratorClient client;
+  private GitRefs refs;
+  private SubmissionCache cache;
+  private String git;
+
+  @TempDir
+  private Path folder;
+
+  @BeforeEach
+  void startServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    // Seul repo.git a une branche main, les autres dépôts n'existent pas
+    server.createContext("/git", exchange -> {
+      exchange.getRequestBody().readAllBytes();
+      if (!exchange.getRequestURI().getPath().equals("/git/repo.git/git-upload-pack")) {
+        exchange.sendResponseHeaders(404, -1);
+        exchange.close();
+        return;
+      }
+      byte[] response = ("003d" + HEAD + " refs/heads/main\n0000").getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, response.length);
+      exchange.getResponseBody().write(response);
+      exchange.close();
+    });
+    // Un job inconnu de l'orchestrateur répond 404
+    server.createContext("/api/rewrite", exchange -> {
+      String jobId = exchange.getRequestURI().getPath().replaceAll(".*/([^/]+)/status", "$1");
+      statusRequests.add(jobId);
+      String status = jobStatuses.get(jobId);
+      if (status == null) {
+        exchange.sendResponseHeaders(404, -1);
+        exchange.close();
+        return;
+      }
+      byte[] bytes = ("{\"status\":\"" + status + "\"}").getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, bytes.length);
+      exchange.getResponseBody().write(bytes);
+      exchange.close();
+    });
+    server.start();
+
+    String base = "http://localhost:" + server.getAddress().getPort();
+    git = base + "/git/";
+    client = new OrchestratorClient(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(), base + "/api/rewrite");
+    refs = new GitRefs(HttpClient.newHttpClient(), Duration.ofSeconds(5));
+    cache = SubmissionCache.load(folder.resolve("submissions"));
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void shouldSubmitARepositoryWhoseHeadCannotBeResolved() throws Exception {
+    Deduplicator deduplicator = new Deduplicator(cache, refs, client, null, false);
+
+    Deduplicator.Lookup lookup = deduplicator.lookup(request(git + "missing.git"));
+    deduplicator.accepted(git + "missing.git", lookup, 202, "job-1");
+
+    assertThat(lookup).isEqualTo(Deduplicator.Lookup.NONE);
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void shouldSkipARepositoryWhosePreviousJobSucceeded() throws Exception {
+    cache.put(key(), new SubmissionCache.Outcome(202, 1L, "job-1", true));
+
+    Deduplicator.Lookup lookup = new Deduplicator(cache, refs, client, null, false).lookup(request(git + "repo.git"));
+
+    assertThat(lookup.unchanged()).isTrue();
+    assertThat(statusRequests).isEmpty();
+  }
+
+  @Test
+  void shouldSkipARepositoryWhosePreviousJobIsStillRunning() throws Exception {
+    cache.put(key(), new SubmissionCache.Outcome(202, 1L, "job-1", false));
+    jobStatuses.put("job-1", "RUNNING");
+
+    Deduplicator.Lookup lookup = new Deduplicator(cache, refs, client, null, false).lookup(request(git + "repo.git"));
+
+    assertThat(lookup.unchanged()).isTrue();
+    assertThat(statusRequests).containsExactly("job-1");
+    assertThat(cache.get(key())).contains(new SubmissionCache.Outcome(202, 1L, "job-1", false));
+  }
+
+  @Test
+  void shouldRecordThatAPreviousJobSucceededOnceAsked() throws Exception {
+    cache.put(key(), new SubmissionCache.Outcome(202, 1L, "job-1", false));
+    jobStatuses.put("job-1", "SUCCEEDED");
+    Deduplicator deduplicator = new Deduplicator(cache, refs, client, null, false);
+
+    assertThat(deduplicator.lookup(request(git + "repo.git")).unchanged()).isTrue();
+    assertThat(deduplicator.lookup(request(git + "repo.git")).unchanged()).isTrue();
+
+    assertThat(statusRequests).containsExactly("job-1");
+    assertThat(cache.get(key())).contains(new SubmissionCache.Outcome(202, 1L, "job-1", true));
+  }
+
+  @Test
+  void shouldSubmitAgainARepositoryWhosePreviousJobFailed() throws Exception {
+    cache.put(key(), new SubmissionCache.Outcome(202, 1L, "job-1", false));
+    jobStatuses.put("job-1", "FAILED");
+
+    Deduplicator.Lookup lookup = new Deduplicator(cache, refs, client, null, false).lookup(request(git + "repo.git"));
+
+    assertThat(lookup.unchanged()).isFalse();
+    assertThat(lookup.key()).isEqualTo(key());
+    assertThat(cache.get(key())).isEmpty();
+  }
+
+  @Test
+  void shouldSubmitAgainARepositoryWhosePreviousJobIsUnknown() throws Exception {
+    cache.put(key(), new SubmissionCache.Outcome(202, 1L, "job-1", false));
+
+    Deduplicator.Lookup lookup = new Deduplicator(cache, refs, client, null, false).lookup(request(git + "repo.git"));
+
+    assertThat(lookup.unchanged()).isFalse();
+    assertThat(statusRequests).containsExactly("job-1");
+    assertThat(cache.get(key())).isEmpty();
+  }
+
+  @Test
+  void shouldRecordTheOutcomeOfTheJobOfAnAcceptedSubmission() throws Exception {
+    Deduplicator deduplicator = new Deduplicator(cache, refs, client, null, false);
+
+    Deduplicator.Lookup lookup = deduplicator.lookup(request(git + "repo.git"));
+    deduplicator.accepted(git + "repo.git", lookup, 202, "job-1");
+    assertThat(cache.get(key())).hasValueSatisfying(outcome -> assertThat(outcome.jobSucceeded()).isFalse());
+    deduplicator.jobFinished(git + "repo.git", true);
+    assertThat(cache.get(key())).hasValueSatisfying(outcome -> assertThat(outcome.jobSucceeded()).isTrue());
+
+    deduplicator.accepted(git + "repo.git", lookup, 202, "job-2");
+    deduplicator.jobFinished(git + "repo.git", false);
+    assertThat(cache.get(key())).isEmpty();
+  }
+
+  @Test
+  void shouldNotCacheAnAcceptedSubmissionWithoutJobId() throws Exception {
+    Deduplicator deduplicator = new Deduplicator(cache, refs, client, null, false);
+
+    deduplicator.accepted(git + "repo.git", deduplicator.lookup(request(git + "repo.git")), 202, null);
+
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void shouldIgnoreThePreviousSubmissionWhenForced() throws Exception {
+    cache.put(key(), new SubmissionCache.Outcome(202, 1L, "job-1", true));
+
+    Deduplicator.Lookup lookup = new Deduplicator(cache, refs, client, null, true).lookup(request(git + "repo.git"));
+
+    assertThat(lookup.unchanged()).isFalse();
+    assertThat(lookup.key()).isEqualTo(key());
+  }
+
+  private SubmissionCache.Key key() {
+    return SubmissionCache.key(client.serverUri().toString(), git + "repo.git", HEAD, null, null);
+  }
+
+  private static RewriteConfig request(String repoUrl) {
+    RewriteConfig request = new RewriteConfig();
+    request.setRepoUrl(repoUrl);
+    request.setBaseBranch("main");
+    return request;
+  }
+}
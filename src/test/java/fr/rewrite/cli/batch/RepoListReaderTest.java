@@ -0,0 +1,20 @@
+package fr.rewrite.cli.batch;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class RepoListReaderTest {
+
+  @Test
+  void shouldReadRepositoryUrlsIgnoringBlankLinesAndComments() {
+    String content = "https://git/a.git\n\n# commentaire\n  https://git/b.git  \n";
+
+    try (Stream<String> urls = RepoListReader.read(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)))) {
+      assertThat(urls).containsExactly("https://git/a.git", "https://git/b.git");
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package fr.rewrite.cli.batch;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RunJournalTest {
+
+  @TempDir
+  private Path folder;
+
+  @Test
+  void shouldReadBackStatesAcrossChunks() throws Exception {
+    Path file = folder.resolve("run.journal");
+
+    try (RunJournal journal = RunJournal.open(file, true, 4)) {
+      for (int i = 0; i < 10; i++) {
+        journal.submitted(i, repoUrl(i));
+        if (i % 3 != 2) {
+          journal.answered(i, i % 3 == 0 ? 202 : 500, i % 3 == 0 ? "job-" + i : null);
+        }
+      }
+
+      assertThat(journal.size()).isEqualTo(10);
+      assertThat(journal.progress()).isEqualTo(new RunJournal.Progress(10, 3, 4, 3));
+    }
+
+    try (RunJournal journal = RunJournal.resume(file)) {
+      assertThat(journal.accepted(0, repoUrl(0))).isTrue();
+      assertThat(journal.accepted(1, repoUrl(1))).isFalse();
+      assertThat(journal.accepted(2, repoUrl(2))).isFalse();
+      assertThat(journal.accepted(9, repoUrl(9))).isTrue();
+      assertThat(journal.accepted(10, repoUrl(10))).isFalse();
+      assertThat(journal.jobId(6)).contains("job-6");
+      assertThat(journal.jobId(7)).isEmpty();
+    }
+  }
+
+  @Test
+  void shouldNotSkipRepositoryMovedInTheList() throws Exception {
+    Path file = folder.resolve("run.journal");
+    try (RunJournal journal = RunJournal.create(file)) {
+      journal.submitted(0, repoUrl(0));
+      journal.answered(0, 202, null);
+    }
+
+    try (RunJournal journal = RunJournal.resume(file)) {
+      assertThat(journal.accepted(0, repoUrl(1))).isFalse();
+    }
+  }
+
+  @Test
+  void shouldReadProgressWhileTheRunWritesTheJournal() throws Exception {
+    Path file = folder.resolve("run.journal");
+
+    try (RunJournal journal = RunJournal.create(file)) {
+      for (int i = 0; i < 100_000; i++) {
+        journal.submitted(i, repoUrl(i));
+      }
+      for (int i = 0; i < 70_000; i++) {
+        journal.answered(i, 202, null);
+      }
+
+      assertThat(RunJournal.progress(file)).isEqualTo(new RunJournal.Progress(100_000, 30_000, 70_000, 0));
+    }
+  }
+
+  @Test
+  void shouldRefuseSecondWriter() throws Exception {
+    Path file = folder.resolve("run.journal");
+
+    try (RunJournal journal = RunJournal.create(file)) {
+      assertThatIOException().isThrownBy(() -> RunJournal.resume(file)).withMessageContaining("another run");
+    }
+  }
+
+  @Test
+  void shouldPruneOnlyOldCompletedJournals() throws Exception {
+    Path completed = journal("completed", 202);
+    Path failed = journal("failed", 500);
+    Path recent = journal("recent", 202);
+    FileTime old = FileTime.from(Instant.now().minus(Duration.ofDays(8)));
+    for (Path file : List.of(completed, failed)) {
+      Files.setLastModifiedTime(file, old);
+    }
+
+    try (RunJournal running = RunJournal.create(folder.resolve("running.journal"))) {
+      running.submitted(0, repoUrl(0));
+      Files.setLastModifiedTime(folder.resolve("running.journal"), old);
+
+      assertThat(RunJournal.prune(folder)).isEqualTo(1);
+    }
+
+    assertThat(completed).doesNotExist();
+    assertThat(folder.resolve("completed.jobs")).doesNotExist();
+    assertThat(failed).exists();
+    assertThat(recent).exists();
+    assertThat(folder.resolve("running.journal")).exists();
+  }
+
+  @Test
+  void shouldKeepTheLockOfARunningJournalWhenThisProcessReadsOrPrunesIt() throws Exception {
+    Path file = folder.resolve("running.journal");
+    // Autre processus : code retour 0 si le verrou du journal est tenu par quelqu'un d'autre
+    Path probe = folder.resolve("Probe.java");
+    Files.writeString(
+      probe,
+      """
+      import java.nio.channels.FileChannel;
+      import java.nio.file.Path;
+      import java.nio.file.StandardOpenOption;
+
+      public class Probe {
+        public static void main(String[] args) throws Exception {
+          try (FileChannel channel = FileChannel.open(Path.of(args[0]), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            System.exit(channel.tryLock() == null ? 0 : 1);
+          }
+        }
+      }
+      """
+    );
+
+    try (RunJournal journal = RunJournal.create(file)) {
+      journal.submitted(0, repoUrl(0));
+      journal.answered(0, 202, null);
+
+      // Sans durée de rétention plutôt qu'en vieillissant le fichier : changer sa date l'ouvre, et libère aussi le verrou
+      assertThat(RunJournal.progress(file)).isEqualTo(new RunJournal.Progress(1, 0, 1, 0));
+      assertThat(RunJournal.prune(folder, Duration.ZERO)).isZero();
+      assertThatIOException().isThrownBy(() -> RunJournal.resume(file)).withMessageContaining("another run");
+
+      String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+      Process process = new ProcessBuilder(java, probe.toString(), file.toString()).redirectErrorStream(true).start();
+      String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+      assertThat(process.waitFor()).as(output).isZero();
+    }
+    assertThat(file).exists();
+  }
+
+  @Test
+  void shouldRefuseToResumeUnknownRun() {
+    assertThatThrownBy(() -> RunJournal.resume(folder.resolve("unknown.journal"))).isInstanceOf(NoSuchFileException.class);
+  }
+
+  @Test
+  void shouldRejectRunIdOutsideTheJournalDirectory() {
+    assertThat(RunJournal.file(folder, "2f9c-run_1.2")).isEqualTo(folder.resolve("2f9c-run_1.2.journal"));
+    assertThatIllegalArgumentException().isThrownBy(() -> RunJournal.file(folder, "../run"));
+  }
+
+  private Path journal(String runId, int statusCode) throws Exception {
+    Path file = RunJournal.file(folder, runId);
+    try (RunJournal journal = RunJournal.create(file)) {
+      journal.submitted(0, repoUrl(0));
+      journal.answered(0, statusCode, null);
+    }
+    return file;
+  }
+
+  private static String repoUrl(int index) {
+    return "https://github.com/org/repo-" + index + ".git";
+  }
+}
@@ -0,0 +1,126 @@
+package fr.rewrite.cli.batch;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SubmissionCacheTest {
+
+  @TempDir
+  private Path folder;
+
+  @Test
+  void shouldReadBackSavedOutcomes() throws Exception {
+    Path file = folder.resolve("submissions");
+    SubmissionCache cache = SubmissionCache.load(file);
+    cache.put(key(1), new SubmissionCache.Outcome(202, 1000, "job-1000", false));
+    cache.put(key(2), new SubmissionCache.Outcome(200, 2000, "job-2000", false).withJobSucceeded());
+    cache.save();
+
+    SubmissionCache loaded = SubmissionCache.load(file);
+
+    assertThat(loaded.size()).isEqualTo(2);
+    assertThat(loaded.get(key(1))).contains(new SubmissionCache.Outcome(202, 1000, "job-1000", false));
+    assertThat(loaded.get(key(2))).contains(new SubmissionCache.Outcome(200, 2000, "job-2000", true));
+    assertThat(loaded.get(key(3))).isEmpty();
+    assertThat(Files.size(file)).isEqualTo(12 + 2 * (31 + "job-1000".length()) + 8);
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedEntries() throws Exception {
+    SubmissionCache cache = SubmissionCache.load(folder.resolve("submissions"), 2);
+    cache.put(key(1), new SubmissionCache.Outcome(202, 1, "job-1", false));
+    cache.put(key(2), new SubmissionCache.Outcome(202, 2, "job-2", false));
+    cache.get(key(1));
+    cache.put(key(3), new SubmissionCache.Outcome(202, 3, "job-3", false));
+
+    assertThat(cache.get(key(1))).isPresent();
+    assertThat(cache.get(key(2))).isEmpty();
+    assertThat(cache.get(key(3))).isPresent();
+  }
+
+  @Test
+  void shouldMergeEntriesSavedByAnotherProcess() throws Exception {
+    Path file = folder.resolve("submissions");
+    SubmissionCache first = SubmissionCache.load(file);
+    SubmissionCache second = SubmissionCache.load(file);
+    first.put(key(1), new SubmissionCache.Outcome(202, 1, "job-1", false));
+    first.put(key(2), new SubmissionCache.Outcome(202, 2, "job-2", false));
+    first.save();
+
+    second.put(key(3), new SubmissionCache.Outcome(202, 3, "job-3", false));
+    second.remove(key(2));
+    second.save();
+
+    SubmissionCache loaded = SubmissionCache.load(file);
+    assertThat(loaded.get(key(1))).isPresent();
+    assertThat(loaded.get(key(2))).isEmpty();
+    assertThat(loaded.get(key(3))).isPresent();
+  }
+
+  @Test
+  void shouldKeepEntriesOfConcurrentSaves() throws Exception {
+    Path file = folder.resolve("submissions");
+    List<SubmissionCache> caches = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      SubmissionCache cache = SubmissionCache.load(file);
+      cache.put(key(i), new SubmissionCache.Outcome(202, i, "job-" + i, false));
+      caches.add(cache);
+    }
+
+    try (ExecutorService savers = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<?>> saves = new ArrayList<>();
+      for (SubmissionCache cache : caches) {
+        saves.add(savers.submit(() -> {
+          cache.save();
+          return null;
+        }));
+      }
+      for (Future<?> save : saves) {
+        save.get();
+      }
+    }
+
+    assertThat(SubmissionCache.load(file).size()).isEqualTo(16);
+    try (Stream<Path> files = Files.list(folder)) {
+      assertThat(files.map(path -> path.getFileName().toString())).containsExactlyInAnyOrder("submissions", "submissions.lock");
+    }
+  }
+
+  @Test
+  void shouldIgnoreCorruptedFile() throws Exception {
+    Path file = folder.resolve("submissions");
+    SubmissionCache cache = SubmissionCache.load(file);
+    cache.put(key(1), new SubmissionCache.Outcome(202, 1, "job-1", false));
+    cache.save();
+
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[20] ^= 1;
+    Files.write(file, bytes);
+
+    assertThat(SubmissionCache.load(file).size()).isZero();
+  }
+
+  @Test
+  void shouldKeyOnEveryField() {
+    SubmissionCache.Key key = SubmissionCache.key("https://orchestrator", "https://github.com/org/repo.git", "abc", "recipe", "1.0");
+
+    assertThat(SubmissionCache.key("https://orchestrator", "https://github.com/org/repo.git", "abc", "recipe", "1.0")).isEqualTo(key);
+    assertThat(SubmissionCache.key("https://orchestrator", "https://github.com/org/repo.git", "abd", "recipe", "1.0")).isNotEqualTo(key);
+    assertThat(SubmissionCache.key("https://orchestrator", "https://github.com/org/repo.git", "abc", "recipe", "1.1")).isNotEqualTo(key);
+    assertThat(SubmissionCache.key("https://orchestrator", "https://github.com/org/repo.git", "abc", "recipe", null)).isNotEqualTo(key);
+  }
+
+  private static SubmissionCache.Key key(int index) {
+    return SubmissionCache.key("https://orchestrator", "https://github.com/org/repo-" + index + ".git", "abc", "recipe", null);
+  }
+}
@@ -0,0 +1,76 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimitTest {
+
+  @Test
+  void shouldGrowWhileLimitIsUsed() throws Exception {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit();
+    List<Long> starts = acquire(limit, AdaptiveConcurrencyLimit.INITIAL_LIMIT);
+    // Des latences de l'ordre de la milliseconde, comme pour un vrai serveur, plutôt que le bruit de l'horloge
+    Thread.sleep(50);
+
+    starts.forEach(start -> limit.release(start, AdaptiveConcurrencyLimit.Outcome.SUCCESS));
+
+    assertThat(limit.limit()).isGreaterThan(AdaptiveConcurrencyLimit.INITIAL_LIMIT);
+  }
+
+  @Test
+  void shouldNotGrowWhenIdle() throws Exception {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit();
+
+    for (int i = 0; i < 20; i++) {
+      long start = limit.acquire();
+      Thread.sleep(5);
+      limit.release(start, AdaptiveConcurrencyLimit.Outcome.SUCCESS);
+    }
+
+    assertThat(limit.limit()).isEqualTo(AdaptiveConcurrencyLimit.INITIAL_LIMIT);
+  }
+
+  @Test
+  void shouldCutOnceForRequestsDroppedTogether() throws Exception {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit();
+    List<Long> starts = acquire(limit, 10);
+
+    starts.forEach(start -> limit.release(start, AdaptiveConcurrencyLimit.Outcome.DROPPED));
+    assertThat(limit.limit()).isEqualTo(AdaptiveConcurrencyLimit.INITIAL_LIMIT / 2);
+
+    limit.release(limit.acquire(), AdaptiveConcurrencyLimit.Outcome.DROPPED);
+    assertThat(limit.limit()).isEqualTo(AdaptiveConcurrencyLimit.INITIAL_LIMIT / 4);
+  }
+
+  @Test
+  void shouldCutWhenLatencyRises() throws Exception {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit();
+    limit.release(limit.acquire(), AdaptiveConcurrencyLimit.Outcome.SUCCESS);
+
+    long start = limit.acquire();
+    Thread.sleep(20);
+    limit.release(start, AdaptiveConcurrencyLimit.Outcome.SUCCESS);
+
+    assertThat(limit.limit()).isLessThan(AdaptiveConcurrencyLimit.INITIAL_LIMIT);
+  }
+
+  @Test
+  void shouldNotChangeOnIgnoredOutcome() throws Exception {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit();
+
+    limit.release(limit.acquire(), AdaptiveConcurrencyLimit.Outcome.IGNORED);
+
+    assertThat(limit.limit()).isEqualTo(AdaptiveConcurrencyLimit.INITIAL_LIMIT);
+  }
+
+  private static List<Long> acquire(AdaptiveConcurrencyLimit limit, int count) throws InterruptedException {
+    List<Long> starts = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      starts.add(limit.acquire());
+    }
+    return starts;
+  }
+}
@@ -0,0 +1,30 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class BackoffTest {
+
+  private final Backoff backoff = new Backoff(Duration.ofMillis(100), Duration.ofSeconds(1), 2);
+
+  @Test
+  void shouldGrowExponentiallyUpToMax() {
+    assertThat(backoff.ceiling(0)).isEqualTo(Duration.ofMillis(100));
+    assertThat(backoff.ceiling(2)).isEqualTo(Duration.ofMillis(400));
+    assertThat(backoff.ceiling(10)).isEqualTo(Duration.ofSeconds(1));
+  }
+
+  @Test
+  void shouldJitterBetweenHalfAndCeiling() {
+    for (int i = 0; i < 100; i++) {
+      assertThat(backoff.delay(3)).isBetween(Duration.ofMillis(400), Duration.ofMillis(800));
+    }
+  }
+
+  @Test
+  void shouldNotAcceptMaxLowerThanInitial() {
+    assertThatThrownBy(() -> new Backoff(Duration.ofSeconds(2), Duration.ofSeconds(1), 2)).isExactlyInstanceOf(IllegalArgumentException.class);
+  }
+}
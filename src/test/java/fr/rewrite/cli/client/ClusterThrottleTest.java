@@ -0,0 +1,113 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ClusterThrottleTest {
+
+  private final AtomicInteger requests = new AtomicInteger();
+  private HttpServer server;
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void shouldResendAfterRetryAfter() throws Exception {
+    startServer(2, "1");
+    ClusterThrottle throttle = ClusterThrottle.of(new ClusterThrottle.Settings(null, null, true));
+    RetryPolicy retryPolicy = fastRetries();
+
+    long start = System.nanoTime();
+    int status = client(throttle, retryPolicy, "run-1").submit(new RewriteConfig()).statusCode();
+
+    assertThat(status).isEqualTo(202);
+    assertThat(requests).hasValue(3);
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofSeconds(2));
+    assertThat(throttle.throttledResponses()).isEqualTo(2);
+    assertThat(throttle.concurrencyLimit()).isLessThan(AdaptiveConcurrencyLimit.INITIAL_LIMIT);
+  }
+
+  @Test
+  void shouldPauseNextRequestForRetryAfter() throws Exception {
+    startServer(1, "1");
+    ClusterThrottle throttle = ClusterThrottle.of(new ClusterThrottle.Settings(null, null, false));
+    // Sans run id, la soumission n'est pas renvoyée, mais la suivante attend la fin de la pause
+    OrchestratorClient client = client(throttle, RetryPolicy.none(), null);
+
+    assertThat(client.submit(new RewriteConfig()).statusCode()).isEqualTo(429);
+    long start = System.nanoTime();
+    assertThat(client.submit(new RewriteConfig()).statusCode()).isEqualTo(202);
+
+    assertThat(requests).hasValue(2);
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(900));
+    assertThat(throttle.concurrencyLimit()).isEqualTo(-1);
+  }
+
+  @Test
+  void shouldPaceRequestsAtRateLimit() throws Exception {
+    startServer(0, null);
+    ClusterThrottle throttle = ClusterThrottle.of(new ClusterThrottle.Settings(20.0, 1, true));
+    OrchestratorClient client = client(throttle);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < 5; i++) {
+      client.submit(new RewriteConfig());
+    }
+
+    // Un jeton disponible d'emblée, puis un toutes les 50 ms
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(190));
+  }
+
+  @Test
+  void shouldNotResendWhenUnthrottled() throws Exception {
+    startServer(1, "0");
+
+    assertThat(client(ClusterThrottle.unthrottled()).submit(new RewriteConfig()).statusCode()).isEqualTo(429);
+    assertThat(requests).hasValue(1);
+  }
+
+  // Les premières requêtes sont refusées en 429, avec l'en-tête Retry-After donné
+  private void startServer(int throttledRequests, String retryAfter) throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite", exchange -> {
+      exchange.getRequestBody().readAllBytes();
+      if (requests.incrementAndGet() <= throttledRequests) {
+        if (retryAfter != null) {
+          exchange.getResponseHeaders().add("Retry-After", retryAfter);
+        }
+        exchange.sendResponseHeaders(429, -1);
+      } else {
+        exchange.sendResponseHeaders(202, -1);
+      }
+      exchange.close();
+    });
+    server.start();
+  }
+
+  private OrchestratorClient client(ClusterThrottle throttle) {
+    return client(throttle, RetryPolicy.none(), null);
+  }
+
+  private OrchestratorClient client(ClusterThrottle throttle, RetryPolicy retryPolicy, String runId) {
+    return new OrchestratorClient(
+      HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(),
+      new TlsHandshakeStats(),
+      "http://localhost:" + server.getAddress().getPort() + "/api/rewrite",
+      new OrchestratorClient.Settings(null, throttle, retryPolicy, runId, null)
+    );
+  }
+
+  private static RetryPolicy fastRetries() {
+    return RetryPolicy.of(new RetryPolicy.Settings(5, Duration.ofMillis(1), Duration.ofMillis(1), RetryPolicy.DEFAULT_RETRY_ON));
+  }
+}
@@ -0,0 +1,31 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.UnresolvedAddressException;
+import javax.net.ssl.SSLHandshakeException;
+import org.junit.jupiter.api.Test;
+
+class ConnectionFailuresTest {
+
+  @Test
+  void shouldTellConnectionFailures() {
+    assertThat(ConnectionFailures.isUnreachable(new ConnectException("Connection refused"))).isTrue();
+    assertThat(ConnectionFailures.isUnreachable(new HttpConnectTimeoutException("HTTP connect timed out"))).isTrue();
+    // Le client HTTP enveloppe l'adresse non résolue dans une ConnectException sans message
+    assertThat(ConnectionFailures.isUnreachable(new IOException(new UnresolvedAddressException()))).isTrue();
+  }
+
+  @Test
+  void shouldNotTellOtherFailures() {
+    assertThat(ConnectionFailures.isUnreachable(new SSLHandshakeException("PKIX path building failed"))).isFalse();
+    assertThat(ConnectionFailures.isUnreachable(new JsonProcessingException("Unexpected token") {})).isFalse();
+    assertThat(ConnectionFailures.isUnreachable(new HttpTimeoutException("request timed out"))).isFalse();
+    assertThat(ConnectionFailures.isUnreachable(new IOException("Connection reset"))).isFalse();
+  }
+}
@@ -0,0 +1,122 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+import org.junit.jupiter.api.Test;
+
+class DecompressingBodySubscriberTest {
+
+  private static final String TEXT = IntStream.range(0, 5000).mapToObj(i -> "line " + i).collect(Collectors.joining("\n"));
+
+  @Test
+  void shouldInflateGzipBodyReceivedByteByByte() throws Exception {
+    byte[] gzip = gzip(TEXT);
+    List<ByteBuffer> chunks = IntStream.range(0, gzip.length).mapToObj(i -> ByteBuffer.wrap(gzip, i, 1)).toList();
+
+    assertThat(inflate(ContentEncoding.GZIP, chunks).get(5, TimeUnit.SECONDS)).isEqualTo(TEXT);
+  }
+
+  @Test
+  void shouldSkipOptionalGzipHeaderFields() throws Exception {
+    byte[] gzip = gzip(TEXT);
+    // FEXTRA (2 octets), FNAME et FCOMMENT insérés après les 10 octets fixes
+    ByteArrayOutputStream withFields = new ByteArrayOutputStream();
+    withFields.write(gzip, 0, 3);
+    withFields.write(gzip[3] | 4 | 8 | 16);
+    withFields.write(gzip, 4, 6);
+    withFields.writeBytes(new byte[] { 2, 0, 'a', 'b' });
+    withFields.writeBytes("report.json\0".getBytes(StandardCharsets.ISO_8859_1));
+    withFields.writeBytes("comment\0".getBytes(StandardCharsets.ISO_8859_1));
+    withFields.write(gzip, 10, gzip.length - 10);
+
+    assertThat(inflate(ContentEncoding.GZIP, split(withFields.toByteArray(), 7)).get(5, TimeUnit.SECONDS)).isEqualTo(TEXT);
+  }
+
+  @Test
+  void shouldInflateDeflateBody() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+      out.write(TEXT.getBytes(StandardCharsets.UTF_8));
+    }
+
+    assertThat(inflate(ContentEncoding.DEFLATE, split(bytes.toByteArray(), 100)).get(5, TimeUnit.SECONDS)).isEqualTo(TEXT);
+  }
+
+  @Test
+  void shouldAcceptEmptyBody() throws Exception {
+    assertThat(inflate(ContentEncoding.GZIP, List.of()).get(5, TimeUnit.SECONDS)).isEmpty();
+  }
+
+  @Test
+  void shouldFailOnTruncatedBody() throws Exception {
+    byte[] gzip = gzip(TEXT);
+    CompletableFuture<String> body = inflate(ContentEncoding.GZIP, List.of(ByteBuffer.wrap(gzip, 0, gzip.length - 4)));
+
+    assertThatThrownBy(() -> body.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(EOFException.class);
+  }
+
+  @Test
+  void shouldFailOnCorruptedTrailer() throws Exception {
+    byte[] gzip = gzip(TEXT);
+    gzip[gzip.length - 8] ^= 1;
+    CompletableFuture<String> body = inflate(ContentEncoding.GZIP, List.of(ByteBuffer.wrap(gzip)));
+
+    assertThatThrownBy(() -> body.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(ZipException.class);
+  }
+
+  @Test
+  void shouldFailOnBodyThatIsNotGzip() {
+    CompletableFuture<String> body = inflate(ContentEncoding.GZIP, List.of(ByteBuffer.wrap(TEXT.getBytes(StandardCharsets.UTF_8))));
+
+    assertThatThrownBy(() -> body.get(5, TimeUnit.SECONDS)).hasRootCauseInstanceOf(ZipException.class);
+  }
+
+  static byte[] gzip(String text) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  private static List<ByteBuffer> split(byte[] bytes, int chunkSize) {
+    return IntStream.range(0, (bytes.length + chunkSize - 1) / chunkSize)
+      .mapToObj(i -> ByteBuffer.wrap(Arrays.copyOfRange(bytes, i * chunkSize, Math.min(bytes.length, (i + 1) * chunkSize))))
+      .toList();
+  }
+
+  // Rejoue les tampons reçus un par un, comme le fait le client HTTP
+  private static CompletableFuture<String> inflate(ContentEncoding encoding, List<ByteBuffer> chunks) {
+    DecompressingBodySubscriber<String> subscriber = new DecompressingBodySubscriber<>(
+      encoding,
+      HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8)
+    );
+    subscriber.onSubscribe(
+      new Flow.Subscription() {
+        @Override
+        public void request(long n) {}
+
+        @Override
+        public void cancel() {}
+      }
+    );
+    chunks.forEach(chunk -> subscriber.onNext(List.of(chunk)));
+    subscriber.onComplete();
+    return subscriber.getBody().toCompletableFuture();
+  }
+}
@@ -0,0 +1,107 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class GitRefsTest {
+
+  private static final String MAIN = "1234567890abcdef1234567890abcdef12345678";
+  private static final String MAIN_FIX = "abcdefabcdefabcdefabcdefabcdefabcdefabcd";
+
+  private final List<String> requests = new CopyOnWriteArrayList<>();
+  private HttpServer server;
+
+  @AfterEach
+  void stopServer() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void shouldResolveBranchWithLsRefs() throws Exception {
+    String url = startServer();
+
+    assertThat(refs().head(url + "/org/repo.git", "main", null, null)).contains(MAIN);
+    assertThat(requests).containsExactly(
+      "/org/repo.git/git-upload-pack version=2 null 0014command=ls-refs\n0001001fref-prefix refs/heads/main\n0000"
+    );
+  }
+
+  @Test
+  void shouldNotSendTokenOverPlainHttp() throws Exception {
+    String url = startServer();
+
+    assertThat(refs().head(url + "/org/repo.git", "main", "bot", "secret")).contains(MAIN);
+    assertThat(requests).hasSize(1);
+    assertThat(requests.get(0)).contains(" version=2 null ");
+  }
+
+  @Test
+  void shouldRefuseClientFollowingRedirects() {
+    HttpClient httpClient = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build();
+
+    assertThatThrownBy(() -> new GitRefs(httpClient, Duration.ofSeconds(5))).isExactlyInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void shouldNotResolveMissingBranch() throws Exception {
+    String url = startServer();
+
+    assertThat(refs().head(url + "/org/repo.git", "develop", null, null)).isEmpty();
+    assertThat(refs().head(url + "/missing.git", "main", null, null)).isEmpty();
+  }
+
+  @Test
+  void shouldNotResolveRepositoryOutsideHttp() throws Exception {
+    assertThat(refs().head("git@github.com:org/repo.git", "main", null, null)).isEmpty();
+  }
+
+  @Test
+  void shouldMatchTheExactRef() throws Exception {
+    String response = pktLine(MAIN_FIX + " refs/heads/main-fix\n") + pktLine(MAIN + " refs/heads/main\n") + "0000";
+
+    assertThat(GitRefs.find(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)), "refs/heads/main")).contains(MAIN);
+  }
+
+  private String startServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/org/repo.git/git-upload-pack", exchange -> {
+      String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+      requests.add(
+        exchange.getRequestURI().getPath()
+        + " "
+        + exchange.getRequestHeaders().getFirst("Git-Protocol")
+        + " "
+        + exchange.getRequestHeaders().getFirst("Authorization")
+        + " "
+        + body
+      );
+      String refs = body.contains("refs/heads/main") ? pktLine(MAIN + " refs/heads/main\n") : "";
+      byte[] response = (refs + "0000").getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, response.length);
+      exchange.getResponseBody().write(response);
+      exchange.close();
+    });
+    server.start();
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  private static GitRefs refs() {
+    return new GitRefs(HttpClient.newHttpClient(), Duration.ofSeconds(5));
+  }
+
+  private static String pktLine(String payload) {
+    return String.format("%04x", payload.length() + 4) + payload;
+  }
+}
@@ -0,0 +1,118 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import fr.rewrite.cli.config.Config;
+import fr.rewrite.cli.config.ConfigDiff;
+import fr.rewrite.cli.config.NamedCluster;
+import fr.rewrite.cli.config.NamedUser;
+import java.io.OutputStream;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HttpClientCacheTest {
+
+  @TempDir
+  private Path folder;
+
+  private final HttpClientCache cache = new HttpClientCache();
+
+  @Test
+  void shouldReuseClientOfUnchangedClusterAndUser() throws Exception {
+    NamedCluster cluster = cluster();
+    NamedUser user = user(null);
+
+    assertThat(cache.get(cluster, user)).isSameAs(cache.get(cluster, user));
+    assertThat(cache.get(cluster, user).httpClient().version()).isEqualTo(HttpClient.Version.HTTP_2);
+  }
+
+  @Test
+  void shouldRebuildClientWhenTlsSettingChanges() throws Exception {
+    NamedCluster cluster = cluster();
+    NamedUser user = user(null);
+    HttpClientCache.Connection first = cache.get(cluster, user);
+
+    cluster.getCluster().setInsecureSkipTlsVerify(false);
+
+    assertThat(cache.get(cluster, user)).isNotSameAs(first);
+  }
+
+  @Test
+  void shouldRebuildClientWhenTruststoreFileChanges() throws Exception {
+    Path truststore = folder.resolve("truststore.jks");
+    writeEmptyTruststore(truststore);
+    NamedCluster cluster = cluster();
+    cluster.getCluster().setInsecureSkipTlsVerify(false);
+    NamedUser user = user(truststore.toString());
+    HttpClientCache.Connection first = cache.get(cluster, user);
+    assertThat(cache.get(cluster, user)).isSameAs(first);
+
+    writeEmptyTruststore(truststore);
+    Files.setLastModifiedTime(truststore, FileTime.fromMillis(Files.getLastModifiedTime(truststore).toMillis() + 1000));
+
+    assertThat(cache.get(cluster, user)).isNotSameAs(first);
+  }
+
+  @Test
+  void shouldRebuildOnlyClientsWhoseTlsMaterialChanged() throws Exception {
+    NamedCluster tlsChanged = cluster("tls-changed");
+    NamedCluster serverChanged = cluster("server-changed");
+    NamedCluster unchanged = cluster("unchanged");
+    NamedUser user = user(null);
+    HttpClientCache.Connection first = cache.get(tlsChanged, user);
+    HttpClientCache.Connection second = cache.get(serverChanged, user);
+    HttpClientCache.Connection third = cache.get(unchanged, user);
+
+    Config current = new Config();
+    current.setClusters(List.of(cluster("tls-changed"), cluster("server-changed"), unchanged));
+    current.setUsers(List.of(user));
+    current.getClusters().get(0).getCluster().setInsecureSkipTlsVerify(false);
+    current.getClusters().get(1).getCluster().setServer("https://other:8443/api/rewrite");
+
+    int rebuilt = cache.reload(new ConfigDiff(Set.of(), Set.of("tls-changed", "server-changed"), Set.of()), current);
+
+    assertThat(rebuilt).isEqualTo(1);
+    assertThat(cache.get(current.getClusters().get(0), user)).isNotSameAs(first);
+    assertThat(cache.get(current.getClusters().get(1), user)).isSameAs(second);
+    assertThat(cache.get(unchanged, user)).isSameAs(third);
+  }
+
+  private static NamedCluster cluster() {
+    return cluster("cluster");
+  }
+
+  private static NamedCluster cluster(String name) {
+    NamedCluster.Cluster cluster = new NamedCluster.Cluster();
+    cluster.setServer("https://localhost:8443/api/rewrite");
+    cluster.setInsecureSkipTlsVerify(true);
+    NamedCluster namedCluster = new NamedCluster();
+    namedCluster.setName(name);
+    namedCluster.setCluster(cluster);
+    return namedCluster;
+  }
+
+  private static NamedUser user(String truststorePath) {
+    NamedUser.User user = new NamedUser.User();
+    user.setClientTruststorePath(truststorePath);
+    user.setClientTruststorePassword("changeit");
+    NamedUser namedUser = new NamedUser();
+    namedUser.setName("user");
+    namedUser.setUser(user);
+    return namedUser;
+  }
+
+  private static void writeEmptyTruststore(Path path) throws Exception {
+    KeyStore keyStore = KeyStore.getInstance("JKS");
+    keyStore.load(null, null);
+    try (OutputStream out = Files.newOutputStream(path)) {
+      keyStore.store(out, "changeit".toCharArray());
+    }
+  }
+}
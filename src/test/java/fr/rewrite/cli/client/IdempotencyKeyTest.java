@@ -0,0 +1,46 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class IdempotencyKeyTest {
+
+  @Test
+  void shouldBeDeterministic() {
+    assertThat(IdempotencyKey.of("run-1", request("https://github.com/org/repo.git", "main")))
+      .isEqualTo(IdempotencyKey.of("run-1", request("https://github.com/org/repo.git", "main")))
+      .hasSize(64)
+      .matches("[0-9a-f]+");
+  }
+
+  @Test
+  void shouldDependOnRunRepositoryAndBranch() {
+    String key = IdempotencyKey.of("run-1", request("https://github.com/org/repo.git", "main"));
+
+    assertThat(IdempotencyKey.of("run-2", request("https://github.com/org/repo.git", "main"))).isNotEqualTo(key);
+    assertThat(IdempotencyKey.of("run-1", request("https://github.com/org/other.git", "main"))).isNotEqualTo(key);
+    assertThat(IdempotencyKey.of("run-1", request("https://github.com/org/repo.git", "develop"))).isNotEqualTo(key);
+  }
+
+  @Test
+  void shouldNotConfuseFieldBoundaries() {
+    assertThat(IdempotencyKey.ofBulk(List.of("ab", "c"))).isNotEqualTo(IdempotencyKey.ofBulk(List.of("a", "bc")));
+  }
+
+  @Test
+  void shouldDeriveBulkKeyFromItemKeysInOrder() {
+    assertThat(IdempotencyKey.ofBulk(List.of("a", "b"))).isEqualTo(IdempotencyKey.ofBulk(List.of("a", "b")));
+    assertThat(IdempotencyKey.ofBulk(List.of("a", "b"))).isNotEqualTo(IdempotencyKey.ofBulk(List.of("b", "a")));
+  }
+
+  private static RewriteConfig request(String repoUrl, String baseBranch) {
+    RewriteConfig request = new RewriteConfig();
+    request.setRepoUrl(repoUrl);
+    request.setRecipeName("org.openrewrite.java.RemoveUnusedImports");
+    request.setBaseBranch(baseBranch);
+    return request;
+  }
+}
@@ -0,0 +1,99 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class JobPollerTest {
+
+  private HttpServer server;
+  private final AtomicInteger polls = new AtomicInteger();
+  private final List<String> ifNoneMatchHeaders = new CopyOnWriteArrayList<>();
+
+  @BeforeEach
+  void startServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite/job-1/status", exchange -> {
+      ifNoneMatchHeaders.add(String.valueOf(exchange.getRequestHeaders().getFirst("If-None-Match")));
+      int poll = polls.incrementAndGet();
+      if (poll == 2) {
+        exchange.sendResponseHeaders(304, -1);
+      } else {
+        byte[] body = (poll < 3 ? "{\"status\":\"RUNNING\"}" : "{\"status\":\"COMPLETED\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("ETag", "\"v" + poll + "\"");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+      }
+      exchange.close();
+    });
+    AtomicInteger throttledPolls = new AtomicInteger();
+    server.createContext("/api/rewrite/job-2/status", exchange -> {
+      if (throttledPolls.incrementAndGet() <= 2) {
+        exchange.getResponseHeaders().add("Retry-After", "0");
+        exchange.sendResponseHeaders(429, -1);
+      } else {
+        byte[] body = "{\"status\":\"COMPLETED\"}".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+      }
+      exchange.close();
+    });
+    server.start();
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void shouldPollWithConditionalRequestsUntilTerminalStatus() throws Exception {
+    OrchestratorClient client = new OrchestratorClient(
+      HttpClient.newHttpClient(),
+      "http://localhost:" + server.getAddress().getPort() + "/api/rewrite"
+    );
+
+    try (JobPoller poller = new JobPoller(client, new Backoff(Duration.ofMillis(10), Duration.ofMillis(20), 2), Duration.ofSeconds(10))) {
+      JobStatus status = poller.await("job-1").get(10, TimeUnit.SECONDS);
+
+      assertThat(status).isEqualTo(new JobStatus("job-1", "COMPLETED"));
+      assertThat(status.succeeded()).isTrue();
+    }
+    assertThat(ifNoneMatchHeaders).containsExactly("null", "\"v1\"", "\"v1\"");
+  }
+
+  @Test
+  void shouldTimeoutWhenJobNeverCompletes() throws Exception {
+    OrchestratorClient client = new OrchestratorClient(
+      HttpClient.newHttpClient(),
+      "http://localhost:" + server.getAddress().getPort() + "/api/rewrite"
+    );
+
+    try (JobPoller poller = new JobPoller(client, new Backoff(Duration.ofSeconds(1), Duration.ofSeconds(1), 2), Duration.ofMillis(100))) {
+      assertThat(poller.await("job-1").get(10, TimeUnit.SECONDS)).isEqualTo(JobStatus.timeout("job-1"));
+    }
+  }
+
+  @Test
+  void shouldKeepPollingWhenServerAsksToSlowDown() throws Exception {
+    OrchestratorClient client = new OrchestratorClient(
+      HttpClient.newHttpClient(),
+      "http://localhost:" + server.getAddress().getPort() + "/api/rewrite"
+    );
+
+    try (JobPoller poller = new JobPoller(client, new Backoff(Duration.ofMillis(10), Duration.ofMillis(20), 2), Duration.ofSeconds(10))) {
+      assertThat(poller.await("job-2").get(10, TimeUnit.SECONDS)).isEqualTo(new JobStatus("job-2", "COMPLETED"));
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  private final LatencyHistogram histogram = new LatencyHistogram();
+
+  @Test
+  void shouldBoundEveryValueByItsBucket() {
+    for (long micros = 0; micros < 1_000_000; micros += 7) {
+      int bucket = LatencyHistogram.bucket(micros);
+      assertThat(LatencyHistogram.upperBound(bucket)).isGreaterThan(micros);
+      assertThat(bucket == 0 || LatencyHistogram.upperBound(bucket - 1) <= micros).isTrue();
+      // 8 intervalles par puissance de deux : la borne dépasse la valeur d'au plus 12,5 %
+      assertThat(LatencyHistogram.upperBound(bucket)).isLessThanOrEqualTo(Math.max(micros + 1, micros + micros / 8 + 1));
+    }
+  }
+
+  @Test
+  void shouldCountHugeLatenciesInLastBucket() {
+    assertThat(LatencyHistogram.bucket(Long.MAX_VALUE / 1000)).isEqualTo(LatencyHistogram.bucket(1L << 40));
+  }
+
+  @Test
+  void shouldComputePercentiles() {
+    for (int millis = 1; millis <= 100; millis++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    assertThat(histogram.percentile(50).orElseThrow()).isBetween(Duration.ofMillis(50), Duration.ofMillis(57));
+    assertThat(histogram.percentile(99).orElseThrow()).isBetween(Duration.ofMillis(99), Duration.ofMillis(112));
+    assertThat(histogram.toString()).matches("p50 5\\d ms, p90 \\d+ ms, p99 1\\d\\d ms");
+  }
+
+  @Test
+  void shouldNotComputePercentilesBeforeMinSamples() {
+    for (int i = 1; i < LatencyHistogram.MIN_SAMPLES; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    assertThat(histogram.percentile(50)).isEmpty();
+    assertThat(histogram).hasToString("p50 n/a, p90 n/a, p99 n/a");
+  }
+
+  @Test
+  void shouldForgetLatenciesOlderThanTwoWindows() {
+    for (int i = 0; i < LatencyHistogram.WINDOW; i++) {
+      histogram.record(TimeUnit.SECONDS.toNanos(1));
+    }
+    for (int i = 0; i < 2 * LatencyHistogram.WINDOW; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    assertThat(histogram.percentile(100).orElseThrow()).isLessThan(Duration.ofMillis(2));
+  }
+}
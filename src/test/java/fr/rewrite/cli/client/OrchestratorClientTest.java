@@ -0,0 +1,327 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.sun.net.httpserver.HttpServer;
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.serialization.Mappers;
+import fr.rewrite.cli.serialization.WireFormat;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class OrchestratorClientTest {
+
+  private HttpServer server;
+
+  @AfterEach
+  void stopServer() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void shouldSwitchToBinaryFormatAdvertisedByServer() throws Exception {
+    List<String> contentTypes = new CopyOnWriteArrayList<>();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite", exchange -> {
+      String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+      contentTypes.add(contentType);
+      WireFormat format = WireFormat.fromContentType(contentType).orElseThrow();
+      String repoUrl = Mappers.treeReader(format).readTree(exchange.getRequestBody().readAllBytes()).get("repoUrl").asText();
+
+      byte[] response = Mappers.rewriteConfigWriter(WireFormat.CBOR).writeValueAsBytes(request(repoUrl + "#job"));
+      exchange.getResponseHeaders().add("Accept-Post", "application/json, application/x-jackson-smile");
+      exchange.getResponseHeaders().add("Content-Type", WireFormat.CBOR.mediaType());
+      exchange.sendResponseHeaders(202, response.length);
+      exchange.getResponseBody().write(response);
+      exchange.close();
+    });
+    server.start();
+    OrchestratorClient client = client();
+
+    HttpResponse<ResponseBody> first = client.submit(request("https://github.com/org/first.git"));
+    HttpResponse<ResponseBody> second = client.submit(request("https://github.com/org/second.git"));
+
+    assertThat(contentTypes).containsExactly(WireFormat.JSON.mediaType(), WireFormat.SMILE.mediaType());
+    assertThat(client.requestFormat()).isEqualTo(WireFormat.SMILE);
+    assertThat(first.body().tree().orElseThrow().get("repoUrl").asText()).isEqualTo("https://github.com/org/first.git#job");
+    assertThat(second.body().tree().orElseThrow().get("repoUrl").asText()).isEqualTo("https://github.com/org/second.git#job");
+  }
+
+  @Test
+  void shouldFallBackToJsonWhenBinaryFormatIsRejected() throws Exception {
+    List<String> contentTypes = new CopyOnWriteArrayList<>();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite", exchange -> {
+      String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+      contentTypes.add(contentType);
+      exchange.getRequestBody().readAllBytes();
+      if (contentTypes.size() == 1) {
+        exchange.getResponseHeaders().add("Accept-Post", WireFormat.CBOR.mediaType());
+      }
+
+      int status = WireFormat.JSON.mediaType().equals(contentType) ? 202 : 415;
+      byte[] response = "{\"jobId\":\"job-1\"}".getBytes();
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(status, response.length);
+      exchange.getResponseBody().write(response);
+      exchange.close();
+    });
+    server.start();
+    OrchestratorClient client = client();
+
+    client.submit(request("https://github.com/org/repo.git"));
+    HttpResponse<ResponseBody> response = client.submit(request("https://github.com/org/repo.git"));
+
+    assertThat(response.statusCode()).isEqualTo(202);
+    assertThat(contentTypes).containsExactly(WireFormat.JSON.mediaType(), WireFormat.CBOR.mediaType(), WireFormat.JSON.mediaType());
+    assertThat(client.requestFormat()).isEqualTo(WireFormat.JSON);
+  }
+
+  @Test
+  void shouldDecodeBinaryStatus() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite", exchange -> {
+      byte[] response = new ObjectMapper(new SmileFactory()).writeValueAsBytes(Map.of("status", "SUCCEEDED"));
+      exchange.getResponseHeaders().add("Content-Type", WireFormat.SMILE.mediaType());
+      exchange.sendResponseHeaders(200, response.length);
+      exchange.getResponseBody().write(response);
+      exchange.close();
+    });
+    server.start();
+    OrchestratorClient client = client();
+
+    HttpResponse<ResponseBody> response = client.fetchStatus("job-1", null).get(5, TimeUnit.SECONDS);
+
+    assertThat(client.readStatus("job-1", response.body()).status()).isEqualTo("SUCCEEDED");
+    assertThat(response.body().text()).isEqualTo("{\"status\":\"SUCCEEDED\"}");
+  }
+
+  @Test
+  void shouldInflateGzipResponses() throws Exception {
+    List<String> acceptEncodings = new CopyOnWriteArrayList<>();
+    String summary = IntStream.range(0, 20_000).mapToObj(i -> "src/main/java/File" + i + ".java").collect(Collectors.joining(","));
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite", exchange -> {
+      acceptEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+      exchange.getRequestBody().readAllBytes();
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+      exchange.sendResponseHeaders(200, 0);
+      try (GZIPOutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+        out.write(("{\"status\":\"SUCCEEDED\",\"files\":\"" + summary + "\"}").getBytes(StandardCharsets.UTF_8));
+      }
+    });
+    server.start();
+    OrchestratorClient client = client();
+
+    HttpResponse<ResponseBody> submitted = client.submit(request("https://github.com/org/repo.git"));
+    HttpResponse<ResponseBody> status = client.fetchStatus("job-1", null).get(5, TimeUnit.SECONDS);
+
+    assertThat(acceptEncodings).containsOnly(ContentEncoding.ACCEPT_ENCODING);
+    assertThat(submitted.body().tree().orElseThrow().get("files").asText()).isEqualTo(summary);
+    assertThat(client.readStatus("job-1", status.body()).status()).isEqualTo("SUCCEEDED");
+  }
+
+  @Test
+  void shouldCompressRequestsAboveThreshold() throws Exception {
+    List<String> contentEncodings = new CopyOnWriteArrayList<>();
+    List<String> repoUrls = new CopyOnWriteArrayList<>();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite", exchange -> {
+      String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+      contentEncodings.add(String.valueOf(contentEncoding));
+      InputStream body = contentEncoding == null ? exchange.getRequestBody() : new GZIPInputStream(exchange.getRequestBody());
+      repoUrls.add(Mappers.jsonTreeReader().readTree(body).get("repoUrl").asText());
+      exchange.sendResponseHeaders(202, -1);
+      exchange.close();
+    });
+    server.start();
+    OrchestratorClient client = client(1024);
+    RewriteConfig large = request("https://github.com/org/large.git");
+    large.setSourceExcludePatterns(IntStream.range(0, 1000).mapToObj(i -> "**/generated-" + i + "/**").toList());
+
+    client.submit(request("https://github.com/org/small.git"));
+    client.submit(large);
+
+    assertThat(contentEncodings).containsExactly("null", "gzip");
+    assertThat(repoUrls).containsExactly("https://github.com/org/small.git", "https://github.com/org/large.git");
+  }
+
+  @Test
+  void shouldStopCompressingRequestsRejectedByServer() throws Exception {
+    List<String> contentEncodings = new CopyOnWriteArrayList<>();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite", exchange -> {
+      String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+      contentEncodings.add(String.valueOf(contentEncoding));
+      exchange.getRequestBody().readAllBytes();
+      exchange.sendResponseHeaders(contentEncoding == null ? 202 : 415, -1);
+      exchange.close();
+    });
+    server.start();
+    OrchestratorClient client = client(0);
+
+    assertThat(client.submit(request("https://github.com/org/repo.git")).statusCode()).isEqualTo(202);
+    assertThat(client.submit(request("https://github.com/org/repo.git")).statusCode()).isEqualTo(202);
+
+    assertThat(contentEncodings).containsExactly("gzip", "null", "null");
+    assertThat(client.requestEncoding()).isEmpty();
+  }
+
+  @Test
+  void shouldUseCodingAdvertisedByServer() throws Exception {
+    List<String> contentEncodings = new CopyOnWriteArrayList<>();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite", exchange -> {
+      contentEncodings.add(String.valueOf(exchange.getRequestHeaders().getFirst("Content-Encoding")));
+      exchange.getRequestBody().readAllBytes();
+      exchange.getResponseHeaders().add("Accept-Encoding", "br, deflate");
+      exchange.sendResponseHeaders(202, -1);
+      exchange.close();
+    });
+    server.start();
+    OrchestratorClient client = client(0);
+
+    client.submit(request("https://github.com/org/repo.git"));
+    client.submit(request("https://github.com/org/repo.git"));
+
+    assertThat(contentEncodings).containsExactly("gzip", "deflate");
+    assertThat(client.requestEncoding()).contains(ContentEncoding.DEFLATE);
+  }
+
+  @Test
+  void shouldResendWithSameIdempotencyKey() throws Exception {
+    List<String> keys = new CopyOnWriteArrayList<>();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite", exchange -> {
+      exchange.getRequestBody().readAllBytes();
+      keys.add(String.valueOf(exchange.getRequestHeaders().getFirst(IdempotencyKey.HEADER)));
+      exchange.sendResponseHeaders(keys.size() < 3 ? 503 : 202, -1);
+      exchange.close();
+    });
+    server.start();
+    RetryPolicy retryPolicy = fastRetries();
+    RewriteConfig request = request("https://github.com/org/repo.git");
+
+    OrchestratorClient client = client(new OrchestratorClient.Settings(null, ClusterThrottle.unthrottled(), retryPolicy, "run-1", null));
+
+    assertThat(client.submit(request).statusCode()).isEqualTo(202);
+    assertThat(keys).hasSize(3).containsOnly(IdempotencyKey.of("run-1", request));
+  }
+
+  @Test
+  void shouldSendOnceWithoutRunId() throws Exception {
+    List<String> keys = new CopyOnWriteArrayList<>();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite", exchange -> {
+      exchange.getRequestBody().readAllBytes();
+      keys.add(String.valueOf(exchange.getRequestHeaders().getFirst(IdempotencyKey.HEADER)));
+      exchange.sendResponseHeaders(503, -1);
+      exchange.close();
+    });
+    server.start();
+    RetryPolicy retryPolicy = fastRetries();
+
+    OrchestratorClient client = client(new OrchestratorClient.Settings(null, ClusterThrottle.unthrottled(), retryPolicy, null, null));
+
+    assertThat(client.submit(request("https://github.com/org/repo.git")).statusCode()).isEqualTo(503);
+    assertThat(keys).containsExactly("null");
+  }
+
+  @Test
+  void shouldSendKeyOfEachRequestInBulkItems() throws Exception {
+    List<String> itemKeys = new CopyOnWriteArrayList<>();
+    List<String> repoUrls = new CopyOnWriteArrayList<>();
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite/bulk", exchange -> {
+      for (JsonNode item : Mappers.jsonTreeReader().readTree(exchange.getRequestBody())) {
+        itemKeys.add(item.get("idempotencyKey").asText());
+        repoUrls.add(item.get("repoUrl").asText());
+      }
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+    });
+    server.start();
+    RewriteConfig first = request("https://github.com/org/repo-1.git");
+    RewriteConfig second = request("https://github.com/org/repo-2.git");
+
+    OrchestratorClient client = client(
+      new OrchestratorClient.Settings(null, ClusterThrottle.unthrottled(), RetryPolicy.none(), "run-1", null)
+    );
+    client.submitBulk(List.of(first, second));
+
+    // Mêmes clés que si chaque requête était envoyée seule
+    assertThat(itemKeys).containsExactly(IdempotencyKey.of("run-1", first), IdempotencyKey.of("run-1", second));
+    assertThat(repoUrls).containsExactly(first.getRepoUrl(), second.getRepoUrl());
+  }
+
+  @Test
+  void shouldReadBulkItemsInOrder() {
+    OrchestratorClient client = new OrchestratorClient(HttpClient.newHttpClient(), "http://localhost/api/rewrite");
+
+    assertThat(client.readBulkItems(ResponseBody.of("[{\"status\":202,\"jobId\":\"job-1\"},{\"status\":409}]"), 3))
+      .extracting(BulkItem::statusCode)
+      .containsExactly(202, 409, -1);
+    assertThat(client.readBulkItems(ResponseBody.of("not json"), 1)).extracting(BulkItem::statusCode).containsExactly(-1);
+    BulkItem accepted = client.readBulkItems(ResponseBody.of("[{\"status\":202,\"jobId\":\"job-1\"}]"), 1).get(0);
+    assertThat(client.jobId(accepted.body())).contains("job-1");
+  }
+
+  @Test
+  void shouldEncodeTheJobIdAsASinglePathSegment() {
+    OrchestratorClient client = new OrchestratorClient(HttpClient.newHttpClient(), "http://localhost/api/rewrite/");
+
+    assertThat(client.statusUri("job 1/été+x~y").toString()).isEqualTo(
+      "http://localhost/api/rewrite/job%201%2F%C3%A9t%C3%A9%2Bx~y/status"
+    );
+    assertThat(client.statusUri("job 1").getPath()).isEqualTo("/api/rewrite/job 1/status");
+  }
+
+  private OrchestratorClient client() {
+    return client((Integer) null);
+  }
+
+  private OrchestratorClient client(Integer requestCompressionThreshold) {
+    return client(
+      new OrchestratorClient.Settings(requestCompressionThreshold, ClusterThrottle.unthrottled(), RetryPolicy.none(), null, null)
+    );
+  }
+
+  private OrchestratorClient client(OrchestratorClient.Settings settings) {
+    return new OrchestratorClient(
+      HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(),
+      new TlsHandshakeStats(),
+      "http://localhost:" + server.getAddress().getPort() + "/api/rewrite",
+      settings
+    );
+  }
+
+  private static RewriteConfig request(String repoUrl) {
+    RewriteConfig request = new RewriteConfig();
+    request.setRepoUrl(repoUrl);
+    return request;
+  }
+
+  private static RetryPolicy fastRetries() {
+    return RetryPolicy.of(new RetryPolicy.Settings(5, Duration.ofMillis(1), Duration.ofMillis(1), RetryPolicy.DEFAULT_RETRY_ON));
+  }
+}
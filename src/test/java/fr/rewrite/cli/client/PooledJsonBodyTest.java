@@ -0,0 +1,155 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.serialization.Mappers;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+
+class PooledJsonBodyTest {
+
+  @Test
+  void shouldPublishTheSerializedValueAcrossBuffers() throws Exception {
+    ByteBufferPool pool = new ByteBufferPool(64, 100);
+    RewriteConfig request = request(50);
+    String expected = Mappers.rewriteConfigWriter().writeValueAsString(request);
+
+    try (PooledJsonBody body = PooledJsonBody.of(Mappers.rewriteConfigWriter(), request, pool)) {
+      assertThat(body.contentLength()).isEqualTo(expected.getBytes(StandardCharsets.UTF_8).length);
+      assertThat(read(body).get(5, TimeUnit.SECONDS)).isEqualTo(expected);
+      // Le client HTTP peut s'abonner à nouveau pour rejouer la requête
+      assertThat(read(body).get(5, TimeUnit.SECONDS)).isEqualTo(expected);
+    }
+
+    // Le client HTTP peut encore tenir des vues des tampons publiés : ils ne reviennent jamais au pool
+    assertThat(pool.retained()).isZero();
+  }
+
+  @Test
+  void shouldReuseReleasedBuffers() throws Exception {
+    ByteBufferPool pool = new ByteBufferPool(1024, 1);
+
+    PooledJsonBody.of(Mappers.rewriteConfigWriter(), request(1), pool).close();
+    ByteBuffer released = pool.acquire();
+    pool.release(released);
+
+    try (PooledJsonBody body = PooledJsonBody.of(Mappers.rewriteConfigWriter(), request(1), pool)) {
+      assertThat(pool.retained()).isZero();
+    }
+    assertThat(pool.acquire()).isSameAs(released);
+  }
+
+  @Test
+  void shouldCompressBodyIntoPooledBuffers() throws Exception {
+    ByteBufferPool pool = new ByteBufferPool(256, 100);
+    RewriteConfig request = request(1000);
+    String expected = Mappers.rewriteConfigWriter().writeValueAsString(request);
+    long compressedLength;
+
+    try (PooledJsonBody body = PooledJsonBody.of(Mappers.rewriteConfigWriter(), request, pool).encode(ContentEncoding.GZIP)) {
+      compressedLength = body.contentLength();
+      assertThat(body.contentEncoding()).contains(ContentEncoding.GZIP);
+      assertThat(body.contentLength()).isLessThan(expected.length() / 4);
+      byte[] compressed = readBytes(body).get(5, TimeUnit.SECONDS);
+      assertThat(compressed).hasSize((int) body.contentLength());
+      try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+        assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(expected);
+      }
+    }
+    // Seuls les tampons du corps non compressé, jamais publiés, reviennent au pool
+    assertThat(pool.retained()).isEqualTo((expected.length() + 255) / 256);
+    assertThat(compressedLength).isPositive();
+  }
+
+  @Test
+  void shouldSendBodyWithContentLength() throws Exception {
+    AtomicReference<String> received = new AtomicReference<>();
+    AtomicReference<String> contentLength = new AtomicReference<>();
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/rewrite", exchange -> {
+      contentLength.set(exchange.getRequestHeaders().getFirst("Content-Length"));
+      received.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+      byte[] response = "{\"jobId\":\"job-1\"}".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(202, response.length);
+      exchange.getResponseBody().write(response);
+      exchange.close();
+    });
+    server.start();
+
+    try {
+      OrchestratorClient client = new OrchestratorClient(
+        HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(),
+        "http://localhost:" + server.getAddress().getPort() + "/api/rewrite"
+      );
+      RewriteConfig request = request(2000);
+
+      assertThat(client.submit(request).statusCode()).isEqualTo(202);
+      String expected = Mappers.rewriteConfigWriter().writeValueAsString(request);
+      assertThat(received.get()).isEqualTo(expected);
+      assertThat(contentLength.get()).isEqualTo(String.valueOf(expected.length()));
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  private static RewriteConfig request(int excludePatterns) {
+    RewriteConfig request = new RewriteConfig();
+    request.setRepoUrl("https://github.com/org/repo.git");
+    request.setRecipeName("org.openrewrite.java.format.AutoFormat");
+    request.setSourceExcludePatterns(IntStream.range(0, excludePatterns).mapToObj(i -> "**/generated-" + i + "/**").toList());
+    return request;
+  }
+
+  private static CompletableFuture<String> read(PooledJsonBody body) {
+    return readBytes(body).thenApply(bytes -> new String(bytes, StandardCharsets.UTF_8));
+  }
+
+  // Demande les tampons un par un, comme le fait le client HTTP
+  private static CompletableFuture<byte[]> readBytes(PooledJsonBody body) {
+    CompletableFuture<byte[]> result = new CompletableFuture<>();
+    body.subscribe(
+      new Flow.Subscriber<>() {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+          this.subscription = subscription;
+          subscription.request(1);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+          byte[] chunk = new byte[item.remaining()];
+          item.get(chunk);
+          bytes.writeBytes(chunk);
+          subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+          result.complete(bytes.toByteArray());
+        }
+      }
+    );
+    return result;
+  }
+}
@@ -0,0 +1,95 @@
+package fr.rewrite.cli.client;
+
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.serialization.Mappers;
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the request body of a submission built from a {@code String}, as the CLI used to do, with the pooled
+ * streaming body, both being read to the end as the HTTP client would. Meant to be run with the GC profiler, to
+ * compare the allocations per request ({@code gc.alloc.rate.norm}).
+ *
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark test -Dbenchmark=RequestBodyBenchmark -Djmh.args="-prof gc"}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBodyBenchmark {
+
+  @Param({ "3", "1000" })
+  private int excludePatterns;
+
+  private final ByteBufferPool pool = new ByteBufferPool(8 * 1024, 512);
+  private RewriteConfig request;
+
+  @Setup
+  public void buildRequest() {
+    request = new RewriteConfig();
+    request.setRepoUrl("https://github.com/org/repo.git");
+    request.setRecipeName("org.openrewrite.java.format.AutoFormat");
+    request.setPlatform("github");
+    request.setSourceExcludePatterns(IntStream.range(0, excludePatterns).mapToObj(i -> "**/generated-" + i + "/**").toList());
+  }
+
+  @Benchmark
+  public long stringBody() throws IOException {
+    String json = Mappers.rewriteConfigWriter().writeValueAsString(request);
+    return drain(HttpRequest.BodyPublishers.ofString(json));
+  }
+
+  @Benchmark
+  public long pooledBody() throws IOException {
+    try (PooledJsonBody body = PooledJsonBody.of(Mappers.rewriteConfigWriter(), request, pool)) {
+      return drain(body);
+    }
+  }
+
+  private static long drain(HttpRequest.BodyPublisher publisher) {
+    long[] read = { 0 };
+    publisher.subscribe(
+      new Flow.Subscriber<>() {
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+          subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+          read[0] += item.remaining();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          throw new IllegalStateException(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+          // Rien à faire, tout est compté dans onNext
+        }
+      }
+    );
+    return read[0];
+  }
+}
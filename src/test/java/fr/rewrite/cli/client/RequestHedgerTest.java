@@ -0,0 +1,162 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RequestHedgerTest {
+
+  private final AtomicInteger requests = new AtomicInteger();
+  private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  private final LatencyHistogram latencies = new LatencyHistogram();
+  private HttpServer server;
+
+  // La première requête reçue met 1,5 s à répondre, les suivantes répondent aussitôt
+  @BeforeEach
+  void startServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    server.createContext("/", exchange -> {
+      int request = requests.incrementAndGet();
+      try {
+        if (request == 1) {
+          Thread.sleep(1500);
+        }
+        exchange.sendResponseHeaders(200 + request, -1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        exchange.close();
+      }
+    });
+    server.start();
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void shouldKeepFirstAnswerOfHedgedRequest() throws Exception {
+    recordLatencies(Duration.ofMillis(10));
+    RequestHedger hedger = new RequestHedger(latencies, 95.0, RequestHedgerTest::isServerError);
+
+    long start = System.nanoTime();
+    HttpResponse<Void> response = hedger.send(this::send);
+
+    assertThat(response.statusCode()).isEqualTo(202);
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+    assertThat(hedger.hedged()).isEqualTo(1);
+    assertThat(hedger.hedgeWins()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldNotHedgeWithoutEnoughLatencies() throws Exception {
+    RequestHedger hedger = new RequestHedger(latencies, 95.0, RequestHedgerTest::isServerError);
+    requests.set(1);
+
+    assertThat(hedger.send(this::send).statusCode()).isEqualTo(202);
+    assertThat(requests).hasValue(2);
+    assertThat(hedger.hedged()).isZero();
+  }
+
+  @Test
+  void shouldNotHedgeWhenDisabled() throws Exception {
+    recordLatencies(Duration.ofMillis(10));
+    RequestHedger hedger = new RequestHedger(latencies, null, RequestHedgerTest::isServerError);
+    requests.set(1);
+
+    assertThat(hedger.send(this::send).statusCode()).isEqualTo(202);
+    assertThat(hedger.hedged()).isZero();
+  }
+
+  @Test
+  void shouldFallBackOnOtherAttemptWhenFirstAnswerFails() throws Exception {
+    recordLatencies(Duration.ofMillis(10));
+    RequestHedger hedger = new RequestHedger(latencies, 95.0, RequestHedgerTest::isServerError);
+    AtomicInteger attempts = new AtomicInteger();
+
+    HttpResponse<Void> response = hedger.send(onTurn -> {
+      onTurn.run();
+      if (attempts.incrementAndGet() == 2) {
+        throw new IOException("Connection reset");
+      }
+      // Requête lente : la seconde tentative échoue avant qu'elle ne réponde
+      return send();
+    });
+
+    assertThat(response.statusCode()).isEqualTo(201);
+    assertThat(hedger.hedgeWins()).isZero();
+  }
+
+  @Test
+  void shouldWaitForOtherAttemptWhenFirstAnswerIsRetryable() throws Exception {
+    recordLatencies(Duration.ofMillis(10));
+    RequestHedger hedger = new RequestHedger(latencies, 95.0, status -> status == 202);
+
+    // La seconde tentative répond aussitôt 202, à réessayer : la réponse lente de la première est gardée
+    HttpResponse<Void> response = hedger.send(this::send);
+
+    assertThat(response.statusCode()).isEqualTo(201);
+    assertThat(hedger.hedged()).isEqualTo(1);
+    assertThat(hedger.hedgeWins()).isZero();
+  }
+
+  @Test
+  void shouldNotCountThrottleWaitInHedgeDelay() throws Exception {
+    recordLatencies(Duration.ofMillis(10));
+    RequestHedger hedger = new RequestHedger(latencies, 95.0, RequestHedgerTest::isServerError);
+    requests.set(1);
+
+    // La requête attend son tour bien au-delà du délai, puis répond vite : elle ne doit pas être doublée
+    HttpResponse<Void> response = hedger.send(onTurn -> {
+      Thread.sleep(300);
+      onTurn.run();
+      return send();
+    });
+
+    assertThat(response.statusCode()).isEqualTo(202);
+    assertThat(requests).hasValue(2);
+    assertThat(hedger.hedged()).isZero();
+  }
+
+  @Test
+  void shouldRejectPercentileOutOfRange() {
+    assertThatThrownBy(() -> new RequestHedger(latencies, 100.0, RequestHedgerTest::isServerError)).isExactlyInstanceOf(
+      IllegalArgumentException.class
+    );
+  }
+
+  private static boolean isServerError(int status) {
+    return status >= 500;
+  }
+
+  private void recordLatencies(Duration latency) {
+    for (int i = 0; i < LatencyHistogram.MIN_SAMPLES; i++) {
+      latencies.record(latency.toNanos());
+    }
+  }
+
+  private HttpResponse<Void> send(Runnable onTurn) throws IOException, InterruptedException {
+    onTurn.run();
+    return send();
+  }
+
+  private HttpResponse<Void> send() throws IOException, InterruptedException {
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getAddress().getPort() + "/")).build();
+    return httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+  }
+}
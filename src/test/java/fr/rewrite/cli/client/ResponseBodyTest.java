@@ -0,0 +1,35 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+class ResponseBodyTest {
+
+  @Test
+  void shouldKeepADecodedTreeWithoutWritingIt() {
+    ObjectNode tree = JsonNodeFactory.instance.objectNode().put("jobId", "job-1");
+
+    ResponseBody body = ResponseBody.of(tree);
+
+    assertThat(body.tree()).containsSame(tree);
+    assertThat(body.text()).isEqualTo("{\"jobId\":\"job-1\"}");
+  }
+
+  @Test
+  void shouldParseTextOnce() {
+    ResponseBody body = ResponseBody.of("{\"status\":\"RUNNING\"}");
+
+    assertThat(body.tree().orElseThrow().get("status").asText()).isEqualTo("RUNNING");
+    assertThat(body.tree().orElseThrow()).isSameAs(body.tree().orElseThrow());
+  }
+
+  @Test
+  void shouldHaveNoTreeForTextThatIsNotJson() {
+    assertThat(ResponseBody.of("Bad Gateway").tree()).isEmpty();
+    assertThat(ResponseBody.of(" ").tree()).isEmpty();
+    assertThat(ResponseBody.of("Bad Gateway").text()).isEqualTo("Bad Gateway");
+  }
+}
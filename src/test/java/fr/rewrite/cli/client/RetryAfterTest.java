@@ -0,0 +1,29 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class RetryAfterTest {
+
+  private static final Instant NOW = Instant.parse("2015-10-21T07:28:00Z");
+
+  @Test
+  void shouldParseDelayInSeconds() {
+    assertThat(RetryAfter.parse(" 120 ", NOW)).contains(Duration.ofMinutes(2));
+    assertThat(RetryAfter.parse("-5", NOW)).contains(Duration.ZERO);
+  }
+
+  @Test
+  void shouldParseHttpDate() {
+    assertThat(RetryAfter.parse("Wed, 21 Oct 2015 07:30:00 GMT", NOW)).contains(Duration.ofMinutes(2));
+    assertThat(RetryAfter.parse("Wed, 21 Oct 2015 07:00:00 GMT", NOW)).contains(Duration.ZERO);
+  }
+
+  @Test
+  void shouldIgnoreInvalidValue() {
+    assertThat(RetryAfter.parse("soon", NOW)).isEmpty();
+  }
+}
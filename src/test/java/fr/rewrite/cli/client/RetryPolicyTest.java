@@ -0,0 +1,127 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLHandshakeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class RetryPolicyTest {
+
+  private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger requests = new AtomicInteger();
+  private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  private HttpServer server;
+
+  @AfterEach
+  void stopServer() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void shouldMatchStatusesAndStatusClasses() {
+    RetryPolicy policy = policy(3, List.of("5xx", "429"));
+
+    assertThat(policy.isRetryable(500)).isTrue();
+    assertThat(policy.isRetryable(599)).isTrue();
+    assertThat(policy.isRetryable(429)).isTrue();
+    assertThat(policy.isRetryable(408)).isFalse();
+    assertThat(policy.isRetryable(404)).isFalse();
+    assertThat(RetryPolicy.none().isRetryable(503)).isFalse();
+  }
+
+  @Test
+  void shouldRejectInvalidStatusClass() {
+    assertThatThrownBy(() -> policy(3, List.of("5x"))).isExactlyInstanceOf(IllegalArgumentException.class).hasMessageContaining("'5x'");
+  }
+
+  @Test
+  void shouldRetryRetryableStatusUntilSuccess() throws Exception {
+    startServer(503, 502, 202);
+    RetryPolicy policy = policy(5, RetryPolicy.DEFAULT_RETRY_ON);
+
+    assertThat(policy.execute(this::send).statusCode()).isEqualTo(202);
+    assertThat(requests).hasValue(3);
+    assertThat(policy.retries()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldReturnLastResponseAfterMaxAttempts() throws Exception {
+    startServer(500, 500, 500, 202);
+    RetryPolicy policy = policy(3, RetryPolicy.DEFAULT_RETRY_ON);
+
+    assertThat(policy.execute(this::send).statusCode()).isEqualTo(500);
+    assertThat(requests).hasValue(3);
+  }
+
+  @Test
+  void shouldNotRetryOtherStatuses() throws Exception {
+    startServer(400, 202);
+    RetryPolicy policy = policy(5, RetryPolicy.DEFAULT_RETRY_ON);
+
+    assertThat(policy.execute(this::send).statusCode()).isEqualTo(400);
+    assertThat(requests).hasValue(1);
+  }
+
+  @Test
+  void shouldRetryIoExceptionsUntilMaxAttempts() {
+    RetryPolicy policy = policy(3, RetryPolicy.DEFAULT_RETRY_ON);
+
+    assertThatThrownBy(() ->
+      policy.execute(() -> {
+        requests.incrementAndGet();
+        throw new IOException("Connection reset");
+      })
+    ).hasMessage("Connection reset");
+    assertThat(requests).hasValue(3);
+  }
+
+  @Test
+  void shouldNotRetryTlsFailures() {
+    RetryPolicy policy = policy(3, RetryPolicy.DEFAULT_RETRY_ON);
+
+    assertThatThrownBy(() ->
+      policy.execute(() -> {
+        requests.incrementAndGet();
+        throw new SSLHandshakeException("PKIX path building failed");
+      })
+    ).isExactlyInstanceOf(SSLHandshakeException.class);
+    assertThat(requests).hasValue(1);
+  }
+
+  private static RetryPolicy policy(int maxAttempts, List<String> retryOn) {
+    return RetryPolicy.of(new RetryPolicy.Settings(maxAttempts, Duration.ofMillis(1), Duration.ofMillis(4), retryOn));
+  }
+
+  // Répond successivement les statuts donnés, le dernier ensuite
+  private void startServer(Integer... responses) throws Exception {
+    statuses.addAll(List.of(responses));
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", exchange -> {
+      requests.incrementAndGet();
+      Integer status = statuses.size() > 1 ? statuses.poll() : statuses.peek();
+      exchange.sendResponseHeaders(status, -1);
+      exchange.close();
+    });
+    server.start();
+  }
+
+  private HttpResponse<Void> send() throws IOException, InterruptedException {
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getAddress().getPort() + "/")).build();
+    return httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+  }
+}
@@ -0,0 +1,30 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class ServerSentEventsTest {
+
+  @Test
+  void shouldKeepOnlyDataLines() {
+    Stream<String> lines = Stream.of(": keep-alive", "event: log", "id: 1", "data: [INFO] Running recipe", "data:second line", "", "retry: 1000");
+
+    assertThat(ServerSentEvents.data(lines)).containsExactly("[INFO] Running recipe", "second line");
+  }
+
+  @Test
+  void shouldStopAtEndEvent() {
+    Stream<String> lines = Stream.of("data: first", "", "event: end", "data: ignored");
+
+    assertThat(ServerSentEvents.data(lines)).containsExactly("first");
+  }
+
+  @Test
+  void shouldConsumeLinesLazily() {
+    Stream<String> infinite = Stream.iterate(0, i -> i + 1).map(i -> "data: line " + i);
+
+    assertThat(ServerSentEvents.data(infinite).limit(3)).containsExactly("line 0", "line 1", "line 2");
+  }
+}
@@ -0,0 +1,41 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SubmissionExecutorTest {
+
+  @Test
+  void shouldNotAcceptLessThanOneTaskInFlight() {
+    assertThatThrownBy(() -> SubmissionExecutor.virtualThreads(0)).isExactlyInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void shouldCapTasksInFlight() throws Exception {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<Future<Integer>> futures = new ArrayList<>();
+
+    try (SubmissionExecutor executor = SubmissionExecutor.virtualThreads(3)) {
+      for (int i = 0; i < 50; i++) {
+        int task = i;
+        futures.add(
+          executor.submit(() -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            running.decrementAndGet();
+            return task;
+          })
+        );
+      }
+    }
+
+    assertThat(maxRunning.get()).isBetween(1, 3);
+    assertThat(futures.get(49).get()).isEqualTo(49);
+  }
+}
@@ -0,0 +1,148 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedTrustManager;
+import javax.net.ssl.X509TrustManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TlsHandshakeStatsTest {
+
+  private final TlsHandshakeStats stats = new TlsHandshakeStats();
+
+  @Test
+  void shouldCountServerCertificateChecksAsFullHandshakes() throws Exception {
+    X509TrustManager trustManager = (X509TrustManager) stats.wrap(new TrustManager[] { new AcceptAllTrustManager() })[0];
+
+    trustManager.checkServerTrusted(new X509Certificate[0], "RSA");
+    trustManager.checkClientTrusted(new X509Certificate[0], "RSA");
+
+    assertThat(trustManager).isNotInstanceOf(X509ExtendedTrustManager.class);
+    assertThat(stats.fullHandshakes()).isEqualTo(1);
+    assertThat(stats.resumedHandshakes()).isZero();
+  }
+
+  @Test
+  void shouldKeepExtendedTrustManagersExtended() throws Exception {
+    TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    trustManagerFactory.init((KeyStore) null);
+
+    assertThat(stats.wrap(trustManagerFactory.getTrustManagers())).hasOnlyElementsOfType(X509ExtendedTrustManager.class);
+  }
+
+  @Test
+  void shouldCountResumedTls12ConnectionsSharingTheSessionTheyResume(@TempDir Path folder) throws Exception {
+    Path keyStoreFile = folder.resolve("server.p12");
+    Process keytool = new ProcessBuilder(
+      Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+      "-genkeypair",
+      "-keystore",
+      keyStoreFile.toString(),
+      "-storetype",
+      "PKCS12",
+      "-storepass",
+      "changeit",
+      "-alias",
+      "server",
+      "-keyalg",
+      "EC",
+      "-dname",
+      "CN=localhost",
+      "-validity",
+      "1"
+    )
+      .redirectErrorStream(true)
+      .start();
+    keytool.getInputStream().transferTo(OutputStream.nullOutputStream());
+    assertThat(keytool.waitFor()).isZero();
+    KeyStore keyStore = KeyStore.getInstance("PKCS12");
+    try (InputStream in = Files.newInputStream(keyStoreFile)) {
+      keyStore.load(in, "changeit".toCharArray());
+    }
+    KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagerFactory.init(keyStore, "changeit".toCharArray());
+    SSLContext server = SSLContext.getInstance("TLSv1.2");
+    server.init(keyManagerFactory.getKeyManagers(), null, null);
+    TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    trustManagerFactory.init(keyStore);
+    SSLContext client = SSLContext.getInstance("TLSv1.2");
+    client.init(null, stats.wrap(trustManagerFactory.getTrustManagers()), null);
+    SSLContext countingClient = stats.wrap(client);
+
+    SSLSession first = handshake(countingClient.createSSLEngine("localhost", 443), server.createSSLEngine());
+    SSLSession second = handshake(countingClient.createSSLEngine("localhost", 443), server.createSSLEngine());
+
+    // La seconde connexion reprend la session de la première, le même objet : seul le moteur de chacune les distingue
+    assertThat(second.getProtocol()).isEqualTo("TLSv1.2");
+    assertThat(second).isSameAs(first);
+    assertThat(stats.connections()).isEqualTo(2);
+    assertThat(stats.fullHandshakes()).isEqualTo(1);
+    assertThat(stats.resumedHandshakes()).isEqualTo(1);
+  }
+
+  private static SSLSession handshake(SSLEngine client, SSLEngine server) throws SSLException {
+    client.setUseClientMode(true);
+    server.setUseClientMode(false);
+    ByteBuffer toServer = ByteBuffer.allocate(64 * 1024);
+    ByteBuffer toClient = ByteBuffer.allocate(64 * 1024);
+    client.beginHandshake();
+    server.beginHandshake();
+    for (int i = 0; i < 100 && (handshaking(client) || handshaking(server)); i++) {
+      step(client, toClient, toServer);
+      step(server, toServer, toClient);
+    }
+    assertThat(handshaking(client) || handshaking(server)).isFalse();
+    return client.getSession();
+  }
+
+  private static boolean handshaking(SSLEngine engine) {
+    return engine.getHandshakeStatus() != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING;
+  }
+
+  private static void step(SSLEngine engine, ByteBuffer in, ByteBuffer out) throws SSLException {
+    switch (engine.getHandshakeStatus()) {
+      case NEED_WRAP -> engine.wrap(ByteBuffer.allocate(0), out);
+      case NEED_UNWRAP, NEED_UNWRAP_AGAIN -> {
+        in.flip();
+        engine.unwrap(in, ByteBuffer.allocate(64 * 1024));
+        in.compact();
+      }
+      case NEED_TASK -> {
+        for (Runnable task = engine.getDelegatedTask(); task != null; task = engine.getDelegatedTask()) {
+          task.run();
+        }
+      }
+      default -> {}
+    }
+  }
+
+  private static class AcceptAllTrustManager implements X509TrustManager {
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType) {}
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType) {}
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers() {
+      return new X509Certificate[0];
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package fr.rewrite.cli.client;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+  private static final long SECOND = 1_000_000_000L;
+
+  @Test
+  void shouldServeBurstThenPaceAtRate() {
+    TokenBucket bucket = new TokenBucket(10, 2, 0);
+
+    assertThat(bucket.reserve(0)).isZero();
+    assertThat(bucket.reserve(0)).isZero();
+    assertThat(bucket.reserve(0)).isEqualTo(SECOND / 10);
+    // Le jeton suivant est déjà réservé : le quatrième appelant passe un dixième de seconde après le troisième
+    assertThat(bucket.reserve(0)).isEqualTo(2 * SECOND / 10);
+  }
+
+  @Test
+  void shouldRefillUpToBurst() {
+    TokenBucket bucket = new TokenBucket(10, 2, 0);
+    bucket.reserve(0);
+    bucket.reserve(0);
+
+    assertThat(bucket.reserve(10 * SECOND)).isZero();
+    assertThat(bucket.reserve(10 * SECOND)).isZero();
+    assertThat(bucket.reserve(10 * SECOND)).isPositive();
+  }
+
+  @Test
+  void shouldRejectInvalidSettings() {
+    assertThatIllegalArgumentException().isThrownBy(() -> new TokenBucket(0, 1, 0));
+    assertThatIllegalArgumentException().isThrownBy(() -> new TokenBucket(1, 0, 0));
+  }
+}
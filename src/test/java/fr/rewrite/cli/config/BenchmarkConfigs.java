@@ -0,0 +1,55 @@
+package fr.rewrite.cli.config;
+
+final class BenchmarkConfigs {
+
+  private BenchmarkConfigs() {}
+
+  /**
+   * Builds a configuration with the given number of contexts, clusters and users, the current context being the last one.
+   */
+  static String yaml(int entries) {
+    StringBuilder yaml = new StringBuilder("apiVersion: v1\ncurrentContext: context-" + (entries - 1) + "\n");
+
+    yaml.append("clusters:\n");
+    for (int i = 0; i < entries; i++) {
+      yaml
+        .append("  - name: cluster-")
+        .append(i)
+        .append("\n    cluster:\n      server: https://orchestrator-")
+        .append(i)
+        .append(".example.com/api/rewrite\n      certificateAuthorityFile: /etc/rewrite/ca-")
+        .append(i)
+        .append(".crt\n");
+    }
+
+    yaml.append("users:\n");
+    for (int i = 0; i < entries; i++) {
+      yaml
+        .append("  - name: user-")
+        .append(i)
+        .append("\n    user:\n      username: user-")
+        .append(i)
+        .append("\n      gitPatForGit: git-pat-")
+        .append(i)
+        .append("\n      gitPatForApi: api-pat-")
+        .append(i)
+        .append("\n      clientKeystorePath: ~/.rewrite/user-")
+        .append(i)
+        .append(".p12\n      clientKeystorePassword: changeit\n");
+    }
+
+    yaml.append("contexts:\n");
+    for (int i = 0; i < entries; i++) {
+      yaml
+        .append("  - name: context-")
+        .append(i)
+        .append("\n    context:\n      cluster: cluster-")
+        .append(i)
+        .append("\n      user: user-")
+        .append(i)
+        .append("\n");
+    }
+
+    return yaml.toString();
+  }
+}
@@ -0,0 +1,58 @@
+package fr.rewrite.cli.config;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ConfigIndexTest {
+
+  @Test
+  void shouldResolveByName() {
+    Config config = config("context-1", "context-2");
+
+    assertThat(config.index().context("context-2")).containsSame(config.getContexts().get(1));
+    assertThat(config.index().context("unknown")).isEmpty();
+    assertThat(config.index().cluster("unknown")).isEmpty();
+  }
+
+  @Test
+  void shouldRejectDuplicateNames() {
+    Config config = config("context-1", "context-1");
+
+    assertThatThrownBy(config::index)
+      .isExactlyInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Duplicate context name 'context-1' in config.");
+  }
+
+  @Test
+  void shouldRebuildIndexWhenListIsReplaced() {
+    Config config = config("context-1");
+    ConfigIndex first = config.index();
+    assertThat(config.index()).isSameAs(first);
+
+    config.setContexts(config("context-2").getContexts());
+
+    assertThat(config.index().context("context-2")).isPresent();
+    assertThat(config.index().context("context-1")).isEmpty();
+  }
+
+  @Test
+  void shouldIndexEmptyConfig() {
+    assertThat(new Config().index().contexts()).isEmpty();
+  }
+
+  private static Config config(String... contextNames) {
+    List<NamedContext> contexts = new ArrayList<>();
+    for (String name : contextNames) {
+      NamedContext context = new NamedContext();
+      context.setName(name);
+      contexts.add(context);
+    }
+
+    Config config = new Config();
+    config.setContexts(contexts);
+    return config;
+  }
+}
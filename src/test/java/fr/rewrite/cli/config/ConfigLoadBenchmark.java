@@ -0,0 +1,72 @@
+package fr.rewrite.cli.config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares parsing the YAML configuration, as done on every call without snapshot (with the shared YAML reader),
+ * with reading its binary snapshot and with streaming only the current context out of the YAML.
+ *
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark test -Dbenchmark=ConfigLoadBenchmark}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigLoadBenchmark {
+
+  @Param({ "10", "500" })
+  private int entries;
+
+  private Path folder;
+  private Path configFile;
+
+  @Setup(Level.Trial)
+  public void writeConfig() throws IOException {
+    folder = Files.createTempDirectory("config-load-benchmark");
+    configFile = folder.resolve("config.yaml");
+    Files.writeString(configFile, BenchmarkConfigs.yaml(entries));
+    ConfigSnapshot.write(configFile, ConfigLoader.parseConfig(configFile));
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteConfig() throws IOException {
+    Files.deleteIfExists(ConfigSnapshot.snapshotPath(configFile));
+    Files.deleteIfExists(configFile);
+    Files.deleteIfExists(folder);
+  }
+
+  @Benchmark
+  public Config parseYaml() throws IOException {
+    return ConfigLoader.parseConfig(configFile);
+  }
+
+  @Benchmark
+  public Config selectContext() throws IOException {
+    return ConfigSelector.select(configFile, null);
+  }
+
+  @Benchmark
+  public Config readSnapshot() {
+    return ConfigSnapshot.read(configFile).orElseThrow();
+  }
+}
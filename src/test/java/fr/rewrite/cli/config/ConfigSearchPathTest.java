@@ -0,0 +1,115 @@
+package fr.rewrite.cli.config;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigSearchPathTest {
+
+  private static final String TEAM_A =
+    """
+    currentContext: context-a
+    clusters:
+      - name: shared
+        cluster:
+          server: https://a.example.com
+    contexts:
+      - name: context-a
+        context:
+          cluster: shared
+          user: user-a
+    """;
+
+  private static final String TEAM_B =
+    """
+    currentContext: context-b
+    clusters:
+      - name: shared
+        cluster:
+          server: https://b.example.com
+    users:
+      - name: user-a
+        user:
+          username: a
+    contexts:
+      - name: context-b
+        context:
+          cluster: shared
+          user: user-a
+    """;
+
+  @TempDir
+  private Path folder;
+
+  @Test
+  void shouldMergeFilesFirstDefinitionWinning() throws Exception {
+    Path teamA = write("team-a.yaml", TEAM_A);
+    Path teamB = write("team-b.yaml", TEAM_B);
+
+    Config merged = searchPath(teamA + File.pathSeparator + teamB).load();
+
+    assertThat(merged.getCurrentContext()).isEqualTo("context-a");
+    assertThat(merged.getContexts()).extracting(NamedContext::getName).containsExactly("context-a", "context-b");
+    assertThat(merged.index().cluster("shared").orElseThrow().getCluster().getServer()).isEqualTo("https://a.example.com");
+    assertThat(merged.index().user("user-a")).isPresent();
+  }
+
+  @Test
+  void shouldReadYamlFilesOfDirectoriesInNameOrder() throws Exception {
+    Path fragments = Files.createDirectory(folder.resolve("fragments"));
+    Files.writeString(fragments.resolve("2-team-a.yaml"), TEAM_A);
+    Files.writeString(fragments.resolve("1-team-b.yml"), TEAM_B);
+    Files.writeString(fragments.resolve("README.md"), "not a config");
+
+    ConfigSearchPath searchPath = searchPath(fragments + File.pathSeparator + folder.resolve("missing.yaml"));
+
+    assertThat(searchPath.files()).extracting(file -> file.getFileName().toString()).containsExactly("1-team-b.yml", "2-team-a.yaml");
+    assertThat(searchPath.load().getCurrentContext()).isEqualTo("context-b");
+  }
+
+  @Test
+  void shouldReuseMergedSnapshotUntilFilesChange() throws Exception {
+    Path fragments = Files.createDirectory(folder.resolve("fragments"));
+    Files.writeString(fragments.resolve("team-b.yaml"), TEAM_B);
+    ConfigSearchPath searchPath = searchPath(fragments.toString());
+
+    Config merged = searchPath.load();
+
+    assertThat(searchPath.snapshotPath()).exists();
+    assertThat(ConfigSnapshot.read(searchPath.snapshotPath(), searchPath.files())).contains(merged);
+
+    Files.writeString(fragments.resolve("team-a.yaml"), TEAM_A);
+
+    assertThat(ConfigSnapshot.read(searchPath.snapshotPath(), searchPath.files())).isEmpty();
+    assertThat(searchPath.load().getContexts()).hasSize(2);
+  }
+
+  @Test
+  void shouldRejectDuplicateNamesWithinAFile() throws Exception {
+    Path teamA = write("team-a.yaml", TEAM_A + "  - name: context-a\n");
+
+    assertThatThrownBy(() -> searchPath(teamA.toString()).load())
+      .isExactlyInstanceOf(IllegalArgumentException.class)
+      .hasMessage(teamA + ": Duplicate context name 'context-a' in config.");
+  }
+
+  @Test
+  void shouldIgnoreEmptySearchPath() {
+    assertThat(ConfigSearchPath.parse(" ", folder)).isEmpty();
+    assertThat(ConfigSearchPath.parse(null, folder)).isEmpty();
+  }
+
+  private ConfigSearchPath searchPath(String value) {
+    return ConfigSearchPath.parse(value, folder.resolve("cache")).orElseThrow();
+  }
+
+  private Path write(String name, String yaml) throws Exception {
+    Path file = folder.resolve(name);
+    Files.writeString(file, yaml);
+    return file;
+  }
+}
@@ -0,0 +1,115 @@
+package fr.rewrite.cli.config;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigSelectorTest {
+
+  @TempDir
+  private Path folder;
+
+  @Test
+  void shouldSelectOnlyTheCurrentContext() throws Exception {
+    Path configFile = writeConfig(BenchmarkConfigs.yaml(5));
+    Config parsed = ConfigLoader.parseConfig(configFile);
+
+    Config selected = ConfigSelector.select(configFile, null);
+
+    assertThat(selected.getCurrentContext()).isEqualTo("context-4");
+    assertThat(selected.getContexts()).containsExactly(parsed.getContexts().get(4));
+    assertThat(selected.getClusters()).containsExactly(parsed.getClusters().get(4));
+    assertThat(selected.getUsers()).containsExactly(parsed.getUsers().get(4));
+    assertThat(selected.getUsers().get(0).getUser().getClientKeystorePath()).startsWith(System.getProperty("user.home"));
+  }
+
+  @Test
+  void shouldSelectRequestedContext() throws Exception {
+    Config selected = ConfigSelector.select(writeConfig(BenchmarkConfigs.yaml(5)), "context-1");
+
+    assertThat(selected.index().context("context-1")).isPresent();
+    assertThat(selected.index().cluster("cluster-1")).isPresent();
+    assertThat(selected.index().user("user-1")).isPresent();
+    assertThat(selected.getClusters()).hasSize(1);
+  }
+
+  @Test
+  void shouldSelectWhateverTheOrderOfSectionsAndFields() throws Exception {
+    Path configFile = writeConfig(
+      """
+      users:
+        - user:
+            username: second
+          name: user-b
+        - name: user-a
+          user:
+            username: first
+      contexts:
+        - context:
+            cluster: cluster-a
+            user: user-a
+          name: context-a
+      clusters:
+        - name: cluster-a
+          cluster:
+            server: https://a.example.com
+      currentContext: context-a
+      """
+    );
+
+    Config selected = ConfigSelector.select(configFile, null);
+
+    assertThat(selected.getContexts()).extracting(NamedContext::getName).containsExactly("context-a");
+    assertThat(selected.getClusters().get(0).getCluster().getServer()).isEqualTo("https://a.example.com");
+    assertThat(selected.getUsers().get(0).getUser().getUsername()).isEqualTo("first");
+  }
+
+  @Test
+  void shouldReturnEmptyListsForUnknownContext() throws Exception {
+    Config selected = ConfigSelector.select(writeConfig(BenchmarkConfigs.yaml(2)), "unknown");
+
+    assertThat(selected.getContexts()).isEmpty();
+    assertThat(selected.getClusters()).isEmpty();
+    assertThat(selected.getUsers()).isEmpty();
+  }
+
+  @Test
+  void shouldRejectDuplicateSelectedName() throws Exception {
+    Path configFile = writeConfig(BenchmarkConfigs.yaml(2).replace("name: cluster-0", "name: cluster-1"));
+
+    assertThatThrownBy(() -> ConfigSelector.select(configFile, "context-1"))
+      .isExactlyInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Duplicate cluster name 'cluster-1' in config.");
+  }
+
+  @Test
+  void shouldRejectDuplicateNameOutsideTheSelection() throws Exception {
+    // Doublons lus après et avant le nom à sélectionner
+    Path configFile = writeConfig(BenchmarkConfigs.yaml(3).replace("name: context-0", "name: context-2"));
+    assertThatThrownBy(() -> ConfigSelector.select(configFile, "context-1"))
+      .isExactlyInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Duplicate context name 'context-2' in config.");
+
+    Files.writeString(configFile, BenchmarkConfigs.yaml(3).replace("name: user-0", "name: user-2"));
+    assertThatThrownBy(() -> ConfigSelector.select(configFile, "context-1"))
+      .isExactlyInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Duplicate user name 'user-2' in config.");
+  }
+
+  @Test
+  void shouldFailTheFastPathLikeTheFullLoad() throws Exception {
+    Path configFile = writeConfig(BenchmarkConfigs.yaml(3).replace("name: cluster-0", "name: cluster-2"));
+
+    assertThatThrownBy(() -> ConfigLoader.loadConfig(configFile)).hasMessage("Duplicate cluster name 'cluster-2' in config.");
+    assertThatThrownBy(() -> ConfigLoader.loadContext(configFile, "context-1")).hasMessage("Duplicate cluster name 'cluster-2' in config.");
+  }
+
+  private Path writeConfig(String yaml) throws Exception {
+    Path configFile = folder.resolve("config.yaml");
+    Files.writeString(configFile, yaml);
+    return configFile;
+  }
+}
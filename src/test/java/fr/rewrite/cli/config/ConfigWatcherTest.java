@@ -0,0 +1,77 @@
+package fr.rewrite.cli.config;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigWatcherTest {
+
+  @TempDir
+  private Path folder;
+
+  @Test
+  void shouldReloadChangedFileAndReportChangedEntries() throws Exception {
+    Path configFile = folder.resolve("config.yaml");
+    Files.writeString(configFile, BenchmarkConfigs.yaml(3));
+    BlockingQueue<ConfigDiff> diffs = new LinkedBlockingQueue<>();
+
+    try (ConfigWatcher watcher = ConfigWatcher.start(configFile, (previous, current, diff) -> diffs.add(diff))) {
+      assertThat(watcher.current().getClusters()).hasSize(3);
+
+      String edited = BenchmarkConfigs.yaml(3).replace("orchestrator-1.", "orchestrator-9.").replace("api-pat-2", "other-pat");
+      Files.writeString(configFile, edited);
+
+      ConfigDiff diff = diffs.poll(10, TimeUnit.SECONDS);
+      assertThat(diff).isNotNull();
+      assertThat(diff.clusters()).containsExactly("cluster-1");
+      assertThat(diff.users()).containsExactly("user-2");
+      assertThat(diff.contexts()).isEmpty();
+      assertThat(watcher.current().index().cluster("cluster-1").orElseThrow().getCluster().getServer()).contains("orchestrator-9");
+    }
+  }
+
+  @Test
+  void shouldKeepPreviousConfigWhenFileCannotBeParsed() throws Exception {
+    Path configFile = folder.resolve("config.yaml");
+    Files.writeString(configFile, BenchmarkConfigs.yaml(2));
+    BlockingQueue<ConfigDiff> diffs = new LinkedBlockingQueue<>();
+
+    try (ConfigWatcher watcher = ConfigWatcher.start(configFile, (previous, current, diff) -> diffs.add(diff))) {
+      Files.writeString(configFile, "clusters: [");
+      Files.writeString(folder.resolve("other.yaml"), BenchmarkConfigs.yaml(1));
+
+      assertThat(diffs.poll(1, TimeUnit.SECONDS)).isNull();
+      assertThat(watcher.current().getClusters()).hasSize(2);
+
+      Files.writeString(configFile, BenchmarkConfigs.yaml(1));
+
+      assertThat(diffs.poll(10, TimeUnit.SECONDS).clusters()).containsExactly("cluster-1");
+    }
+  }
+
+  @Test
+  void shouldDiffAddedAndRemovedEntries() {
+    Config previous = new Config();
+    NamedUser user = new NamedUser();
+    user.setName("removed");
+    previous.setUsers(List.of(user));
+
+    Config current = new Config();
+    NamedCluster cluster = new NamedCluster();
+    cluster.setName("added");
+    current.setClusters(List.of(cluster));
+
+    ConfigDiff diff = ConfigDiff.between(previous, current);
+
+    assertThat(diff.users()).containsExactly("removed");
+    assertThat(diff.clusters()).containsExactly("added");
+    assertThat(ConfigDiff.between(current, current).isEmpty()).isTrue();
+  }
+}
@@ -0,0 +1,69 @@
+package fr.rewrite.cli.daemon;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DaemonClientTest {
+
+  @TempDir
+  private Path folder;
+
+  @Test
+  void shouldFailWithoutRunningAgainWhenTheDaemonClosesMidCommand() throws Exception {
+    Path socket = folder.resolve("daemon.sock");
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(socket));
+      // Le démon reçoit la commande, en écrit le début puis disparaît sans trame EXIT
+      CompletableFuture<String[]> received = CompletableFuture.supplyAsync(() -> {
+        try (SocketChannel client = server.accept()) {
+          String[] args = DaemonProtocol.readRequest(new DataInputStream(new BufferedInputStream(Channels.newInputStream(client))));
+          DataOutputStream out = new DataOutputStream(Channels.newOutputStream(client));
+          byte[] output = "Envoi de la requête...\n".getBytes(StandardCharsets.UTF_8);
+          out.writeByte(DaemonProtocol.STDOUT);
+          out.writeInt(output.length);
+          out.write(output);
+          out.flush();
+          return args;
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+
+      ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+      ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+      int exitCode = DaemonClient.forward(socket, new String[] { "--repo-list", "/tmp/repos.txt" }, stdout, stderr);
+
+      assertThat(received.get(10, TimeUnit.SECONDS)).containsExactly("--repo-list", "/tmp/repos.txt");
+      assertThat(exitCode).isEqualTo(1);
+      assertThat(stdout.toString(StandardCharsets.UTF_8)).isEqualTo("Envoi de la requête...\n");
+      assertThat(stderr.toString(StandardCharsets.UTF_8)).contains("closed before the end of the command", "not run again");
+    }
+  }
+
+  @Test
+  void shouldLeaveTheCommandToRunInProcessWhenTheDaemonIsUnreachable() {
+    Path socket = folder.resolve("daemon.sock");
+
+    ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+    assertThatThrownBy(() -> DaemonClient.forward(socket, new String[] { "logs", "job-1" }, new ByteArrayOutputStream(), stderr))
+      .isInstanceOf(IOException.class);
+    assertThat(stderr.size()).isZero();
+  }
+}
@@ -0,0 +1,107 @@
+package fr.rewrite.cli.daemon;
+
+import static org.assertj.core.api.Assertions.*;
+
+import fr.rewrite.cli.client.SubmissionExecutor;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DaemonServerTest {
+
+  @TempDir
+  private Path folder;
+
+  @Test
+  void shouldRunForwardedCommandsAndRouteTheirOutput() throws Exception {
+    Path socket = folder.resolve("daemon.sock");
+    DaemonServer server = new DaemonServer(socket, Duration.ofMinutes(1), (args, out, err) -> {
+      System.out.println("out " + String.join(" ", args));
+      err.println("err");
+      return args.length;
+    });
+    CompletableFuture<Void> running = start(server, socket);
+    // Lié dans un répertoire privé puis déplacé : ni droits par défaut, ni répertoire restant
+    assertThat(Files.getPosixFilePermissions(socket)).isEqualTo(PosixFilePermissions.fromString("rw-------"));
+    try (Stream<Path> files = Files.list(folder)) {
+      assertThat(files).containsExactly(socket);
+    }
+
+    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+    int exitCode = DaemonClient.forward(socket, new String[] { "logs", "job-1" }, stdout, stderr);
+
+    assertThat(exitCode).isEqualTo(2);
+    assertThat(stdout.toString(StandardCharsets.UTF_8)).isEqualToIgnoringNewLines("out logs job-1");
+    assertThat(stderr.toString(StandardCharsets.UTF_8)).isEqualToIgnoringNewLines("err");
+
+    assertThat(DaemonClient.stop(socket)).isTrue();
+    running.get(10, TimeUnit.SECONDS);
+    assertThat(socket).doesNotExist();
+  }
+
+  @Test
+  void shouldRouteOnlyTheWorkACommandHandsOffExplicitly() throws Exception {
+    Path socket = folder.resolve("daemon.sock");
+    DaemonServer server = new DaemonServer(socket, Duration.ofMinutes(1), (args, out, err) -> {
+      try (SubmissionExecutor executor = SubmissionExecutor.virtualThreads(1)) {
+        executor.submit(() -> {
+          System.out.println("task");
+          return null;
+        }).get();
+        // Un thread démarré par la commande n'hérite pas de sa sortie
+        Thread.ofVirtual().start(() -> System.err.println("stray")).join();
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+      return 0;
+    });
+    CompletableFuture<Void> running = start(server, socket);
+
+    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+    int exitCode = DaemonClient.forward(socket, new String[] { "submit" }, stdout, stderr);
+
+    assertThat(exitCode).isZero();
+    assertThat(stdout.toString(StandardCharsets.UTF_8)).isEqualToIgnoringNewLines("task");
+    assertThat(stderr.toString(StandardCharsets.UTF_8)).isEmpty();
+
+    assertThat(DaemonClient.stop(socket)).isTrue();
+    running.get(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void shouldMakePathOptionsAbsolute() {
+    String[] args = DaemonClient.absolutePaths(new String[] { "-c", "config.yaml", "--repo-list=repos.txt", "--recipe", "recipe" });
+
+    assertThat(args[1]).isEqualTo(Path.of("config.yaml").toAbsolutePath().toString());
+    assertThat(args[2]).isEqualTo("--repo-list=" + Path.of("repos.txt").toAbsolutePath());
+    assertThat(args[4]).isEqualTo("recipe");
+  }
+
+  private static CompletableFuture<Void> start(DaemonServer server, Path socket) throws InterruptedException {
+    CompletableFuture<Void> running = CompletableFuture.runAsync(() -> {
+      try {
+        server.run();
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    waitForSocket(socket);
+    return running;
+  }
+
+  private static void waitForSocket(Path socket) throws InterruptedException {
+    for (int i = 0; i < 100 && !DaemonClient.isRunning(socket); i++) {
+      Thread.sleep(50);
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package fr.rewrite.cli.outbox;
+
+import static org.assertj.core.api.Assertions.*;
+
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.client.SubmissionExecutor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OutboxTest {
+
+  @TempDir
+  private Path folder;
+
+  @Test
+  void shouldDrainAppendedEntriesOnce() throws Exception {
+    assertThat(Outbox.isEmpty(folder.resolve("missing"))).isTrue();
+    try (Outbox outbox = Outbox.open(folder)) {
+      outbox.append(entry(0));
+      outbox.appendAll(List.of(entry(1), entry(2)));
+    }
+    assertThat(Outbox.isEmpty(folder)).isFalse();
+
+    Set<String> sent = ConcurrentHashMap.newKeySet();
+    Outbox.DrainResult result = drain(entry -> {
+      sent.add(entry.request().getRepoUrl());
+      assertThat(entry.runId()).isEqualTo("run-1");
+      return Outbox.Delivery.DELIVERED;
+    });
+
+    assertThat(result).isEqualTo(new Outbox.DrainResult(3, 0, 0, true));
+    assertThat(sent).containsExactlyInAnyOrder(repoUrl(0), repoUrl(1), repoUrl(2));
+    assertThat(drain(entry -> fail("Already delivered: " + entry))).isEqualTo(new Outbox.DrainResult(0, 0, 0, true));
+    assertThat(segmentFiles()).isEmpty();
+    assertThat(Outbox.isEmpty(folder)).isTrue();
+  }
+
+  @Test
+  void shouldKeepEveryConcurrentAppendAcrossSegments() throws Exception {
+    try (Outbox outbox = Outbox.open(folder, 1024); ExecutorService appenders = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<?>> appends = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        Outbox.Entry entry = entry(i);
+        appends.add(appenders.submit(() -> {
+          outbox.append(entry);
+          return null;
+        }));
+      }
+      for (Future<?> append : appends) {
+        append.get();
+      }
+    }
+    assertThat(segmentFiles()).hasSizeGreaterThan(1);
+
+    Set<String> sent = ConcurrentHashMap.newKeySet();
+    Outbox.DrainResult result = drain(entry -> {
+      sent.add(entry.request().getRepoUrl());
+      return Outbox.Delivery.DELIVERED;
+    });
+
+    assertThat(result.delivered()).isEqualTo(200);
+    assertThat(sent).containsExactlyInAnyOrderElementsOf(IntStream.range(0, 200).mapToObj(OutboxTest::repoUrl).toList());
+  }
+
+  @Test
+  void shouldKeepUndeliveredEntriesWhenUnreachable() throws Exception {
+    try (Outbox outbox = Outbox.open(folder, 1024)) {
+      outbox.appendAll(IntStream.range(0, 50).mapToObj(OutboxTest::entry).toList());
+    }
+
+    // Le serveur tombe au milieu du drain : tout ce qui suit le premier échec doit rester en attente
+    Outbox.DrainResult partial = drainSequentially(entry ->
+      index(entry) < 20 ? Outbox.Delivery.DELIVERED : Outbox.Delivery.UNREACHABLE
+    );
+    assertThat(partial.complete()).isFalse();
+    assertThat(partial.delivered()).isEqualTo(20);
+
+    Set<String> resent = ConcurrentHashMap.newKeySet();
+    Outbox.DrainResult rest = drain(entry -> {
+      resent.add(entry.request().getRepoUrl());
+      return Outbox.Delivery.DELIVERED;
+    });
+    assertThat(rest).isEqualTo(new Outbox.DrainResult(30, 0, 0, true));
+    assertThat(resent).containsExactlyInAnyOrderElementsOf(IntStream.range(20, 50).mapToObj(OutboxTest::repoUrl).toList());
+  }
+
+  @Test
+  void shouldDropRejectedEntries() throws Exception {
+    try (Outbox outbox = Outbox.open(folder)) {
+      outbox.appendAll(List.of(entry(0), entry(1)));
+    }
+
+    Outbox.DrainResult result = drain(entry -> index(entry) == 0 ? Outbox.Delivery.REJECTED : Outbox.Delivery.DELIVERED);
+
+    assertThat(result).isEqualTo(new Outbox.DrainResult(1, 1, 0, true));
+    assertThat(drain(entry -> fail("Already drained: " + entry)).delivered()).isZero();
+  }
+
+  @Test
+  void shouldDropFailedEntriesWithoutBlockingTheNextOnes() throws Exception {
+    try (Outbox outbox = Outbox.open(folder)) {
+      outbox.appendAll(List.of(entry(0), entry(1), entry(2)));
+    }
+
+    Outbox.DrainResult result = drainSequentially(entry -> index(entry) == 0 ? Outbox.Delivery.FAILED : Outbox.Delivery.DELIVERED);
+
+    assertThat(result).isEqualTo(new Outbox.DrainResult(2, 0, 1, true));
+    assertThat(drain(entry -> fail("Already drained: " + entry)).delivered()).isZero();
+  }
+
+  @Test
+  void shouldIgnoreRecordTornByACrash() throws Exception {
+    try (Outbox outbox = Outbox.open(folder)) {
+      outbox.appendAll(List.of(entry(0), entry(1)));
+    }
+    // Trame dont seule la longueur et le début du contenu ont atteint le disque
+    Files.write(segmentFiles().get(0), new byte[] { 0, 0, 0, 100, 1, 2, 3, 4, 5 }, StandardOpenOption.APPEND);
+
+    try (Outbox outbox = Outbox.open(folder)) {
+      outbox.append(entry(2));
+    }
+
+    List<String> sent = new ArrayList<>();
+    Outbox.DrainResult result = drainSequentially(entry -> {
+      sent.add(entry.request().getRepoUrl());
+      return Outbox.Delivery.DELIVERED;
+    });
+
+    assertThat(result).isEqualTo(new Outbox.DrainResult(3, 0, 0, true));
+    assertThat(sent).containsExactly(repoUrl(0), repoUrl(1), repoUrl(2));
+  }
+
+  @Test
+  void shouldStoreOutboxesPerServer() {
+    Path root = folder.resolve("outbox");
+
+    assertThat(Outbox.directory(root, "https://a.example.com")).isEqualTo(Outbox.directory(root, "https://a.example.com"));
+    assertThat(Outbox.directory(root, "https://a.example.com")).isNotEqualTo(Outbox.directory(root, "https://b.example.com"));
+    assertThat(Outbox.directory(root, "https://a.example.com").getParent()).isEqualTo(root);
+  }
+
+  private Outbox.DrainResult drain(Outbox.Sender sender) throws Exception {
+    return drain(sender, 16);
+  }
+
+  private Outbox.DrainResult drainSequentially(Outbox.Sender sender) throws Exception {
+    return drain(sender, 1);
+  }
+
+  private Outbox.DrainResult drain(Outbox.Sender sender, int concurrency) throws Exception {
+    try (Outbox outbox = Outbox.open(folder); SubmissionExecutor executor = SubmissionExecutor.virtualThreads(concurrency)) {
+      return outbox.drain(executor, sender);
+    }
+  }
+
+  private List<Path> segmentFiles() throws Exception {
+    try (Stream<Path> files = Files.list(folder)) {
+      return files.filter(file -> file.getFileName().toString().startsWith("segment-")).sorted().toList();
+    }
+  }
+
+  private static Outbox.Entry entry(int index) {
+    RewriteConfig request = new RewriteConfig();
+    request.setRepoUrl(repoUrl(index));
+    request.setRecipeName("org.openrewrite.java.RemoveUnusedImports");
+    request.setBaseBranch("main");
+    return new Outbox.Entry("run-1", request);
+  }
+
+  private static String repoUrl(int index) {
+    return "https://github.com/org/repo-" + index + ".git";
+  }
+
+  private static int index(Outbox.Entry entry) {
+    String repoUrl = entry.request().getRepoUrl();
+    return Integer.parseInt(repoUrl.substring(repoUrl.lastIndexOf('-') + 1, repoUrl.length() - ".git".length()));
+  }
+}
@@ -0,0 +1,92 @@
+package fr.rewrite.cli.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.config.Config;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of a new mapper per call, as the CLI used to do, with the shared readers and writers of
+ * {@link Mappers}, for the request sent on every submission and for a small configuration file.
+ *
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark test -Dbenchmark=MappersBenchmark}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappersBenchmark {
+
+  private static final String CONFIG_YAML =
+    """
+    currentContext: dev
+    clusters:
+      - name: dev
+        cluster:
+          server: https://orchestrator.example.com/api/rewrite
+          certificateAuthorityFile: /etc/rewrite/ca.crt
+    users:
+      - name: dev
+        user:
+          username: dev
+          gitPatForGit: git-pat
+          gitPatForApi: api-pat
+    contexts:
+      - name: dev
+        context:
+          cluster: dev
+          user: dev
+    """;
+
+  private final RewriteConfig request = new RewriteConfig(
+    "https://github.com/org/repo.git",
+    "org.openrewrite.java.format.AutoFormat",
+    "user",
+    "git-pat",
+    "api-pat",
+    "github",
+    "main",
+    null,
+    true,
+    List.of("**/target/**", "**/node_modules/**", "**/generated/**"),
+    "Auto format",
+    "Auto format",
+    "Applies org.openrewrite.java.format.AutoFormat"
+  );
+
+  @Benchmark
+  public String writeRequestWithNewMapper() throws IOException {
+    return new ObjectMapper().writeValueAsString(request);
+  }
+
+  @Benchmark
+  public String writeRequestWithSharedWriter() throws IOException {
+    return Mappers.rewriteConfigWriter().writeValueAsString(request);
+  }
+
+  @Benchmark
+  public Config readConfigWithNewMapper() throws IOException {
+    return new ObjectMapper(new YAMLFactory()).readValue(CONFIG_YAML, Config.class);
+  }
+
+  @Benchmark
+  public Config readConfigWithSharedReader() throws IOException {
+    return Mappers.configReader().readValue(CONFIG_YAML);
+  }
+}
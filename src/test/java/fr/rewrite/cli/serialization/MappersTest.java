@@ -0,0 +1,35 @@
+package fr.rewrite.cli.serialization;
+
+import static org.assertj.core.api.Assertions.*;
+
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import fr.rewrite.cli.config.Config;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MappersTest {
+
+  @Test
+  void shouldWarmUpSharedReadersAndWriters() {
+    assertThatCode(Mappers::warmUp).doesNotThrowAnyException();
+  }
+
+  @Test
+  void shouldWriteRequestReadableAsTree() throws Exception {
+    RewriteConfig request = new RewriteConfig();
+    request.setRepoUrl("https://github.com/org/repo.git");
+    request.setSourceExcludePatterns(List.of("**/target/**"));
+
+    String json = Mappers.rewriteConfigWriter().writeValueAsString(request);
+
+    assertThat(Mappers.jsonTreeReader().readTree(json).get("sourceExcludePatterns").get(0).asText()).isEqualTo("**/target/**");
+  }
+
+  @Test
+  void shouldReadConfig() throws Exception {
+    Config config = Mappers.configReader().readValue("currentContext: dev\ncontexts:\n  - name: dev\n");
+
+    assertThat(config.getCurrentContext()).isEqualTo("dev");
+    assertThat(config.index().context("dev")).isPresent();
+  }
+}
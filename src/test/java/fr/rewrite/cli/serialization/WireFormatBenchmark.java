@@ -0,0 +1,65 @@
+package fr.rewrite.cli.serialization;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the encoding and decoding time of a submission request in each {@link WireFormat}. The payload size of
+ * each format is printed once per trial, next to the JMH results.
+ *
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark test -Dbenchmark=WireFormatBenchmark}
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+  @Param({ "JSON", "SMILE", "CBOR" })
+  private WireFormat format;
+
+  @Param({ "3", "1000" })
+  private int excludePatterns;
+
+  private RewriteConfig request;
+  private byte[] encoded;
+
+  @Setup
+  public void buildRequest() throws IOException {
+    request = new RewriteConfig();
+    request.setRepoUrl("https://github.com/org/repo.git");
+    request.setRecipeName("org.openrewrite.java.format.AutoFormat");
+    request.setPlatform("github");
+    request.setSourceExcludePatterns(IntStream.range(0, excludePatterns).mapToObj(i -> "**/generated-" + i + "/**").toList());
+    encoded = encode();
+    System.out.println(format + " payload, " + excludePatterns + " exclude patterns: " + encoded.length + " bytes");
+  }
+
+  @Benchmark
+  public byte[] encode() throws IOException {
+    return Mappers.rewriteConfigWriter(format).writeValueAsBytes(request);
+  }
+
+  @Benchmark
+  public JsonNode decode() throws IOException {
+    return Mappers.treeReader(format).readTree(encoded);
+  }
+}
@@ -0,0 +1,43 @@
+package fr.rewrite.cli.serialization;
+
+import static org.assertj.core.api.Assertions.*;
+
+import fr.rewrite.cli.application.dto.RewriteConfig;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class WireFormatTest {
+
+  @Test
+  void shouldFindFormatOfContentType() {
+    assertThat(WireFormat.fromContentType("application/json; charset=utf-8")).contains(WireFormat.JSON);
+    assertThat(WireFormat.fromContentType(" Application/X-Jackson-Smile ")).contains(WireFormat.SMILE);
+    assertThat(WireFormat.fromContentType("application/cbor;q=0.9")).contains(WireFormat.CBOR);
+    assertThat(WireFormat.fromContentType("text/plain")).isEmpty();
+  }
+
+  @ParameterizedTest
+  @EnumSource(WireFormat.class)
+  void shouldReadBackRequestWrittenInFormat(WireFormat format) throws Exception {
+    RewriteConfig request = new RewriteConfig();
+    request.setRepoUrl("https://github.com/org/repo.git");
+    request.setSourceExcludePatterns(List.of("**/target/**"));
+
+    byte[] bytes = Mappers.rewriteConfigWriter(format).writeValueAsBytes(request);
+
+    assertThat(Mappers.treeReader(format).readTree(bytes).get("repoUrl").asText()).isEqualTo("https://github.com/org/repo.git");
+  }
+
+  @Test
+  void shouldProduceSmallerPayloadInBinaryFormats() throws Exception {
+    RewriteConfig request = new RewriteConfig();
+    request.setSourceExcludePatterns(List.of("**/target/**", "**/node_modules/**", "**/generated/**"));
+
+    int json = Mappers.rewriteConfigWriter(WireFormat.JSON).writeValueAsBytes(request).length;
+
+    assertThat(Mappers.rewriteConfigWriter(WireFormat.SMILE).writeValueAsBytes(request)).hasSizeLessThan(json);
+    assertThat(Mappers.rewriteConfigWriter(WireFormat.CBOR).writeValueAsBytes(request)).hasSizeLessThan(json);
+  }
+}
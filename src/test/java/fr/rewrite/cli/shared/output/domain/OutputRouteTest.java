@@ -0,0 +1,65 @@
+package fr.rewrite.cli.shared.output.domain;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class OutputRouteTest {
+
+  private final OutputRoute route = new OutputRoute(new ByteArrayOutputStream(), new ByteArrayOutputStream());
+
+  @Test
+  void shouldRouteTheCurrentThreadUntilTheScopeIsClosed() {
+    OutputRoute inner = new OutputRoute(new ByteArrayOutputStream(), new ByteArrayOutputStream());
+
+    try (OutputRoute.Scope scope = route.enter()) {
+      assertThat(OutputRoute.current()).contains(route);
+      try (OutputRoute.Scope nested = inner.enter()) {
+        assertThat(OutputRoute.current()).contains(inner);
+      }
+      assertThat(OutputRoute.current()).contains(route);
+    }
+
+    assertThat(OutputRoute.current()).isEmpty();
+  }
+
+  @Test
+  void shouldNotRouteTheThreadsStartedByARoutedThread() throws Exception {
+    AtomicReference<Optional<OutputRoute>> seen = new AtomicReference<>();
+
+    try (OutputRoute.Scope scope = route.enter()) {
+      Thread.ofVirtual().start(() -> seen.set(OutputRoute.current())).join();
+    }
+
+    assertThat(seen.get()).isEmpty();
+  }
+
+  @Test
+  void shouldRunAPropagatedTaskWithTheRouteOfTheThreadThatWrappedIt() throws Exception {
+    AtomicReference<OutputRoute> ran = new AtomicReference<>();
+    Runnable task;
+    CompletableFuture<String> value = new CompletableFuture<>();
+    CompletableFuture<OutputRoute> completed = new CompletableFuture<>();
+
+    try (OutputRoute.Scope scope = route.enter()) {
+      task = OutputRoute.propagate(() -> ran.set(OutputRoute.current().orElse(null)));
+      value.whenComplete(OutputRoute.propagate((result, error) -> completed.complete(OutputRoute.current().orElse(null))));
+    }
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      executor.submit(task).get();
+      // Enveloppée hors de toute route, la tâche reste telle quelle
+      assertThat(executor.submit(OutputRoute.propagate(() -> OutputRoute.current().isPresent())).get()).isFalse();
+      executor.submit(() -> value.complete("done")).get();
+    }
+
+    assertThat(ran.get()).isSameAs(route);
+    assertThat(completed.get()).isSameAs(route);
+    assertThat(OutputRoute.current()).isEmpty();
+  }
+}